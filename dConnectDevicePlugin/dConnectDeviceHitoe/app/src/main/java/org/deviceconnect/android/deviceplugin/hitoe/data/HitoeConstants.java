@@ -63,6 +63,10 @@ public final class HitoeConstants {
     public static final int EX_WALK_UNIT_NUM = 100;
     /** Ex Left Right balance unit number. */
     public static final int EX_LR_BALANCE_UNIT_NUM = 250;
+    /** Number of records added to the Ex input in addition to the unit number. */
+    public static final int EX_UNIT_MARGIN_NUM = 5;
+    /** Number of records by which an Ex window slides after the analysis. */
+    public static final int EX_WINDOW_SLIDE_NUM = 25;
 
     /** getAvailableSensor. */
     public static final int API_ID_GET_AVAILABLE_SENSOR        = 0x1010;
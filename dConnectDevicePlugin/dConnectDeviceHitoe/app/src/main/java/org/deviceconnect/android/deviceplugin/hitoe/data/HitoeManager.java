@@ -13,7 +13,10 @@ import android.widget.Toast;
 
 import org.deviceconnect.android.deviceplugin.hitoe.BuildConfig;
 import org.deviceconnect.android.deviceplugin.hitoe.util.RawDataParseUtils;
+import org.deviceconnect.android.deviceplugin.hitoe.util.RawDataScanner;
+import org.deviceconnect.android.deviceplugin.hitoe.util.RecordWindow;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -120,7 +123,7 @@ public class HitoeManager {
     private final Map<HitoeDevice, WalkStateData> mWalkStateData;
 
     /** Save data for extended analysis. */
-    private ArrayList<TempExData> mListForEx;
+    private ArrayDeque<TempExData> mQueueForEx;
     /** Lock for the extension analysis. */
     private ReentrantLock mLockForEx;
     /** Expanded analysis flag. */
@@ -128,15 +131,15 @@ public class HitoeManager {
     /** Acceleration's interval. */
     private long mInterval = 0;
     /** Temporary storage data for pose estimation. */
-    private ArrayList<String> mListForPosture;
+    private RecordWindow mWindowForPosture;
     /** Lock for pose estimation. */
     private ReentrantLock mLockForPosture;
     /** Temporary storage data for walking state estimation. */
-    private ArrayList<String> mListForWalk;
+    private RecordWindow mWindowForWalk;
     /** Lock for walking state estimation. */
     private ReentrantLock mLockForWalk;
     /** Temporary storage data for the left and right balance estimation. */
-    private ArrayList<String> mListForLRBalance;
+    private RecordWindow mWindowForLRBalance;
     /** Lock for the left and right balance estimation. */
     private ReentrantLock mLockForLRBalance;
 
@@ -208,44 +211,54 @@ public class HitoeManager {
                 return;
             }
 
-            if (dataKey.equals("raw.ecg")) {
-                extractHealth(HeartData.HeartRateType.ECG, rawData, receiveDevice);
-            } else if (dataKey.equals("raw.acc")) {
-                analyzeAccelerationData(rawData, receiveDevice);
-                AccelerationData currentAccel = mAccelData.get(receiveDevice);
-                if (currentAccel == null) {
-                    currentAccel = new AccelerationData();
-                }
-                currentAccel = RawDataParseUtils.parseAccelerationData(currentAccel, rawData);
-                mAccelData.put(receiveDevice, currentAccel);
-            } else if (dataKey.equals("raw.rri")) {
-                extractHealth(HeartData.HeartRateType.RRI, rawData, receiveDevice);
-            } else if (dataKey.equals("raw.bat")) {
-                extractBattery(rawData, receiveDevice);
-            } else if (dataKey.equals("raw.hr")) {
-                extractHealth(HeartData.HeartRateType.Rate, rawData, receiveDevice);
-            } else if (dataKey.equals("ba.freq_domain")) {
-                parseFreqDomain(receiveDevice, rawData);
-            } else if (dataKey.equals("ex.stress")) {
-                StressEstimationData stress = RawDataParseUtils.parseStressEstimation(rawData);
-                mStressEstimationData.put(receiveDevice, stress);
-            } else if (dataKey.equals("ex.posture")) {
-                PoseEstimationData pose = RawDataParseUtils.parsePoseEstimation(rawData);
-                mPoseEstimationData.put(receiveDevice, pose);
-            } else if (dataKey.equals("ex.walk")) {
-                WalkStateData walk = mWalkStateData.get(receiveDevice);
-                if (walk == null) {
-                    walk = new WalkStateData();
+            switch (dataKey) {
+                case "raw.ecg":
+                    extractHealth(HeartData.HeartRateType.ECG, rawData, receiveDevice);
+                    break;
+                case "raw.acc":
+                    analyzeAccelerationData(rawData, receiveDevice);
+                    extractAcceleration(rawData, receiveDevice);
+                    break;
+                case "raw.rri":
+                    extractHealth(HeartData.HeartRateType.RRI, rawData, receiveDevice);
+                    break;
+                case "raw.bat":
+                    extractBattery(rawData, receiveDevice);
+                    break;
+                case "raw.hr":
+                    extractHealth(HeartData.HeartRateType.Rate, rawData, receiveDevice);
+                    break;
+                case "ba.freq_domain":
+                    parseFreqDomain(receiveDevice, rawData);
+                    break;
+                case "ex.stress":
+                    StressEstimationData stress = RawDataParseUtils.parseStressEstimation(rawData);
+                    mStressEstimationData.put(receiveDevice, stress);
+                    break;
+                case "ex.posture":
+                    PoseEstimationData pose = RawDataParseUtils.parsePoseEstimation(rawData);
+                    mPoseEstimationData.put(receiveDevice, pose);
+                    break;
+                case "ex.walk": {
+                    WalkStateData walk = mWalkStateData.get(receiveDevice);
+                    if (walk == null) {
+                        walk = new WalkStateData();
+                    }
+                    walk = RawDataParseUtils.parseWalkState(walk, rawData);
+                    mWalkStateData.put(receiveDevice, walk);
+                    break;
                 }
-                walk = RawDataParseUtils.parseWalkState(walk, rawData);
-                mWalkStateData.put(receiveDevice, walk);
-            } else if (dataKey.equals("ex.lr_balance")) {
-                WalkStateData walk = mWalkStateData.get(receiveDevice);
-                if (walk == null) {
-                    walk = new WalkStateData();
+                case "ex.lr_balance": {
+                    WalkStateData walk = mWalkStateData.get(receiveDevice);
+                    if (walk == null) {
+                        walk = new WalkStateData();
+                    }
+                    walk = RawDataParseUtils.parseWalkStateForBalance(walk, rawData);
+                    mWalkStateData.put(receiveDevice, walk);
+                    break;
                 }
-                walk = RawDataParseUtils.parseWalkStateForBalance(walk, rawData);
-                mWalkStateData.put(receiveDevice, walk);
+                default:
+                    break;
             }
 
             if (dataKey.startsWith(HitoeConstants.EX_DATA_PREFFIX)) {
@@ -260,11 +273,10 @@ public class HitoeManager {
 
                     mLockForEx.lock();
 
-                    if (!mFlagForEx && mListForEx.size() > 0) {
+                    if (!mFlagForEx && !mQueueForEx.isEmpty()) {
                         mFlagForEx = true;
 
-                        exData = mListForEx.get(0);
-                        mListForEx.remove(0);
+                        exData = mQueueForEx.poll();
                     }
                 } finally {
 
@@ -290,7 +302,7 @@ public class HitoeManager {
     public HitoeManager(final Context context) {
         mContext = context;
         mDBHelper = new HitoeDBHelper(context);
-        mListForEx = new ArrayList<>();
+        mQueueForEx = new ArrayDeque<>();
         mLockForEx = new ReentrantLock();
         mRegisterDevices = Collections.synchronizedList(
                 new ArrayList<HitoeDevice>());
@@ -301,14 +313,12 @@ public class HitoeManager {
         mWalkStateData = new ConcurrentHashMap<>();
         mAccelData = new ConcurrentHashMap<>();
         mConnectionListeners = new ArrayList<>();
-        mListForPosture = new ArrayList<>();
+        mWindowForPosture = RawDataParseUtils.createWindowForEx(HitoeConstants.EX_POSTURE_UNIT_NUM);
         mLockForPosture = new ReentrantLock();
-        mListForWalk = new ArrayList<>();
+        mWindowForWalk = RawDataParseUtils.createWindowForEx(HitoeConstants.EX_WALK_UNIT_NUM);
         mLockForWalk = new ReentrantLock();
-        mListForLRBalance = new ArrayList<>();
+        mWindowForLRBalance = RawDataParseUtils.createWindowForEx(HitoeConstants.EX_LR_BALANCE_UNIT_NUM);
         mLockForLRBalance = new ReentrantLock();
-        mListForEx = new ArrayList<>();
-        mLockForEx = new ReentrantLock();
         mNowTimestamps = new ConcurrentHashMap<>();
         mHitoeSdkAPI = HitoeSdkAPIImpl.getInstance(context);
         mHitoeSdkAPI.setAPICallback(mAPICallback);
@@ -826,10 +836,8 @@ public class HitoeManager {
             try {
                 mLockForEx.lock();
 
-                if (mListForEx.size() > 0) {
-                    exData = mListForEx.get(0);
-                    mListForEx.remove(0);
-                } else {
+                exData = mQueueForEx.poll();
+                if (exData == null) {
 
                     mFlagForEx = false;
                 }
@@ -1080,7 +1088,6 @@ public class HitoeManager {
     private void addExReceiverProcess(final int pos, final TempExData exData) {
 
         String keyString = exData.getKey();
-        ArrayList<String> dataList = exData.getDataList();
 
         if (!mRegisterDevices.get(pos).getAvailableExDataList().contains(keyString)) {
 
@@ -1100,18 +1107,9 @@ public class HitoeManager {
         keys[0] = keyString;
 
         StringBuilder paramStringBuilder = new StringBuilder();
-        StringBuilder dataStringBuilder = new StringBuilder();
         String paramString;
         String dataString;
 
-        for (int i = 0; i < dataList.size(); i++) {
-
-            if (dataStringBuilder.length() > 0) {
-
-                dataStringBuilder.append(HitoeConstants.BR);
-            }
-            dataStringBuilder.append(dataList.get(i));
-        }
         if (keyString.equals("ex.posture")) {
 
             if (paramStringBuilder.length() > 0) {
@@ -1162,7 +1160,7 @@ public class HitoeManager {
         }
 
         paramString = paramStringBuilder.toString();
-        dataString = dataStringBuilder.toString();
+        dataString = exData.getData();
         mHitoeSdkAPI.removeReceiver(null);
         responseId = mHitoeSdkAPI.addReceiver(null, keys, mDataReceiverCallback, paramString, dataString);
         if (responseId != HitoeConstants.RES_ID_SUCCESS) {
@@ -1302,21 +1300,11 @@ public class HitoeManager {
      * @param data 周波数領域特徴量データ
      */
     private void parseFreqDomain(final HitoeDevice receiveDevice, final String data) {
-
-        String[] lineList = data.split(HitoeConstants.BR);
-        ArrayList<String> stressInputList = new ArrayList<String>();
-
         if (receiveDevice.getAvailableExDataList().contains("ex.stress")) {
-            for (int i = 0; i < lineList.length; i++) {
-                stressInputList.add(lineList[i]);
-            }
-
-            try {
-                mLockForEx.lock();
-                mListForEx.add(new TempExData("ex.stress", stressInputList));
-            } finally {
-                mLockForEx.unlock();
-            }
+            // Trailing line separators are not passed to the analysis.
+            int start = RawDataScanner.lastRecordStart(data);
+            String stressInput = start < 0 ? "" : data.substring(0, RawDataScanner.recordEnd(data, start));
+            offerExData(new TempExData("ex.stress", stressInput));
         }
     }
     /**
@@ -1370,6 +1358,27 @@ public class HitoeManager {
         currentHeartRate.setDevice(current);
         mHRData.put(receiveDevice, currentHeartRate);
     }
+    /**
+     * Extract Acceleration data.
+     * @param rawData raw data
+     * @param receiveDevice Hitoe device
+     */
+    private void extractAcceleration(final String rawData, final HitoeDevice receiveDevice) {
+        // The first record of the raw data is reported.
+        double[] accel = new double[3];
+        if (RawDataScanner.parseFirstValues(rawData, accel) < 0) {
+            return;
+        }
+        AccelerationData currentAccel = mAccelData.get(receiveDevice);
+        if (currentAccel == null) {
+            currentAccel = new AccelerationData();
+        }
+        currentAccel.setAccelX(accel[0]);
+        currentAccel.setAccelY(accel[1]);
+        currentAccel.setAccelZ(accel[2]);
+        mAccelData.put(receiveDevice, currentAccel);
+    }
+
     /**
      * Analyze Acceleration data.
      * Get Posture Data, Walk State data, LR Balance data.
@@ -1377,131 +1386,61 @@ public class HitoeManager {
      * @param receiveDevice receive device
      */
     private void analyzeAccelerationData(final String rawData, final HitoeDevice receiveDevice) {
-        String[] lineList = rawData.split(HitoeConstants.BR);
-        ArrayList<String> postureInputList  = new ArrayList<String>();
-        ArrayList<String> walkInputList  = new ArrayList<String>();
-        ArrayList<String> lrBalanceInputList  = new ArrayList<String>();
-
-        ArrayList<String> workList = new ArrayList<String>();
-
-        for (int i = 0; i < lineList.length; i++) {
-
-            if (receiveDevice.getAvailableExDataList().contains("ex.posture")) {
-                try {
-                    mLockForPosture.lock();
-                    mListForPosture.add(lineList[i]);
-                    if (mListForPosture.size() > HitoeConstants.EX_POSTURE_UNIT_NUM + 5) {
-
-                        for (int j = 0; j < HitoeConstants.EX_POSTURE_UNIT_NUM; j++) {
-
-                            postureInputList.add(mListForPosture.get(j));
-                        }
-                        for (int j = HitoeConstants.EX_POSTURE_UNIT_NUM;
-                                    j < HitoeConstants.EX_POSTURE_UNIT_NUM + 5; j++) {
-
-                            postureInputList.add(mListForPosture.get(j));
-                        }
-                        workList = new ArrayList<>();
-                        for (int j = 25; j < mListForPosture.size(); j++) {
-
-                            workList.add(mListForPosture.get(j));
-                        }
-                        mListForPosture = workList;
-                    }
-                } finally {
-
-                    mLockForPosture.unlock();
-                }
-                if (postureInputList.size() > 0) {
-
-                    try {
-                        mLockForEx.lock();
-                        mListForEx.add(new TempExData("ex.posture", postureInputList));
-                    } finally {
-                        mLockForEx.unlock();
-                    }
-
-                    postureInputList.clear();
-                }
-            }
-            if (receiveDevice.getAvailableExDataList().contains("ex.walk")) {
-                try {
-                    mLockForWalk.lock();
-                    mListForWalk.add(lineList[i]);
-                    if (mListForWalk.size() > HitoeConstants.EX_WALK_UNIT_NUM + 5) {
-
-                        for (int j = 0; j < HitoeConstants.EX_WALK_UNIT_NUM; j++) {
-
-                            walkInputList.add(mListForWalk.get(j));
-                        }
-                        for (int j = HitoeConstants.EX_WALK_UNIT_NUM;
-                                    j < HitoeConstants.EX_WALK_UNIT_NUM + 5; j++) {
-
-                            walkInputList.add(mListForWalk.get(j));
-                        }
-
-                        workList = new ArrayList<>();
-                        for (int j = 25; j < mListForWalk.size(); j++) {
-
-                            workList.add(mListForWalk.get(j));
-                        }
-                        mListForWalk = workList;
-                    }
-                } finally {
-
-                    mLockForWalk.unlock();
-                }
-                if (walkInputList.size() > 0) {
-
-                    try {
-                        mLockForEx.lock();
-                        mListForEx.add(new TempExData("ex.walk", walkInputList));
-                    } finally {
-                        mLockForEx.unlock();
-                    }
-
-                    walkInputList.clear();
-                }
-            }
-            if (receiveDevice.getAvailableExDataList().contains("ex.lr_balance")) {
-                try {
-                    mLockForLRBalance.lock();
-                    mListForLRBalance.add(lineList[i]);
-                    if (mListForLRBalance.size() > HitoeConstants.EX_LR_BALANCE_UNIT_NUM + 5) {
-
-                        for (int j = 0; j < HitoeConstants.EX_LR_BALANCE_UNIT_NUM; j++) {
-
-                            lrBalanceInputList.add(mListForLRBalance.get(j));
-                        }
-                        for (int j = HitoeConstants.EX_LR_BALANCE_UNIT_NUM;
-                                j < HitoeConstants.EX_LR_BALANCE_UNIT_NUM + 5; j++) {
-
-                            lrBalanceInputList.add(mListForLRBalance.get(j));
-                        }
-                        workList = new ArrayList<>();
-                        for (int j = 25; j < mListForLRBalance.size(); j++) {
-
-                            workList.add(mListForLRBalance.get(j));
-                        }
-                        mListForLRBalance = workList;
-
-                    }
-                } finally {
+        List<String> availableExData = receiveDevice.getAvailableExDataList();
+        boolean posture = availableExData.contains("ex.posture");
+        boolean walk = availableExData.contains("ex.walk");
+        boolean lrBalance = availableExData.contains("ex.lr_balance");
+        if (!posture && !walk && !lrBalance) {
+            return;
+        }
 
-                    mLockForLRBalance.unlock();
-                }
-                if (lrBalanceInputList.size() > 0) {
+        if (posture) {
+            addRecordsForEx("ex.posture", mWindowForPosture, mLockForPosture,
+                    HitoeConstants.EX_POSTURE_UNIT_NUM, rawData);
+        }
+        if (walk) {
+            addRecordsForEx("ex.walk", mWindowForWalk, mLockForWalk,
+                    HitoeConstants.EX_WALK_UNIT_NUM, rawData);
+        }
+        if (lrBalance) {
+            addRecordsForEx("ex.lr_balance", mWindowForLRBalance, mLockForLRBalance,
+                    HitoeConstants.EX_LR_BALANCE_UNIT_NUM, rawData);
+        }
+    }
 
-                    try {
-                        mLockForEx.lock();
-                        mListForEx.add(new TempExData("ex.lr_balance", lrBalanceInputList));
-                    } finally {
-                        mLockForEx.unlock();
-                    }
+    /**
+     * Add the records of acceleration data to the window of an Ex analysis,
+     * and queue the inputs of the analysis built from the window.
+     * @param key Ex data key
+     * @param window window
+     * @param lock lock for the window
+     * @param unitNum unit number of the analysis
+     * @param rawData raw data
+     */
+    private void addRecordsForEx(final String key, final RecordWindow window, final ReentrantLock lock,
+                                 final int unitNum, final String rawData) {
+        List<String> inputs = new ArrayList<>();
+        try {
+            lock.lock();
+            RawDataParseUtils.addRecordsForEx(rawData, window, unitNum, inputs);
+        } finally {
+            lock.unlock();
+        }
+        for (String input : inputs) {
+            offerExData(new TempExData(key, input));
+        }
+    }
 
-                    lrBalanceInputList.clear();
-                }
-            }
+    /**
+     * Queue Ex data.
+     * @param exData Ex data
+     */
+    private void offerExData(final TempExData exData) {
+        try {
+            mLockForEx.lock();
+            mQueueForEx.offer(exData);
+        } finally {
+            mLockForEx.unlock();
         }
     }
 
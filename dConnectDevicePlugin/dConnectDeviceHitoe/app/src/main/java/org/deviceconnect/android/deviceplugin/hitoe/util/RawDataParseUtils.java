@@ -6,7 +6,6 @@
  */
 package org.deviceconnect.android.deviceplugin.hitoe.util;
 
-import org.deviceconnect.android.deviceplugin.hitoe.data.AccelerationData;
 import org.deviceconnect.android.deviceplugin.hitoe.data.HeartData;
 import org.deviceconnect.android.deviceplugin.hitoe.data.HitoeConstants;
 import org.deviceconnect.android.deviceplugin.hitoe.data.HitoeDevice;
@@ -20,6 +19,7 @@ import org.deviceconnect.profile.WalkStateProfileConstants;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 
 /**
@@ -83,26 +83,44 @@ public final class RawDataParseUtils {
 
 
     /**
-     * Parse Acceleration Data.
-     * @param data Accleration data
+     * Create a window of acceleration records for an Ex analysis.
+     * @param unitNum unit number of the analysis
+     * @return window
+     */
+    public static RecordWindow createWindowForEx(final int unitNum) {
+        return new RecordWindow(unitNum + HitoeConstants.EX_UNIT_MARGIN_NUM + 1);
+    }
+
+    /**
+     * Add the records of acceleration data to the window of an Ex analysis.
+     * <p>
+     * Empty records are skipped. Whenever the window is full, the input of the analysis
+     * is built from the oldest records of the window and added to the list,
+     * and the window slides by {@link HitoeConstants#EX_WINDOW_SLIDE_NUM}.
+     * </p>
      * @param raw raw data
-     * @return Acceleration object
+     * @param window window created by {@link #createWindowForEx(int)}
+     * @param unitNum unit number of the analysis
+     * @param inputs list to which the inputs of the analysis are added
      */
-    public static AccelerationData parseAccelerationData(final AccelerationData data, final String raw) {
-        if (raw == null) {
-            return data;
-        }
-        String[] lineList = raw.split(HitoeConstants.BR);
-        String[] list = lineList[0].split(HitoeConstants.COMMA, -1);
-        String[] accList = list[1].split(HitoeConstants.COLON, -1);
-        double[] accelList = new double[3];
-        for (int i = 0; i < accList.length; i++) {
-            accelList[i] = Double.valueOf(accList[i]);
+    public static void addRecordsForEx(final String raw, final RecordWindow window, final int unitNum,
+                                       final List<String> inputs) {
+        int count = unitNum + HitoeConstants.EX_UNIT_MARGIN_NUM;
+        int length = raw.length();
+        int start = 0;
+        while (start < length) {
+            int end = RawDataScanner.recordEnd(raw, start);
+            if (start < end) {
+                window.add(raw, start, end);
+                if (window.isFull()) {
+                    StringBuilder builder = new StringBuilder(count * (end - start + 1));
+                    window.appendTo(builder, count, HitoeConstants.BR);
+                    inputs.add(builder.toString());
+                    window.evict(HitoeConstants.EX_WINDOW_SLIDE_NUM);
+                }
+            }
+            start = RawDataScanner.nextRecord(raw, end);
         }
-        data.setAccelX(accelList[0]);
-        data.setAccelY(accelList[1]);
-        data.setAccelZ(accelList[2]);
-        return data;
     }
 
 
@@ -113,20 +131,18 @@ public final class RawDataParseUtils {
      * @return ECG data object
      */
     public static HeartData parseECG(final String raw) {
-        String[] lineList = raw.split(HitoeConstants.BR);
         HeartData heart = new HeartData();
-        for (int i = 0; i < lineList.length; i++) {
-            String val = lineList[i];
-            if (val == null) {
-                continue;
-            }
-            String[] list = val.split(HitoeConstants.COMMA, -1);
-            long timestamp = Long.parseLong(list[0]);
-            String[] ecgList = list[1].split(HitoeConstants.COLON, -1);
-            String date = nowTimeStampString(timestamp);
-            heart.setValue(Float.parseFloat(ecgList[0]));
+        // Only the last record is reported.
+        int start = RawDataScanner.lastRecordStart(raw);
+        if (start >= 0) {
+            int end = RawDataScanner.recordEnd(raw, start);
+            int comma = RawDataScanner.indexOf(raw, ',', start, end);
+            long timestamp = RawDataScanner.parseLong(raw, start, comma);
+            int valueEnd = RawDataScanner.fieldEnd(raw, comma + 1, end);
+            int colon = RawDataScanner.indexOf(raw, ':', comma + 1, valueEnd);
+            heart.setValue(RawDataScanner.parseFloat(raw, comma + 1, colon < 0 ? valueEnd : colon));
             heart.setTimeStamp(timestamp);
-            heart.setTimeStampString(date);
+            heart.setTimeStampString(nowTimeStampString(timestamp));
         }
         heart.setHeartRateType(HeartData.HeartRateType.ECG);
         heart.setMderFloat(MDERFloatConvreterUtils.convertMDERFloatToFloat(heart.getValue()));
@@ -274,37 +290,29 @@ public final class RawDataParseUtils {
                                             final String type, final int typeCode,
                                             final String unit, final int unitCode) {
         HeartData heart = new HeartData();
-        String[] lineList = raw.split(HitoeConstants.BR);
-        String rateString = lineList[lineList.length - 1];
+        int start = RawDataScanner.lastRecordStart(raw);
         heart.setHeartRateType(heartRateType);
-        if (rateString == null) {
+        if (start < 0) {
             return null;
         }
-        String[] hrValue = splitComma(rateString);
-        float rate = Float.parseFloat(hrValue[1]);
+        int end = RawDataScanner.recordEnd(raw, start);
+        int comma = RawDataScanner.indexOf(raw, ',', start, end);
+        long timestamp = RawDataScanner.parseLong(raw, start, comma);
+        float rate = RawDataScanner.parseFloat(raw, comma + 1, RawDataScanner.fieldEnd(raw, comma + 1, end));
         heart.setValue(rate);
         heart.setMderFloat(MDERFloatConvreterUtils.convertMDERFloatToFloat(rate));
         heart.setType(type);
         heart.setTypeCode(typeCode);
         heart.setUnit(unit);
         heart.setUnitCode(unitCode);
-        heart.setTimeStamp(Long.parseLong(hrValue[0]));
-        heart.setTimeStampString(nowTimeStampString(Long.parseLong(hrValue[0])));
+        heart.setTimeStamp(timestamp);
+        heart.setTimeStampString(nowTimeStampString(timestamp));
         return heart;
 
     }
 
 
 
-    /**
-     * Split Comma.
-     * @param val split value
-     * @return string array
-     */
-    private static String[] splitComma(final String val) {
-        return val.split(",", -1);
-    }
-
     /**
      * Now TimeStamp String.
      * @param now now timestamp
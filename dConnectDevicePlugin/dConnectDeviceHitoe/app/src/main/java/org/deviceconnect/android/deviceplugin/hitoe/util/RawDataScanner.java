@@ -0,0 +1,295 @@
+/*
+ RawDataScanner
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.hitoe.util;
+
+import org.deviceconnect.android.deviceplugin.hitoe.data.HitoeConstants;
+
+/**
+ * A class containing utility methods scan raw data without splitting it.
+ * <p>
+ * Raw data consists of records separated by {@link HitoeConstants#BR}.
+ * A record of a sensor is {@code timestamp,value1:value2:...}.
+ * The methods of this class work on ranges of the raw data string,
+ * and numbers are parsed without creating substrings in most cases.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public final class RawDataScanner {
+
+    /** Separator of fields. */
+    private static final char COMMA = ',';
+    /** Separator of values. */
+    private static final char COLON = ':';
+    /** Max number of digits which are exactly parsed as a double. */
+    private static final int MAX_DOUBLE_DIGITS = 15;
+    /** Max number of digits which are exactly parsed as a float. */
+    private static final int MAX_FLOAT_DIGITS = 7;
+    /** Max number of digits of a long. */
+    private static final int MAX_LONG_DIGITS = 18;
+    /** Powers of ten which are exact as double. */
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /** Powers of ten which are exact as float. */
+    private static final float[] POW10_FLOAT = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    /**
+     * Private Constructor.
+     */
+    private RawDataScanner() {
+    }
+
+    /**
+     * Gets the end of the record which starts at the specified index.
+     * @param raw raw data
+     * @param start start index of the record
+     * @return end index of the record (exclusive)
+     */
+    public static int recordEnd(final String raw, final int start) {
+        int end = raw.indexOf(HitoeConstants.BR, start);
+        return end < 0 ? raw.length() : end;
+    }
+
+    /**
+     * Gets the start of the record which follows the record ending at the specified index.
+     * @param raw raw data
+     * @param end end index of the record
+     * @return start index of the next record, or the length of the raw data if there is none
+     */
+    public static int nextRecord(final String raw, final int end) {
+        return Math.min(raw.length(), end + HitoeConstants.BR.length());
+    }
+
+    /**
+     * Gets the start of the last non-empty record.
+     * @param raw raw data
+     * @return start index of the last record, or -1 if there is no record
+     */
+    public static int lastRecordStart(final String raw) {
+        int end = raw.length();
+        int brLength = HitoeConstants.BR.length();
+        while (end > 0) {
+            int start = raw.lastIndexOf(HitoeConstants.BR, end - 1);
+            start = start < 0 ? 0 : start + brLength;
+            if (start < end) {
+                return start;
+            }
+            end = start - brLength;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds a character in a range.
+     * @param s string
+     * @param c character
+     * @param start start index
+     * @param end end index (exclusive)
+     * @return index of the character, or -1 if not found
+     */
+    public static int indexOf(final String s, final char c, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the values of the first non-empty record.
+     * <p>
+     * The record is {@code timestamp,value1:value2:...}. Values beyond the length of
+     * the destination are ignored, and the elements for missing values are not changed.
+     * </p>
+     * @param raw raw data
+     * @param dst destination
+     * @return number of parsed values, or -1 if there is no record
+     * @throws NumberFormatException if the record is broken
+     */
+    public static int parseFirstValues(final String raw, final double[] dst) {
+        int length = raw.length();
+        int start = 0;
+        int end = recordEnd(raw, start);
+        while (start == end) {
+            if (start >= length) {
+                return -1;
+            }
+            start = nextRecord(raw, end);
+            end = recordEnd(raw, start);
+        }
+        int comma = indexOf(raw, COMMA, start, end);
+        if (comma < 0) {
+            throw new NumberFormatException("No values: " + raw.substring(start, end));
+        }
+        int count = 0;
+        int valueStart = comma + 1;
+        int valueEnd = fieldEnd(raw, valueStart, end);
+        while (count < dst.length) {
+            int colon = indexOf(raw, COLON, valueStart, valueEnd);
+            dst[count++] = parseDouble(raw, valueStart, colon < 0 ? valueEnd : colon);
+            if (colon < 0) {
+                break;
+            }
+            valueStart = colon + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the end of the field which starts at the specified index.
+     * @param s string
+     * @param start start index of the field
+     * @param end end index of the record
+     * @return end index of the field
+     */
+    public static int fieldEnd(final String s, final int start, final int end) {
+        int comma = indexOf(s, COMMA, start, end);
+        return comma < 0 ? end : comma;
+    }
+
+    /**
+     * Parses a long in a range.
+     * @param s string
+     * @param start start index
+     * @param end end index (exclusive)
+     * @return value
+     * @throws NumberFormatException if the range is not a long
+     */
+    public static long parseLong(final String s, final int start, final int end) {
+        checkRange(s, start, end);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        if (i == end || end - i > MAX_LONG_DIGITS) {
+            return Long.parseLong(s.substring(start, end));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("For input string: \"" + s.substring(start, end) + "\"");
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a double in a range.
+     * <p>
+     * The result is the same as {@link Double#parseDouble(String)}.
+     * </p>
+     * @param s string
+     * @param start start index
+     * @param end end index (exclusive)
+     * @return value
+     * @throws NumberFormatException if the range is not a number
+     */
+    public static double parseDouble(final String s, final int start, final int end) {
+        double value = parseDecimal(s, start, end, MAX_DOUBLE_DIGITS, POW10.length - 1, false);
+        if (Double.isNaN(value)) {
+            return Double.parseDouble(s.substring(start, end));
+        }
+        return value;
+    }
+
+    /**
+     * Parses a float in a range.
+     * <p>
+     * The result is the same as {@link Float#parseFloat(String)}.
+     * </p>
+     * @param s string
+     * @param start start index
+     * @param end end index (exclusive)
+     * @return value
+     * @throws NumberFormatException if the range is not a number
+     */
+    public static float parseFloat(final String s, final int start, final int end) {
+        double value = parseDecimal(s, start, end, MAX_FLOAT_DIGITS, POW10_FLOAT.length - 1, true);
+        if (Double.isNaN(value)) {
+            return Float.parseFloat(s.substring(start, end));
+        }
+        return (float) value;
+    }
+
+    /**
+     * Checks a range of a string.
+     * @param s string
+     * @param start start index
+     * @param end end index (exclusive)
+     * @throws NumberFormatException if the range is out of the string, e.g. a separator is missing
+     */
+    private static void checkRange(final String s, final int start, final int end) {
+        if (start < 0 || end < start || end > s.length()) {
+            throw new NumberFormatException("Invalid range: start = " + start + ", end = " + end);
+        }
+    }
+
+    /**
+     * Parses a simple decimal number.
+     * <p>
+     * When the digits and the power of ten are exact in floating point, a single
+     * multiplication or division gives the correctly rounded value. Other numbers
+     * (too many digits, large exponents, NaN, hexadecimal and so on) are left to the JDK.
+     * </p>
+     * @param s string
+     * @param start start index
+     * @param end end index (exclusive)
+     * @param maxDigits max number of digits
+     * @param maxExponent max absolute exponent
+     * @param asFloat true if the value is computed in float
+     * @return value, or NaN if the number must be parsed by the JDK
+     */
+    private static double parseDecimal(final String s, final int start, final int end,
+                                       final int maxDigits, final int maxExponent, final boolean asFloat) {
+        checkRange(s, start, end);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > maxDigits) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                // Exponents, suffixes and broken strings.
+                return Double.NaN;
+            }
+        }
+        if (digits == 0 || scale > maxExponent) {
+            return Double.NaN;
+        }
+        double value;
+        if (asFloat) {
+            value = (float) mantissa / POW10_FLOAT[scale];
+        } else {
+            value = (double) mantissa / POW10[scale];
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ RecordWindow
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.hitoe.util;
+
+/**
+ * Fixed-capacity window of raw data records.
+ * <p>
+ * A record is kept as a range of the raw data string it was received in,
+ * so appending a record does not create a substring. Appending and evicting
+ * records take constant time, and the records are written to the input of
+ * an analysis by {@link #appendTo(StringBuilder, int, String)} without copying them into a list.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class RecordWindow {
+
+    /** Raw data strings which contain the records. */
+    private final String[] mSources;
+    /** Start indexes of the records. */
+    private final int[] mStarts;
+    /** End indexes of the records. */
+    private final int[] mEnds;
+    /** Slot of the oldest record. */
+    private int mHead;
+    /** Number of records. */
+    private int mSize;
+
+    /**
+     * Constructor.
+     * @param capacity maximum number of records
+     */
+    public RecordWindow(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive.");
+        }
+        mSources = new String[capacity];
+        mStarts = new int[capacity];
+        mEnds = new int[capacity];
+    }
+
+    /**
+     * Appends a record, evicting the oldest record if full.
+     * @param source raw data string
+     * @param start start index of the record
+     * @param end end index of the record
+     */
+    public void add(final String source, final int start, final int end) {
+        int capacity = mSources.length;
+        if (mSize == capacity) {
+            evict(1);
+        }
+        int slot = mHead + mSize;
+        if (slot >= capacity) {
+            slot -= capacity;
+        }
+        mSources[slot] = source;
+        mStarts[slot] = start;
+        mEnds[slot] = end;
+        mSize++;
+    }
+
+    /**
+     * Removes the oldest records.
+     * @param count number of records
+     */
+    public void evict(final int count) {
+        int n = Math.min(count, mSize);
+        int capacity = mSources.length;
+        for (int i = 0; i < n; i++) {
+            // Release the reference so that old raw data can be collected.
+            mSources[mHead] = null;
+            mHead = mHead + 1 == capacity ? 0 : mHead + 1;
+        }
+        mSize -= n;
+    }
+
+    /**
+     * Writes the oldest records to a builder.
+     * @param builder builder
+     * @param count number of records
+     * @param separator separator between records
+     */
+    public void appendTo(final StringBuilder builder, final int count, final String separator) {
+        if (count > mSize) {
+            throw new IndexOutOfBoundsException("count: " + count + ", size: " + mSize);
+        }
+        int capacity = mSources.length;
+        int slot = mHead;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(mSources[slot], mStarts[slot], mEnds[slot]);
+            slot = slot + 1 == capacity ? 0 : slot + 1;
+        }
+    }
+
+    /**
+     * Gets the number of records.
+     * @return number of records
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Gets the maximum number of records.
+     * @return capacity
+     */
+    public int capacity() {
+        return mSources.length;
+    }
+
+    /**
+     * Checks whether the window is full.
+     * @return true if full
+     */
+    public boolean isFull() {
+        return mSize == mSources.length;
+    }
+
+    /**
+     * Removes all records.
+     */
+    public void clear() {
+        evict(mSize);
+        mHead = 0;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ RawDataParseBenchmark
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.hitoe.util;
+
+import org.deviceconnect.android.deviceplugin.hitoe.data.HeartData;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the time to parse one hour of acceleration, ECG, heart rate and RRI data
+ * with String.split and with {@link RawDataScanner} and {@link RecordWindow}.
+ * <p>
+ * This is excluded from the default test task. Run it with {@code -Pbenchmark}.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class RawDataParseBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void benchmarkOneHourSession() {
+        RawDataSession session = new RawDataSession(60 * 60, 0x5EED);
+        long legacy = Long.MAX_VALUE;
+        long current = Long.MAX_VALUE;
+        long heartLegacy = Long.MAX_VALUE;
+        long heartCurrent = Long.MAX_VALUE;
+        long sink = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += runLegacy(session.mChunks);
+            legacy = Math.min(legacy, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            sink += runCurrent(session.mChunks);
+            current = Math.min(current, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            sink += runHeartLegacy(session);
+            heartLegacy = Math.min(heartLegacy, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            sink += runHeartCurrent(session);
+            heartCurrent = Math.min(heartCurrent, System.nanoTime() - start);
+        }
+        System.out.println("chunks=" + session.mChunks.size() + " ecg=" + session.mEcgChunks.size()
+                + " hr=" + session.mHeartRateChunks.size() + " rri=" + session.mRriChunks.size()
+                + " sink=" + sink);
+        System.out.println("acc legacy:    " + legacy / 1000000 + " ms");
+        System.out.println("acc current:   " + current / 1000000 + " ms");
+        System.out.println("heart legacy:  " + heartLegacy / 1000000 + " ms");
+        System.out.println("heart current: " + heartCurrent / 1000000 + " ms");
+    }
+
+    private static long runLegacy(final List<String> chunks) {
+        long sink = 0;
+        for (int unitNum : RawDataSession.UNIT_NUMS) {
+            sink += RawDataSession.buildExInputs(chunks, unitNum).size();
+        }
+        for (String raw : chunks) {
+            sink += (long) RawDataSession.parseFirstValues(raw)[0];
+        }
+        return sink;
+    }
+
+    private static long runCurrent(final List<String> chunks) {
+        long sink = 0;
+        for (int unitNum : RawDataSession.UNIT_NUMS) {
+            RecordWindow window = RawDataParseUtils.createWindowForEx(unitNum);
+            List<String> inputs = new ArrayList<String>();
+            for (String raw : chunks) {
+                RawDataParseUtils.addRecordsForEx(raw, window, unitNum, inputs);
+            }
+            sink += inputs.size();
+        }
+        double[] accel = new double[3];
+        for (String raw : chunks) {
+            RawDataScanner.parseFirstValues(raw, accel);
+            sink += (long) accel[0];
+        }
+        return sink;
+    }
+
+    private static long runHeartLegacy(final RawDataSession session) {
+        long sink = 0;
+        for (String raw : session.mEcgChunks) {
+            sink += RawDataSession.parseECG(raw).getTimeStamp();
+        }
+        for (String raw : session.mHeartRateChunks) {
+            sink += RawDataSession.parseHeartRate(raw, HeartData.HeartRateType.Rate).getTimeStamp();
+        }
+        for (String raw : session.mRriChunks) {
+            sink += RawDataSession.parseHeartRate(raw, HeartData.HeartRateType.RRI).getTimeStamp();
+        }
+        return sink;
+    }
+
+    private static long runHeartCurrent(final RawDataSession session) {
+        long sink = 0;
+        for (String raw : session.mEcgChunks) {
+            sink += RawDataParseUtils.parseECG(raw).getTimeStamp();
+        }
+        for (String raw : session.mHeartRateChunks) {
+            sink += RawDataParseUtils.parseHeartRate(raw).getTimeStamp();
+        }
+        for (String raw : session.mRriChunks) {
+            sink += RawDataParseUtils.parseRRI(raw).getTimeStamp();
+        }
+        return sink;
+    }
+}
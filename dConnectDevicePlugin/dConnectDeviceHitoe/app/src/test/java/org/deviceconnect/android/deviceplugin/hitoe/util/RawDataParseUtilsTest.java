@@ -0,0 +1,107 @@
+/*
+ RawDataParseUtilsTest
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.hitoe.util;
+
+import org.deviceconnect.android.deviceplugin.hitoe.data.HeartData;
+import org.deviceconnect.android.deviceplugin.hitoe.data.HitoeConstants;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the acceleration, ECG, heart rate and RRI handling of {@link RawDataParseUtils}.
+ * @author NTT DOCOMO, INC.
+ */
+public class RawDataParseUtilsTest {
+
+    private static final String BR = HitoeConstants.BR;
+
+    @Test
+    public void testAddRecordsForEx() {
+        int unitNum = HitoeConstants.EX_POSTURE_UNIT_NUM;
+        int count = unitNum + HitoeConstants.EX_UNIT_MARGIN_NUM;
+        RecordWindow window = RawDataParseUtils.createWindowForEx(unitNum);
+        List<String> inputs = new ArrayList<String>();
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                raw.append(BR);
+            }
+            raw.append(i).append(",0:0:0");
+        }
+        RawDataParseUtils.addRecordsForEx(raw.toString(), window, unitNum, inputs);
+        assertEquals(0, inputs.size());
+
+        RawDataParseUtils.addRecordsForEx(count + ",0:0:0", window, unitNum, inputs);
+        assertEquals(1, inputs.size());
+        String[] records = inputs.get(0).split(BR);
+        assertEquals(count, records.length);
+        assertEquals("0,0:0:0", records[0]);
+        assertEquals((count - 1) + ",0:0:0", records[count - 1]);
+        assertEquals(count + 1 - HitoeConstants.EX_WINDOW_SLIDE_NUM, window.size());
+    }
+
+    @Test
+    public void testAddRecordsForExSkipsEmptyRecords() {
+        List<String> chunks = new ArrayList<String>();
+        chunks.add(BR + "1,0:0:0" + BR + BR + "2,0:0:0" + BR);
+        chunks.add("");
+        chunks.add("3,0:0:0");
+        RecordWindow window = RawDataParseUtils.createWindowForEx(0);
+        List<String> inputs = new ArrayList<String>();
+        for (String raw : chunks) {
+            RawDataParseUtils.addRecordsForEx(raw, window, 0, inputs);
+        }
+        assertEquals(RawDataSession.buildExInputs(chunks, 0), inputs);
+    }
+
+    @Test
+    public void testOneHourSession() {
+        RawDataSession session = new RawDataSession(60 * 60, 0x5EED);
+        for (int unitNum : RawDataSession.UNIT_NUMS) {
+            RecordWindow window = RawDataParseUtils.createWindowForEx(unitNum);
+            List<String> inputs = new ArrayList<String>();
+            for (String raw : session.mChunks) {
+                RawDataParseUtils.addRecordsForEx(raw, window, unitNum, inputs);
+            }
+            assertEquals(RawDataSession.buildExInputs(session.mChunks, unitNum), inputs);
+        }
+
+        double[] accel = new double[3];
+        for (String raw : session.mChunks) {
+            assertEquals(3, RawDataScanner.parseFirstValues(raw, accel));
+            assertArrayEquals(RawDataSession.parseFirstValues(raw), accel, 0.0);
+        }
+    }
+
+    @Test
+    public void testHeartDataSession() {
+        RawDataSession session = new RawDataSession(60, 0x5EED);
+        for (String raw : session.mEcgChunks) {
+            assertSameHeartData(RawDataSession.parseECG(raw), RawDataParseUtils.parseECG(raw));
+        }
+        for (String raw : session.mHeartRateChunks) {
+            assertSameHeartData(RawDataSession.parseHeartRate(raw, HeartData.HeartRateType.Rate),
+                    RawDataParseUtils.parseHeartRate(raw));
+        }
+        for (String raw : session.mRriChunks) {
+            assertSameHeartData(RawDataSession.parseHeartRate(raw, HeartData.HeartRateType.RRI),
+                    RawDataParseUtils.parseRRI(raw));
+        }
+    }
+
+    private static void assertSameHeartData(final HeartData expected, final HeartData actual) {
+        assertEquals(expected.getHeartRateType(), actual.getHeartRateType());
+        assertEquals(expected.getTimeStamp(), actual.getTimeStamp());
+        assertEquals(expected.getValue(), actual.getValue(), 0.0f);
+        assertEquals(expected.getMderFloat(), actual.getMderFloat());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ RawDataScannerTest
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.hitoe.util;
+
+import org.deviceconnect.android.deviceplugin.hitoe.data.HitoeConstants;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link RawDataScanner}.
+ * @author NTT DOCOMO, INC.
+ */
+public class RawDataScannerTest {
+
+    private static final String BR = HitoeConstants.BR;
+
+    @Test
+    public void testParseDoubleSameAsJdk() {
+        String[] values = {"0", "-0", "1", "-1", "0.1", "-0.25", "123.456", "0.000001",
+            "9.99", "1e3", "1.5E-3", "12345678901234567890", "0.1234567890123456789", "+7", "NaN", "Infinity"};
+        for (String v : values) {
+            String s = "x" + v + "y";
+            assertEquals(v, Double.doubleToLongBits(Double.parseDouble(v)),
+                Double.doubleToLongBits(RawDataScanner.parseDouble(s, 1, s.length() - 1)));
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            String v = Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8)));
+            assertEquals(v, Double.parseDouble(v), RawDataScanner.parseDouble(v, 0, v.length()), 0);
+            String fixed = String.format(Locale.US, "%.3f", random.nextDouble() * 20 - 10);
+            assertEquals(fixed, Double.parseDouble(fixed), RawDataScanner.parseDouble(fixed, 0, fixed.length()), 0);
+        }
+    }
+
+    @Test
+    public void testParseFloatSameAsJdk() {
+        Random random = new Random(2);
+        for (int i = 0; i < 100000; i++) {
+            String v = String.format(Locale.US, "%." + random.nextInt(7) + "f",
+                random.nextDouble() * 2000 - 1000);
+            assertEquals(v, Float.floatToIntBits(Float.parseFloat(v)),
+                Float.floatToIntBits(RawDataScanner.parseFloat(v, 0, v.length())));
+        }
+    }
+
+    @Test
+    public void testParseLong() {
+        String s = "1467187200000,-42,+3,9223372036854775807";
+        assertEquals(1467187200000L, RawDataScanner.parseLong(s, 0, 13));
+        assertEquals(-42L, RawDataScanner.parseLong(s, 14, 17));
+        assertEquals(3L, RawDataScanner.parseLong(s, 18, 20));
+        assertEquals(Long.MAX_VALUE, RawDataScanner.parseLong(s, 21, s.length()));
+    }
+
+    @Test
+    public void testBrokenNumbers() {
+        String[] values = {"", "-", "1a", "1.2.3", "abc"};
+        for (String v : values) {
+            try {
+                RawDataScanner.parseDouble(v, 0, v.length());
+                fail(v);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+            try {
+                RawDataScanner.parseLong(v, 0, v.length());
+                fail(v);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+        try {
+            RawDataScanner.parseLong("123", 0, -1);
+            fail();
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testParseFirstValues() {
+        double[] values = new double[3];
+        String raw = BR + "1000,0.1:-0.2:9.8:4" + BR + "1040,1:2:3";
+        assertEquals(3, RawDataScanner.parseFirstValues(raw, values));
+        assertEquals(0.1, values[0], 0);
+        assertEquals(-0.2, values[1], 0);
+        assertEquals(9.8, values[2], 0);
+
+        // Missing values are not changed.
+        assertEquals(1, RawDataScanner.parseFirstValues("1080,5,x" + BR, values));
+        assertEquals(5.0, values[0], 0);
+        assertEquals(-0.2, values[1], 0);
+
+        assertEquals(-1, RawDataScanner.parseFirstValues(BR + BR, values));
+        assertEquals(-1, RawDataScanner.parseFirstValues("", values));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseFirstValuesWithoutValues() {
+        RawDataScanner.parseFirstValues("1000" + BR + "1040,1:2:3", new double[3]);
+    }
+
+    @Test
+    public void testRecords() {
+        String raw = "a" + BR + "bc" + BR + BR;
+        assertEquals(("a" + BR).length(), RawDataScanner.lastRecordStart(raw));
+        assertEquals(1, RawDataScanner.recordEnd(raw, 0));
+        assertEquals(-1, RawDataScanner.lastRecordStart(BR + BR));
+        assertEquals(0, RawDataScanner.lastRecordStart("abc"));
+        assertEquals(-1, RawDataScanner.lastRecordStart(""));
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ RawDataSession
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.hitoe.util;
+
+import org.deviceconnect.android.deviceplugin.hitoe.data.HeartData;
+import org.deviceconnect.android.deviceplugin.hitoe.data.HitoeConstants;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Synthetic sensor data of a Hitoe session, and the reference parsers for it.
+ * <p>
+ * The session is built in the raw data format of the Hitoe SDK:
+ * acceleration at 25 Hz delivered every 0.4 seconds, ECG at 200 Hz delivered every
+ * 0.04 seconds, and heart rate and RRI delivered every second. Some chunks contain empty records.
+ * The reference parsers are the String.split based implementations used before
+ * {@link RawDataScanner} and {@link RecordWindow}, except that they skip empty records.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+class RawDataSession {
+
+    /** Unit numbers of the Ex analyses which take acceleration data. */
+    static final int[] UNIT_NUMS = {
+        HitoeConstants.EX_POSTURE_UNIT_NUM,
+        HitoeConstants.EX_WALK_UNIT_NUM,
+        HitoeConstants.EX_LR_BALANCE_UNIT_NUM
+    };
+
+    private static final String BR = HitoeConstants.BR;
+
+    private static final int ACC_HZ = 25;
+
+    private static final int ACC_RECORDS_PER_CHUNK = 10;
+
+    private static final int ECG_HZ = 200;
+
+    private static final int ECG_RECORDS_PER_CHUNK = 8;
+
+    /** Raw data chunks of acceleration in the order of arrival. */
+    final List<String> mChunks = new ArrayList<String>();
+
+    /** Raw data chunks of ECG in the order of arrival. */
+    final List<String> mEcgChunks = new ArrayList<String>();
+
+    /** Raw data chunks of heart rate in the order of arrival. */
+    final List<String> mHeartRateChunks = new ArrayList<String>();
+
+    /** Raw data chunks of RRI in the order of arrival. */
+    final List<String> mRriChunks = new ArrayList<String>();
+
+    /**
+     * Constructor.
+     * @param seconds length of the session
+     * @param seed seed of the values
+     */
+    RawDataSession(final int seconds, final long seed) {
+        Random random = new Random(seed);
+        long begin = 1467187200000L;
+        long end = begin + seconds * 1000L;
+        long time = begin;
+        int intervalMs = 1000 / ACC_HZ;
+        StringBuilder builder = new StringBuilder();
+        while (time < end) {
+            builder.setLength(0);
+            for (int i = 0; i < ACC_RECORDS_PER_CHUNK; i++) {
+                if (i > 0) {
+                    builder.append(BR);
+                }
+                if (random.nextInt(50) == 0) {
+                    // An empty record.
+                    builder.append(BR);
+                }
+                builder.append(time).append(',');
+                appendDecimal(builder, random.nextInt(4000) - 2000, 3);
+                builder.append(':');
+                appendDecimal(builder, random.nextInt(4000) - 2000, 3);
+                builder.append(':');
+                appendDecimal(builder, random.nextInt(4000) - 2000, 3);
+                time += intervalMs;
+            }
+            if (random.nextInt(20) == 0) {
+                builder.append(BR);
+            }
+            mChunks.add(builder.toString());
+        }
+
+        time = begin;
+        intervalMs = 1000 / ECG_HZ;
+        while (time < end) {
+            builder.setLength(0);
+            for (int i = 0; i < ECG_RECORDS_PER_CHUNK; i++) {
+                if (i > 0) {
+                    builder.append(BR);
+                }
+                if (random.nextInt(200) == 0) {
+                    // An empty record.
+                    builder.append(BR);
+                }
+                builder.append(time).append(',');
+                appendDecimal(builder, random.nextInt(4000) - 1000, 3);
+                time += intervalMs;
+            }
+            mEcgChunks.add(builder.toString());
+        }
+
+        for (time = begin; time < end; time += 1000) {
+            builder.setLength(0);
+            builder.append(time).append(',').append(50 + random.nextInt(100));
+            mHeartRateChunks.add(builder.toString());
+
+            builder.setLength(0);
+            builder.append(time).append(',').append(400 + random.nextInt(800));
+            if (random.nextInt(10) == 0) {
+                // Two beats in a second.
+                builder.append(BR).append(time + 500).append(',').append(400 + random.nextInt(800));
+            }
+            if (random.nextInt(20) == 0) {
+                builder.append(BR);
+            }
+            mRriChunks.add(builder.toString());
+        }
+    }
+
+    /**
+     * Parses ECG data in the reference way.
+     * <p>
+     * Every record is parsed and formatted, and the last one is kept.
+     * </p>
+     * @param raw raw data
+     * @return ECG data
+     */
+    static HeartData parseECG(final String raw) {
+        String[] lineList = raw.split(BR);
+        HeartData heart = new HeartData();
+        for (String line : lineList) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] list = line.split(HitoeConstants.COMMA, -1);
+            long timestamp = Long.parseLong(list[0]);
+            String[] ecgList = list[1].split(HitoeConstants.COLON, -1);
+            heart.setValue(Float.parseFloat(ecgList[0]));
+            heart.setTimeStamp(timestamp);
+            heart.setTimeStampString(timeStampString(timestamp));
+        }
+        heart.setHeartRateType(HeartData.HeartRateType.ECG);
+        heart.setMderFloat(MDERFloatConvreterUtils.convertMDERFloatToFloat(heart.getValue()));
+        return heart;
+    }
+
+    /**
+     * Parses heart rate or RRI data in the reference way.
+     * @param raw raw data
+     * @param heartRateType type of the data
+     * @return heart rate or RRI data
+     */
+    static HeartData parseHeartRate(final String raw, final HeartData.HeartRateType heartRateType) {
+        String[] lineList = raw.split(BR);
+        String rateString = lineList[lineList.length - 1];
+        HeartData heart = new HeartData();
+        heart.setHeartRateType(heartRateType);
+        String[] hrValue = rateString.split(",", -1);
+        float rate = Float.parseFloat(hrValue[1]);
+        heart.setValue(rate);
+        heart.setMderFloat(MDERFloatConvreterUtils.convertMDERFloatToFloat(rate));
+        heart.setTimeStamp(Long.parseLong(hrValue[0]));
+        heart.setTimeStampString(timeStampString(Long.parseLong(hrValue[0])));
+        return heart;
+    }
+
+    private static String timeStampString(final long now) {
+        DateFormat df = new SimpleDateFormat("yyyyMMddHHmmdss.SSSZZZ");
+        df.setTimeZone(TimeZone.getDefault());
+        return df.format(new Date(System.currentTimeMillis()));
+    }
+
+    /**
+     * Parses the first record of a chunk in the reference way.
+     * @param raw raw data
+     * @return acceleration (x, y, z)
+     */
+    static double[] parseFirstValues(final String raw) {
+        double[] values = new double[3];
+        for (String line : raw.split(BR)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] list = line.split(HitoeConstants.COMMA, -1);
+            String[] accList = list[1].split(HitoeConstants.COLON, -1);
+            for (int i = 0; i < accList.length && i < values.length; i++) {
+                values[i] = Double.valueOf(accList[i]);
+            }
+            break;
+        }
+        return values;
+    }
+
+    /**
+     * Builds the inputs of the Ex analyses in the reference way.
+     * <p>
+     * Each window is an ArrayList which is copied on every analysis, and the input
+     * is joined from a copy of the window.
+     * </p>
+     * @param chunks raw data chunks
+     * @param unitNum unit number of the analysis
+     * @return inputs of the analysis
+     */
+    static List<String> buildExInputs(final List<String> chunks, final int unitNum) {
+        List<String> inputs = new ArrayList<String>();
+        int count = unitNum + HitoeConstants.EX_UNIT_MARGIN_NUM;
+        List<String> window = new ArrayList<String>();
+        for (String raw : chunks) {
+            for (String line : raw.split(BR)) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                window.add(line);
+                if (window.size() > count) {
+                    ArrayList<String> input = new ArrayList<String>();
+                    for (int j = 0; j < count; j++) {
+                        input.add(window.get(j));
+                    }
+                    ArrayList<String> work = new ArrayList<String>();
+                    for (int j = HitoeConstants.EX_WINDOW_SLIDE_NUM; j < window.size(); j++) {
+                        work.add(window.get(j));
+                    }
+                    window = work;
+                    StringBuilder builder = new StringBuilder();
+                    for (String record : input) {
+                        if (builder.length() > 0) {
+                            builder.append(BR);
+                        }
+                        builder.append(record);
+                    }
+                    inputs.add(builder.toString());
+                }
+            }
+        }
+        return inputs;
+    }
+
+    private static void appendDecimal(final StringBuilder builder, final int value, final int scale) {
+        int abs = Math.abs(value);
+        int pow = (int) Math.pow(10, scale);
+        if (value < 0) {
+            builder.append('-');
+        }
+        builder.append(abs / pow).append('.');
+        String fraction = Integer.toString(abs % pow + pow);
+        builder.append(fraction, 1, fraction.length());
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ RecordWindowTest
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.hitoe.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RecordWindow}.
+ * @author NTT DOCOMO, INC.
+ */
+public class RecordWindowTest {
+
+    @Test
+    public void testAppendAndEvict() {
+        String raw = "r0|r1|r2|r3|r4|r5";
+        RecordWindow window = new RecordWindow(4);
+        for (int i = 0; i < 4; i++) {
+            window.add(raw, i * 3, i * 3 + 2);
+        }
+        assertTrue(window.isFull());
+        assertEquals("r0,r1,r2", join(window, 3));
+
+        window.evict(2);
+        assertEquals(2, window.size());
+        window.add(raw, 12, 14);
+        window.add(raw, 15, 17);
+        assertEquals("r2,r3,r4,r5", join(window, 4));
+
+        // Appending to a full window evicts the oldest record.
+        window.add("r6", 0, 2);
+        assertEquals("r3,r4,r5,r6", join(window, 4));
+
+        window.clear();
+        assertEquals(0, window.size());
+        assertFalse(window.isFull());
+    }
+
+    private static String join(final RecordWindow window, final int count) {
+        StringBuilder builder = new StringBuilder();
+        window.appendTo(builder, count, ",");
+        return builder.toString();
+    }
+}
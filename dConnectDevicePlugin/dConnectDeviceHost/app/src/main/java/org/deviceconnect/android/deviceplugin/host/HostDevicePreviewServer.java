@@ -34,6 +34,20 @@ public interface HostDevicePreviewServer extends HostDeviceRecorder {
 
     void setPreviewFrameRate(double max);
 
+    /**
+     * Gets the JPEG quality of preview images.
+     *
+     * @return JPEG quality (1 to 100)
+     */
+    int getPreviewJpegQuality();
+
+    /**
+     * Sets the JPEG quality of preview images.
+     *
+     * @param quality JPEG quality (1 to 100)
+     */
+    void setPreviewJpegQuality(int quality);
+
     /**
      * Callback interface used to receive the result of starting a web server.
      */
@@ -55,7 +55,7 @@ import org.deviceconnect.android.deviceplugin.host.video.VideoConst;
 import org.deviceconnect.android.deviceplugin.host.video.VideoPlayer;
 import org.deviceconnect.android.event.Event;
 import org.deviceconnect.android.event.EventManager;
-import org.deviceconnect.android.event.cache.MemoryCacheController;
+import org.deviceconnect.android.event.cache.IndexedCacheController;
 import org.deviceconnect.android.message.DConnectMessageService;
 import org.deviceconnect.android.message.MessageUtils;
 import org.deviceconnect.android.profile.MediaPlayerProfile;
@@ -149,7 +149,7 @@ public class HostDeviceService extends DConnectMessageService {
         mApp = (HostDeviceApplication) this.getApplication();
 
         // EventManagerの初期化
-        EventManager.INSTANCE.setController(new MemoryCacheController());
+        EventManager.INSTANCE.setController(new IndexedCacheController());
 
         // ファイル管理クラスの作成
         mFileMgr = new FileManager(this);
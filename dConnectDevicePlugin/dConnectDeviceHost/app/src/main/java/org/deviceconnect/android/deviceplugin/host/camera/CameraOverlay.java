@@ -20,6 +20,7 @@ import android.content.IntentFilter;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.CompressFormat;
 import android.graphics.BitmapFactory;
+import android.graphics.ImageFormat;
 import android.graphics.Matrix;
 import android.graphics.PixelFormat;
 import android.graphics.Point;
@@ -94,6 +95,9 @@ public class CameraOverlay implements Camera.PreviewCallback, Camera.ErrorCallba
     /** Default Maximum Frame Rate. */
     private static final double DEFAULT_MAX_FPS = 10.0d;
 
+    /** プレビューのコールバックに渡すバッファの数. */
+    private static final int PREVIEW_CALLBACK_BUFFER_COUNT = 2;
+
     /** 日付のフォーマット. */
     private SimpleDateFormat mSimpleDateFormat = new SimpleDateFormat("yyyyMMdd_kkmmss", Locale.JAPAN);
 
@@ -138,6 +142,18 @@ public class CameraOverlay implements Camera.PreviewCallback, Camera.ErrorCallba
 
     private int mFacingDirection = 1;
 
+    /** プレビュー画像のJPEGの圧縮クオリティ. */
+    private int mJpegQuality = JPEG_COMPRESS_QUALITY;
+
+    /** プレビュー画像をYUVのまま回転するクラス. */
+    private final NV21Rotator mRotator = new NV21Rotator();
+
+    /** プレビュー画像をJPEGに変換する時に使用するストリーム. */
+    private final ByteArrayOutputStream mJpegStream = new ByteArrayOutputStream();
+
+    /** プレビューのコールバックにバッファを再利用しているか. */
+    private boolean mUseCallbackBuffer;
+
     private final Logger mLogger = Logger.getLogger("host.dplugin");
 
     /**
@@ -203,13 +219,34 @@ public class CameraOverlay implements Camera.PreviewCallback, Camera.ErrorCallba
 
     public void setPreviewFrameRate(final double max) {
         mMaxFps = max;
-        mFrameInterval = (long) (1 / max) * 1000L;
+        mFrameInterval = (long) (1000L / max);
     }
 
     public double getPreviewMaxFrameRate() {
         return mMaxFps;
     }
 
+    /**
+     * プレビュー画像のJPEGの圧縮クオリティを設定する.
+     *
+     * @param quality 圧縮クオリティ(1〜100)
+     */
+    public void setPreviewJpegQuality(final int quality) {
+        if (quality < 1 || quality > 100) {
+            throw new IllegalArgumentException("quality is out of range: " + quality);
+        }
+        mJpegQuality = quality;
+    }
+
+    /**
+     * プレビュー画像のJPEGの圧縮クオリティを取得する.
+     *
+     * @return 圧縮クオリティ
+     */
+    public int getPreviewJpegQuality() {
+        return mJpegQuality;
+    }
+
     @Override
     protected void finalize() throws Throwable {
         super.finalize();
@@ -322,7 +359,7 @@ public class CameraOverlay implements Camera.PreviewCallback, Camera.ErrorCallba
                     setRequestedPictureSize(mCamera);
                     setRequestedPreviewSize(mCamera);
                     mPreview.switchCamera(mCameraId, mCamera);
-                    mCamera.setPreviewCallback(CameraOverlay.this);
+                    setPreviewCallbackWithBuffer(mCamera);
                     mCamera.setErrorCallback(CameraOverlay.this);
 
                     IntentFilter filter = new IntentFilter();
@@ -664,60 +701,111 @@ public class CameraOverlay implements Camera.PreviewCallback, Camera.ErrorCallba
         hide();
     }
 
+    /**
+     * 再利用するバッファを使ってプレビューのコールバックを設定する.
+     *
+     * @param camera カメラ
+     */
+    private void setPreviewCallbackWithBuffer(final Camera camera) {
+        Camera.Parameters params = camera.getParameters();
+        Camera.Size size = params.getPreviewSize();
+        int bitsPerPixel = ImageFormat.getBitsPerPixel(params.getPreviewFormat());
+        if (bitsPerPixel <= 0) {
+            mUseCallbackBuffer = false;
+            camera.setPreviewCallback(this);
+            return;
+        }
+        int bufferSize = size.width * size.height * bitsPerPixel / 8;
+        for (int i = 0; i < PREVIEW_CALLBACK_BUFFER_COUNT; i++) {
+            camera.addCallbackBuffer(new byte[bufferSize]);
+        }
+        mUseCallbackBuffer = true;
+        camera.setPreviewCallbackWithBuffer(this);
+    }
+
     @Override
     public void onPreviewFrame(final byte[] data, final Camera camera) {
         synchronized (mCameraLock) {
-            final long currentTime = System.currentTimeMillis();
-            if (mLastFrameTime != 0) {
-                if ((currentTime - mLastFrameTime) < mFrameInterval) {
-                    mLastFrameTime = currentTime;
+            try {
+                final long currentTime = System.currentTimeMillis();
+                if (mLastFrameTime != 0 && (currentTime - mLastFrameTime) < mFrameInterval) {
                     return;
                 }
+                mLastFrameTime = currentTime;
+
+                if (mCamera != null && mCamera.equals(camera) && mServer != null) {
+                    byte[] jpeg = encodePreviewFrame(data);
+                    if (jpeg != null) {
+                        mServer.offerMedia(jpeg);
+                    }
+                }
+            } finally {
+                if (mUseCallbackBuffer) {
+                    // setPreviewCallbackWithBufferで渡したバッファをカメラに返却する
+                    camera.addCallbackBuffer(data);
+                }
             }
+        }
+    }
 
-            if (mCamera != null && mCamera.equals(camera)) {
-                mCamera.setPreviewCallback(null);
+    /**
+     * プレビュー画像を画面の向きに合わせて回転し、JPEGに変換する.
+     * <p>
+     * NV21形式の場合はYUVのまま回転するので、JPEGへの変換は1回で済む。
+     * </p>
+     *
+     * @param data プレビュー画像
+     * @return JPEGのデータ. 変換に失敗した場合はnull
+     */
+    private byte[] encodePreviewFrame(final byte[] data) {
+        int format = mPreview.getPreviewFormat();
+        int width = mPreview.getPreviewWidth();
+        int height = mPreview.getPreviewHeight();
+        int degree = mPreview.getCameraDisplayOrientation(mContext) * mFacingDirection;
+
+        byte[] yuv = data;
+        if (format == ImageFormat.NV21) {
+            yuv = mRotator.rotate(data, width, height, degree);
+            width = mRotator.getWidth();
+            height = mRotator.getHeight();
+            degree = 0;
+        }
 
-                if (mServer != null) {
-                    int format = mPreview.getPreviewFormat();
-                    int width = mPreview.getPreviewWidth();
-                    int height = mPreview.getPreviewHeight();
+        mJpegStream.reset();
+        YuvImage yuvImage = new YuvImage(yuv, format, width, height, null);
+        if (!yuvImage.compressToJpeg(new Rect(0, 0, width, height), mJpegQuality, mJpegStream)) {
+            return null;
+        }
+        byte[] jpeg = mJpegStream.toByteArray();
+        if (degree % 360 == 0) {
+            return jpeg;
+        }
 
-                    YuvImage yuvimage = new YuvImage(data, format, width, height, null);
-                    Rect rect = new Rect(0, 0, width, height);
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    if (yuvimage.compressToJpeg(rect, JPEG_COMPRESS_QUALITY, baos)) {
-                        byte[] jdata = baos.toByteArray();
-
-                        int degree = mPreview.getCameraDisplayOrientation(mContext);
-                        if (degree == 0) {
-                            mServer.offerMedia(jdata);
-                        } else {
-                            BitmapFactory.Options bitmapFactoryOptions = new BitmapFactory.Options();
-                            bitmapFactoryOptions.inPreferredConfig = Bitmap.Config.RGB_565;
-                            Bitmap bmp = BitmapFactory.decodeByteArray(jdata, 0, jdata.length, bitmapFactoryOptions);
-                            if (bmp != null) {
-                                Matrix m = new Matrix();
-                                m.setRotate(degree * mFacingDirection);
-
-                                Bitmap rotatedBmp = Bitmap.createBitmap(bmp, 0, 0, bmp.getWidth(), bmp.getHeight(), m, true);
-                                if (rotatedBmp != null) {
-                                    baos.reset();
-                                    if (rotatedBmp.compress(CompressFormat.JPEG, JPEG_COMPRESS_QUALITY, baos)) {
-                                        mServer.offerMedia(baos.toByteArray());
-                                    }
-                                    rotatedBmp.recycle();
-                                }
-                                bmp.recycle();
-                            }
-                        }
-                    }
+        // NV21以外の形式は、従来通りBitmapに変換して回転する
+        BitmapFactory.Options bitmapFactoryOptions = new BitmapFactory.Options();
+        bitmapFactoryOptions.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap bmp = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, bitmapFactoryOptions);
+        if (bmp == null) {
+            return null;
+        }
+        try {
+            Matrix m = new Matrix();
+            m.setRotate(degree);
+            Bitmap rotatedBmp = Bitmap.createBitmap(bmp, 0, 0, bmp.getWidth(), bmp.getHeight(), m, true);
+            if (rotatedBmp == null) {
+                return null;
+            }
+            try {
+                mJpegStream.reset();
+                if (!rotatedBmp.compress(CompressFormat.JPEG, mJpegQuality, mJpegStream)) {
+                    return null;
                 }
-
-                mCamera.setPreviewCallback(this);
+                return mJpegStream.toByteArray();
+            } finally {
+                rotatedBmp.recycle();
             }
-
-            mLastFrameTime = currentTime;
+        } finally {
+            bmp.recycle();
         }
     }
 
@@ -234,6 +234,16 @@ public abstract class HostDeviceCameraRecorder implements HostDevicePreviewServe
         mCameraOverlay.setPreviewFrameRate(max);
     }
 
+    @Override
+    public int getPreviewJpegQuality() {
+        return mCameraOverlay.getPreviewJpegQuality();
+    }
+
+    @Override
+    public void setPreviewJpegQuality(final int quality) {
+        mCameraOverlay.setPreviewJpegQuality(quality);
+    }
+
     @Override
     public List<PictureSize> getSupportedPictureSizes() {
         return mSupportedPictureSizes;
@@ -0,0 +1,211 @@
+/*
+ NV21Rotator.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.host.camera;
+
+/**
+ * NV21形式のプレビュー画像を回転するクラス.
+ * <p>
+ * JPEGに変換する前にYUVのまま回転することで、JPEGのデコードと再エンコードを行わずに済むようにする。
+ * 出力先のバッファは再利用するので、{@link #rotate(byte[], int, int, int)}の戻り値は
+ * 次に呼び出すまでの間だけ有効となる。
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class NV21Rotator {
+
+    /** 回転後の画像を格納するバッファ. */
+    private byte[] mBuffer;
+
+    /** 回転後の画像の横幅. */
+    private int mWidth;
+
+    /** 回転後の画像の縦幅. */
+    private int mHeight;
+
+    /**
+     * NV21形式の画像を時計回りに回転する.
+     * <p>
+     * 回転角度が0の場合は、渡された配列をそのまま返却する。
+     * </p>
+     * @param src 回転するNV21形式の画像
+     * @param width 横幅(偶数)
+     * @param height 縦幅(偶数)
+     * @param degrees 時計回りの回転角度(90の倍数、負の値も可)
+     * @return 回転後の画像
+     */
+    public byte[] rotate(final byte[] src, final int width, final int height, final int degrees) {
+        int rotation = normalize(degrees);
+        if (rotation == 90 || rotation == 270) {
+            mWidth = height;
+            mHeight = width;
+        } else {
+            mWidth = width;
+            mHeight = height;
+        }
+        if (rotation == 0) {
+            return src;
+        }
+
+        int size = getFrameSize(width, height);
+        if (mBuffer == null || mBuffer.length < size) {
+            mBuffer = new byte[size];
+        }
+        rotate(src, mBuffer, width, height, rotation);
+        return mBuffer;
+    }
+
+    /**
+     * 最後に回転した画像の横幅を取得する.
+     * @return 横幅
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 最後に回転した画像の縦幅を取得する.
+     * @return 縦幅
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * NV21形式の画像のバイト数を取得する.
+     * @param width 横幅
+     * @param height 縦幅
+     * @return バイト数
+     */
+    public static int getFrameSize(final int width, final int height) {
+        return width * height * 3 / 2;
+    }
+
+    /**
+     * NV21形式の画像を時計回りに回転して、出力先のバッファに書き込む.
+     * @param src 回転するNV21形式の画像
+     * @param dst 出力先のバッファ. srcとは別の配列であること
+     * @param width 横幅(偶数)
+     * @param height 縦幅(偶数)
+     * @param degrees 時計回りの回転角度(90の倍数、負の値も可)
+     */
+    public static void rotate(final byte[] src, final byte[] dst, final int width, final int height,
+                              final int degrees) {
+        if ((width & 1) != 0 || (height & 1) != 0) {
+            throw new IllegalArgumentException("width and height must be even.");
+        }
+        int frameSize = width * height;
+        if (src.length < getFrameSize(width, height) || dst.length < getFrameSize(width, height)) {
+            throw new IllegalArgumentException("buffer is too small.");
+        }
+        if (src == dst) {
+            throw new IllegalArgumentException("src and dst must be different arrays.");
+        }
+
+        switch (normalize(degrees)) {
+            case 0:
+                System.arraycopy(src, 0, dst, 0, getFrameSize(width, height));
+                break;
+            case 90:
+                rotate90(src, dst, 0, width, height, 1);
+                rotate90(src, dst, frameSize, width / 2, height / 2, 2);
+                break;
+            case 180:
+                rotate180(src, dst, 0, width * height, 1);
+                rotate180(src, dst, frameSize, (width / 2) * (height / 2), 2);
+                break;
+            case 270:
+                rotate270(src, dst, 0, width, height, 1);
+                rotate270(src, dst, frameSize, width / 2, height / 2, 2);
+                break;
+            default:
+                throw new IllegalArgumentException("degrees must be a multiple of 90.");
+        }
+    }
+
+    /**
+     * 回転角度を0から359の範囲に変換する.
+     * @param degrees 回転角度
+     * @return 0から359の範囲の回転角度
+     */
+    private static int normalize(final int degrees) {
+        return ((degrees % 360) + 360) % 360;
+    }
+
+    /**
+     * 1つの平面を時計回りに90度回転する.
+     * <p>
+     * 出力先には先頭から順番に書き込む。
+     * </p>
+     * @param src 入力
+     * @param dst 出力
+     * @param offset 平面の開始位置
+     * @param width 平面の横幅(要素数)
+     * @param height 平面の縦幅(要素数)
+     * @param pixelSize 1要素のバイト数
+     */
+    private static void rotate90(final byte[] src, final byte[] dst, final int offset,
+                                 final int width, final int height, final int pixelSize) {
+        int stride = width * pixelSize;
+        int out = offset;
+        for (int x = 0; x < width; x++) {
+            int in = offset + (height - 1) * stride + x * pixelSize;
+            for (int y = 0; y < height; y++) {
+                dst[out++] = src[in];
+                if (pixelSize == 2) {
+                    dst[out++] = src[in + 1];
+                }
+                in -= stride;
+            }
+        }
+    }
+
+    /**
+     * 1つの平面を180度回転する.
+     * @param src 入力
+     * @param dst 出力
+     * @param offset 平面の開始位置
+     * @param count 平面の要素数
+     * @param pixelSize 1要素のバイト数
+     */
+    private static void rotate180(final byte[] src, final byte[] dst, final int offset,
+                                  final int count, final int pixelSize) {
+        int out = offset;
+        int in = offset + (count - 1) * pixelSize;
+        for (int i = 0; i < count; i++) {
+            dst[out++] = src[in];
+            if (pixelSize == 2) {
+                dst[out++] = src[in + 1];
+            }
+            in -= pixelSize;
+        }
+    }
+
+    /**
+     * 1つの平面を時計回りに270度回転する.
+     * @param src 入力
+     * @param dst 出力
+     * @param offset 平面の開始位置
+     * @param width 平面の横幅(要素数)
+     * @param height 平面の縦幅(要素数)
+     * @param pixelSize 1要素のバイト数
+     */
+    private static void rotate270(final byte[] src, final byte[] dst, final int offset,
+                                  final int width, final int height, final int pixelSize) {
+        int stride = width * pixelSize;
+        int out = offset;
+        for (int x = width - 1; x >= 0; x--) {
+            int in = offset + x * pixelSize;
+            for (int y = 0; y < height; y++) {
+                dst[out++] = src[in];
+                if (pixelSize == 2) {
+                    dst[out++] = src[in + 1];
+                }
+                in += stride;
+            }
+        }
+    }
+}
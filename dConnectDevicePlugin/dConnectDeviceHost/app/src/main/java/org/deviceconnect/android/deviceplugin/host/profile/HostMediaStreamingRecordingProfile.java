@@ -50,6 +50,14 @@ import java.util.concurrent.TimeUnit;
 @SuppressWarnings("deprecation")
 public class HostMediaStreamingRecordingProfile extends MediaStreamRecordingProfile {
 
+    /**
+     * パラメータ: {@value}.
+     * <p>
+     * プレビュー画像のJPEGの圧縮クオリティ(1〜100)。
+     * </p>
+     */
+    private static final String PARAM_PREVIEW_JPEG_QUALITY = "previewJpegQuality";
+
     private final HostDeviceRecorderManager mRecorderMgr;
 
     private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
@@ -316,6 +324,25 @@ public class HostMediaStreamingRecordingProfile extends MediaStreamRecordingProf
                 return true;
             }
 
+            Double previewMaxFrameRate = getPreviewMaxFrameRate(request);
+            if (previewMaxFrameRate != null) {
+                if (previewMaxFrameRate <= 0) {
+                    MessageUtils.setInvalidRequestParameterError(response,
+                        "previewMaxFrameRate must be greater than 0.");
+                    return true;
+                }
+                server.setPreviewFrameRate(previewMaxFrameRate);
+            }
+            Integer previewJpegQuality = parseInteger(request, PARAM_PREVIEW_JPEG_QUALITY);
+            if (previewJpegQuality != null) {
+                if (previewJpegQuality < 1 || previewJpegQuality > 100) {
+                    MessageUtils.setInvalidRequestParameterError(response,
+                        "previewJpegQuality must be between 1 and 100.");
+                    return true;
+                }
+                server.setPreviewJpegQuality(previewJpegQuality);
+            }
+
             server.startWebServer(new HostDevicePhotoRecorder.OnWebServerStartCallback() {
                 @Override
                 public void onStart(@NonNull String uri) {
@@ -56,6 +56,8 @@ public class HostDeviceScreenCast implements HostDeviceRecorder, HostDevicePrevi
 
     private static final double DEFAULT_MAX_FPS = 10.0d;
 
+    private static final int DEFAULT_JPEG_QUALITY = 100;
+
     private final Context mContext;
 
     private final int mDisplayDensityDpi;
@@ -88,6 +90,8 @@ public class HostDeviceScreenCast implements HostDeviceRecorder, HostDevicePrevi
 
     private double mMaxFps;
 
+    private int mJpegQuality = DEFAULT_JPEG_QUALITY;
+
     public HostDeviceScreenCast(final Context context) {
         mContext = context;
         mManager = (MediaProjectionManager) context.getSystemService(Context.MEDIA_PROJECTION_SERVICE);
@@ -297,7 +301,7 @@ public class HostDeviceScreenCast implements HostDeviceRecorder, HostDevicePrevi
                             continue;
                         }
                         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        bitmap.compress(Bitmap.CompressFormat.JPEG, 100, baos);
+                        bitmap.compress(Bitmap.CompressFormat.JPEG, mJpegQuality, baos);
                         byte[] media = baos.toByteArray();
                         mServer.offerMedia(media);
 
@@ -417,6 +421,19 @@ public class HostDeviceScreenCast implements HostDeviceRecorder, HostDevicePrevi
     @Override
     public void setPreviewFrameRate(final double max) {
         mMaxFps = max;
-        mFrameInterval = (long) (1 / max) * 1000L;
+        mFrameInterval = (long) (1000L / max);
+    }
+
+    @Override
+    public int getPreviewJpegQuality() {
+        return mJpegQuality;
+    }
+
+    @Override
+    public void setPreviewJpegQuality(final int quality) {
+        if (quality < 1 || quality > 100) {
+            throw new IllegalArgumentException("quality is out of range: " + quality);
+        }
+        mJpegQuality = quality;
     }
 }
@@ -0,0 +1,175 @@
+/*
+ NV21RotatorTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.host.camera;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@link NV21Rotator}のテスト.
+ * @author NTT DOCOMO, INC.
+ */
+public class NV21RotatorTest {
+
+    /**
+     * 4x2の画像. Yは1〜8、VUは(10, 11)と(20, 21).
+     */
+    private static final byte[] FRAME_4X2 = {
+        1, 2, 3, 4,
+        5, 6, 7, 8,
+        10, 11, 20, 21
+    };
+
+    /** 時計回りに90度回転した2x4の画像. */
+    private static final byte[] FRAME_4X2_90 = {
+        5, 1,
+        6, 2,
+        7, 3,
+        8, 4,
+        10, 11,
+        20, 21
+    };
+
+    /** 180度回転した4x2の画像. */
+    private static final byte[] FRAME_4X2_180 = {
+        8, 7, 6, 5,
+        4, 3, 2, 1,
+        20, 21, 10, 11
+    };
+
+    /** 時計回りに270度回転した2x4の画像. */
+    private static final byte[] FRAME_4X2_270 = {
+        4, 8,
+        3, 7,
+        2, 6,
+        1, 5,
+        20, 21,
+        10, 11
+    };
+
+    @Test
+    public void rotate_referenceFrames() {
+        assertArrayEquals(FRAME_4X2_90, rotate(FRAME_4X2, 4, 2, 90));
+        assertArrayEquals(FRAME_4X2_180, rotate(FRAME_4X2, 4, 2, 180));
+        assertArrayEquals(FRAME_4X2_270, rotate(FRAME_4X2, 4, 2, 270));
+        assertArrayEquals(FRAME_4X2_270, rotate(FRAME_4X2, 4, 2, -90));
+        assertArrayEquals(FRAME_4X2, rotate(FRAME_4X2, 4, 2, 360));
+    }
+
+    @Test
+    public void rotate_sameAsPixelReference() {
+        int width = 64;
+        int height = 48;
+        byte[] src = createRandomFrame(width, height);
+        for (int degrees = 0; degrees < 360; degrees += 90) {
+            assertArrayEquals("degrees=" + degrees,
+                rotateByPixel(src, width, height, degrees), rotate(src, width, height, degrees));
+        }
+    }
+
+    @Test
+    public void rotate_reusesBufferAndUpdatesSize() {
+        int width = 8;
+        int height = 4;
+        byte[] src = createRandomFrame(width, height);
+        NV21Rotator rotator = new NV21Rotator();
+
+        byte[] first = rotator.rotate(src, width, height, 90);
+        assertEquals(height, rotator.getWidth());
+        assertEquals(width, rotator.getHeight());
+
+        byte[] second = rotator.rotate(src, width, height, 180);
+        assertSame(first, second);
+        assertEquals(width, rotator.getWidth());
+        assertEquals(height, rotator.getHeight());
+
+        assertSame(src, rotator.rotate(src, width, height, 0));
+    }
+
+    @Test
+    public void rotate_fourTimesIsIdentity() {
+        int width = 32;
+        int height = 16;
+        byte[] frame = createRandomFrame(width, height);
+        byte[] rotated = frame;
+        int w = width;
+        int h = height;
+        for (int i = 0; i < 4; i++) {
+            rotated = rotate(rotated, w, h, 90);
+            int tmp = w;
+            w = h;
+            h = tmp;
+        }
+        assertArrayEquals(frame, rotated);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rotate_oddSize() {
+        NV21Rotator.rotate(new byte[12], new byte[12], 3, 2, 90);
+    }
+
+    private static byte[] rotate(final byte[] src, final int width, final int height, final int degrees) {
+        byte[] dst = new byte[NV21Rotator.getFrameSize(width, height)];
+        NV21Rotator.rotate(src, dst, width, height, degrees);
+        return dst;
+    }
+
+    private static byte[] createRandomFrame(final int width, final int height) {
+        byte[] frame = new byte[NV21Rotator.getFrameSize(width, height)];
+        new Random(width * 31 + height).nextBytes(frame);
+        return frame;
+    }
+
+    /**
+     * 1画素ずつ座標を計算して回転した参照用の画像を作成する.
+     */
+    private static byte[] rotateByPixel(final byte[] src, final int width, final int height, final int degrees) {
+        boolean swap = degrees == 90 || degrees == 270;
+        int dstWidth = swap ? height : width;
+        int dstHeight = swap ? width : height;
+        byte[] dst = new byte[src.length];
+        int frameSize = width * height;
+        for (int y = 0; y < dstHeight; y++) {
+            for (int x = 0; x < dstWidth; x++) {
+                int[] p = sourcePoint(x, y, width, height, degrees);
+                dst[y * dstWidth + x] = src[p[1] * width + p[0]];
+            }
+        }
+        int cw = width / 2;
+        int ch = height / 2;
+        int dstCw = dstWidth / 2;
+        for (int y = 0; y < dstHeight / 2; y++) {
+            for (int x = 0; x < dstCw; x++) {
+                int[] p = sourcePoint(x, y, cw, ch, degrees);
+                int in = frameSize + (p[1] * cw + p[0]) * 2;
+                int out = frameSize + (y * dstCw + x) * 2;
+                dst[out] = src[in];
+                dst[out + 1] = src[in + 1];
+            }
+        }
+        return dst;
+    }
+
+    private static int[] sourcePoint(final int x, final int y, final int width, final int height,
+                                     final int degrees) {
+        switch (degrees) {
+            case 90:
+                return new int[] {y, height - 1 - x};
+            case 180:
+                return new int[] {width - 1 - x, height - 1 - y};
+            case 270:
+                return new int[] {width - 1 - y, x};
+            default:
+                return new int[] {x, y};
+        }
+    }
+}
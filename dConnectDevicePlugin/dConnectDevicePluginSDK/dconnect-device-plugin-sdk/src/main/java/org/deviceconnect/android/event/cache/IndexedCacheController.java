@@ -0,0 +1,437 @@
+/*
+ IndexedCacheController.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.event.cache;
+
+import org.deviceconnect.android.event.Event;
+import org.deviceconnect.android.event.EventError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * イベントデータをメモリにキャッシュし、キャッシュの操作機能を提供する.
+ * <p>
+ * {@link MemoryCacheController}と同じくメモリ上にイベントを保持するが、以下の点が異なる。
+ * </p>
+ * <ul>
+ * <li>イベントの取得はロックを取らずに行う。追加・削除のみ排他する。</li>
+ * <li>サービスID、プロファイル、インターフェース、属性の順に階層化したマップで管理し、
+ * 取得時にパスの文字列を生成しない。</li>
+ * <li>オリジン(セッションキー)ごとのインデックスを持ち、
+ * {@link #getEvents(String)}と{@link #removeEvents(String)}でキャッシュ全体を走査しない。</li>
+ * </ul>
+ * <p>
+ * センサーなど、イベントを頻繁に送信するプラグインで使用することを想定している。
+ * </p>
+ *
+ * @author NTT DOCOMO, INC.
+ */
+public class IndexedCacheController extends BaseCacheController {
+
+    /**
+     * 空のサービスID用キー.
+     */
+    private static final String NULL_SERVICE_ID = "__null";
+
+    /**
+     * 空のインターフェース、属性用キー.
+     * <p>
+     * {@link MemoryCacheController}と同じく、nullと空文字は同じものとして扱う。
+     * </p>
+     */
+    private static final String NULL_NAME = "";
+
+    /**
+     * 空のレシーバー用キー.
+     */
+    private static final String NULL_RECEIVER_NAME = "";
+
+    /**
+     * イベントが無い場合に返却するリスト.
+     */
+    private static final List<Event> EMPTY_EVENTS = Collections.emptyList();
+
+    /**
+     * サービスIDごとのイベント一覧.
+     */
+    private final Map<String, ProfileMap> mEventMap = new ConcurrentHashMap<String, ProfileMap>();
+
+    /**
+     * オリジンごとのイベント一覧.
+     */
+    private final Map<String, CopyOnWriteArrayList<Event>> mOriginMap
+        = new ConcurrentHashMap<String, CopyOnWriteArrayList<Event>>();
+
+    /**
+     * 追加・削除の排他用オブジェクト.
+     */
+    private final Object mLock = new Object();
+
+    /**
+     * 登録されているイベント数.
+     */
+    private volatile int mEventCount;
+
+    /**
+     * イベント情報からレシーバー名を取得する.
+     * レシーバーが無い場合は空文字を返す。
+     *
+     * @param event イベント情報
+     * @return レシーバー名
+     */
+    private static String getReceiverName(final Event event) {
+        String receiver = event.getReceiverName();
+        if (receiver == null) {
+            receiver = NULL_RECEIVER_NAME;
+        }
+        return receiver;
+    }
+
+    private static String toKey(final String name) {
+        return name != null ? name : NULL_NAME;
+    }
+
+    private static String toServiceKey(final String serviceId) {
+        return serviceId != null ? serviceId : NULL_SERVICE_ID;
+    }
+
+    /**
+     * 指定された条件のイベント一覧を取得する.
+     *
+     * @param serviceId サービスID
+     * @param profile プロファイル名
+     * @param inter インターフェース名
+     * @param attribute 属性名
+     * @return イベント一覧. 無い場合はnull
+     */
+    private CopyOnWriteArrayList<Event> findEventList(final String serviceId, final String profile,
+                                                      final String inter, final String attribute) {
+        ProfileMap profiles = mEventMap.get(toServiceKey(serviceId));
+        if (profiles == null) {
+            return null;
+        }
+        InterfaceMap interfaces = profiles.get(profile);
+        if (interfaces == null) {
+            return null;
+        }
+        AttributeMap attributes = interfaces.get(toKey(inter));
+        if (attributes == null) {
+            return null;
+        }
+        return attributes.get(toKey(attribute));
+    }
+
+    /**
+     * 指定されたイベントを格納するイベント一覧を取得する. 無い場合は作成する.
+     * <p>
+     * {@link #mLock}を取得した状態で呼び出すこと。
+     * </p>
+     *
+     * @param event イベント
+     * @return イベント一覧
+     */
+    private CopyOnWriteArrayList<Event> obtainEventList(final Event event) {
+        String serviceKey = toServiceKey(event.getServiceId());
+        ProfileMap profiles = mEventMap.get(serviceKey);
+        if (profiles == null) {
+            profiles = new ProfileMap();
+            mEventMap.put(serviceKey, profiles);
+        }
+        InterfaceMap interfaces = profiles.get(event.getProfile());
+        if (interfaces == null) {
+            interfaces = new InterfaceMap();
+            profiles.put(event.getProfile(), interfaces);
+        }
+        String interKey = toKey(event.getInterface());
+        AttributeMap attributes = interfaces.get(interKey);
+        if (attributes == null) {
+            attributes = new AttributeMap();
+            interfaces.put(interKey, attributes);
+        }
+        String attributeKey = toKey(event.getAttribute());
+        CopyOnWriteArrayList<Event> eventList = attributes.get(attributeKey);
+        if (eventList == null) {
+            eventList = new CopyOnWriteArrayList<Event>();
+            attributes.put(attributeKey, eventList);
+        }
+        return eventList;
+    }
+
+    /**
+     * 指定されたイベントをイベント一覧から削除し、空になったマップを取り除く.
+     * <p>
+     * {@link #mLock}を取得した状態で呼び出すこと。
+     * </p>
+     *
+     * @param event 削除するイベント
+     */
+    private void removeFromEventMap(final Event event) {
+        String serviceKey = toServiceKey(event.getServiceId());
+        ProfileMap profiles = mEventMap.get(serviceKey);
+        if (profiles == null) {
+            return;
+        }
+        InterfaceMap interfaces = profiles.get(event.getProfile());
+        if (interfaces == null) {
+            return;
+        }
+        String interKey = toKey(event.getInterface());
+        AttributeMap attributes = interfaces.get(interKey);
+        if (attributes == null) {
+            return;
+        }
+        String attributeKey = toKey(event.getAttribute());
+        CopyOnWriteArrayList<Event> eventList = attributes.get(attributeKey);
+        if (eventList == null) {
+            return;
+        }
+        removeFromList(eventList, event);
+        if (eventList.isEmpty()) {
+            attributes.remove(attributeKey);
+            if (attributes.isEmpty()) {
+                interfaces.remove(interKey);
+                if (interfaces.isEmpty()) {
+                    profiles.remove(event.getProfile());
+                    if (profiles.isEmpty()) {
+                        mEventMap.remove(serviceKey);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public EventError addEvent(final Event event) {
+        if (!checkParameter(event)) {
+            return EventError.INVALID_PARAMETER;
+        }
+
+        synchronized (mLock) {
+            CopyOnWriteArrayList<Event> eventList = obtainEventList(event);
+
+            String origin = event.getOrigin();
+            String receiver = getReceiverName(event);
+            for (Event e : eventList) {
+                if (e.getOrigin().equals(origin) && getReceiverName(e).equals(receiver)) {
+                    // 登録済みの場合はアクセストークンを上書きする
+                    e.setAccessToken(event.getAccessToken());
+                    e.setUpdateDate(Utils.getCurreTimestamp());
+                    return EventError.NONE;
+                }
+            }
+            event.setCreateDate(Utils.getCurreTimestamp());
+            event.setUpdateDate(Utils.getCurreTimestamp());
+            eventList.add(event);
+
+            CopyOnWriteArrayList<Event> originList = mOriginMap.get(origin);
+            if (originList == null) {
+                originList = new CopyOnWriteArrayList<Event>();
+                mOriginMap.put(origin, originList);
+            }
+            originList.add(event);
+            mEventCount++;
+        }
+        return EventError.NONE;
+    }
+
+    @Override
+    public EventError removeEvent(final Event event) {
+        if (!checkParameter(event)) {
+            return EventError.INVALID_PARAMETER;
+        }
+
+        synchronized (mLock) {
+            CopyOnWriteArrayList<Event> eventList = findEventList(event.getServiceId(), event.getProfile(),
+                event.getInterface(), event.getAttribute());
+            if (eventList == null) {
+                return EventError.NOT_FOUND;
+            }
+
+            String origin = event.getOrigin();
+            String receiver = getReceiverName(event);
+            for (Event e : eventList) {
+                if (e.getOrigin().equals(origin) && getReceiverName(e).equals(receiver)) {
+                    removeFromEventMap(e);
+                    removeFromOriginIndex(e);
+                    mEventCount--;
+                    return EventError.NONE;
+                }
+            }
+        }
+        return EventError.NOT_FOUND;
+    }
+
+    @Override
+    public boolean removeEvents(final String origin) {
+        if (origin == null) {
+            throw new IllegalArgumentException("origin is null.");
+        }
+
+        synchronized (mLock) {
+            CopyOnWriteArrayList<Event> originList = mOriginMap.remove(origin);
+            if (originList == null) {
+                return true;
+            }
+            for (Event e : originList) {
+                removeFromEventMap(e);
+            }
+            mEventCount -= originList.size();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean removeAll() {
+        synchronized (mLock) {
+            mEventMap.clear();
+            mOriginMap.clear();
+            mEventCount = 0;
+            return mEventMap.isEmpty();
+        }
+    }
+
+    @Override
+    public Event getEvent(final String serviceId, final String profile, final String inter,
+                          final String attribute, final String origin, final String receiver) {
+        String tmpReceiver = receiver;
+        if (tmpReceiver == null) {
+            tmpReceiver = NULL_RECEIVER_NAME;
+        }
+
+        List<Event> eventList = getEvents(serviceId, profile, inter, attribute);
+        for (Event e : eventList) {
+            if (e.getOrigin().equals(origin) && getReceiverName(e).equals(tmpReceiver)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 返却する一覧は読み込み専用として扱うこと。
+     * </p>
+     */
+    @Override
+    public List<Event> getEvents(final String serviceId, final String profile,
+                                 final String inter, final String attribute) {
+        if (profile == null) {
+            return EMPTY_EVENTS;
+        }
+        List<Event> eventList = findEventList(serviceId, profile, inter, attribute);
+        if (eventList == null) {
+            return EMPTY_EVENTS;
+        }
+        return eventList;
+    }
+
+    @Override
+    public List<Event> getEvents(final String origin) {
+        if (origin == null) {
+            return new ArrayList<Event>();
+        }
+        List<Event> originList = mOriginMap.get(origin);
+        if (originList == null) {
+            return new ArrayList<Event>();
+        }
+        return new ArrayList<Event>(originList);
+    }
+
+    @Override
+    public void flush() {
+        // do nothing.
+    }
+
+    /**
+     * 登録されているイベント数を取得する.
+     *
+     * @return イベント数
+     */
+    protected int getEventCount() {
+        return mEventCount;
+    }
+
+    /**
+     * 登録されている全てのイベントを取得する.
+     *
+     * @return イベントの一覧
+     */
+    protected List<Event> getAllEvents() {
+        synchronized (mLock) {
+            List<Event> result = new ArrayList<Event>(mEventCount);
+            for (List<Event> originList : mOriginMap.values()) {
+                result.addAll(originList);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * オリジンごとのイベント一覧から指定されたイベントを削除する.
+     *
+     * @param event 削除するイベント
+     */
+    private void removeFromOriginIndex(final Event event) {
+        CopyOnWriteArrayList<Event> originList = mOriginMap.get(event.getOrigin());
+        if (originList != null) {
+            removeFromList(originList, event);
+            if (originList.isEmpty()) {
+                mOriginMap.remove(event.getOrigin());
+            }
+        }
+    }
+
+    /**
+     * 一覧から指定されたイベントのインスタンスを削除する.
+     * <p>
+     * {@link Event#equals(Object)}は値で比較するため、インスタンスの一致で削除する。
+     * </p>
+     *
+     * @param list イベント一覧
+     * @param event 削除するイベント
+     */
+    private static void removeFromList(final List<Event> list, final Event event) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == event) {
+                list.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * プロファイル名ごとのマップ.
+     */
+    private static final class ProfileMap extends ConcurrentHashMap<String, InterfaceMap> {
+        /** シリアルバージョン. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * インターフェース名ごとのマップ.
+     */
+    private static final class InterfaceMap extends ConcurrentHashMap<String, AttributeMap> {
+        /** シリアルバージョン. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * 属性名ごとのイベント一覧のマップ.
+     * <p>
+     * イベント一覧は取得時に複製せずにそのまま返却するため、{@link CopyOnWriteArrayList}を使用する。
+     * </p>
+     */
+    private static final class AttributeMap extends ConcurrentHashMap<String, CopyOnWriteArrayList<Event>> {
+        /** シリアルバージョン. */
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ JournalCacheController.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.event.cache;
+
+import android.content.Context;
+
+import org.deviceconnect.android.event.Event;
+import org.deviceconnect.android.event.EventError;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * イベントデータをジャーナルファイルに保存し、キャッシュの操作機能を提供する.
+ * <p>
+ * {@link FileCacheController}はflushのたびにキャッシュ全体をシリアライズして書き出すが、
+ * 本クラスは追加・削除の操作を1件ずつバイナリ形式でファイルの末尾に追記する。
+ * そのため、登録済みのイベント数に関わらず1回の操作で書き出すデータ量は一定になる。
+ * </p>
+ * <p>
+ * 起動時はジャーナルを先頭から再生してキャッシュを復元する。
+ * ジャーナルが登録済みのイベント数に比べて大きくなった場合は、
+ * バックグラウンドで登録済みのイベントだけを書き出したジャーナルに置き換える。
+ * </p>
+ *
+ * @author NTT DOCOMO, INC.
+ */
+public class JournalCacheController extends IndexedCacheController {
+
+    /**
+     * ジャーナルファイル名.
+     */
+    private static final String JOURNAL_FILE_NAME = "org_deviceconnect_android_event_journal.dat";
+
+    /**
+     * 圧縮中に書き出す一時ファイル名.
+     */
+    private static final String TEMP_FILE_NAME = JOURNAL_FILE_NAME + ".tmp";
+
+    /**
+     * ジャーナルファイルの先頭に書き込む識別子.
+     */
+    private static final int MAGIC = 0x44434A4C;
+
+    /**
+     * ジャーナルファイルのバージョン.
+     */
+    private static final int VERSION = 1;
+
+    /** イベント追加のレコード. */
+    private static final int RECORD_ADD = 1;
+
+    /** イベント削除のレコード. */
+    private static final int RECORD_REMOVE = 2;
+
+    /** オリジンに紐づくイベント削除のレコード. */
+    private static final int RECORD_REMOVE_ORIGIN = 3;
+
+    /** 全イベント削除のレコード. */
+    private static final int RECORD_REMOVE_ALL = 4;
+
+    /**
+     * 日付が無いことを示す値.
+     */
+    private static final long NO_DATE = -1;
+
+    /**
+     * 圧縮を行うレコード数の下限.
+     * <p>
+     * 圧縮に失敗した場合は、失敗した時点のレコード数にこの値を加えた数まで次の圧縮を行わない。
+     * </p>
+     */
+    static final int COMPACTION_THRESHOLD = 256;
+
+    /**
+     * 圧縮スレッドを破棄するまでの時間(秒).
+     */
+    private static final long COMPACTION_THREAD_KEEP_ALIVE = 10;
+
+    /**
+     * ロガー.
+     */
+    private final Logger mLogger = Logger.getLogger("org.deviceconnect.dplugin");
+
+    /**
+     * ジャーナルファイル.
+     */
+    private final File mJournalFile;
+
+    /**
+     * 圧縮中に書き出す一時ファイル.
+     */
+    private final File mTempFile;
+
+    /**
+     * 自動フラッシュフラグ.
+     */
+    private final boolean mAutoFlush;
+
+    /**
+     * 1件のレコードを組み立てるバッファ.
+     */
+    private final ByteArrayOutputStream mRecordBuffer = new ByteArrayOutputStream();
+
+    /**
+     * 1件のレコードを組み立てるストリーム.
+     */
+    private final DataOutputStream mRecord = new DataOutputStream(mRecordBuffer);
+
+    /**
+     * 圧縮を実行するスレッド.
+     */
+    private final ThreadPoolExecutor mCompactionExecutor;
+
+    /**
+     * ジャーナルファイルへの出力ストリーム. 開けなかった場合はnull.
+     */
+    private OutputStream mOutput;
+
+    /**
+     * ジャーナルファイルに書き込まれているレコード数.
+     */
+    private int mRecordCount;
+
+    /**
+     * 次に圧縮を行うレコード数の下限.
+     */
+    private int mCompactionThreshold = COMPACTION_THRESHOLD;
+
+    /**
+     * 圧縮中に追記されたレコード. 圧縮中以外はnull.
+     */
+    private ByteArrayOutputStream mPendingRecords;
+
+    /**
+     * 圧縮中に追記されたレコード数.
+     */
+    private int mPendingCount;
+
+    /**
+     * 自動フラッシュフラグを指定してJournalCacheControllerのインスタンスを生成する.
+     *
+     * @param context コンテキストオブジェクト
+     * @param autoFlush
+     *            trueの場合、追加、削除系の操作を行う度にレコードをファイルに書き出す。
+     *            falseの場合は明示的にflush()を呼び出すまでバッファに保持する。
+     */
+    public JournalCacheController(final Context context, final boolean autoFlush) {
+        this(getFilesDir(context), autoFlush);
+    }
+
+    /**
+     * コンテキストを指定してJournalCacheControllerのインスタンスを生成する.
+     * 自動フラッシュ機能はオンの状態になる。
+     *
+     * @param context コンテキストオブジェクト
+     */
+    public JournalCacheController(final Context context) {
+        this(context, true);
+    }
+
+    /**
+     * ジャーナルファイルを保存するディレクトリを指定してJournalCacheControllerのインスタンスを生成する.
+     *
+     * @param dir ジャーナルファイルを保存するディレクトリ
+     * @param autoFlush 自動フラッシュフラグ
+     */
+    JournalCacheController(final File dir, final boolean autoFlush) {
+        mJournalFile = new File(dir, JOURNAL_FILE_NAME);
+        mTempFile = new File(dir, TEMP_FILE_NAME);
+        mAutoFlush = autoFlush;
+        mCompactionExecutor = new ThreadPoolExecutor(1, 1, COMPACTION_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>());
+        mCompactionExecutor.allowCoreThreadTimeOut(true);
+        load();
+    }
+
+    /**
+     * ジャーナルファイルを保存するディレクトリを取得する.
+     *
+     * @param context コンテキストオブジェクト
+     * @return ジャーナルファイルを保存するディレクトリ
+     */
+    private static File getFilesDir(final Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context is null.");
+        }
+        return context.getFilesDir();
+    }
+
+    @Override
+    public synchronized EventError addEvent(final Event event) {
+        EventError error = super.addEvent(event);
+        if (error == EventError.NONE) {
+            // 登録済みの場合は既存のイベントが更新されるので、更新後の状態を書き出す
+            Event stored = getEvent(event.getServiceId(), event.getProfile(), event.getInterface(),
+                event.getAttribute(), event.getOrigin(), event.getReceiverName());
+            if (stored != null) {
+                try {
+                    mRecord.writeByte(RECORD_ADD);
+                    writeEvent(mRecord, stored);
+                    appendRecord();
+                } catch (IOException e) {
+                    mLogger.severe("Exception occurred in JournalCacheController. " + e.getMessage());
+                }
+            }
+        }
+        return error;
+    }
+
+    @Override
+    public synchronized EventError removeEvent(final Event event) {
+        EventError error = super.removeEvent(event);
+        if (error == EventError.NONE) {
+            try {
+                mRecord.writeByte(RECORD_REMOVE);
+                writeEvent(mRecord, event);
+                appendRecord();
+            } catch (IOException e) {
+                mLogger.severe("Exception occurred in JournalCacheController. " + e.getMessage());
+            }
+        }
+        return error;
+    }
+
+    @Override
+    public synchronized boolean removeEvents(final String origin) {
+        boolean result = super.removeEvents(origin);
+        try {
+            mRecord.writeByte(RECORD_REMOVE_ORIGIN);
+            writeString(mRecord, origin);
+            appendRecord();
+        } catch (IOException e) {
+            mLogger.severe("Exception occurred in JournalCacheController. " + e.getMessage());
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean removeAll() {
+        boolean result = super.removeAll();
+        try {
+            mRecord.writeByte(RECORD_REMOVE_ALL);
+            appendRecord();
+        } catch (IOException e) {
+            mLogger.severe("Exception occurred in JournalCacheController. " + e.getMessage());
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (mOutput != null) {
+            try {
+                mOutput.flush();
+            } catch (IOException e) {
+                mLogger.severe("Exception occurred in JournalCacheController. " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * ジャーナルファイルからキャッシュを復元する.
+     * <p>
+     * 復元後は登録済みのイベントだけを書き出したジャーナルに置き換える。
+     * 書き込み途中で終了したレコードはこの時に取り除かれる。
+     * </p>
+     */
+    private synchronized void load() {
+        if (mJournalFile.exists()) {
+            replay();
+        }
+        List<Event> events = getAllEvents();
+        try {
+            writeSnapshot(mTempFile, events);
+            if (!mTempFile.renameTo(mJournalFile)) {
+                throw new IOException("Failed to rename a journal file.");
+            }
+            mRecordCount = events.size();
+        } catch (IOException e) {
+            mLogger.severe("Exception occurred in JournalCacheController. " + e.getMessage());
+        }
+        openOutput();
+    }
+
+    /**
+     * ジャーナルファイルのレコードを先頭から再生する.
+     */
+    private void replay() {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mJournalFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                mLogger.warning("Unknown journal file format. Ignored: " + mJournalFile.getName());
+                return;
+            }
+            int type;
+            while ((type = in.read()) != -1) {
+                switch (type) {
+                    case RECORD_ADD: {
+                        Event event = readEvent(in);
+                        Timestamp createDate = event.getCreateDate();
+                        Timestamp updateDate = event.getUpdateDate();
+                        if (super.addEvent(event) == EventError.NONE) {
+                            Event stored = getEvent(event.getServiceId(), event.getProfile(),
+                                event.getInterface(), event.getAttribute(), event.getOrigin(),
+                                event.getReceiverName());
+                            if (stored != null) {
+                                stored.setCreateDate(createDate);
+                                stored.setUpdateDate(updateDate);
+                            }
+                        }
+                        break;
+                    }
+                    case RECORD_REMOVE:
+                        super.removeEvent(readEvent(in));
+                        break;
+                    case RECORD_REMOVE_ORIGIN: {
+                        String origin = readString(in);
+                        if (origin != null) {
+                            super.removeEvents(origin);
+                        }
+                        break;
+                    }
+                    case RECORD_REMOVE_ALL:
+                        super.removeAll();
+                        break;
+                    default:
+                        throw new IOException("Unknown record type: " + type);
+                }
+            }
+        } catch (EOFException e) {
+            mLogger.warning("Journal file is truncated. " + e.getMessage());
+        } catch (IOException e) {
+            mLogger.severe("Exception occurred in JournalCacheController. " + e.getMessage());
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore.
+                }
+            }
+        }
+    }
+
+    /**
+     * 組み立てたレコードをジャーナルファイルに追記する.
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void appendRecord() throws IOException {
+        try {
+            if (mOutput != null) {
+                mRecordBuffer.writeTo(mOutput);
+                if (mAutoFlush) {
+                    mOutput.flush();
+                }
+            }
+            if (mPendingRecords != null) {
+                mRecordBuffer.writeTo(mPendingRecords);
+                mPendingCount++;
+            }
+        } finally {
+            mRecordBuffer.reset();
+        }
+        mRecordCount++;
+        compactIfNeeded();
+    }
+
+    /**
+     * ジャーナルのレコード数が登録済みのイベント数に比べて多い場合に圧縮を開始する.
+     */
+    private void compactIfNeeded() {
+        if (mPendingRecords != null || mRecordCount < mCompactionThreshold
+            || mRecordCount < getEventCount() * 2) {
+            return;
+        }
+        final List<Event> events = getAllEvents();
+        mPendingRecords = new ByteArrayOutputStream();
+        mPendingCount = 0;
+        mCompactionExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compact(events);
+            }
+        });
+    }
+
+    /**
+     * 登録済みのイベントだけを書き出したジャーナルに置き換える.
+     * <p>
+     * 書き出し中に追記されたレコードは、置き換える直前に新しいジャーナルの末尾に追記する。
+     * </p>
+     *
+     * @param events 圧縮開始時に登録されていたイベント
+     */
+    private void compact(final List<Event> events) {
+        try {
+            writeSnapshot(mTempFile, events);
+        } catch (IOException e) {
+            synchronized (this) {
+                mPendingRecords = null;
+                postponeCompaction(e);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            try {
+                OutputStream out = new FileOutputStream(mTempFile, true);
+                try {
+                    mPendingRecords.writeTo(out);
+                } finally {
+                    out.close();
+                }
+                closeOutput();
+                if (!mTempFile.renameTo(mJournalFile)) {
+                    throw new IOException("Failed to rename a journal file.");
+                }
+                mRecordCount = events.size() + mPendingCount;
+                mCompactionThreshold = COMPACTION_THRESHOLD;
+            } catch (IOException e) {
+                postponeCompaction(e);
+            } finally {
+                mPendingRecords = null;
+                if (mOutput == null) {
+                    openOutput();
+                }
+            }
+        }
+    }
+
+    /**
+     * 圧縮に失敗した場合に、次の圧縮を一定数のレコードが追記されるまで延期する.
+     * <p>
+     * 延期しないと、以降の追記のたびに全イベントの書き出しを再試行してしまう。
+     * </p>
+     *
+     * @param e 圧縮に失敗した原因
+     */
+    private void postponeCompaction(final IOException e) {
+        mCompactionThreshold = mRecordCount + COMPACTION_THRESHOLD;
+        mLogger.severe("Failed to compact a journal file. Retry after " + mCompactionThreshold
+            + " records. " + e.getMessage());
+    }
+
+    /**
+     * 指定されたイベントだけを記録したジャーナルファイルを作成する.
+     *
+     * @param file 書き出し先のファイル
+     * @param events イベントの一覧
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void writeSnapshot(final File file, final List<Event> events) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Event event : events) {
+                out.writeByte(RECORD_ADD);
+                writeEvent(out, event);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * ジャーナルファイルを追記モードで開く.
+     */
+    private void openOutput() {
+        try {
+            if (!mJournalFile.exists()) {
+                writeSnapshot(mJournalFile, getAllEvents());
+            }
+            mOutput = new BufferedOutputStream(new FileOutputStream(mJournalFile, true));
+        } catch (IOException e) {
+            mLogger.severe("Exception occurred in JournalCacheController. " + e.getMessage());
+            mOutput = null;
+        }
+    }
+
+    /**
+     * ジャーナルファイルを閉じる.
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void closeOutput() throws IOException {
+        if (mOutput != null) {
+            OutputStream out = mOutput;
+            mOutput = null;
+            out.close();
+        }
+    }
+
+    private static void writeEvent(final DataOutputStream out, final Event event) throws IOException {
+        writeString(out, event.getServiceId());
+        writeString(out, event.getProfile());
+        writeString(out, event.getInterface());
+        writeString(out, event.getAttribute());
+        writeString(out, event.getOrigin());
+        writeString(out, event.getReceiverName());
+        writeString(out, event.getAccessToken());
+        writeDate(out, event.getCreateDate());
+        writeDate(out, event.getUpdateDate());
+    }
+
+    private static Event readEvent(final DataInputStream in) throws IOException {
+        Event event = new Event();
+        event.setServiceId(readString(in));
+        event.setProfile(readString(in));
+        event.setInterface(readString(in));
+        event.setAttribute(readString(in));
+        event.setOrigin(readString(in));
+        event.setReceiverName(readString(in));
+        event.setAccessToken(readString(in));
+        event.setCreateDate(readDate(in));
+        event.setUpdateDate(readDate(in));
+        return event;
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(final DataOutputStream out, final Timestamp date) throws IOException {
+        out.writeLong(date != null ? date.getTime() : NO_DATE);
+    }
+
+    private static Timestamp readDate(final DataInputStream in) throws IOException {
+        long time = in.readLong();
+        return time != NO_DATE ? new Timestamp(time) : null;
+    }
+}
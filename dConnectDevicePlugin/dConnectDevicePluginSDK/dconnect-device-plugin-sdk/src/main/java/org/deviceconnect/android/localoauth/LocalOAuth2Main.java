@@ -265,16 +265,18 @@ public final class LocalOAuth2Main {
      * (1)-2.LocalOAuth終了処理.
      */
     public static void destroy() {
-        
-        /* DBをまとめてクローズ */
-        if (sDbHelper != null) {
-            sDbHelper.close();
+        /* DBアクセス中に破棄しない */
+        synchronized (sLockForDbAccess) {
+            /* DBをまとめてクローズ */
+            if (sDbHelper != null) {
+                sDbHelper.close();
+            }
+
+            sUserManager = null;
+            sClientManager = null;
+            sTokenManager = null;
+            sDbHelper = null;
         }
-        
-        sUserManager = null;
-        sClientManager = null;
-        sTokenManager = null;
-        sDbHelper = null;
     }
     
 
@@ -403,6 +405,9 @@ public final class LocalOAuth2Main {
                 /* クライアントデータ削除 */
                 removeClientData(clientId);
                 
+                /* クライアントIDの有無が変わるのでトークンのキャッシュを破棄 */
+                sqliteTokenManager.clearTokenCache();
+                
                 /* コミット */
                 db.setTransactionSuccessful();
                 
@@ -790,16 +795,6 @@ public final class LocalOAuth2Main {
         if (scope == null) {
             throw new IllegalArgumentException("scope is null.");
         }
-        boolean isExistClientId = false; /*
-                                          * true: アクセストークンを発行したクライアントIDあり /
-                                          * false: アクセストークンを発行したクライアントIDなし.
-                                          */
-        boolean isExistAccessToken = false; /*
-                                             * true: アクセストークンあり / false:
-                                             * アクセストークンなし
-                                             */
-        boolean isExistScope = false; /* true: スコープあり / false: スコープなし */
-        boolean isNotExpired = false; /* true: 有効期限内 / false: 有効期限切れ */
 
         // 無視するスコープが指定されていた場合
         if (specialScopes != null && Arrays.asList(specialScopes).contains(scope)) {
@@ -811,6 +806,49 @@ public final class LocalOAuth2Main {
             return new CheckAccessTokenResult(false, false, false, false);
         }
 
+        /* 終了処理と同時に参照しない */
+        SQLiteTokenManager sqliteTokenManager;
+        synchronized (sLockForDbAccess) {
+            sqliteTokenManager = (SQLiteTokenManager) sTokenManager;
+        }
+        if (sqliteTokenManager == null) {
+            return new CheckAccessTokenResult(false, false, false, false);
+        }
+
+        /* キャッシュにトークンがあればDBにアクセスせずに確認する */
+        CheckAccessTokenResult result;
+        SQLiteTokenManager.CachedToken cachedToken = sqliteTokenManager.findCachedToken(accessToken);
+        if (cachedToken != null) {
+            result = checkTokenScope(cachedToken.getToken(), cachedToken.isExistClientId(), scope);
+        } else {
+            result = checkAccessTokenFromDb(accessToken, scope);
+        }
+
+        if (!result.checkResult()) {
+            sLogger.warning("checkAccessToken() - error.");
+            sLogger.warning(" - isExistClientId: " + result.isExistClientId());
+            sLogger.warning(" - isExistAccessToken: " + result.isExistAccessToken());
+            sLogger.warning(" - isExistScope:" + result.isExistScope());
+            sLogger.warning(" - isNotExpired:" + result.isNotExpired());
+            sLogger.warning(" - accessToken:" + accessToken);
+            sLogger.warning(" - scope:" + scope);
+        }
+        return result;
+    }
+
+    /**
+     * DBを参照してアクセストークンを確認する.
+     * <p>
+     * 見つかったトークンはアクセス時間を更新した上でキャッシュに格納する.
+     * </p>
+     * 
+     * @param accessToken 確認するアクセストークン
+     * @param scope このスコープがアクセストークンに含まれるかチェックする
+     * @return チェック結果
+     */
+    private static CheckAccessTokenResult checkAccessTokenFromDb(final String accessToken, final String scope) {
+        CheckAccessTokenResult result = null;
+
         SQLiteDatabase db = null;
         SQLiteClientManager sqliteClientManager = null;
         SQLiteTokenManager sqliteTokenManager = null;
@@ -833,45 +871,19 @@ public final class LocalOAuth2Main {
                 /* アクセストークンを元にトークンを検索する */
                 SQLiteToken token = (SQLiteToken) sqliteTokenManager.findTokenByAccessToken(accessToken);
                 if (token != null) {
-                    isExistAccessToken = true; /* アクセストークンあり */
-                    Scope[] scopes = token.getScope();
-                    for (Scope s : scopes) {
-                        /* token.scopeに"*"が含まれていたら、どんなスコープにもアクセスできる */
-                        if (BuildConfig.DEBUG && s.getScope().equals("*")) {
-                            isExistScope = true; /* スコープあり */
-                            isNotExpired = true; /* 有効期限 */
-                            break;
-                        }
-                        if (s.getScope().equals(scope)) {
-                            isExistScope = true; /* スコープあり */
-                            
-                            if (s.getExpirePeriod() == 0) {
-                                /* 有効期限0の場合は、トークン発行から1分以内の初回アクセスなら有効期限内とする */
-                                long t = System.currentTimeMillis() - token.getRegistrationDate();
-                                if (0 <= t
-                                && t <= (LocalOAuth2Settings.ACCESS_TOKEN_GRACE_TIME * LocalOAuth2Settings.MSEC)
-                                && token.isFirstAccess()) {
-                                    isNotExpired = true;
-                                }
-                            } else if (s.getExpirePeriod() > 0) {
-                                /* 有効期限1以上の場合は、トークン発行からの経過時間が有効期限内かを判定して返す */
-                                isNotExpired = !s.isExpired();
-                            } else {
-                                /* 有効期限にマイナス値が設定されていたら、有効期限切れとみなす */
-                                isNotExpired = false;
-                            }
-                            break;
-                        }
-                    }
-    
                     /* このトークンを発行したクライアントIDが存在するかチェック */
-                    if (sqliteClientManager.findById(token.getClientId()) != null) {
-                        isExistClientId = true;
-                    }
-    
+                    boolean isExistClientId = sqliteClientManager.findById(token.getClientId()) != null;
+
+                    /* 初回アクセスの判定があるので、アクセス時間を更新する前にスコープを確認する */
+                    result = checkTokenScope(token, isExistClientId, scope);
+
                     /* トークンのアクセス時間更新 */
-                    SQLiteToken sqliteToken = (SQLiteToken) token;
-                    sqliteToken.dbUpdateTokenAccessTime(db);
+                    token.dbUpdateTokenAccessTime(db);
+
+                    /* アクセス時間を更新したトークンをキャッシュする */
+                    sqliteTokenManager.putCachedToken(token, isExistClientId);
+                } else {
+                    result = new CheckAccessTokenResult(false, false, false, false);
                 }
                 
                 /* コミット */
@@ -894,21 +906,54 @@ public final class LocalOAuth2Main {
                 }
             }
         }
-        
-        CheckAccessTokenResult result = new CheckAccessTokenResult(isExistClientId, isExistAccessToken, isExistScope,
-                isNotExpired);
-        if (!result.checkResult()) {
-            sLogger.warning("checkAccessToken() - error.");
-            sLogger.warning(" - isExistClientId: " + isExistClientId);
-            sLogger.warning(" - isExistAccessToken: " + isExistAccessToken);
-            sLogger.warning(" - isExistScope:" + isExistScope);
-            sLogger.warning(" - isNotExpired:" + isNotExpired);
-            sLogger.warning(" - accessToken:" + accessToken);
-            sLogger.warning(" - scope:" + scope);
-        }
         return result;
     }
 
+    /**
+     * トークンに指定されたスコープが含まれ、有効期限内であるかを確認する.
+     * 
+     * @param token トークン
+     * @param isExistClientId true: アクセストークンを発行したクライアントIDあり / false: なし
+     * @param scope このスコープがアクセストークンに含まれるかチェックする
+     * @return チェック結果
+     */
+    private static CheckAccessTokenResult checkTokenScope(final SQLiteToken token, final boolean isExistClientId,
+            final String scope) {
+        boolean isExistScope = false; /* true: スコープあり / false: スコープなし */
+        boolean isNotExpired = false; /* true: 有効期限内 / false: 有効期限切れ */
+
+        Scope[] scopes = token.getScope();
+        for (Scope s : scopes) {
+            /* token.scopeに"*"が含まれていたら、どんなスコープにもアクセスできる */
+            if (BuildConfig.DEBUG && s.getScope().equals("*")) {
+                isExistScope = true; /* スコープあり */
+                isNotExpired = true; /* 有効期限 */
+                break;
+            }
+            if (s.getScope().equals(scope)) {
+                isExistScope = true; /* スコープあり */
+                
+                if (s.getExpirePeriod() == 0) {
+                    /* 有効期限0の場合は、トークン発行から1分以内の初回アクセスなら有効期限内とする */
+                    long t = System.currentTimeMillis() - token.getRegistrationDate();
+                    if (0 <= t
+                    && t <= (LocalOAuth2Settings.ACCESS_TOKEN_GRACE_TIME * LocalOAuth2Settings.MSEC)
+                    && token.isFirstAccess()) {
+                        isNotExpired = true;
+                    }
+                } else if (s.getExpirePeriod() > 0) {
+                    /* 有効期限1以上の場合は、トークン発行からの経過時間が有効期限内かを判定して返す */
+                    isNotExpired = !s.isExpired();
+                } else {
+                    /* 有効期限にマイナス値が設定されていたら、有効期限切れとみなす */
+                    isNotExpired = false;
+                }
+                break;
+            }
+        }
+        return new CheckAccessTokenResult(isExistClientId, true, isExistScope, isNotExpired);
+    }
+
     /**
      * (8)Signatureを作成する.
      * 
@@ -1362,6 +1407,9 @@ public final class LocalOAuth2Main {
                 
                 sqliteClientManager.cleanupClient(LocalOAuth2Settings.CLIENT_CLEANUP_TIME);
                 
+                /* クライアントIDの有無が変わるのでトークンのキャッシュを破棄 */
+                ((SQLiteTokenManager) sTokenManager).clearTokenCache();
+                
                 /* 有効クライアント数を取得する */
                 clientCount = sqliteClientManager.countClients();
                 
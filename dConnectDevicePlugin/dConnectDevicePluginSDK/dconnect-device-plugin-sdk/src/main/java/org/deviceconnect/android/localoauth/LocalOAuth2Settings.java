@@ -40,6 +40,9 @@ public final class LocalOAuth2Settings {
     /** 有効期限0が設定されたときに、初回アクセスを「有効期限内」として返す猶予時間[秒]. */
     public static final long ACCESS_TOKEN_GRACE_TIME = 1 * MINUTE; /* 1分[秒] */
     
+    /** アクセストークンの確認結果をDBに問い合わせずにキャッシュから返す時間[sec]. */
+    public static final long ACCESS_TOKEN_CACHE_TIME = 1 * MINUTE; /* 1分[秒] */
+    
     
     
     /**
@@ -58,6 +58,14 @@ public class SQLiteTokenManager extends AbstractTokenManager {
     /** セッションマップ. */
     private final Map<String, AuthSession> mSessions = new ConcurrentHashMap<String, AuthSession>();
 
+    /**
+     * アクセストークンのキャッシュ.
+     * <p>
+     * トークンの発行・削除を行った場合には破棄する.
+     * </p>
+     */
+    private final Map<String, CachedToken> mTokenCache = new ConcurrentHashMap<String, CachedToken>();
+
     /**
      * DBオブジェクト.
      */
@@ -193,6 +201,9 @@ public class SQLiteTokenManager extends AbstractTokenManager {
             
         }
 
+        /* スコープが変わったのでキャッシュを破棄する */
+        mTokenCache.remove(token.getAccessToken());
+
         return token;
     }
 
@@ -315,6 +326,7 @@ public class SQLiteTokenManager extends AbstractTokenManager {
                 String.valueOf(LocalOAuthOpenHelper.USERS_USER_ID)
             };
             dbDeleteTokens(mDb, whereClause, whereArgs);
+            clearTokenCache();
         } else {
             throw new SQLiteException("DBがオープンされていません。");
         }
@@ -330,6 +342,7 @@ public class SQLiteTokenManager extends AbstractTokenManager {
             String whereClause = SQLiteToken.ID_FIELD + "=?";
             String[] whereArgs = { String.valueOf(tokenId) };
             dbDeleteTokens(mDb, whereClause, whereArgs);
+            clearTokenCache();
         } else {
             throw new SQLiteException("DBがオープンされていません。");
         }
@@ -345,6 +358,7 @@ public class SQLiteTokenManager extends AbstractTokenManager {
             String whereClause = SQLiteToken.USERS_USERID_FIELD + "=?";
             String[] whereArgs = { String.valueOf(LocalOAuthOpenHelper.USERS_USER_ID) };
             dbDeleteTokens(mDb, whereClause, whereArgs);
+            clearTokenCache();
         } else {
             throw new SQLiteException("DBがオープンされていません。");
         }
@@ -360,6 +374,7 @@ public class SQLiteTokenManager extends AbstractTokenManager {
             String whereClause = SQLiteToken.CLIENTID_FIELD + "=?";
             String[] whereArgs = { client.getClientId() };
             dbDeleteTokens(mDb, whereClause, whereArgs);
+            clearTokenCache();
         } else {
             throw new SQLiteException("DBがオープンされていません。");
         }
@@ -391,6 +406,49 @@ public class SQLiteTokenManager extends AbstractTokenManager {
         }
     }
 
+    /**
+     * キャッシュからアクセストークンが一致するトークンを探す.
+     * <p>
+     * DBを参照しないので、DBオブジェクトを設定せずに呼び出すことができる.
+     * </p>
+     * 
+     * @param accessToken アクセストークン
+     * @return not null: キャッシュされたトークン / null: キャッシュされていない、または
+     *         {@link LocalOAuth2Settings#ACCESS_TOKEN_CACHE_TIME}以上経過している
+     */
+    public CachedToken findCachedToken(final String accessToken) {
+        CachedToken cached = mTokenCache.get(accessToken);
+        if (cached == null) {
+            return null;
+        }
+        long elapsedTime = System.currentTimeMillis() - cached.mCachedTime;
+        if (elapsedTime < 0
+                || elapsedTime > LocalOAuth2Settings.ACCESS_TOKEN_CACHE_TIME * LocalOAuth2Settings.MSEC) {
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * DBから読み込んだトークンをキャッシュに格納する.
+     * <p>
+     * トークンのアクセス時間を更新した後に呼び出すこと.
+     * </p>
+     * 
+     * @param token トークン
+     * @param isExistClientId true: トークンを発行したクライアントIDあり / false: なし
+     */
+    public void putCachedToken(final SQLiteToken token, final boolean isExistClientId) {
+        mTokenCache.put(token.getAccessToken(), new CachedToken(token, isExistClientId));
+    }
+
+    /**
+     * アクセストークンのキャッシュを全て破棄する.
+     */
+    public void clearTokenCache() {
+        mTokenCache.clear();
+    }
+
     /**
      * 古い無効なトークン(クライアントIDが削除されて残っていたトークン)をクリーンアップする.
      */
@@ -402,6 +460,7 @@ public class SQLiteTokenManager extends AbstractTokenManager {
                     + "where not exists (select * from clients where tokens.client_id = clients.id) "
                     + "and tokens.access_date < " + deleteDate;
             mDb.execSQL(sql);
+            clearTokenCache();
         } else {
             throw new SQLiteException("DBがオープンされていません。");
         }
@@ -777,4 +836,42 @@ public class SQLiteTokenManager extends AbstractTokenManager {
         }
         
     }
+
+    /**
+     * キャッシュされたトークン.
+     */
+    public static final class CachedToken {
+        /** トークン. */
+        private final SQLiteToken mToken;
+        /** トークンを発行したクライアントIDの有無. */
+        private final boolean mExistClientId;
+        /** キャッシュした時刻[msec]. */
+        private final long mCachedTime = System.currentTimeMillis();
+
+        /**
+         * コンストラクタ.
+         * @param token トークン
+         * @param isExistClientId トークンを発行したクライアントIDの有無
+         */
+        private CachedToken(final SQLiteToken token, final boolean isExistClientId) {
+            mToken = token;
+            mExistClientId = isExistClientId;
+        }
+
+        /**
+         * トークンを返す.
+         * @return トークン
+         */
+        public SQLiteToken getToken() {
+            return mToken;
+        }
+
+        /**
+         * トークンを発行したクライアントIDが存在するかを返す.
+         * @return true: クライアントIDあり / false: なし
+         */
+        public boolean isExistClientId() {
+            return mExistClientId;
+        }
+    }
 }
@@ -34,7 +34,6 @@ import org.deviceconnect.android.profile.DConnectProfileProvider;
 import org.deviceconnect.android.profile.ServiceDiscoveryProfile;
 import org.deviceconnect.android.profile.SystemProfile;
 import org.deviceconnect.android.profile.spec.DConnectPluginSpec;
-import org.deviceconnect.android.profile.spec.DConnectProfileSpec;
 import org.deviceconnect.android.service.DConnectService;
 import org.deviceconnect.android.service.DConnectServiceManager;
 import org.deviceconnect.android.service.DConnectServiceProvider;
@@ -43,15 +42,16 @@ import org.deviceconnect.message.intent.message.IntentDConnectMessage;
 import org.deviceconnect.profile.AuthorizationProfileConstants;
 import org.deviceconnect.profile.ServiceDiscoveryProfileConstants;
 import org.deviceconnect.profile.SystemProfileConstants;
-import org.json.JSONException;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -85,8 +85,11 @@ public abstract class DConnectMessageService extends Service implements DConnect
 
     /**
      * プロファイルインスタンスマップ.
+     * <p>
+     * リクエストをワーカースレッドで実行する場合があるので、ConcurrentHashMapを使用する.
+     * </p>
      */
-    private Map<String, DConnectProfile> mProfileMap = new HashMap<>();
+    private Map<String, DConnectProfile> mProfileMap = new ConcurrentHashMap<>();
 
     /**
      * Local OAuth使用フラグ.
@@ -101,6 +104,14 @@ public abstract class DConnectMessageService extends Service implements DConnect
         new AuthorizationRequestConverter(),
         new LowerCaseConverter()
     };
+
+    /**
+     * リクエストを実行するExecutor.
+     * <p>
+     * nullの場合はメインスレッドで実行する.
+     * </p>
+     */
+    private DConnectRequestExecutor mRequestExecutor;
     /**
      * SystemProfileを取得する.
      * SystemProfileは必須実装となるため、本メソッドでSystemProfileのインスタンスを渡すこと。
@@ -124,6 +135,26 @@ public abstract class DConnectMessageService extends Service implements DConnect
         return new MemoryCacheController();
     }
 
+    /**
+     * リクエストを実行するDConnectRequestExecutorのインスタンスを作成する.
+     *
+     * <p>
+     * デフォルトではnullを返し、リクエストはメインスレッドで実行される.
+     * プロファイルの処理をワーカースレッドで実行したい場合は本メソッドをオーバーライドすること.
+     * </p>
+     * <pre>
+     * protected DConnectRequestExecutor createRequestExecutor() {
+     *     // 4スレッドで実行し、同じサービス宛てのリクエストは1つずつ実行する
+     *     return new DConnectRequestExecutor(4, true);
+     * }
+     * </pre>
+     *
+     * @return DConnectRequestExecutorのインスタンス. メインスレッドで実行する場合はnull
+     */
+    protected DConnectRequestExecutor createRequestExecutor() {
+        return null;
+    }
+
     public final DConnectServiceProvider getServiceProvider() {
         return mServiceProvider;
     }
@@ -145,6 +176,7 @@ public abstract class DConnectMessageService extends Service implements DConnect
         super.onCreate();
         setLogLevel();
         EventManager.INSTANCE.setController(getEventCacheController());
+        mRequestExecutor = createRequestExecutor();
 
         mPluginSpec = loadPluginSpec();
 
@@ -175,32 +207,57 @@ public abstract class DConnectMessageService extends Service implements DConnect
         }
     }
 
+    /**
+     * プラグインのサポートするプロファイルの仕様定義の読み込み元を登録する.
+     * <p>
+     * 起動時間を短くするため、ここでは仕様定義ファイルの一覧からファイルの存在だけを確認し、
+     * 読み込みと解析は各プロファイルの仕様定義が最初に必要になった時に行う.
+     * 仕様定義ファイルが見つからない場合は起動時に失敗し、JSONが不正な場合は最初に必要になった時に失敗する.
+     * </p>
+     * @return プラグインのサポートする仕様
+     */
     private DConnectPluginSpec loadPluginSpec() {
         final Map<String, DevicePluginXmlProfile> supportedProfiles = DevicePluginXmlUtil.getSupportProfiles(this, getPackageName());
         final Set<String> profileNames = supportedProfiles.keySet();
 
         final DConnectPluginSpec pluginSpec = new DConnectPluginSpec();
+        final AssetManager assets = getAssets();
+        final Map<String, String> specPaths;
+        try {
+            specPaths = findProfileSpecPaths(assets);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list profile specs.", e);
+        }
         for (String profileName : profileNames) {
             String key = profileName.toLowerCase();
-            try {
-                AssetManager assets = getAssets();
-                String path = findProfileSpecPath(assets, profileName);
-                pluginSpec.addProfileSpec(key, getAssets().open(path));
-                mLogger.info("Loaded a profile spec: " + profileName);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to load a profile spec: " + profileName, e);
-            } catch (JSONException e) {
-                throw new RuntimeException("Failed to load a profile spec: " + profileName, e);
+            final String path = specPaths.get(key);
+            if (path == null) {
+                throw new RuntimeException("Failed to load a profile spec: " + profileName,
+                    new FileNotFoundException("A spec file is not found: " + profileName));
             }
+            pluginSpec.addProfileSpec(key, new DConnectPluginSpec.ProfileSpecSource() {
+                @Override
+                public InputStream open() throws IOException {
+                    mLogger.info("Loading a profile spec: " + path);
+                    return assets.open(path);
+                }
+            });
         }
         return pluginSpec;
     }
 
-    private static String findProfileSpecPath(final AssetManager assets, final String profileName)
+    /**
+     * 仕様定義ファイルの一覧を取得する.
+     * @param assets アセット
+     * @return 仕様定義ファイルのパスのマップ. キーは小文字にしたプロファイル名.
+     * @throws IOException 一覧の取得に失敗した場合
+     */
+    private static Map<String, String> findProfileSpecPaths(final AssetManager assets)
         throws IOException {
+        Map<String, String> paths = new HashMap<String, String>();
         String[] fileNames = assets.list("api");
         if (fileNames == null) {
-            return null;
+            return paths;
         }
         for (String fileFullName : fileNames) {
             if (!fileFullName.endsWith(SPEC_FILE_EXTENSION)) {
@@ -208,16 +265,21 @@ public abstract class DConnectMessageService extends Service implements DConnect
             }
             String fileName = fileFullName.substring(0,
                 fileFullName.length() - SPEC_FILE_EXTENSION.length());
-            if (fileName.equalsIgnoreCase(profileName)) {
-                return "api/" + fileFullName;
-            }
+            paths.put(fileName.toLowerCase(), "api/" + fileFullName);
         }
-        throw new FileNotFoundException("A spec file is not found: " + profileName);
+        return paths;
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        if (mRequestExecutor != null) {
+            // 実行されなかったリクエストは、タイムアウトまで待たせないようにエラーを返却する
+            for (Runnable task : mRequestExecutor.shutdown()) {
+                ((RequestTask) task).reject();
+            }
+            mRequestExecutor = null;
+        }
         // LocalOAuthの後始末
         LocalOAuth2Main.destroy();
     }
@@ -243,8 +305,7 @@ public abstract class DConnectMessageService extends Service implements DConnect
         }
 
         if (checkRequestAction(action)) {
-            convertRequest(intent);
-            onRequest(intent, MessageUtils.createResponseIntent(intent));
+            handleRequest(intent);
         }
 
         if (checkManagerUninstall(intent)) {
@@ -277,6 +338,68 @@ public abstract class DConnectMessageService extends Service implements DConnect
                 || IntentDConnectMessage.ACTION_DELETE.equals(action);
     }
 
+    /**
+     * 受信したリクエストを実行する.
+     * <p>
+     * {@link DConnectRequestExecutor}が設定されている場合はワーカースレッドで実行し、
+     * 設定されていない場合は呼び出し元のスレッドで実行する.
+     * </p>
+     * @param request リクエスト
+     */
+    private void handleRequest(final Intent request) {
+        RequestTask task = new RequestTask(request);
+        if (mRequestExecutor == null) {
+            task.run();
+            return;
+        }
+
+        if (!mRequestExecutor.execute(DConnectProfile.getServiceID(request), task)) {
+            task.reject();
+        }
+    }
+
+    /**
+     * リクエストの処理.
+     * <p>
+     * 処理中に実行時例外が発生した場合は、エラーを返却する.
+     * </p>
+     */
+    private class RequestTask implements Runnable {
+        /** リクエスト. */
+        private final Intent mRequest;
+
+        /**
+         * コンストラクタ.
+         * @param request リクエスト
+         */
+        RequestTask(final Intent request) {
+            mRequest = request;
+        }
+
+        @Override
+        public void run() {
+            Intent response = MessageUtils.createResponseIntent(mRequest);
+            try {
+                convertRequest(mRequest);
+                onRequest(mRequest, response);
+            } catch (RuntimeException e) {
+                // 例外でアプリを終了させずに、エラーを返却する
+                mLogger.log(Level.WARNING, "Failed to execute a request.", e);
+                MessageUtils.setUnknownError(response, e.getMessage());
+                sendResponse(response);
+            }
+        }
+
+        /**
+         * 終了済みのため実行できなかったリクエストにエラーを返却する.
+         */
+        void reject() {
+            Intent response = MessageUtils.createResponseIntent(mRequest);
+            MessageUtils.setIllegalServerStateError(response, "Device plug-in is shutting down.");
+            sendResponse(response);
+        }
+    }
+
     private void convertRequest(final Intent request) {
         for (MessageConverter converter : mRequestConverters) {
             converter.convert(request);
@@ -422,9 +545,9 @@ public abstract class DConnectMessageService extends Service implements DConnect
         }
         String profileName = profile.getProfileName().toLowerCase();
         profile.setContext(this);
-        DConnectProfileSpec profileSpec = mPluginSpec.findProfileSpec(profileName);
-        if (profileSpec != null) {
-            profile.setProfileSpec(profileSpec);
+        if (mPluginSpec != null) {
+            // 仕様定義は最初に必要になった時に読み込む
+            profile.setPluginSpec(mPluginSpec);
         }
 
         //XXXX パスの大文字小文字の無視
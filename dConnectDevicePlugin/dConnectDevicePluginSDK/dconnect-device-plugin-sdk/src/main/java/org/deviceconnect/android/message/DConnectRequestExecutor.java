@@ -0,0 +1,212 @@
+/*
+ DConnectRequestExecutor.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.message;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * デバイスプラグインが受信したリクエストをワーカースレッドで実行するクラス.
+ *
+ * <p>
+ * {@link DConnectMessageService#createRequestExecutor()}で本クラスのインスタンスを返すと、
+ * プロファイルの処理がメインスレッドではなくワーカースレッドで実行される.
+ * </p>
+ * <p>
+ * サービスごとの直列化を有効にした場合、同じサービスIDを持つリクエストは受信した順に1つずつ実行される.
+ * 異なるサービス宛てのリクエストは並列に実行される.
+ * </p>
+ * <p>
+ * プロファイルの処理でfalseを返却して非同期にレスポンスを返す場合も、従来通りに動作する.
+ * ただし、ワーカースレッドにはLooperがないため、プロファイルの処理の中でLooperを指定せずに
+ * {@link android.os.Handler}を作成してはならない.
+ * </p>
+ * <p>
+ * 終了時に実行待ちだったリクエストの処理は{@link #shutdown()}で返却されるので、
+ * 呼び出し元でエラーのレスポンスを返すこと.
+ * </p>
+ *
+ * @author NTT DOCOMO, INC.
+ */
+public class DConnectRequestExecutor {
+
+    /** ロガー. */
+    private final Logger mLogger = Logger.getLogger("org.deviceconnect.dplugin");
+
+    /** サービスIDを持たないリクエストのキー. */
+    private static final String NO_SERVICE = "";
+
+    /** リクエストを実行するスレッド. */
+    private final ExecutorService mExecutor;
+
+    /** サービスごとに直列化するフラグ. */
+    private final boolean mSerializePerService;
+
+    /**
+     * サービスごとの実行待ちキュー.
+     * <p>
+     * キーはサービスID. このインスタンスで同期する.
+     * </p>
+     */
+    private final Map<String, LinkedList<Runnable>> mQueues = new HashMap<>();
+
+    /**
+     * コンストラクタ.
+     * <p>
+     * サービスごとの直列化は行わない.
+     * </p>
+     * @param threadSize リクエストを同時に実行するスレッド数
+     */
+    public DConnectRequestExecutor(final int threadSize) {
+        this(threadSize, false);
+    }
+
+    /**
+     * コンストラクタ.
+     * @param threadSize リクエストを同時に実行するスレッド数
+     * @param serializePerService 同じサービス宛てのリクエストを1つずつ実行する場合はtrue
+     */
+    public DConnectRequestExecutor(final int threadSize, final boolean serializePerService) {
+        if (threadSize < 1) {
+            throw new IllegalArgumentException("threadSize must be greater than 0.");
+        }
+        mExecutor = Executors.newFixedThreadPool(threadSize, new RequestThreadFactory());
+        mSerializePerService = serializePerService;
+    }
+
+    /**
+     * サービスごとに直列化するかを取得する.
+     * @return 直列化する場合はtrue、それ以外はfalse
+     */
+    public boolean isSerializePerService() {
+        return mSerializePerService;
+    }
+
+    /**
+     * リクエストの処理を実行する.
+     * @param serviceId リクエストのサービスID. サービスIDを持たない場合はnull
+     * @param task リクエストの処理
+     * @return 実行を受け付けた場合はtrue、終了済みの場合はfalse
+     */
+    public synchronized boolean execute(final String serviceId, final Runnable task) {
+        if (mExecutor.isShutdown()) {
+            return false;
+        }
+        if (!mSerializePerService) {
+            mExecutor.execute(task);
+            return true;
+        }
+
+        String key = serviceId != null ? serviceId : NO_SERVICE;
+        LinkedList<Runnable> queue = mQueues.get(key);
+        if (queue != null) {
+            // 同じサービス宛てのリクエストを実行中なので、終了するまで待つ
+            queue.add(task);
+            return true;
+        }
+        mQueues.put(key, new LinkedList<Runnable>());
+        mExecutor.execute(new SerialTask(key, task));
+        return true;
+    }
+
+    /**
+     * 実行を終了する.
+     * <p>
+     * 実行中のリクエストの処理には割り込みを行う.
+     * 実行待ちのリクエストの処理は実行せずに返却する.
+     * </p>
+     * @return 実行されなかったリクエストの処理. {@link #execute(String, Runnable)}に渡したインスタンスを返却する
+     */
+    public synchronized List<Runnable> shutdown() {
+        List<Runnable> pending = new ArrayList<>();
+        for (Runnable r : mExecutor.shutdownNow()) {
+            pending.add(r instanceof SerialTask ? ((SerialTask) r).mFirst : r);
+        }
+        for (LinkedList<Runnable> queue : mQueues.values()) {
+            pending.addAll(queue);
+        }
+        mQueues.clear();
+        return pending;
+    }
+
+    /**
+     * 終了済みかを確認する.
+     * @return 終了済みの場合はtrue、それ以外はfalse
+     */
+    public synchronized boolean isShutdown() {
+        return mExecutor.isShutdown();
+    }
+
+    /**
+     * 同じサービス宛ての次のリクエストを取り出す.
+     * @param key サービスID
+     * @return 次のリクエスト. 実行待ちがない場合はnull
+     */
+    private synchronized Runnable next(final String key) {
+        LinkedList<Runnable> queue = mQueues.get(key);
+        if (queue == null) {
+            return null;
+        }
+        if (queue.isEmpty()) {
+            mQueues.remove(key);
+            return null;
+        }
+        return queue.removeFirst();
+    }
+
+    /**
+     * 同じサービス宛てのリクエストを順番に実行するタスク.
+     */
+    private class SerialTask implements Runnable {
+        /** サービスID. */
+        private final String mKey;
+        /** 最初に実行するリクエストの処理. */
+        private final Runnable mFirst;
+
+        SerialTask(final String key, final Runnable first) {
+            mKey = key;
+            mFirst = first;
+        }
+
+        @Override
+        public void run() {
+            Runnable task = mFirst;
+            while (task != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // 後続のリクエストが実行されなくならないように、例外は記録して次に進む
+                    mLogger.log(Level.WARNING, "Failed to execute a request.", e);
+                }
+                task = next(mKey);
+            }
+        }
+    }
+
+    /**
+     * リクエストを実行するスレッドを作成するクラス.
+     */
+    private static class RequestThreadFactory implements ThreadFactory {
+        /** スレッド番号. */
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(r, "DConnectRequest-" + mCount.incrementAndGet());
+        }
+    }
+}
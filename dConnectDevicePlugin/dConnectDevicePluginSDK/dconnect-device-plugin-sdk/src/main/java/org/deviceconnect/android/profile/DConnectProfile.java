@@ -19,6 +19,7 @@ import org.deviceconnect.android.message.DConnectMessageService;
 import org.deviceconnect.android.message.MessageUtils;
 import org.deviceconnect.android.profile.api.DConnectApi;
 import org.deviceconnect.android.profile.spec.DConnectApiSpec;
+import org.deviceconnect.android.profile.spec.DConnectPluginSpec;
 import org.deviceconnect.android.profile.spec.DConnectProfileSpec;
 import org.deviceconnect.android.profile.spec.DConnectSpecConstants;
 import org.deviceconnect.android.service.DConnectService;
@@ -63,7 +64,33 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
     /**
      * Device Connect API 仕様定義リスト.
      */
-    private DConnectProfileSpec mProfileSpec;
+    private volatile DConnectProfileSpec mProfileSpec;
+
+    /**
+     * 仕様定義リストの読み込みと設定を同期するためのロック.
+     */
+    private final Object mProfileSpecLock = new Object();
+
+    /**
+     * プラグインのサポートする仕様.
+     * <p>
+     * 仕様定義リストが設定されていない場合に、ここから読み込む.
+     * </p>
+     */
+    private volatile DConnectPluginSpec mPluginSpec;
+
+    /**
+     * serviceInformationで返却するサポートAPIの仕様定義のキャッシュ.
+     * <p>
+     * APIまたは仕様定義が変更された場合に破棄する. mSupportApisLockで同期する.
+     * </p>
+     */
+    private Bundle mSupportApis;
+
+    /**
+     * サポートAPIの仕様定義のキャッシュを同期するオブジェクト.
+     */
+    private final Object mSupportApisLock = new Object();
 
     /**
      * ロガー.
@@ -131,6 +158,7 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
      */
     public void addApi(final DConnectApi api) {
         mApis.put(new ApiIdentifier(getApiPath(api), api.getMethod()), api);
+        clearSupportApis();
     }
 
     /**
@@ -139,6 +167,7 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
      */
     public void removeApi(final DConnectApi api) {
         mApis.remove(new ApiIdentifier(getApiPath(api), api.getMethod()));
+        clearSupportApis();
     }
 
     public boolean hasApi(final String path, final Method method) {
@@ -175,10 +204,11 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
 
     private boolean isKnownPath(final Intent request) {
         String path = getApiPath(getInterface(request), getAttribute(request));
-        if (mProfileSpec == null) {
+        DConnectProfileSpec profileSpec = getProfileSpec();
+        if (profileSpec == null) {
             return false;
         }
-        return mProfileSpec.findApiSpecs(path) != null;
+        return profileSpec.findApiSpecs(path) != null;
     }
 
     private boolean isKnownMethod(final Intent request) {
@@ -188,10 +218,11 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
             return false;
         }
         String path = getApiPath(getInterface(request), getAttribute(request));
-        if (mProfileSpec == null) {
+        DConnectProfileSpec profileSpec = getProfileSpec();
+        if (profileSpec == null) {
             return false;
         }
-        return mProfileSpec.findApiSpec(path, method) != null;
+        return profileSpec.findApiSpec(path, method) != null;
     }
 
     /**
@@ -212,6 +243,9 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
      * @return レスポンスパラメータを送信するか否か
      */
     public boolean onRequest(final Intent request, final Intent response) {
+        // API仕様を設定するため、仕様定義リストが未読み込みの場合はここで読み込む
+        getProfileSpec();
+
         DConnectApi api = findApi(request);
         if (api != null) {
             DConnectApiSpec spec = api.getApiSpec();
@@ -290,7 +324,21 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
      * @param profileSpec API 仕様定義リスト
      */
     public void setProfileSpec(final DConnectProfileSpec profileSpec) {
-        mProfileSpec = profileSpec;
+        synchronized (mProfileSpecLock) {
+            applyProfileSpec(profileSpec);
+        }
+        clearSupportApis();
+    }
+
+    /**
+     * 各APIに仕様定義を設定してから、仕様定義リストを公開する.
+     * <p>
+     * 仕様定義リストが見えた時点で各APIの仕様定義が設定済みになるように、最後に公開する.
+     * mProfileSpecLockで同期した状態で呼び出すこと.
+     * </p>
+     * @param profileSpec API 仕様定義リスト
+     */
+    private void applyProfileSpec(final DConnectProfileSpec profileSpec) {
         for (DConnectApi api : getApiList()) {
             String path = createPath(api);
             DConnectApiSpec spec = profileSpec.findApiSpec(path, api.getMethod());
@@ -298,6 +346,7 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
                 api.setApiSpec(spec);
             }
         }
+        mProfileSpec = profileSpec;
     }
 
     private String createPath(final DConnectApi api) {
@@ -315,12 +364,76 @@ public abstract class DConnectProfile implements DConnectProfileConstants,
         return path.toString();
     }
 
+    /**
+     * Device Connect API 仕様定義リストの読み込み元を設定する.
+     * <p>
+     * 仕様定義リストは{@link #getProfileSpec()}で最初に必要になった時に読み込む.
+     * </p>
+     * @param pluginSpec プラグインのサポートする仕様
+     */
+    public void setPluginSpec(final DConnectPluginSpec pluginSpec) {
+        mPluginSpec = pluginSpec;
+        clearSupportApis();
+    }
+
     /**
      * Device Connect API 仕様定義リストを取得する.
      * @return API 仕様定義リスト
      */
     public DConnectProfileSpec getProfileSpec() {
-        return mProfileSpec;
+        DConnectProfileSpec profileSpec = mProfileSpec;
+        if (profileSpec != null) {
+            return profileSpec;
+        }
+        DConnectPluginSpec pluginSpec = mPluginSpec;
+        if (pluginSpec == null) {
+            return null;
+        }
+        boolean loaded = false;
+        synchronized (mProfileSpecLock) {
+            // 他のスレッドが読み込み済みの場合は、それを使用する
+            profileSpec = mProfileSpec;
+            if (profileSpec == null) {
+                profileSpec = pluginSpec.findProfileSpec(getProfileName().toLowerCase());
+                if (profileSpec != null) {
+                    applyProfileSpec(profileSpec);
+                    loaded = true;
+                }
+            }
+        }
+        if (loaded) {
+            // NOTE: mSupportApisLockとのデッドロックを避けるため、mProfileSpecLockの外で破棄する
+            clearSupportApis();
+        }
+        return profileSpec;
+    }
+
+    /**
+     * 本プロファイルが実装しているAPIの仕様定義を取得する.
+     * <p>
+     * 初回に作成したBundleをキャッシュして返却するので、返り値を変更してはならない.
+     * </p>
+     * @return 実装しているAPIの仕様定義. 仕様定義が設定されていない場合は<code>null</code>
+     */
+    Bundle getSupportApis() {
+        synchronized (mSupportApisLock) {
+            if (mSupportApis == null) {
+                DConnectProfileSpec profileSpec = getProfileSpec();
+                if (profileSpec != null) {
+                    mSupportApis = ServiceInformationProfile.createSupportApisBundle(profileSpec, this);
+                }
+            }
+            return mSupportApis;
+        }
+    }
+
+    /**
+     * サポートAPIの仕様定義のキャッシュを破棄する.
+     */
+    private void clearSupportApis() {
+        synchronized (mSupportApisLock) {
+            mSupportApis = null;
+        }
     }
 
     /**
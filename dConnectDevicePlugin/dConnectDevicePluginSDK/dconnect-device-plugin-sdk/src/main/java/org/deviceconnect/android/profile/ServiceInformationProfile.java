@@ -202,31 +202,53 @@ public class ServiceInformationProfile extends DConnectProfile implements Servic
         setSupports(response, supports.toArray(new String[supports.size()]));
     }
 
+    /**
+     * レスポンスにサポートしているAPIの仕様定義を格納する.
+     * <p>
+     * プロファイルごとの仕様定義は{@link DConnectProfile}にキャッシュされたものを使用する.
+     * </p>
+     *
+     * @param response レスポンスパラメータ
+     * @param profileList サポートしているプロファイル一覧
+     */
     public static void setSupportApis(final Intent response, final List<DConnectProfile> profileList) {
         Bundle supportApisBundle = new Bundle();
         for (final DConnectProfile profile : profileList) {
-            DConnectProfileSpec profileSpec = profile.getProfileSpec();
-            if (profileSpec != null) {
-                Bundle bundle = createSupportApisBundle(profileSpec, profile);
+            Bundle bundle = profile.getSupportApis();
+            if (bundle != null) {
                 supportApisBundle.putBundle(profile.getProfileName(), bundle);
             }
         }
         response.putExtra(PARAM_SUPPORT_APIS, supportApisBundle);
     }
 
-    private static Bundle createSupportApisBundle(final DConnectProfileSpec profileSpec,
-                                                  final DConnectProfile profile) {
+    /**
+     * 仕様定義からプロファイルが実装していないAPIを除いたBundleを作成する.
+     * <p>
+     * 仕様定義のBundleは変更しない.
+     * </p>
+     *
+     * @param profileSpec 仕様定義
+     * @param profile プロファイル
+     * @return 実装しているAPIの仕様定義
+     */
+    static Bundle createSupportApisBundle(final DConnectProfileSpec profileSpec,
+                                          final DConnectProfile profile) {
         Bundle tmpBundle = new Bundle(profileSpec.toBundle());
         Bundle pathsObj = tmpBundle.getBundle(KEY_PATHS);
         if (pathsObj == null) {
             return tmpBundle;
         }
+        pathsObj = new Bundle(pathsObj);
+        tmpBundle.putBundle(KEY_PATHS, pathsObj);
         List<String> pathNames = new ArrayList<String>(pathsObj.keySet());
         for (String pathName : pathNames) {
             Bundle pathObj = pathsObj.getBundle(pathName);
             if (pathObj == null) {
                 continue;
             }
+            pathObj = new Bundle(pathObj);
+            pathsObj.putBundle(pathName, pathObj);
             for (DConnectSpecConstants.Method method : DConnectSpecConstants.Method.values()) {
                 String methodName = method.getName().toLowerCase();
                 Bundle methodObj = pathObj.getBundle(methodName);
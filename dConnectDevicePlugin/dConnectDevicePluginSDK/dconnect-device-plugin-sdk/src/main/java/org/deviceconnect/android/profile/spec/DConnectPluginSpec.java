@@ -24,6 +24,10 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p>
  * プラグインのサポートするプロファイルのリストを持つ.
  * </p>
+ * <p>
+ * {@link #addProfileSpec(String, ProfileSpecSource)}で追加した仕様定義は、
+ * {@link #findProfileSpec(String)}で最初に取得されるまで読み込みも解析もしない.
+ * </p>
  * @author NTT DOCOMO, INC.
  */
 public class DConnectPluginSpec {
@@ -36,6 +40,33 @@ public class DConnectPluginSpec {
     private final Map<String, DConnectProfileSpec> mProfileSpecs
         = new ConcurrentHashMap<String, DConnectProfileSpec>();
 
+    /**
+     * まだ解析していない仕様定義の読み込み元. キーはプロファイル名.
+     */
+    private final Map<String, ProfileSpecSource> mProfileSpecSources
+        = new ConcurrentHashMap<String, ProfileSpecSource>();
+
+    /**
+     * 解析に失敗した仕様定義の例外. キーはプロファイル名.
+     * <p>
+     * 不正な仕様定義を取得のたびに読み込み直さないように保持する.
+     * </p>
+     */
+    private final Map<String, RuntimeException> mProfileSpecErrors
+        = new ConcurrentHashMap<String, RuntimeException>();
+
+    /**
+     * 仕様定義の読み込み元を開くインターフェース.
+     */
+    public interface ProfileSpecSource {
+        /**
+         * 仕様定義の入力ストリームを開く.
+         * @return 入力ストリーム
+         * @throws IOException 入力ストリームを開けなかった場合
+         */
+        InputStream open() throws IOException;
+    }
+
     /**
      * 入力ストリームからDevice Connectプロファイルの仕様定義を追加する.
      *
@@ -45,12 +76,73 @@ public class DConnectPluginSpec {
      * @throws JSONException JSONの構造が不正な場合
      */
     public void addProfileSpec(final String profileName, final InputStream in)
+        throws IOException, JSONException {
+        mProfileSpecs.put(profileName, parseProfileSpec(profileName, in));
+        mProfileSpecSources.remove(profileName);
+        mProfileSpecErrors.remove(profileName);
+    }
+
+    /**
+     * Device Connectプロファイルの仕様定義の読み込み元を追加する.
+     * <p>
+     * 仕様定義は{@link #findProfileSpec(String)}で最初に取得された時に読み込んで解析する.
+     * </p>
+     *
+     * @param profileName プロファイル名
+     * @param source 仕様定義の読み込み元
+     */
+    public void addProfileSpec(final String profileName, final ProfileSpecSource source) {
+        mProfileSpecSources.put(profileName, source);
+        mProfileSpecs.remove(profileName);
+        mProfileSpecErrors.remove(profileName);
+    }
+
+    private synchronized DConnectProfileSpec parseProfileSpec(final String profileName, final InputStream in)
         throws IOException, JSONException {
         DConnectProfileSpec profileSpec = mJsonParser.parseJson(new JSONObject(loadFile(in)));
         for (DConnectApiSpec apiSpec : profileSpec.getApiSpecList()) {
             apiSpec.setProfileName(profileName);
         }
+        return profileSpec;
+    }
+
+    /**
+     * まだ解析していない仕様定義を読み込む.
+     * <p>
+     * 読み込みや解析に失敗した場合は、その例外を保持して以降の取得でも同じ例外を投げる.
+     * </p>
+     * @param profileName プロファイル名
+     * @return {@link DConnectProfileSpec}のインスタンス. 読み込み元がない場合は<code>null</code>
+     * @throws RuntimeException 仕様定義の読み込みまたは解析に失敗した場合
+     */
+    private synchronized DConnectProfileSpec loadProfileSpec(final String profileName) {
+        DConnectProfileSpec profileSpec = mProfileSpecs.get(profileName);
+        if (profileSpec != null) {
+            return profileSpec;
+        }
+        RuntimeException error = mProfileSpecErrors.get(profileName);
+        if (error != null) {
+            throw error;
+        }
+        ProfileSpecSource source = mProfileSpecSources.get(profileName);
+        if (source == null) {
+            return null;
+        }
+        try {
+            profileSpec = parseProfileSpec(profileName, source.open());
+        } catch (IOException e) {
+            error = new RuntimeException("Failed to load a profile spec: " + profileName, e);
+        } catch (JSONException e) {
+            error = new RuntimeException("Failed to load a profile spec: " + profileName, e);
+        }
+        if (error != null) {
+            mProfileSpecErrors.put(profileName, error);
+            mProfileSpecSources.remove(profileName);
+            throw error;
+        }
         mProfileSpecs.put(profileName, profileSpec);
+        mProfileSpecSources.remove(profileName);
+        return profileSpec;
     }
 
     private static String loadFile(final InputStream in) throws IOException {
@@ -71,9 +163,27 @@ public class DConnectPluginSpec {
      * 指定したプロファイルの仕様定義を取得する.
      * @param profileName プロファイル名
      * @return {@link DConnectProfileSpec}のインスタンス
+     * @throws RuntimeException 仕様定義の読み込みまたは解析に失敗した場合
      */
     public DConnectProfileSpec findProfileSpec(final String profileName) {
-        return mProfileSpecs.get(profileName);
+        DConnectProfileSpec profileSpec = mProfileSpecs.get(profileName);
+        if (profileSpec != null) {
+            return profileSpec;
+        }
+        return loadProfileSpec(profileName);
+    }
+
+    /**
+     * 指定したプロファイルの仕様定義を保持しているか確認する.
+     * <p>
+     * 仕様定義の読み込みと解析は行わない.
+     * </p>
+     * @param profileName プロファイル名
+     * @return 保持している場合はtrue、それ以外はfalse
+     */
+    public boolean hasProfileSpec(final String profileName) {
+        return mProfileSpecs.containsKey(profileName) || mProfileSpecSources.containsKey(profileName)
+            || mProfileSpecErrors.containsKey(profileName);
     }
 
     /**
@@ -82,8 +192,12 @@ public class DConnectPluginSpec {
      * このメソッドから返される一覧には、各プロファイル上で定義されているすべてのAPIの定義が含まれる.
      * </p>
      * @return {@link DConnectProfileSpec}のマップ. キーはプロファイル名.
+     * @throws RuntimeException 仕様定義の読み込みまたは解析に失敗した場合
      */
     public Map<String, DConnectProfileSpec> getProfileSpecs() {
+        for (String profileName : mProfileSpecSources.keySet()) {
+            loadProfileSpec(profileName);
+        }
         return new HashMap<String, DConnectProfileSpec>(mProfileSpecs);
     }
 
@@ -11,7 +11,6 @@ import android.content.Context;
 
 import org.deviceconnect.android.profile.DConnectProfile;
 import org.deviceconnect.android.profile.spec.DConnectPluginSpec;
-import org.deviceconnect.android.profile.spec.DConnectProfileSpec;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -54,12 +53,9 @@ public class DConnectServiceManager implements DConnectServiceProvider,
         service.setOnStatusChangeListener(this);
         service.setContext(mContext);
         if (mPluginSpec != null) {
+            // 仕様定義は最初に必要になった時に読み込む
             for (DConnectProfile profile : service.getProfileList()) {
-                DConnectProfileSpec profileSpec =
-                    mPluginSpec.findProfileSpec(profile.getProfileName().toLowerCase());
-                if (profileSpec != null) {
-                    profile.setProfileSpec(profileSpec);
-                }
+                profile.setPluginSpec(mPluginSpec);
             }
         }
         for (DConnectProfile profile : service.getProfileList()) {
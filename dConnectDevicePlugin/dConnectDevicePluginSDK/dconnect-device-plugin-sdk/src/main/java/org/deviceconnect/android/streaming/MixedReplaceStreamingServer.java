@@ -0,0 +1,1248 @@
+/*
+ MixedReplaceStreamingServer.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.streaming;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * multipart/x-mixed-replace形式(Motion JPEG)で画像を配信するサーバー.
+ * <p>
+ * 1つのポートで複数のストリームを配信する。ストリームはURLのパスで識別し、
+ * 1つのストリームを複数のクライアントが同時に閲覧できる。
+ * </p>
+ * <p>
+ * 全ての接続を1つのスレッドのセレクターで処理する。
+ * ストリームごとに最新のフレームだけを保持し、送信が追いつかないクライアントには
+ * 送信中のフレームが終わった時点の最新フレームを送る(途中のフレームは破棄する)。
+ * フレームのデータは複製せずに、パートのヘッダーと合わせてまとめて書き込む。
+ * </p>
+ * <p>
+ * URLに<code>snapshot</code>パラメータが指定された場合は、最新のフレームを1枚だけ返却する。
+ * </p>
+ *
+ * @author NTT DOCOMO, INC.
+ */
+public class MixedReplaceStreamingServer {
+
+    /**
+     * デフォルトの最大接続数.
+     */
+    public static final int DEFAULT_MAX_CLIENT_SIZE = 32;
+
+    /**
+     * ポートを探す範囲の開始番号.
+     */
+    private static final int START_PORT = 9000;
+
+    /**
+     * ポートを探す範囲の終了番号.
+     */
+    private static final int END_PORT = 10000;
+
+    /**
+     * HTTPリクエストヘッダーの最大サイズ.
+     */
+    private static final int REQUEST_BUFFER_SIZE = 8192;
+
+    /**
+     * FPSを計算する間隔(ナノ秒).
+     */
+    private static final long FPS_INTERVAL = 1000L * 1000L * 1000L;
+
+    /**
+     * パートの終端.
+     */
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * HTTPヘッダーの文字コード.
+     */
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /**
+     * ロガー.
+     */
+    private final Logger mLogger = Logger.getLogger("org.deviceconnect.dplugin");
+
+    /**
+     * ポート番号. -1の場合は空いているポートを探す.
+     */
+    private int mPort = -1;
+
+    /**
+     * マルチパートの境界文字列.
+     */
+    private String mBoundary = UUID.randomUUID().toString();
+
+    /**
+     * フレームのコンテンツタイプ.
+     */
+    private String mContentType = "image/jpeg";
+
+    /**
+     * サーバー名.
+     */
+    private String mServerName = "DevicePlugin Server";
+
+    /**
+     * 最大接続数.
+     */
+    private int mMaxClientSize = DEFAULT_MAX_CLIENT_SIZE;
+
+    /**
+     * サーバーのイベントを通知するリスナー.
+     */
+    private ServerEventListener mServerEventListener;
+
+    /**
+     * クライアントの接続・切断を通知するリスナー.
+     */
+    private ConnectionListener mConnectionListener;
+
+    /**
+     * 配信中のストリーム. キーはストリーム名.
+     */
+    private final Map<String, Stream> mStreams = new ConcurrentHashMap<String, Stream>();
+
+    /**
+     * セレクターのスレッドで実行する処理.
+     */
+    private final ConcurrentLinkedQueue<Runnable> mTasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /**
+     * 接続中のクライアント. セレクターのスレッドからのみ操作する.
+     */
+    private final List<Client> mClients = new ArrayList<Client>();
+
+    /**
+     * 接続中のクライアント数.
+     */
+    private volatile int mClientCount;
+
+    /**
+     * リクエスト受信後に読み込んだデータを破棄するバッファ. セレクターのスレッドからのみ使用する.
+     */
+    private final ByteBuffer mDiscardBuffer = ByteBuffer.allocate(256);
+
+    /**
+     * セレクターのスレッド.
+     */
+    private Thread mThread;
+
+    /**
+     * セレクター.
+     */
+    private volatile Selector mSelector;
+
+    /**
+     * 待ち受けているポート番号.
+     */
+    private volatile int mLocalPort = -1;
+
+    /**
+     * 実行中フラグ.
+     */
+    private volatile boolean mRunning;
+
+    /**
+     * 境界文字列を設定する.
+     * @param boundary 境界文字列
+     */
+    public void setBoundary(final String boundary) {
+        if (boundary == null) {
+            throw new IllegalArgumentException("boundary is null.");
+        }
+        if (boundary.isEmpty()) {
+            throw new IllegalArgumentException("boundary is empty.");
+        }
+        mBoundary = boundary;
+    }
+
+    /**
+     * 境界文字列を取得する.
+     * @return 境界文字列
+     */
+    public String getBoundary() {
+        return mBoundary;
+    }
+
+    /**
+     * フレームのコンテンツタイプを設定する.
+     * <p>
+     * デフォルトは"image/jpeg".
+     * </p>
+     * @param contentType コンテンツタイプ
+     */
+    public void setContentType(final String contentType) {
+        mContentType = contentType;
+    }
+
+    /**
+     * フレームのコンテンツタイプを取得する.
+     * @return コンテンツタイプ
+     */
+    public String getContentType() {
+        return mContentType;
+    }
+
+    /**
+     * ポート番号を設定する.
+     * <p>
+     * 設定しない場合は9000から10000の間で空いているポートを使用する。
+     * </p>
+     * @param port ポート番号
+     */
+    public void setPort(final int port) {
+        if (port < 1000) {
+            throw new IllegalArgumentException("Port is smaller than 1000.");
+        }
+        mPort = port;
+    }
+
+    /**
+     * 設定されたポート番号を取得する.
+     * @return ポート番号. 設定されていない場合は-1
+     */
+    public int getPort() {
+        return mPort;
+    }
+
+    /**
+     * 待ち受けているポート番号を取得する.
+     * @return ポート番号. 起動していない場合は-1
+     */
+    public int getLocalPort() {
+        return mLocalPort;
+    }
+
+    /**
+     * サーバー名を設定する.
+     * @param name サーバー名
+     */
+    public void setServerName(final String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name is null.");
+        }
+        mServerName = name;
+    }
+
+    /**
+     * サーバー名を取得する.
+     * @return サーバー名
+     */
+    public String getServerName() {
+        return mServerName;
+    }
+
+    /**
+     * 最大接続数を設定する.
+     * @param maxClientSize 最大接続数
+     */
+    public void setMaxClientSize(final int maxClientSize) {
+        if (maxClientSize <= 0) {
+            throw new IllegalArgumentException("maxClientSize must be larger than 0.");
+        }
+        mMaxClientSize = maxClientSize;
+    }
+
+    /**
+     * 最大接続数を取得する.
+     * @return 最大接続数
+     */
+    public int getMaxClientSize() {
+        return mMaxClientSize;
+    }
+
+    /**
+     * サーバーのイベントを通知するリスナーを設定する.
+     * @param listener リスナー
+     */
+    public void setServerEventListener(final ServerEventListener listener) {
+        mServerEventListener = listener;
+    }
+
+    /**
+     * クライアントの接続・切断を通知するリスナーを設定する.
+     * @param listener リスナー
+     */
+    public void setConnectionListener(final ConnectionListener listener) {
+        mConnectionListener = listener;
+    }
+
+    /**
+     * サーバーのURLを取得する.
+     * @return URL. 起動していない場合はnull
+     */
+    public String getUrl() {
+        int port = mLocalPort;
+        if (!mRunning || port == -1) {
+            return null;
+        }
+        return "http://localhost:" + port;
+    }
+
+    /**
+     * 指定されたストリームのURLを取得する.
+     * @param name ストリーム名
+     * @return URL. 起動していない場合はnull
+     */
+    public String getUrl(final String name) {
+        String url = getUrl();
+        if (url == null) {
+            return null;
+        }
+        return url + "/" + name;
+    }
+
+    /**
+     * サーバーが起動しているか確認する.
+     * @return 起動している場合はtrue、それ以外はfalse
+     */
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * 接続中のクライアント数を取得する.
+     * @return クライアント数
+     */
+    public int getClientCount() {
+        return mClientCount;
+    }
+
+    /**
+     * ストリームを作成する.
+     * <p>
+     * 既に同じ名前のストリームがある場合は、そのストリームを返却する。
+     * </p>
+     * @param name ストリーム名. URLのパス(先頭の/を除く)になる
+     * @return ストリーム
+     */
+    public Stream createStream(final String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name is null.");
+        }
+        synchronized (mStreams) {
+            Stream stream = mStreams.get(name);
+            if (stream == null) {
+                stream = new Stream(name);
+                mStreams.put(name, stream);
+            }
+            return stream;
+        }
+    }
+
+    /**
+     * ストリームを取得する.
+     * @param name ストリーム名
+     * @return ストリーム. 無い場合はnull
+     */
+    public Stream getStream(final String name) {
+        return mStreams.get(name);
+    }
+
+    /**
+     * ストリームを削除し、閲覧中のクライアントを切断する.
+     * @param name ストリーム名
+     */
+    public void removeStream(final String name) {
+        final Stream stream = mStreams.remove(name);
+        if (stream == null) {
+            return;
+        }
+        runOnSelectorThread(new Runnable() {
+            @Override
+            public void run() {
+                for (Client client : new ArrayList<Client>(mClients)) {
+                    if (client.mStream == stream) {
+                        closeClient(client);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * ストリームにフレームを追加する.
+     * <p>
+     * フレームの配列は複製せずに送信するので、呼び出し後に内容を変更してはならない。
+     * ストリームが無い場合は何もしない。
+     * </p>
+     * @param name ストリーム名
+     * @param media フレーム
+     */
+    public void offerMedia(final String name, final byte[] media) {
+        if (name == null || media == null || !mRunning) {
+            return;
+        }
+        Stream stream = mStreams.get(name);
+        if (stream == null) {
+            return;
+        }
+        stream.offer(createPartHeader(media.length), media);
+        Selector selector = mSelector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * サーバーを起動する.
+     * @return 起動できた場合はtrue、それ以外はfalse
+     */
+    public synchronized boolean start() {
+        if (mRunning) {
+            return true;
+        }
+        waitForStopped();
+
+        final Selector selector;
+        final ServerSocketChannel serverChannel;
+        try {
+            serverChannel = openServerChannel();
+        } catch (IOException e) {
+            mLogger.warning("Failed to open a server socket[" + mServerName + "]");
+            notifyError();
+            return false;
+        }
+        try {
+            selector = Selector.open();
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly(serverChannel);
+            mLogger.warning("Failed to open a selector[" + mServerName + "]");
+            notifyError();
+            return false;
+        }
+
+        mLocalPort = serverChannel.socket().getLocalPort();
+        mSelector = selector;
+        mRunning = true;
+        mLogger.fine("Open a server socket: port=" + mLocalPort);
+
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoop(selector, serverChannel);
+            }
+        }, "MixedReplaceStreamingServer");
+        mThread.start();
+        return true;
+    }
+
+    /**
+     * 前回起動したセレクターのスレッドが終了するのを待つ.
+     */
+    private void waitForStopped() {
+        Thread thread = mThread;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        mThread = null;
+    }
+
+    /**
+     * サーバーを停止する.
+     * <p>
+     * 接続中のクライアントはセレクターのスレッドで切断される。
+     * </p>
+     */
+    public synchronized void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        Selector selector = mSelector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        mLogger.fine("Stopping MixedReplaceStreamingServer...");
+    }
+
+    /**
+     * 空いているポートでサーバーソケットを開く.
+     * @return サーバーソケットのチャンネル
+     * @throws IOException ポートを開けなかった場合
+     */
+    private ServerSocketChannel openServerChannel() throws IOException {
+        if (mPort != -1) {
+            return openServerChannel(mPort);
+        }
+        for (int port = START_PORT; port < END_PORT; port++) {
+            try {
+                return openServerChannel(port);
+            } catch (IOException e) {
+                continue;
+            }
+        }
+        throw new IOException("Cannot open server socket.");
+    }
+
+    private static ServerSocketChannel openServerChannel(final int port) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.socket().setReuseAddress(true);
+            channel.socket().bind(new InetSocketAddress(port));
+            channel.configureBlocking(false);
+            return channel;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * セレクターのスレッドで処理を実行する.
+     * @param task 処理
+     */
+    private void runOnSelectorThread(final Runnable task) {
+        mTasks.add(task);
+        Selector selector = mSelector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * セレクターのスレッドの処理.
+     * @param selector セレクター
+     * @param serverChannel サーバーソケットのチャンネル
+     */
+    private void runLoop(final Selector selector, final ServerSocketChannel serverChannel) {
+        try {
+            notifyStart();
+            while (mRunning) {
+                selector.select();
+
+                Runnable task;
+                while ((task = mTasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        mLogger.warning("Exception occurred in a task[" + mServerName + "]: " + e);
+                    }
+                }
+                if (!mRunning) {
+                    break;
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(selector, serverChannel);
+                    } else {
+                        Client client = (Client) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                read(client);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(client);
+                            }
+                        } catch (IOException e) {
+                            closeClient(client);
+                        } catch (CancelledKeyException e) {
+                            closeClient(client);
+                        }
+                    }
+                }
+
+                deliverFrames();
+            }
+        } catch (IOException e) {
+            mLogger.warning("Error server socket[" + mServerName + "]");
+        } catch (RuntimeException e) {
+            mLogger.severe("Exception occurred in MixedReplaceStreamingServer[" + mServerName + "]: " + e);
+        } finally {
+            // 異常終了した場合も再び起動できるように、実行中フラグを戻す
+            mRunning = false;
+            for (Client client : new ArrayList<Client>(mClients)) {
+                closeClient(client);
+            }
+            mTasks.clear();
+            closeQuietly(serverChannel);
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // ignore.
+            }
+            if (mSelector == selector) {
+                mSelector = null;
+                mLocalPort = -1;
+            }
+            mLogger.fine("MixedReplaceStreamingServer has been stopped.");
+            notifyStop();
+        }
+    }
+
+    /**
+     * クライアントの接続を受け付ける.
+     * <p>
+     * 受け付けたソケットの設定に失敗した場合は、そのソケットだけを閉じてサーバーは動作を続ける。
+     * </p>
+     * @param selector セレクター
+     * @param serverChannel サーバーソケットのチャンネル
+     */
+    private void accept(final Selector selector, final ServerSocketChannel serverChannel) {
+        SocketChannel channel;
+        try {
+            channel = serverChannel.accept();
+        } catch (IOException e) {
+            mLogger.warning("Failed to accept a client[" + mServerName + "]: " + e.getMessage());
+            return;
+        }
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel);
+            client.mKey = channel.register(selector, SelectionKey.OP_READ, client);
+            mClients.add(client);
+            mClientCount = mClients.size();
+            mLogger.fine("accept client.");
+        } catch (IOException e) {
+            mLogger.warning("Failed to set up a client socket[" + mServerName + "]: " + e.getMessage());
+            closeQuietly(channel);
+        }
+    }
+
+    private void read(final Client client) throws IOException {
+        if (client.mRequestBuffer == null) {
+            // リクエストの受信後は切断の検出のためだけに読み込む
+            mDiscardBuffer.clear();
+            if (client.mChannel.read(mDiscardBuffer) < 0) {
+                closeClient(client);
+            }
+            return;
+        }
+
+        ByteBuffer buf = client.mRequestBuffer;
+        if (client.mChannel.read(buf) < 0) {
+            closeClient(client);
+            return;
+        }
+        int end = indexOfHeaderEnd(buf);
+        if (end < 0) {
+            if (!buf.hasRemaining()) {
+                sendError(client, 400, "Bad Request");
+            }
+            return;
+        }
+
+        String header = new String(buf.array(), 0, end, ASCII);
+        client.mRequestBuffer = null;
+        Request request = parseRequest(header);
+        if (request == null) {
+            sendError(client, 400, "Bad Request");
+            return;
+        }
+        client.mRequest = request;
+        notifyConnect(request);
+
+        Stream stream = findStream(request.getUri());
+        if (stream == null) {
+            sendError(client, 404, "Not Found");
+            return;
+        }
+        if (mClients.size() > mMaxClientSize) {
+            sendError(client, 503, "Service Unavailable");
+            return;
+        }
+
+        client.mStream = stream;
+        client.mSnapshot = request.isSnapshot();
+        if (!client.mSnapshot) {
+            stream.mViewerCount++;
+            client.setBuffers(ByteBuffer.wrap(createMultipartHeader().getBytes(ASCII)));
+            write(client);
+        } else {
+            sendNextFrame(client);
+        }
+    }
+
+    private void write(final Client client) throws IOException {
+        ByteBuffer[] buffers = client.mBuffers;
+        if (buffers == null) {
+            client.mKey.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+        long written = client.mChannel.write(buffers);
+        if (client.mStream != null && written > 0) {
+            client.mStream.mBytesOut.addAndGet(written);
+        }
+        if (buffers[buffers.length - 1].hasRemaining()) {
+            client.mKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            return;
+        }
+        client.mBuffers = null;
+        client.mKey.interestOps(SelectionKey.OP_READ);
+        if (client.mCloseAfterWrite) {
+            closeClient(client);
+        } else if (client.mStream != null) {
+            sendNextFrame(client);
+        }
+    }
+
+    /**
+     * 送信中のデータが無いクライアントに最新のフレームを送信する.
+     */
+    private void deliverFrames() {
+        for (int i = mClients.size() - 1; i >= 0; i--) {
+            Client client = mClients.get(i);
+            if (client.mStream == null || client.mBuffers != null) {
+                continue;
+            }
+            try {
+                sendNextFrame(client);
+            } catch (IOException e) {
+                closeClient(client);
+            } catch (CancelledKeyException e) {
+                closeClient(client);
+            }
+        }
+    }
+
+    /**
+     * クライアントがまだ受け取っていないフレームがあれば送信する.
+     * @param client クライアント
+     * @throws IOException 送信に失敗した場合
+     */
+    private void sendNextFrame(final Client client) throws IOException {
+        Frame frame = client.mStream.mLatest;
+        if (frame == null || frame.mSequence == client.mSequence) {
+            return;
+        }
+        if (client.mSequence >= 0 && frame.mSequence - client.mSequence > 1) {
+            client.mStream.mDroppedFrames.addAndGet(frame.mSequence - client.mSequence - 1);
+        }
+        client.mSequence = frame.mSequence;
+        if (client.mSnapshot) {
+            client.mCloseAfterWrite = true;
+            client.setBuffers(ByteBuffer.wrap(createSnapshotHeader(frame.mData.length).getBytes(ASCII)),
+                ByteBuffer.wrap(frame.mData));
+        } else {
+            client.setBuffers(ByteBuffer.wrap(frame.mHeader), ByteBuffer.wrap(frame.mData),
+                ByteBuffer.wrap(CRLF));
+        }
+        write(client);
+    }
+
+    private void sendError(final Client client, final int status, final String reason) throws IOException {
+        client.mCloseAfterWrite = true;
+        client.setBuffers(ByteBuffer.wrap(createErrorHeader(status, reason).getBytes(ASCII)));
+        write(client);
+    }
+
+    private void closeClient(final Client client) {
+        if (!mClients.remove(client)) {
+            return;
+        }
+        mClientCount = mClients.size();
+        if (client.mStream != null && !client.mSnapshot) {
+            client.mStream.mViewerCount--;
+            // 送信が追いつかないまま切断されたクライアントの未送信フレームも破棄したものとして数える
+            Frame frame = client.mStream.mLatest;
+            if (frame != null && client.mSequence >= 0 && frame.mSequence > client.mSequence) {
+                client.mStream.mDroppedFrames.addAndGet(frame.mSequence - client.mSequence);
+            }
+        }
+        if (client.mKey != null) {
+            client.mKey.cancel();
+        }
+        closeQuietly(client.mChannel);
+        mLogger.fine("socket close.");
+
+        if (client.mRequest != null) {
+            notifyDisconnect(client.mRequest);
+        }
+    }
+
+    /**
+     * リクエストのパスに対応するストリームを探す.
+     * <p>
+     * パス全体で見つからない場合は、パスの最後のセグメントで探す。
+     * </p>
+     * @param uri リクエストのパス
+     * @return ストリーム. 見つからない場合はnull
+     */
+    private Stream findStream(final String uri) {
+        String path = uri;
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        Stream stream = mStreams.get(path);
+        if (stream == null) {
+            int index = path.lastIndexOf('/');
+            if (index >= 0) {
+                stream = mStreams.get(path.substring(index + 1));
+            }
+        }
+        return stream;
+    }
+
+    private static int indexOfHeaderEnd(final ByteBuffer buf) {
+        byte[] array = buf.array();
+        int limit = buf.position();
+        for (int i = 3; i < limit; i++) {
+            if (array[i] == '\n' && array[i - 1] == '\r' && array[i - 2] == '\n' && array[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        for (int i = 1; i < limit; i++) {
+            if (array[i] == '\n' && array[i - 1] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * HTTPリクエストヘッダーを解析する.
+     * @param header HTTPリクエストヘッダー
+     * @return リクエスト. 解析できない場合はnull
+     */
+    private static Request parseRequest(final String header) {
+        int lineEnd = header.indexOf('\n');
+        String requestLine = lineEnd >= 0 ? header.substring(0, lineEnd) : header;
+        StringTokenizer st = new StringTokenizer(requestLine);
+        if (!st.hasMoreTokens()) {
+            return null;
+        }
+        String method = st.nextToken();
+        if (!method.toLowerCase(Locale.US).equals("get")) {
+            return null;
+        }
+        if (!st.hasMoreTokens()) {
+            return null;
+        }
+
+        String uri = st.nextToken();
+        Map<String, String> params = new HashMap<String, String>();
+        int qmi = uri.indexOf('?');
+        if (qmi >= 0) {
+            decodeParams(uri.substring(qmi + 1), params);
+            uri = decodePercent(uri.substring(0, qmi));
+        } else {
+            uri = decodePercent(uri);
+        }
+        if (uri == null) {
+            return null;
+        }
+        return new Request(uri, params);
+    }
+
+    private static void decodeParams(final String params, final Map<String, String> p) {
+        StringTokenizer st = new StringTokenizer(params, "&");
+        while (st.hasMoreTokens()) {
+            String e = st.nextToken();
+            int sep = e.indexOf('=');
+            String key;
+            String value;
+            if (sep >= 0) {
+                key = decodePercent(e.substring(0, sep));
+                value = decodePercent(e.substring(sep + 1));
+            } else {
+                key = decodePercent(e);
+                value = "";
+            }
+            if (key != null && value != null) {
+                p.put(key.trim(), value);
+            }
+        }
+    }
+
+    private static String decodePercent(final String str) {
+        try {
+            return URLDecoder.decode(str, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] createPartHeader(final int length) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("--").append(mBoundary).append("\r\n");
+        sb.append("Content-Type: ").append(mContentType).append("\r\n");
+        sb.append("Content-Length: ").append(length).append("\r\n");
+        sb.append("\r\n");
+        return sb.toString().getBytes(ASCII);
+    }
+
+    private String createMultipartHeader() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HTTP/1.0 200 OK\r\n");
+        sb.append("Server: ").append(mServerName).append("\r\n");
+        sb.append("Connection: close\r\n");
+        sb.append("Max-Age: 0\r\n");
+        sb.append("Expires: 0\r\n");
+        sb.append("Cache-Control: no-store, no-cache, must-revalidate, pre-check=0, post-check=0, max-age=0\r\n");
+        sb.append("Pragma: no-cache\r\n");
+        sb.append("Content-Type: multipart/x-mixed-replace; boundary=").append(mBoundary).append("\r\n");
+        sb.append("\r\n");
+        return sb.toString();
+    }
+
+    private String createSnapshotHeader(final int length) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HTTP/1.0 200 OK\r\n");
+        sb.append("Server: ").append(mServerName).append("\r\n");
+        sb.append("Connection: close\r\n");
+        sb.append("Content-Type: ").append(mContentType).append("\r\n");
+        sb.append("Content-Length: ").append(length).append("\r\n");
+        sb.append("\r\n");
+        return sb.toString();
+    }
+
+    private String createErrorHeader(final int status, final String reason) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HTTP/1.0 ").append(status).append(" ").append(reason).append("\r\n");
+        sb.append("Server: ").append(mServerName).append("\r\n");
+        sb.append("Connection: close\r\n");
+        sb.append("\r\n");
+        return sb.toString();
+    }
+
+    private void notifyError() {
+        ServerEventListener listener = mServerEventListener;
+        if (listener != null) {
+            listener.onError();
+        }
+    }
+
+    // 以下のリスナーはセレクターのスレッドから呼び出すので、
+    // リスナーで発生した例外によってサーバーが停止しないように捕捉する。
+
+    private void notifyStart() {
+        ServerEventListener listener = mServerEventListener;
+        if (listener != null) {
+            try {
+                listener.onStart();
+            } catch (RuntimeException e) {
+                mLogger.warning("Exception occurred in ServerEventListener#onStart: " + e);
+            }
+        }
+    }
+
+    private void notifyStop() {
+        ServerEventListener listener = mServerEventListener;
+        if (listener != null) {
+            try {
+                listener.onStop();
+            } catch (RuntimeException e) {
+                mLogger.warning("Exception occurred in ServerEventListener#onStop: " + e);
+            }
+        }
+    }
+
+    private void notifyConnect(final Request request) {
+        ConnectionListener listener = mConnectionListener;
+        if (listener != null) {
+            try {
+                listener.onConnect(request);
+            } catch (RuntimeException e) {
+                mLogger.warning("Exception occurred in ConnectionListener#onConnect: " + e);
+            }
+        }
+    }
+
+    private void notifyDisconnect(final Request request) {
+        ConnectionListener listener = mConnectionListener;
+        if (listener != null) {
+            try {
+                listener.onDisconnect(request);
+            } catch (RuntimeException e) {
+                mLogger.warning("Exception occurred in ConnectionListener#onDisconnect: " + e);
+            }
+        }
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore.
+        }
+    }
+
+    /**
+     * サーバーのイベントを通知するリスナー.
+     */
+    public interface ServerEventListener {
+        /**
+         * サーバーが起動したことを通知する.
+         */
+        void onStart();
+
+        /**
+         * サーバーが停止したことを通知する.
+         */
+        void onStop();
+
+        /**
+         * サーバーの起動に失敗したことを通知する.
+         */
+        void onError();
+    }
+
+    /**
+     * クライアントの接続・切断を通知するリスナー.
+     * <p>
+     * セレクターのスレッドから呼び出されるので、すぐに処理を返すこと。
+     * </p>
+     */
+    public interface ConnectionListener {
+        /**
+         * クライアントからリクエストを受信したことを通知する.
+         * <p>
+         * ストリームを探す前に呼び出すので、ここでストリームを作成することができる。
+         * </p>
+         * @param request リクエスト
+         */
+        void onConnect(Request request);
+
+        /**
+         * クライアントが切断されたことを通知する.
+         * @param request リクエスト
+         */
+        void onDisconnect(Request request);
+    }
+
+    /**
+     * クライアントからのリクエスト.
+     */
+    public static final class Request {
+        /** リクエストのパス. */
+        private final String mUri;
+        /** リクエストのパラメータ. */
+        private final Map<String, String> mParams;
+
+        private Request(final String uri, final Map<String, String> params) {
+            mUri = uri;
+            mParams = Collections.unmodifiableMap(params);
+        }
+
+        /**
+         * リクエストのパスを取得する.
+         * @return パス
+         */
+        public String getUri() {
+            return mUri;
+        }
+
+        /**
+         * パラメータを取得する.
+         * @param key パラメータ名
+         * @return パラメータの値. 無い場合はnull
+         */
+        public String getParam(final String key) {
+            return mParams.get(key);
+        }
+
+        /**
+         * パラメータが指定されているか確認する.
+         * @param key パラメータ名
+         * @return 指定されている場合はtrue、それ以外はfalse
+         */
+        public boolean hasParam(final String key) {
+            return mParams.containsKey(key);
+        }
+
+        /**
+         * 1枚の画像を要求しているか確認する.
+         * @return snapshotパラメータが指定されている場合はtrue、それ以外はfalse
+         */
+        public boolean isSnapshot() {
+            return hasParam("snapshot");
+        }
+    }
+
+    /**
+     * 配信するストリーム.
+     * <p>
+     * 最新のフレームを1つだけ保持し、配信の統計情報を持つ。
+     * </p>
+     */
+    public static final class Stream {
+        /** ストリーム名. */
+        private final String mName;
+        /** 最新のフレーム. */
+        private volatile Frame mLatest;
+        /** フレームの通し番号. */
+        private long mSequence;
+        /** 送信したバイト数. */
+        private final AtomicLong mBytesOut = new AtomicLong();
+        /** 送信せずに破棄したフレーム数(クライアントごとの合計). */
+        private final AtomicLong mDroppedFrames = new AtomicLong();
+        /** 閲覧中のクライアント数. セレクターのスレッドからのみ更新する. */
+        private volatile int mViewerCount;
+        /** FPSの計測を開始した時刻. */
+        private long mFpsStartTime;
+        /** FPSの計測を開始してからのフレーム数. */
+        private int mFpsFrameCount;
+        /** 直近のFPS. */
+        private volatile float mFps;
+
+        private Stream(final String name) {
+            mName = name;
+        }
+
+        private synchronized void offer(final byte[] header, final byte[] data) {
+            mSequence++;
+            mLatest = new Frame(mSequence, header, data);
+
+            long now = System.nanoTime();
+            if (mFpsStartTime == 0) {
+                mFpsStartTime = now;
+            }
+            mFpsFrameCount++;
+            long elapsed = now - mFpsStartTime;
+            if (elapsed >= FPS_INTERVAL) {
+                mFps = mFpsFrameCount * (float) FPS_INTERVAL / elapsed;
+                mFpsStartTime = now;
+                mFpsFrameCount = 0;
+            }
+        }
+
+        /**
+         * ストリーム名を取得する.
+         * @return ストリーム名
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * 追加されたフレーム数を取得する.
+         * @return フレーム数
+         */
+        public synchronized long getFrameCount() {
+            return mSequence;
+        }
+
+        /**
+         * 直近1秒程度のフレームの追加頻度を取得する.
+         * @return FPS
+         */
+        public float getFps() {
+            return mFps;
+        }
+
+        /**
+         * クライアントに送信したバイト数を取得する.
+         * @return バイト数
+         */
+        public long getBytesOut() {
+            return mBytesOut.get();
+        }
+
+        /**
+         * 送信が追いつかずに破棄したフレーム数を取得する.
+         * <p>
+         * クライアントごとに数えた合計になる。
+         * </p>
+         * @return フレーム数
+         */
+        public long getDroppedFrames() {
+            return mDroppedFrames.get();
+        }
+
+        /**
+         * 閲覧中のクライアント数を取得する.
+         * @return クライアント数
+         */
+        public int getViewerCount() {
+            return mViewerCount;
+        }
+    }
+
+    /**
+     * 配信するフレーム.
+     */
+    private static final class Frame {
+        /** 通し番号. */
+        final long mSequence;
+        /** パートのヘッダー. */
+        final byte[] mHeader;
+        /** フレームのデータ. */
+        final byte[] mData;
+
+        Frame(final long sequence, final byte[] header, final byte[] data) {
+            mSequence = sequence;
+            mHeader = header;
+            mData = data;
+        }
+    }
+
+    /**
+     * 接続中のクライアント.
+     */
+    private static final class Client {
+        /** チャンネル. */
+        final SocketChannel mChannel;
+        /** セレクションキー. */
+        SelectionKey mKey;
+        /** リクエストヘッダーの受信バッファ. 受信後はnull. */
+        ByteBuffer mRequestBuffer = ByteBuffer.allocate(REQUEST_BUFFER_SIZE);
+        /** リクエスト. */
+        Request mRequest;
+        /** 閲覧中のストリーム. */
+        Stream mStream;
+        /** 1枚の画像を要求しているか. */
+        boolean mSnapshot;
+        /** 送信中のデータ. */
+        ByteBuffer[] mBuffers;
+        /** 最後に送信したフレームの通し番号. */
+        long mSequence = -1;
+        /** 送信後に切断するか. */
+        boolean mCloseAfterWrite;
+
+        Client(final SocketChannel channel) {
+            mChannel = channel;
+        }
+
+        void setBuffers(final ByteBuffer... buffers) {
+            mBuffers = buffers;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+/*
+ org.deviceconnect.android.streaming
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+/**
+ * デバイスプラグイン 映像配信パッケージ.
+ */
+package org.deviceconnect.android.streaming;
@@ -0,0 +1,114 @@
+/*
+ EventCacheControllerBenchmark.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.event.cache;
+
+import org.deviceconnect.android.event.Event;
+import org.deviceconnect.android.event.EventError;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MemoryCacheController}と{@link IndexedCacheController}の取得性能を計測する.
+ * <p>
+ * 通常のテストタスクでは実行しない. {@code -Pbenchmark}を指定した場合のみ実行する.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class EventCacheControllerBenchmark {
+
+    /** 1つのオリジンが登録するイベント数. */
+    private static final int EVENTS_PER_ORIGIN = 10;
+
+    /** 並行して取得するスレッド数. */
+    private static final int READER_COUNT = 4;
+
+    /** 計測時間(ミリ秒). */
+    private static final long MEASURE_TIME = 1000;
+
+    /** 計測前に実行する時間(ミリ秒). */
+    private static final long WARM_UP_TIME = 500;
+
+    /**
+     * 1000件と10000件のイベントを登録した状態で、取得のスループットを計測する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void benchmarkLookups() throws InterruptedException {
+        int[] eventCounts = {1000, 10000};
+        for (int eventCount : eventCounts) {
+            EventCacheController[] controllers = {
+                new MemoryCacheController(), new IndexedCacheController()
+            };
+            for (EventCacheController controller : controllers) {
+                register(controller, eventCount);
+                String name = controller.getClass().getSimpleName() + " events=" + eventCount;
+                measureAttributeLookups(controller, WARM_UP_TIME);
+                System.out.println(name + " attribute lookups/ms: "
+                    + measureAttributeLookups(controller, MEASURE_TIME));
+                measureOriginLookups(controller, eventCount, WARM_UP_TIME);
+                System.out.println(name + " origin lookup us: " + String.format(Locale.US, "%.3f",
+                    measureOriginLookups(controller, eventCount, MEASURE_TIME)));
+            }
+        }
+    }
+
+    private static long measureAttributeLookups(final EventCacheController controller, final long time)
+            throws InterruptedException {
+        final AtomicLong count = new AtomicLong();
+        final long deadline = System.currentTimeMillis() + time;
+        final CountDownLatch done = new CountDownLatch(READER_COUNT);
+        for (int i = 0; i < READER_COUNT; i++) {
+            final String serviceId = "service" + (i % EVENTS_PER_ORIGIN);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long n = 0;
+                    while (System.currentTimeMillis() < deadline) {
+                        for (int j = 0; j < 100; j++) {
+                            controller.getEvents(serviceId, "deviceorientation", null, "ondeviceorientation");
+                        }
+                        n += 100;
+                    }
+                    count.addAndGet(n);
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        return count.get() / time;
+    }
+
+    private static double measureOriginLookups(final EventCacheController controller, final int eventCount,
+                                               final long time) {
+        int origins = eventCount / EVENTS_PER_ORIGIN;
+        long deadline = System.currentTimeMillis() + time;
+        long start = System.nanoTime();
+        long n = 0;
+        while (System.currentTimeMillis() < deadline) {
+            Assert.assertEquals(EVENTS_PER_ORIGIN, controller.getEvents("origin" + (n % origins)).size());
+            n++;
+        }
+        return (System.nanoTime() - start) / 1000.0 / n;
+    }
+
+    private static void register(final EventCacheController controller, final int eventCount) {
+        for (int i = 0; i < eventCount; i++) {
+            Event event = new Event();
+            event.setServiceId("service" + (i % EVENTS_PER_ORIGIN));
+            event.setProfile("deviceorientation");
+            event.setAttribute("ondeviceorientation");
+            event.setOrigin("origin" + (i / EVENTS_PER_ORIGIN));
+            event.setReceiverName("receiver");
+            event.setAccessToken("accessToken");
+            Assert.assertEquals(EventError.NONE, controller.addEvent(event));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ IndexedCacheControllerTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.event.cache;
+
+import org.deviceconnect.android.event.Event;
+import org.deviceconnect.android.event.EventError;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link IndexedCacheController}のテストを実行する.
+ * <p>
+ * {@link MemoryCacheController}と同じ結果になることを確認する.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class IndexedCacheControllerTest {
+
+    /** 1つのオリジンが登録するイベント数. */
+    private static final int EVENTS_PER_ORIGIN = 10;
+
+    /** 並行して取得するスレッド数. */
+    private static final int READER_COUNT = 4;
+
+    /** 並行して追加・削除する回数. */
+    private static final int WRITE_COUNT = 2000;
+
+    /**
+     * 追加・取得・削除の結果がMemoryCacheControllerと同じになることを確認する.
+     */
+    @Test
+    public void testSameBehavior() {
+        EventCacheController[] controllers = {
+            new MemoryCacheController(), new IndexedCacheController()
+        };
+        for (EventCacheController controller : controllers) {
+            Assert.assertEquals(EventError.NONE,
+                controller.addEvent(createEvent("service", "battery", null, "onchargingchange", "origin1")));
+            Assert.assertEquals(EventError.NONE,
+                controller.addEvent(createEvent("service", "battery", null, "onchargingchange", "origin2")));
+            Assert.assertEquals(EventError.NONE,
+                controller.addEvent(createEvent(null, "battery", null, "onbatterychange", "origin1")));
+            // 登録済みのイベントは上書きされる
+            Assert.assertEquals(EventError.NONE,
+                controller.addEvent(createEvent("service", "battery", null, "onchargingchange", "origin1")));
+            Assert.assertEquals(EventError.INVALID_PARAMETER,
+                controller.addEvent(createEvent("service", null, null, "onchargingchange", "origin1")));
+
+            Assert.assertEquals(2, controller.getEvents("service", "battery", null, "onchargingchange").size());
+            Assert.assertEquals(1, controller.getEvents(null, "battery", null, "onbatterychange").size());
+            Assert.assertEquals(0, controller.getEvents("service", "battery", null, "onbatterychange").size());
+            Assert.assertEquals(2, controller.getEvents("origin1").size());
+            Assert.assertNotNull(
+                controller.getEvent("service", "battery", null, "onchargingchange", "origin2", "receiver"));
+            Assert.assertNull(
+                controller.getEvent("service", "battery", null, "onchargingchange", "origin3", "receiver"));
+
+            Assert.assertEquals(EventError.NONE,
+                controller.removeEvent(createEvent("service", "battery", null, "onchargingchange", "origin2")));
+            Assert.assertEquals(EventError.NOT_FOUND,
+                controller.removeEvent(createEvent("service", "battery", null, "onchargingchange", "origin2")));
+            Assert.assertEquals(1, controller.getEvents("service", "battery", null, "onchargingchange").size());
+
+            Assert.assertTrue(controller.removeEvents("origin1"));
+            Assert.assertEquals(0, controller.getEvents("service", "battery", null, "onchargingchange").size());
+            Assert.assertEquals(0, controller.getEvents("origin1").size());
+
+            controller.addEvent(createEvent("service", "battery", null, "onchargingchange", "origin1"));
+            Assert.assertTrue(controller.removeAll());
+            Assert.assertEquals(0, controller.getEvents("service", "battery", null, "onchargingchange").size());
+        }
+    }
+
+    /**
+     * 1000件と10000件のイベントを登録した状態で、取得結果がMemoryCacheControllerと同じになることを確認する.
+     */
+    @Test
+    public void testManyEvents() {
+        assertSameLookups(1000);
+        assertSameLookups(10000);
+    }
+
+    /**
+     * 他のオリジンのイベントの追加・削除と並行して取得しても、取得結果が変わらないことを確認する.
+     * @throws Exception スレッドの待機に失敗した場合
+     */
+    @Test
+    public void testConcurrentLookup() throws Exception {
+        final EventCacheController controller = new IndexedCacheController();
+        register(controller, 1000);
+        final int expected = 1000 / EVENTS_PER_ORIGIN;
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch started = new CountDownLatch(READER_COUNT);
+        Thread[] readers = new Thread[READER_COUNT];
+        for (int i = 0; i < READER_COUNT; i++) {
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        while (running.get()) {
+                            List<Event> events = controller.getEvents("service0", "deviceorientation",
+                                null, "ondeviceorientation");
+                            Assert.assertEquals(expected, events.size());
+                            Assert.assertEquals(EVENTS_PER_ORIGIN, controller.getEvents("origin0").size());
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            readers[i].start();
+        }
+        started.await();
+
+        // 取得しているイベントとは別の属性・オリジンのイベントを追加・削除する
+        for (int i = 0; i < WRITE_COUNT; i++) {
+            Event event = createEvent("service0", "deviceorientation", null, "onorientationchange", "writer" + i);
+            Assert.assertEquals(EventError.NONE, controller.addEvent(event));
+            if (i % 2 == 0) {
+                Assert.assertTrue(controller.removeEvents("writer" + i));
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        Assert.assertEquals(WRITE_COUNT / 2,
+            controller.getEvents("service0", "deviceorientation", null, "onorientationchange").size());
+    }
+
+    private static void assertSameLookups(final int eventCount) {
+        EventCacheController memory = new MemoryCacheController();
+        EventCacheController indexed = new IndexedCacheController();
+        register(memory, eventCount);
+        register(indexed, eventCount);
+
+        for (int i = 0; i < EVENTS_PER_ORIGIN; i++) {
+            String serviceId = "service" + i;
+            Assert.assertEquals(
+                memory.getEvents(serviceId, "deviceorientation", null, "ondeviceorientation").size(),
+                indexed.getEvents(serviceId, "deviceorientation", null, "ondeviceorientation").size());
+        }
+        for (int i = 0; i < eventCount / EVENTS_PER_ORIGIN; i++) {
+            String origin = "origin" + i;
+            Assert.assertEquals(EVENTS_PER_ORIGIN, memory.getEvents(origin).size());
+            Assert.assertEquals(EVENTS_PER_ORIGIN, indexed.getEvents(origin).size());
+        }
+    }
+
+    private static void register(final EventCacheController controller, final int eventCount) {
+        for (int i = 0; i < eventCount; i++) {
+            Event event = createEvent("service" + (i % EVENTS_PER_ORIGIN), "deviceorientation", null,
+                "ondeviceorientation", "origin" + (i / EVENTS_PER_ORIGIN));
+            Assert.assertEquals(EventError.NONE, controller.addEvent(event));
+        }
+    }
+
+    private static Event createEvent(final String serviceId, final String profile, final String inter,
+                                     final String attribute, final String origin) {
+        Event event = new Event();
+        event.setServiceId(serviceId);
+        event.setProfile(profile);
+        event.setInterface(inter);
+        event.setAttribute(attribute);
+        event.setOrigin(origin);
+        event.setReceiverName("receiver");
+        event.setAccessToken("accessToken");
+        return event;
+    }
+}
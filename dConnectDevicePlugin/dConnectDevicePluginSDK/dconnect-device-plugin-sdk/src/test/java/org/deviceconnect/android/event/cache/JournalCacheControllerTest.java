@@ -0,0 +1,273 @@
+/*
+ JournalCacheControllerTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.event.cache;
+
+import org.deviceconnect.android.event.Event;
+import org.deviceconnect.android.event.EventError;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * {@link JournalCacheController}のテストを実行する.
+ * @author NTT DOCOMO, INC.
+ */
+public class JournalCacheControllerTest {
+
+    /** ジャーナルファイル名. */
+    private static final String JOURNAL_FILE_NAME = "org_deviceconnect_android_event_journal.dat";
+
+    /** 圧縮中に書き出す一時ファイル名. */
+    private static final String TEMP_FILE_NAME = JOURNAL_FILE_NAME + ".tmp";
+
+    /** 非同期の圧縮を待つ時間(ミリ秒). */
+    private static final long WAIT_TIMEOUT = 5000;
+
+    /** ジャーナルファイルを保存するディレクトリ. */
+    private File mDir;
+
+    /** ジャーナルファイル. */
+    private File mJournalFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = File.createTempFile("journal", "");
+        Assert.assertTrue(mDir.delete());
+        Assert.assertTrue(mDir.mkdir());
+        mJournalFile = new File(mDir, JOURNAL_FILE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        delete(mDir);
+    }
+
+    /**
+     * 追加・削除の操作がジャーナルに記録され、再生すると同じ状態に戻ることを確認する.
+     */
+    @Test
+    public void testRecordEncoding() {
+        JournalCacheController controller = new JournalCacheController(mDir, true);
+        Assert.assertEquals(EventError.NONE, controller.addEvent(createEvent("service", null, "origin1")));
+        Assert.assertEquals(EventError.NONE, controller.addEvent(createEvent("service", "interface", "origin1")));
+        Assert.assertEquals(EventError.NONE, controller.addEvent(createEvent(null, null, "origin2")));
+        Assert.assertEquals(EventError.NONE, controller.addEvent(createEvent("service", null, "origin3")));
+        Assert.assertEquals(EventError.NONE, controller.addEvent(createEvent("service", null, "origin4")));
+        Assert.assertEquals(EventError.NONE, controller.removeEvent(createEvent("service", null, "origin3")));
+        Assert.assertTrue(controller.removeEvents("origin4"));
+        Event expected = controller.getEvent("service", "profile", "interface", "attribute", "origin1", "receiver");
+        Assert.assertNotNull(expected);
+
+        JournalCacheController replayed = new JournalCacheController(mDir, true);
+        Assert.assertEquals(2, replayed.getEvents("origin1").size());
+        Assert.assertEquals(1, replayed.getEvents("origin2").size());
+        Assert.assertEquals(0, replayed.getEvents("origin3").size());
+        Assert.assertEquals(0, replayed.getEvents("origin4").size());
+        Event actual = replayed.getEvent("service", "profile", "interface", "attribute", "origin1", "receiver");
+        Assert.assertNotNull(actual);
+        Assert.assertEquals("accessToken", actual.getAccessToken());
+        Assert.assertEquals(expected.getCreateDate(), actual.getCreateDate());
+        Assert.assertEquals(expected.getUpdateDate(), actual.getUpdateDate());
+        Assert.assertNull(replayed.getEvents("origin2").get(0).getServiceId());
+
+        Assert.assertTrue(replayed.removeAll());
+        Assert.assertEquals(0, new JournalCacheController(mDir, true).getEvents("origin1").size());
+    }
+
+    /**
+     * 書き込み途中で終了したレコードは取り除かれ、それより前のレコードが復元されることを確認する.
+     * @throws IOException ジャーナルファイルの操作に失敗した場合
+     */
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        JournalCacheController controller = new JournalCacheController(mDir, true);
+        for (int i = 0; i < 3; i++) {
+            controller.addEvent(createEvent("service", null, "origin" + i));
+        }
+        controller.addEvent(createEvent("service", null, "origin3"));
+        truncate(mJournalFile, mJournalFile.length() - 5);
+
+        JournalCacheController replayed = new JournalCacheController(mDir, true);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(1, replayed.getEvents("origin" + i).size());
+        }
+        Assert.assertEquals(0, replayed.getEvents("origin3").size());
+
+        // 取り除かれたレコードの後ろに追記したレコードも復元できる
+        replayed.addEvent(createEvent("service", null, "origin4"));
+        Assert.assertEquals(1, new JournalCacheController(mDir, true).getEvents("origin4").size());
+    }
+
+    /**
+     * 末尾に不正なレコードがあっても、それより前のレコードが復元されることを確認する.
+     * @throws IOException ジャーナルファイルの操作に失敗した場合
+     */
+    @Test
+    public void testTornRecord() throws IOException {
+        JournalCacheController controller = new JournalCacheController(mDir, true);
+        controller.addEvent(createEvent("service", null, "origin1"));
+        controller.addEvent(createEvent("service", null, "origin2"));
+        FileOutputStream out = new FileOutputStream(mJournalFile, true);
+        try {
+            out.write(new byte[] {0x7F, 0x00, 0x01});
+        } finally {
+            out.close();
+        }
+
+        JournalCacheController replayed = new JournalCacheController(mDir, true);
+        Assert.assertEquals(1, replayed.getEvents("origin1").size());
+        Assert.assertEquals(1, replayed.getEvents("origin2").size());
+        replayed.addEvent(createEvent("service", null, "origin3"));
+        Assert.assertEquals(1, new JournalCacheController(mDir, true).getEvents("origin3").size());
+    }
+
+    /**
+     * レコード数が増えるとジャーナルが登録済みのイベントだけに置き換えられることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testCompaction() throws InterruptedException {
+        JournalCacheController controller = new JournalCacheController(mDir, true);
+        long headerSize = mJournalFile.length();
+        for (int i = 0; i < 10; i++) {
+            controller.addEvent(createEvent("service", null, "origin" + i));
+        }
+        long recordSize = (mJournalFile.length() - headerSize) / 10;
+
+        // 同じイベントの追加・削除を繰り返して、1回だけ圧縮が行われるレコード数を書き込む
+        Event toggled = createEvent("service", null, "toggled");
+        for (int i = 0; i < 150; i++) {
+            controller.addEvent(toggled);
+            controller.removeEvent(toggled);
+        }
+        long limit = headerSize + recordSize * 100;
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (mJournalFile.length() >= limit && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(mJournalFile.length() < limit);
+        Assert.assertFalse(new File(mDir, TEMP_FILE_NAME).exists());
+
+        // 圧縮中・圧縮後に追記されたレコードも含めて復元できる
+        JournalCacheController replayed = new JournalCacheController(mDir, true);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(1, replayed.getEvents("origin" + i).size());
+        }
+        Assert.assertEquals(0, replayed.getEvents("toggled").size());
+    }
+
+    /**
+     * 圧縮に失敗した場合は、一定数のレコードが追記されるまで圧縮を再試行しないことを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testCompactionFailure() throws InterruptedException {
+        // 一時ファイルと同じ名前のディレクトリを作成して、書き出しを失敗させる
+        Assert.assertTrue(new File(mDir, TEMP_FILE_NAME).mkdir());
+        final AtomicInteger failures = new AtomicInteger();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(final LogRecord record) {
+                if (record.getLevel() == Level.SEVERE
+                    && record.getMessage().startsWith("Failed to compact")) {
+                    failures.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger("org.deviceconnect.dplugin");
+        logger.addHandler(handler);
+        try {
+            JournalCacheController controller = new JournalCacheController(mDir, true);
+            Event toggled = createEvent("service", null, "toggled");
+            appendRecords(controller, toggled, JournalCacheController.COMPACTION_THRESHOLD);
+            waitFor(failures, 1);
+
+            // 失敗直後の追記では再試行しない
+            appendRecords(controller, toggled, JournalCacheController.COMPACTION_THRESHOLD - 1);
+            Thread.sleep(200);
+            Assert.assertEquals(1, failures.get());
+
+            appendRecords(controller, toggled, 1);
+            waitFor(failures, 2);
+
+            // 失敗しても記録は失われない
+            List<Event> events = new JournalCacheController(mDir, true).getEvents("toggled");
+            Assert.assertEquals(controller.getEvents("toggled").size(), events.size());
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    private static void appendRecords(final EventCacheController controller, final Event event, final int count) {
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                Assert.assertEquals(EventError.NONE, controller.addEvent(event));
+            } else {
+                Assert.assertEquals(EventError.NONE, controller.removeEvent(event));
+            }
+        }
+    }
+
+    private static void waitFor(final AtomicInteger counter, final int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, counter.get());
+    }
+
+    private static void truncate(final File file, final long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static Event createEvent(final String serviceId, final String inter, final String origin) {
+        Event event = new Event();
+        event.setServiceId(serviceId);
+        event.setProfile("profile");
+        event.setInterface(inter);
+        event.setAttribute("attribute");
+        event.setOrigin(origin);
+        event.setReceiverName("receiver");
+        event.setAccessToken("accessToken");
+        return event;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ DConnectRequestExecutorTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.message;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DConnectRequestExecutor}のテストを実行する.
+ * @author NTT DOCOMO, INC.
+ */
+public class DConnectRequestExecutorTest {
+
+    /** 同じサービス宛てに実行するリクエスト数. */
+    private static final int REQUEST_COUNT = 50;
+
+    /** 待機する時間(秒). */
+    private static final long WAIT_TIME = 10;
+
+    /**
+     * 同じサービス宛てのリクエストが受信した順に1つずつ実行されることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testSerializePerService() throws InterruptedException {
+        DConnectRequestExecutor executor = new DConnectRequestExecutor(4, true);
+        try {
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicBoolean overlapped = new AtomicBoolean();
+            final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+            final CountDownLatch done = new CountDownLatch(REQUEST_COUNT);
+            for (int i = 0; i < REQUEST_COUNT; i++) {
+                final int index = i;
+                Assert.assertTrue(executor.execute("service", new Runnable() {
+                    @Override
+                    public void run() {
+                        if (running.incrementAndGet() > 1) {
+                            overlapped.set(true);
+                        }
+                        order.add(index);
+                        Thread.yield();
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                }));
+            }
+            Assert.assertTrue(done.await(WAIT_TIME, TimeUnit.SECONDS));
+            Assert.assertFalse(overlapped.get());
+            for (int i = 0; i < REQUEST_COUNT; i++) {
+                Assert.assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 異なるサービス宛てのリクエストは、実行中のリクエストを待たずに実行されることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testOtherServiceNotBlocked() throws InterruptedException {
+        DConnectRequestExecutor executor = new DConnectRequestExecutor(2, true);
+        BlockingTask blocking = new BlockingTask();
+        try {
+            executor.execute("service1", blocking);
+            Assert.assertTrue(blocking.mStarted.await(WAIT_TIME, TimeUnit.SECONDS));
+
+            final CountDownLatch done = new CountDownLatch(1);
+            executor.execute("service2", new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            Assert.assertTrue(done.await(WAIT_TIME, TimeUnit.SECONDS));
+        } finally {
+            blocking.mRelease.countDown();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 例外が発生しても、同じサービス宛ての後続のリクエストが実行されることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testContinueAfterException() throws InterruptedException {
+        DConnectRequestExecutor executor = new DConnectRequestExecutor(1, true);
+        try {
+            executor.execute("service", new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("test");
+                }
+            });
+            final CountDownLatch done = new CountDownLatch(1);
+            executor.execute("service", new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            Assert.assertTrue(done.await(WAIT_TIME, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 終了時に実行待ちだったリクエストの処理が返却されることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testShutdownReturnsPendingTasks() throws InterruptedException {
+        boolean[] serializePerService = {false, true};
+        for (boolean serialize : serializePerService) {
+            DConnectRequestExecutor executor = new DConnectRequestExecutor(1, serialize);
+            BlockingTask blocking = new BlockingTask();
+            Assert.assertTrue(executor.execute("service1", blocking));
+            Assert.assertTrue(blocking.mStarted.await(WAIT_TIME, TimeUnit.SECONDS));
+
+            // service1宛ては実行中のリクエストの後に、service2宛てはスレッドの空き待ちになる
+            Set<Runnable> waiting = new HashSet<Runnable>();
+            CountingTask[] tasks = {new CountingTask(), new CountingTask(), new CountingTask()};
+            Assert.assertTrue(executor.execute("service1", tasks[0]));
+            Assert.assertTrue(executor.execute("service1", tasks[1]));
+            Assert.assertTrue(executor.execute("service2", tasks[2]));
+            Collections.addAll(waiting, tasks);
+
+            List<Runnable> pending = executor.shutdown();
+            Assert.assertTrue(executor.isShutdown());
+            Assert.assertEquals(waiting.size(), pending.size());
+            Assert.assertEquals(waiting, new HashSet<Runnable>(pending));
+
+            // 実行中のリクエストには割り込みが行われる
+            Assert.assertTrue(blocking.mFinished.await(WAIT_TIME, TimeUnit.SECONDS));
+            for (CountingTask task : tasks) {
+                Assert.assertEquals(0, task.mCount.get());
+            }
+        }
+    }
+
+    /**
+     * 終了後のリクエストは受け付けないことを確認する.
+     */
+    @Test
+    public void testExecuteAfterShutdown() {
+        boolean[] serializePerService = {false, true};
+        for (boolean serialize : serializePerService) {
+            DConnectRequestExecutor executor = new DConnectRequestExecutor(1, serialize);
+            Assert.assertTrue(executor.shutdown().isEmpty());
+
+            CountingTask task = new CountingTask();
+            Assert.assertFalse(executor.execute("service", task));
+            Assert.assertTrue(executor.shutdown().isEmpty());
+            Assert.assertEquals(0, task.mCount.get());
+        }
+    }
+
+    /**
+     * 解放されるか割り込まれるまで実行を続けるタスク.
+     */
+    private static class BlockingTask implements Runnable {
+        /** 実行が開始されたことを通知するラッチ. */
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        /** 実行を終了させるラッチ. */
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        /** 実行が終了したことを通知するラッチ. */
+        final CountDownLatch mFinished = new CountDownLatch(1);
+
+        @Override
+        public void run() {
+            mStarted.countDown();
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                // 終了する
+            } finally {
+                mFinished.countDown();
+            }
+        }
+    }
+
+    /**
+     * 実行された回数を数えるタスク.
+     */
+    private static class CountingTask implements Runnable {
+        /** 実行された回数. */
+        final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public void run() {
+            mCount.incrementAndGet();
+        }
+    }
+}
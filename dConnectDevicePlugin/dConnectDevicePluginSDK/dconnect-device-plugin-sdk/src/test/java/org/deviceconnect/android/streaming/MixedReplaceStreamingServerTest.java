@@ -0,0 +1,370 @@
+/*
+ MixedReplaceStreamingServerTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.streaming;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MixedReplaceStreamingServer}のテストを実行する.
+ * @author NTT DOCOMO, INC.
+ */
+public class MixedReplaceStreamingServerTest {
+
+    /** テストで使用する境界文字列. */
+    private static final String BOUNDARY = "test-boundary";
+
+    /** テストで使用するストリーム名. */
+    private static final String STREAM_NAME = "stream";
+
+    /** 応答を待つ時間(ミリ秒). */
+    private static final int TIMEOUT = 5000;
+
+    /** テスト対象のサーバー. */
+    private MixedReplaceStreamingServer mServer;
+
+    @Before
+    public void setUp() {
+        mServer = new MixedReplaceStreamingServer();
+        mServer.setBoundary(BOUNDARY);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    /**
+     * 接続したクライアントにマルチパート形式でフレームが送信されることを確認する.
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testMultipartFraming() throws Exception {
+        MixedReplaceStreamingServer.Stream stream = mServer.createStream(STREAM_NAME);
+        Assert.assertTrue(mServer.start());
+        Socket socket = connect("/" + STREAM_NAME);
+        try {
+            InputStream in = socket.getInputStream();
+            Map<String, String> headers = readHeaders(in);
+            Assert.assertEquals("HTTP/1.0 200 OK", headers.get(null));
+            Assert.assertEquals("multipart/x-mixed-replace; boundary=" + BOUNDARY, headers.get("content-type"));
+            waitForViewer(stream, 1);
+
+            for (int i = 0; i < 3; i++) {
+                byte[] frame = createFrame(i, 1024 + i);
+                mServer.offerMedia(STREAM_NAME, frame);
+                Assert.assertArrayEquals(frame, readPart(in));
+            }
+            Assert.assertEquals(3, stream.getFrameCount());
+            Assert.assertEquals(0, stream.getDroppedFrames());
+            Assert.assertEquals(1, mServer.getClientCount());
+        } finally {
+            socket.close();
+        }
+        waitForViewer(stream, 0);
+    }
+
+    /**
+     * 存在しないストリームと、snapshotパラメータを指定したリクエストの応答を確認する.
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testNotFoundAndSnapshot() throws Exception {
+        mServer.createStream(STREAM_NAME);
+        Assert.assertTrue(mServer.start());
+        Socket socket = connect("/unknown");
+        try {
+            Assert.assertEquals("HTTP/1.0 404 Not Found", readHeaders(socket.getInputStream()).get(null));
+        } finally {
+            socket.close();
+        }
+
+        byte[] frame = createFrame(1, 100);
+        mServer.offerMedia(STREAM_NAME, frame);
+        socket = connect("/" + STREAM_NAME + "?snapshot");
+        try {
+            InputStream in = socket.getInputStream();
+            Map<String, String> headers = readHeaders(in);
+            Assert.assertEquals("HTTP/1.0 200 OK", headers.get(null));
+            Assert.assertEquals(String.valueOf(frame.length), headers.get("content-length"));
+            Assert.assertArrayEquals(frame, readFully(in, frame.length));
+            Assert.assertEquals(-1, in.read());
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * 受信が追いつかないクライアントには途中のフレームを破棄して最新のフレームを送ることを確認する.
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testSlowClient() throws Exception {
+        final int frameCount = 50;
+        final int frameSize = 1024 * 1024;
+        MixedReplaceStreamingServer.Stream stream = mServer.createStream(STREAM_NAME);
+        Assert.assertTrue(mServer.start());
+        Socket socket = connect("/" + STREAM_NAME);
+        try {
+            InputStream in = socket.getInputStream();
+            readHeaders(in);
+            waitForViewer(stream, 1);
+            mServer.offerMedia(STREAM_NAME, createFrame(0, frameSize));
+            readPart(in);
+
+            // 受信せずにソケットのバッファを超える量のフレームを追加する
+            for (int i = 1; i < frameCount; i++) {
+                mServer.offerMedia(STREAM_NAME, createFrame(i, frameSize));
+            }
+            int received = 0;
+            byte[] frame;
+            do {
+                frame = readPart(in);
+                received++;
+            } while (frame[0] != (byte) (frameCount - 1));
+            Assert.assertTrue(received < frameCount - 1);
+            Assert.assertEquals(frameCount - 1 - received, stream.getDroppedFrames());
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * 停止したサーバーを再び起動できることを確認する.
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testStopAndRestart() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        mServer.setServerEventListener(new MixedReplaceStreamingServer.ServerEventListener() {
+            @Override
+            public void onStart() {
+            }
+
+            @Override
+            public void onStop() {
+                stopped.countDown();
+            }
+
+            @Override
+            public void onError() {
+            }
+        });
+        MixedReplaceStreamingServer.Stream stream = mServer.createStream(STREAM_NAME);
+        Assert.assertTrue(mServer.start());
+        Socket socket = connect("/" + STREAM_NAME);
+        try {
+            readHeaders(socket.getInputStream());
+            waitForViewer(stream, 1);
+            mServer.stop();
+            Assert.assertFalse(mServer.isRunning());
+            Assert.assertNull(mServer.getUrl());
+            Assert.assertTrue(stopped.await(TIMEOUT, TimeUnit.MILLISECONDS));
+            // 停止時に接続中のクライアントは切断される
+            Assert.assertEquals(-1, socket.getInputStream().read());
+            Assert.assertEquals(0, mServer.getClientCount());
+        } finally {
+            socket.close();
+        }
+
+        Assert.assertTrue(mServer.start());
+        Assert.assertTrue(mServer.isRunning());
+        assertStreaming(stream);
+    }
+
+    /**
+     * リスナーで例外が発生してもサーバーが動作を続けることを確認する.
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testThrowingListener() throws Exception {
+        final CountDownLatch disconnected = new CountDownLatch(1);
+        mServer.setServerEventListener(new MixedReplaceStreamingServer.ServerEventListener() {
+            @Override
+            public void onStart() {
+                throw new IllegalStateException("onStart");
+            }
+
+            @Override
+            public void onStop() {
+                throw new IllegalStateException("onStop");
+            }
+
+            @Override
+            public void onError() {
+            }
+        });
+        mServer.setConnectionListener(new MixedReplaceStreamingServer.ConnectionListener() {
+            @Override
+            public void onConnect(final MixedReplaceStreamingServer.Request request) {
+                // ストリームを作成してから例外を投げる
+                mServer.createStream(STREAM_NAME);
+                throw new IllegalStateException("onConnect");
+            }
+
+            @Override
+            public void onDisconnect(final MixedReplaceStreamingServer.Request request) {
+                disconnected.countDown();
+                throw new IllegalStateException("onDisconnect");
+            }
+        });
+        Assert.assertTrue(mServer.start());
+
+        Socket socket = connect("/" + STREAM_NAME);
+        try {
+            Assert.assertEquals("HTTP/1.0 200 OK", readHeaders(socket.getInputStream()).get(null));
+        } finally {
+            socket.close();
+        }
+        Assert.assertTrue(disconnected.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(mServer.isRunning());
+        assertStreaming(mServer.getStream(STREAM_NAME));
+
+        // onStopで例外が発生しても再び起動できる
+        mServer.stop();
+        Assert.assertTrue(mServer.start());
+        assertStreaming(mServer.getStream(STREAM_NAME));
+    }
+
+    /**
+     * 受け付けた直後に切断されたクライアントがあってもサーバーが動作を続けることを確認する.
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testResetBeforeRequest() throws Exception {
+        MixedReplaceStreamingServer.Stream stream = mServer.createStream(STREAM_NAME);
+        Assert.assertTrue(mServer.start());
+        for (int i = 0; i < 10; i++) {
+            Socket socket = new Socket();
+            socket.setSoLinger(true, 0);
+            socket.connect(new InetSocketAddress("localhost", mServer.getLocalPort()), TIMEOUT);
+            socket.close();
+        }
+        Assert.assertTrue(mServer.isRunning());
+        assertStreaming(stream);
+    }
+
+    /**
+     * ストリームを閲覧してフレームを受信できることを確認する.
+     * @param stream ストリーム
+     * @throws Exception 通信に失敗した場合
+     */
+    private void assertStreaming(final MixedReplaceStreamingServer.Stream stream) throws Exception {
+        int viewers = stream.getViewerCount();
+        Socket socket = connect("/" + stream.getName());
+        try {
+            InputStream in = socket.getInputStream();
+            Assert.assertEquals("HTTP/1.0 200 OK", readHeaders(in).get(null));
+            waitForViewer(stream, viewers + 1);
+            byte[] frame = createFrame(7, 64);
+            mServer.offerMedia(stream.getName(), frame);
+            Assert.assertArrayEquals(frame, readPart(in));
+        } finally {
+            socket.close();
+        }
+    }
+
+    private Socket connect(final String path) throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4096);
+        socket.connect(new InetSocketAddress("localhost", mServer.getLocalPort()), TIMEOUT);
+        socket.setSoTimeout(TIMEOUT);
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes("US-ASCII"));
+        out.flush();
+        return socket;
+    }
+
+    private static void waitForViewer(final MixedReplaceStreamingServer.Stream stream, final int count)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (stream.getViewerCount() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, stream.getViewerCount());
+    }
+
+    private static byte[] createFrame(final int index, final int size) {
+        byte[] frame = new byte[size];
+        for (int i = 0; i < size; i++) {
+            frame[i] = (byte) (index + i * 31);
+        }
+        frame[0] = (byte) index;
+        return frame;
+    }
+
+    /**
+     * HTTPヘッダーを読み込む.
+     * @param in 入力ストリーム
+     * @return ヘッダー名を小文字にしたマップ. ステータス行のキーはnull
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static Map<String, String> readHeaders(final InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put(null, readLine(in));
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int index = line.indexOf(':');
+            headers.put(line.substring(0, index).trim().toLowerCase(Locale.US), line.substring(index + 1).trim());
+        }
+        return headers;
+    }
+
+    /**
+     * マルチパートのパートを1つ読み込む.
+     * @param in 入力ストリーム
+     * @return パートのデータ
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static byte[] readPart(final InputStream in) throws IOException {
+        Assert.assertEquals("--" + BOUNDARY, readLine(in));
+        Map<String, String> headers = new HashMap<String, String>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int index = line.indexOf(':');
+            headers.put(line.substring(0, index).trim().toLowerCase(Locale.US), line.substring(index + 1).trim());
+        }
+        Assert.assertEquals("image/jpeg", headers.get("content-type"));
+        byte[] data = readFully(in, Integer.parseInt(headers.get("content-length")));
+        Assert.assertEquals("", readLine(in));
+        return data;
+    }
+
+    private static byte[] readFully(final InputStream in, final int length) throws IOException {
+        byte[] data = new byte[length];
+        new DataInputStream(in).readFully(data);
+        return data;
+    }
+
+    private static String readLine(final InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                throw new IOException("Unexpected end of stream.");
+            }
+            line.write(c);
+        }
+        String s = line.toString("US-ASCII");
+        return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+    }
+}
@@ -12,8 +12,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.example.sony.cameraremote.utils.LiveviewFrame;
 import com.example.sony.cameraremote.utils.SimpleLiveviewSlicer;
-import com.example.sony.cameraremote.utils.SimpleLiveviewSlicer.Payload;
 
 import android.annotation.TargetApi;
 import android.content.Context;
@@ -39,7 +39,7 @@ public class SimpleLiveviewSurfaceView extends SurfaceView implements SurfaceHol
     /** View生成・破壊フラグ. */
     private boolean mWhileFetching;
     /** jpegデータ. */
-    private final BlockingQueue<byte[]> mJpegQueue = new ArrayBlockingQueue<byte[]>(2);
+    private final BlockingQueue<LiveviewFrame> mJpegQueue = new ArrayBlockingQueue<LiveviewFrame>(2);
     /** ミュート可否フラグ. */
     private final boolean mInMutableAvailable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
     /** ビューの内容描画用スレッド. */
@@ -162,15 +162,18 @@ public class SimpleLiveviewSurfaceView extends SurfaceView implements SurfaceHol
                     }
 
                     while (mWhileFetching) {
-                        final Payload payload = slicer.nextPayload();
-                        if (payload == null) { // never occurs
+                        final LiveviewFrame frame = slicer.nextFrame();
+                        if (frame == null) { // never occurs
                             continue;
                         }
 
-                        if (mJpegQueue.size() == 2) {
-                            mJpegQueue.remove();
+                        // Drop the oldest frame so that the drawer thread always draws the latest one.
+                        while (!mJpegQueue.offer(frame)) {
+                            LiveviewFrame old = mJpegQueue.poll();
+                            if (old != null) {
+                                old.release();
+                            }
                         }
-                        mJpegQueue.add(payload.getJpegData());
                     }
                 } catch (IOException e) {
                   //Exceptionを受けるだけなので処理は行わない
@@ -191,7 +194,7 @@ public class SimpleLiveviewSurfaceView extends SurfaceView implements SurfaceHol
                         mDrawerThread.interrupt();
                     }
 
-                    mJpegQueue.clear();
+                    clearJpegQueue();
                     mWhileFetching = false;
                 }
             }
@@ -211,9 +214,10 @@ public class SimpleLiveviewSurfaceView extends SurfaceView implements SurfaceHol
                 }
 
                 while (mWhileFetching) {
+                    LiveviewFrame frame = null;
                     try {
-                        byte[] jpegData = mJpegQueue.take();
-                        frameBitmap = BitmapFactory.decodeByteArray(jpegData, 0, jpegData.length, factoryOptions);
+                        frame = mJpegQueue.take();
+                        frameBitmap = BitmapFactory.decodeStream(frame.openJpegStream(), null, factoryOptions);
                     } catch (IllegalArgumentException e) {
                         if (mInMutableAvailable) {
                             clearInBitmap(factoryOptions);
@@ -221,6 +225,10 @@ public class SimpleLiveviewSurfaceView extends SurfaceView implements SurfaceHol
                         continue;
                     } catch (InterruptedException e) {
                         break;
+                    } finally {
+                        if (frame != null) {
+                            frame.release();
+                        }
                     }
 
                     if (mInMutableAvailable) {
@@ -255,6 +263,16 @@ public class SimpleLiveviewSurfaceView extends SurfaceView implements SurfaceHol
         return mWhileFetching;
     }
 
+    /**
+     * 描画待ちのフレームを破棄する.
+     */
+    private void clearJpegQueue() {
+        LiveviewFrame frame;
+        while ((frame = mJpegQueue.poll()) != null) {
+            frame.release();
+        }
+    }
+
     /**
      * Target API version.
      * 
@@ -0,0 +1,140 @@
+/*
+LiveviewFrame
+Copyright (c) 2016 NTT DOCOMO,INC.
+Released under the MIT license
+http://opensource.org/licenses/mit-license.php
+*/
+
+package com.example.sony.cameraremote.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view of a liveview image sliced by {@link LiveviewFrameReader}.
+ * <p>
+ * The JPEG data is stored in a buffer pooled by the reader. Call {@link #release()}
+ * when the frame is no longer needed so that the buffer can be reused for the next frame.
+ * The frame must not be accessed after it is released.
+ * </p>
+ */
+public final class LiveviewFrame {
+
+    /** 読み込み元. */
+    private final LiveviewFrameReader mReader;
+    /** JPEGデータを格納するバッファ. */
+    private byte[] mBuffer;
+    /** JPEGデータのサイズ. */
+    private final int mJpegSize;
+    /** シーケンス番号. */
+    private final int mSequenceNumber;
+    /** タイムスタンプ. */
+    private final long mTimestamp;
+
+    /**
+     * Constructor.
+     * @param reader reader that owns the buffer
+     * @param buffer buffer which contains JPEG data from the head
+     * @param jpegSize size of JPEG data
+     * @param sequenceNumber sequence number in the common header
+     * @param timestamp timestamp in the common header
+     */
+    LiveviewFrame(final LiveviewFrameReader reader, final byte[] buffer, final int jpegSize,
+                  final int sequenceNumber, final long timestamp) {
+        mReader = reader;
+        mBuffer = buffer;
+        mJpegSize = jpegSize;
+        mSequenceNumber = sequenceNumber;
+        mTimestamp = timestamp;
+    }
+
+    /**
+     * Gets the sequence number of the packet.
+     * @return sequence number (0 to 65535)
+     */
+    public int getSequenceNumber() {
+        return mSequenceNumber;
+    }
+
+    /**
+     * Gets the timestamp of the packet.
+     * @return timestamp in milliseconds
+     */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * Gets the size of JPEG data.
+     * @return size in bytes
+     */
+    public int getJpegSize() {
+        return mJpegSize;
+    }
+
+    /**
+     * Gets JPEG data without copying.
+     * @return read-only buffer whose position is 0 and limit is the size of JPEG data
+     */
+    public ByteBuffer getJpegData() {
+        return ByteBuffer.wrap(checkBuffer(), 0, mJpegSize).asReadOnlyBuffer();
+    }
+
+    /**
+     * Opens a stream to read JPEG data without copying.
+     * @return stream of JPEG data
+     */
+    public InputStream openJpegStream() {
+        return new ByteArrayInputStream(checkBuffer(), 0, mJpegSize);
+    }
+
+    /**
+     * Copies JPEG data into a new array.
+     * <p>
+     * Use this method when the data must be kept after the frame is released.
+     * </p>
+     * @return JPEG data
+     */
+    public byte[] copyJpegData() {
+        byte[] jpeg = new byte[mJpegSize];
+        System.arraycopy(checkBuffer(), 0, jpeg, 0, mJpegSize);
+        return jpeg;
+    }
+
+    /**
+     * Writes JPEG data to a stream.
+     * @param out stream
+     * @throws IOException if the stream failed to write
+     */
+    public void writeJpegTo(final OutputStream out) throws IOException {
+        out.write(checkBuffer(), 0, mJpegSize);
+    }
+
+    /**
+     * Returns the buffer to the reader. Calling this method more than once has no effect.
+     */
+    public void release() {
+        byte[] buffer;
+        synchronized (this) {
+            buffer = mBuffer;
+            mBuffer = null;
+        }
+        if (buffer != null) {
+            mReader.recycle(buffer);
+        }
+    }
+
+    /**
+     * Gets the buffer of this frame.
+     * @return buffer
+     */
+    private synchronized byte[] checkBuffer() {
+        if (mBuffer == null) {
+            throw new IllegalStateException("The frame has already been released.");
+        }
+        return mBuffer;
+    }
+}
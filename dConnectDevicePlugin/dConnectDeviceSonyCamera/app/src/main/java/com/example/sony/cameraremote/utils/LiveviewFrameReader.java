@@ -0,0 +1,324 @@
+/*
+LiveviewFrameReader
+Copyright (c) 2016 NTT DOCOMO,INC.
+Released under the MIT license
+http://opensource.org/licenses/mit-license.php
+*/
+
+package com.example.sony.cameraremote.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+
+/**
+ * Slices liveview images from a stream of the Camera Remote API.
+ * <p>
+ * A packet consists of a common header (8 bytes), a payload header (128 bytes),
+ * payload data and padding. Only packets of liveview images are returned;
+ * other packets such as frame information are skipped.
+ * </p>
+ * <p>
+ * The headers are parsed in a reused window, and JPEG data is read directly into
+ * a pooled buffer that grows when a larger image arrives. Therefore no arrays are
+ * allocated while the frames are released and their sizes stay within the pooled buffers.
+ * If the stream contains broken data, bytes are skipped until the next packet is found.
+ * </p>
+ */
+public class LiveviewFrameReader {
+
+    /** 共通ヘッダのサイズ. */
+    static final int COMMON_HEADER_SIZE = 8;
+    /** ペイロードヘッダのサイズ. */
+    static final int PAYLOAD_HEADER_SIZE = 128;
+    /** ヘッダ全体のサイズ. */
+    static final int HEADER_SIZE = COMMON_HEADER_SIZE + PAYLOAD_HEADER_SIZE;
+
+    /** 共通ヘッダの開始バイト. */
+    static final int START_BYTE = 0xFF;
+    /** ライブビュー画像のペイロードタイプ. */
+    static final int PAYLOAD_TYPE_LIVEVIEW_IMAGE = 0x01;
+    /** フレーム情報のペイロードタイプ. */
+    static final int PAYLOAD_TYPE_FRAME_INFO = 0x02;
+    /** ペイロードヘッダのスタートコード. */
+    static final byte[] START_CODE = {0x24, 0x35, 0x68, 0x79};
+
+    /** JPEGサイズの最大値のデフォルト. */
+    private static final int DEFAULT_MAX_JPEG_SIZE = 4 * 1024 * 1024;
+    /** ヘッダ読み込み用のウィンドウのサイズ. */
+    private static final int WINDOW_SIZE = 8 * 1024;
+    /** プールするバッファの最大数. */
+    private static final int MAX_POOL_SIZE = 4;
+
+    /** 入力ストリーム. */
+    private final InputStream mInputStream;
+    /** JPEGサイズの最大値. */
+    private final int mMaxJpegSize;
+    /** ヘッダ読み込み用のウィンドウ. */
+    private final byte[] mWindow = new byte[WINDOW_SIZE];
+    /** ウィンドウ内の未処理データの開始位置. */
+    private int mPosition;
+    /** ウィンドウ内の未処理データの終了位置. */
+    private int mLimit;
+    /** ストリームの終端に達したかどうか. */
+    private boolean mEndOfStream;
+    /** 解放されたバッファのプール. */
+    private final ArrayDeque<byte[]> mPool = new ArrayDeque<byte[]>();
+    /** 確保したバッファの数. */
+    private int mAllocationCount;
+    /** 再同期のために読み飛ばしたバイト数. */
+    private long mSkippedBytes;
+
+    /**
+     * Constructor.
+     * @param in stream of liveview packets
+     */
+    public LiveviewFrameReader(final InputStream in) {
+        this(in, DEFAULT_MAX_JPEG_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * @param in stream of liveview packets
+     * @param maxJpegSize maximum size of JPEG data. A larger size is regarded as broken data.
+     */
+    public LiveviewFrameReader(final InputStream in, final int maxJpegSize) {
+        if (in == null) {
+            throw new IllegalArgumentException("in is null.");
+        }
+        mInputStream = in;
+        mMaxJpegSize = maxJpegSize;
+    }
+
+    /**
+     * Reads the next liveview image.
+     * <p>
+     * This method blocks until the next image arrives.
+     * </p>
+     * @return liveview image, or {@code null} if the stream ended at a packet boundary
+     * @throws EOFException if the stream ended in the middle of a packet
+     * @throws IOException if the stream failed to read
+     */
+    public LiveviewFrame next() throws IOException {
+        while (true) {
+            if (!fill(HEADER_SIZE)) {
+                if (mPosition == mLimit) {
+                    return null;
+                }
+                if (!isPacketHead(mPosition)) {
+                    // Trailing bytes which cannot be a packet.
+                    skipToNextCandidate();
+                    continue;
+                }
+                mPosition = mLimit;
+                throw new EOFException("Truncated packet header.");
+            }
+
+            if (!isPacketHead(mPosition)) {
+                skipToNextCandidate();
+                continue;
+            }
+
+            final byte[] w = mWindow;
+            final int p = mPosition;
+            int payloadType = w[p + 1] & 0xFF;
+            int sequenceNumber = readInt(w, p + 2, 2);
+            long timestamp = readInt(w, p + 4, 4) & 0xFFFFFFFFL;
+            int dataSize = readInt(w, p + COMMON_HEADER_SIZE + 4, 3);
+            int paddingSize = w[p + COMMON_HEADER_SIZE + 7] & 0xFF;
+
+            if (payloadType == PAYLOAD_TYPE_LIVEVIEW_IMAGE && (dataSize <= 0 || dataSize > mMaxJpegSize)) {
+                // The header looks valid but the size does not; search for the next packet.
+                skipToNextCandidate();
+                continue;
+            }
+            mPosition += HEADER_SIZE;
+
+            if (payloadType != PAYLOAD_TYPE_LIVEVIEW_IMAGE) {
+                skipFully(dataSize + paddingSize);
+                continue;
+            }
+
+            byte[] buffer = obtain(dataSize);
+            try {
+                readFully(buffer, dataSize);
+                skipFully(paddingSize);
+            } catch (IOException e) {
+                recycle(buffer);
+                throw e;
+            }
+            return new LiveviewFrame(this, buffer, dataSize, sequenceNumber, timestamp);
+        }
+    }
+
+    /**
+     * Closes the stream.
+     * @throws IOException if the stream failed to close
+     */
+    public void close() throws IOException {
+        mInputStream.close();
+    }
+
+    /**
+     * Gets the number of buffers allocated for JPEG data.
+     * @return number of allocations
+     */
+    public synchronized int getAllocationCount() {
+        return mAllocationCount;
+    }
+
+    /**
+     * Gets the number of bytes skipped to find the next packet.
+     * @return number of skipped bytes
+     */
+    public long getSkippedBytes() {
+        return mSkippedBytes;
+    }
+
+    /**
+     * Returns a buffer of a released frame to the pool.
+     * @param buffer buffer
+     */
+    synchronized void recycle(final byte[] buffer) {
+        if (mPool.size() < MAX_POOL_SIZE) {
+            mPool.push(buffer);
+        }
+    }
+
+    /**
+     * Takes a buffer which can store the specified size from the pool.
+     * @param size size of data
+     * @return buffer
+     */
+    private synchronized byte[] obtain(final int size) {
+        while (!mPool.isEmpty()) {
+            byte[] buffer = mPool.pop();
+            if (buffer.length >= size) {
+                return buffer;
+            }
+            // A smaller buffer is dropped, and a larger one replaces it.
+        }
+        mAllocationCount++;
+        return new byte[Math.min(size + size / 4, mMaxJpegSize)];
+    }
+
+    /**
+     * Checks whether a packet starts at the specified position of the window.
+     * <p>
+     * Only the bytes in the window are checked, so a truncated header at the end of
+     * the stream is regarded as a packet as long as its available bytes match.
+     * </p>
+     * @param p position
+     * @return true if the common header and the start code of the payload header match
+     */
+    private boolean isPacketHead(final int p) {
+        final byte[] w = mWindow;
+        final int available = mLimit - p;
+        if ((w[p] & 0xFF) != START_BYTE) {
+            return false;
+        }
+        if (available > 1) {
+            int type = w[p + 1] & 0xFF;
+            if (type != PAYLOAD_TYPE_LIVEVIEW_IMAGE && type != PAYLOAD_TYPE_FRAME_INFO) {
+                return false;
+            }
+        }
+        for (int i = 0; i < START_CODE.length && COMMON_HEADER_SIZE + i < available; i++) {
+            if (w[p + COMMON_HEADER_SIZE + i] != START_CODE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips the current byte and the following bytes until the next start byte in the window.
+     */
+    private void skipToNextCandidate() {
+        int p = mPosition + 1;
+        while (p < mLimit && (mWindow[p] & 0xFF) != START_BYTE) {
+            p++;
+        }
+        mSkippedBytes += p - mPosition;
+        mPosition = p;
+    }
+
+    /**
+     * Reads the stream into the window until the specified size of data is available.
+     * @param size size of data
+     * @return true if the data is available, false if the stream ended
+     * @throws IOException if the stream failed to read
+     */
+    private boolean fill(final int size) throws IOException {
+        if (mLimit - mPosition >= size) {
+            return true;
+        }
+        if (mPosition > 0) {
+            System.arraycopy(mWindow, mPosition, mWindow, 0, mLimit - mPosition);
+            mLimit -= mPosition;
+            mPosition = 0;
+        }
+        while (mLimit < size && !mEndOfStream) {
+            int len = mInputStream.read(mWindow, mLimit, mWindow.length - mLimit);
+            if (len < 0) {
+                mEndOfStream = true;
+            } else {
+                mLimit += len;
+            }
+        }
+        return mLimit >= size;
+    }
+
+    /**
+     * Reads data into the buffer, from the window first and then directly from the stream.
+     * @param buffer buffer
+     * @param size size of data
+     * @throws IOException if the stream ended or failed to read
+     */
+    private void readFully(final byte[] buffer, final int size) throws IOException {
+        int offset = Math.min(size, mLimit - mPosition);
+        System.arraycopy(mWindow, mPosition, buffer, 0, offset);
+        mPosition += offset;
+        while (offset < size) {
+            int len = mEndOfStream ? -1 : mInputStream.read(buffer, offset, size - offset);
+            if (len < 0) {
+                mEndOfStream = true;
+                throw new EOFException("Truncated payload data.");
+            }
+            offset += len;
+        }
+    }
+
+    /**
+     * Skips the specified size of data.
+     * @param size size of data
+     * @throws IOException if the stream ended or failed to read
+     */
+    private void skipFully(final int size) throws IOException {
+        int remaining = size;
+        while (remaining > 0) {
+            if (mPosition == mLimit && !fill(1)) {
+                throw new EOFException("Truncated payload data.");
+            }
+            int len = Math.min(remaining, mLimit - mPosition);
+            mPosition += len;
+            remaining -= len;
+        }
+    }
+
+    /**
+     * Converts big-endian bytes to int.
+     * @param data data
+     * @param offset offset
+     * @param count number of bytes
+     * @return value
+     */
+    private static int readInt(final byte[] data, final int offset, final int count) {
+        int ret = 0;
+        for (int i = offset; i < offset + count; i++) {
+            ret = (ret << 8) | (data[i] & 0xFF);
+        }
+        return ret;
+    }
+}
@@ -4,7 +4,7 @@
 
 package com.example.sony.cameraremote.utils;
 
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -69,49 +69,12 @@ public class SimpleLiveviewSlicer {
     /** タイムアウト設定. */
     private static final int CONNECTION_TIMEOUT = 2000; // [msec]
 
-    /** toInteger用のstartIndexの値定義. */
-    private static final int JPG_TO_INTEGER_STARTINDEX = 4;
-    /** toInteger用のcounterの値定義. */
-    private static final int JPG_TO_INTEGER_COUNTER = 3;
-    /** toInteger用のstartIndexの値定義. */
-    private static final int PAD_TO_INTEGER_STARTINDEX = 7;
-    /** toInteger用のcounterの値定義. */
-    private static final int PAD_TO_INTEGER_COUNTER = 1;
-
-    /** 数値利用のために定義. */
-    private static final int NUMB_THREE = 3;
-    /** 数値利用のために定義. */
-    private static final int NUMB_FOUR = 4;
-    /** 数値利用のために定義. */
-    private static final int NUMB_115 = 115;
-    /** 数値利用のために定義. */
-    private static final int NUMB_FF = 0xFF;
-
-    /** payloadheadder値. */
-    private static final int PAYLOAD_ZERO = 0x24;
-    /** payloadheadder値. */
-    private static final int PAYLOAD_ONE = 0x35;
-    /** payloadheadder値. */
-    private static final int PAYLOAD_TWO = 0x68;
-    /** payloadheadder値. */
-    private static final int PAYLOAD_THREE = 0x79;
-
-
-    /**
-     * バッファの最大幅.
-     */
-    private static final int BUFFER_MAX_VAL = 1024;
-
-    /** 値定義. */
-    private static final int RET_VALUE = 8;
-
-    /** Intへの変換用. */
-    private static final int CONVERT_TO_INT = 0xff;
-
     /** HTTPコネクションインスタンス. */
     private HttpURLConnection mHttpConn;
     /** 入力ストリーム. */
     private InputStream mInputStream;
+    /** パケットの読み込み. */
+    private LiveviewFrameReader mReader;
 
     /**
      * Opens Liveview HTTP GET connection and prepares for reading Packet data.
@@ -137,6 +100,7 @@ public class SimpleLiveviewSlicer {
         if (mInputStream == null) {
             throw new IOException("open error: " + liveviewUrl);
         }
+        mReader = new LiveviewFrameReader(mInputStream);
     }
 
     /**
@@ -145,6 +109,7 @@ public class SimpleLiveviewSlicer {
      * @throws IOException generic errors or exception.
      */
     public void close() throws IOException {
+        mReader = null;
         if (mInputStream != null) {
             mInputStream.close();
             mInputStream = null;
@@ -156,93 +121,48 @@ public class SimpleLiveviewSlicer {
     }
 
     /**
-     * Reads liveview stream and slice one Packet. If server is not ready for
+     * Reads liveview stream and slice one liveview image. If server is not ready for
      * liveview data, this API calling will be blocked until server returns next
      * data.
-     * 
-     * @return Payload data of sliced Packet
-     * @throws IOException generic errors or exception.
+     * <p>
+     * JPEG data of the returned frame is stored in a reused buffer.
+     * Call {@link LiveviewFrame#release()} after the frame is processed.
+     * </p>
+     *
+     * @return liveview image, or null if the slicer is not open
+     * @throws IOException generic errors or exception, including the end of the stream.
      */
-    public Payload nextPayload() throws IOException {
-        if (mInputStream != null) {
-            // Common Header
-            int readLength = 1 + 1 + 2 + NUMB_FOUR;
-            byte[] commonHeader = readBytes(mInputStream, readLength);
-            if (commonHeader == null || commonHeader.length != readLength) {
-                throw new IOException("Cannot read stream for common header.");
-            }
-            if (commonHeader[0] != (byte) NUMB_FF) {
-                throw new IOException("Unexpected data format. (Start byte)");
-            }
-            if (commonHeader[1] != (byte) 0x01) {
-                throw new IOException("Unexpected data format. (Payload byte)");
-            }
-
-            // Payload Header
-            readLength = NUMB_FOUR + NUMB_THREE + 1 + NUMB_FOUR + 1 + NUMB_115;
-            byte[] payloadHeader = readBytes(mInputStream, readLength);
-            if (payloadHeader == null || payloadHeader.length != readLength) {
-                throw new IOException("Cannot read stream for payload header.");
-            }
-            if (payloadHeader[0] != (byte) PAYLOAD_ZERO
-                    || payloadHeader[1] != (byte) PAYLOAD_ONE
-                    || payloadHeader[2] != (byte) PAYLOAD_TWO
-                    || payloadHeader[NUMB_THREE] != (byte) PAYLOAD_THREE) {
-                throw new IOException("Unexpected data format. (Start code)");
-            }
-            int jpegSize = bytesToInt(payloadHeader, JPG_TO_INTEGER_STARTINDEX, JPG_TO_INTEGER_COUNTER);
-            int paddingSize = bytesToInt(payloadHeader, PAD_TO_INTEGER_STARTINDEX, PAD_TO_INTEGER_COUNTER);
-
-            // Payload Data
-            byte[] jpegData = readBytes(mInputStream, jpegSize);
-            byte[] paddingData = readBytes(mInputStream, paddingSize);
-
-            return new Payload(jpegData, paddingData);
+    public LiveviewFrame nextFrame() throws IOException {
+        LiveviewFrameReader reader = mReader;
+        if (reader == null) {
+            return null;
         }
-        return null;
-    }
-
-    /**
-     *  Converts byte array to int.
-     * @param byteData byteData
-     * @param startIndex Index
-     * @param count count
-     * @return ret
-     */
-    private static int bytesToInt(final byte[] byteData, final int startIndex,
-            final int count) {
-        int ret = 0;
-        for (int i = startIndex; i < startIndex + count; i++) {
-            ret = (ret << RET_VALUE) | (byteData[i] & CONVERT_TO_INT);
+        LiveviewFrame frame = reader.next();
+        if (frame == null) {
+            throw new EOFException("Liveview stream has ended.");
         }
-        return ret;
+        return frame;
     }
 
     /**
-     *  Reads byte array from the indicated input stream.
-     * @param in inputstream
-     * @param length length
-     * @return ret
-     * @throws IOException IO
+     * Reads liveview stream and slice one Packet. If server is not ready for
+     * liveview data, this API calling will be blocked until server returns next
+     * data.
+     * 
+     * @return Payload data of sliced Packet
+     * @throws IOException generic errors or exception.
+     * @deprecated JPEG data is copied into a new array for each packet. Use {@link #nextFrame()}.
      */
-    private static byte[] readBytes(final InputStream in, final int length)
-            throws IOException {
-        ByteArrayOutputStream tmpByteArray = new ByteArrayOutputStream();
-        byte[] buffer = new byte[BUFFER_MAX_VAL];
-        while (true) {
-            int trialReadlen = Math.min(buffer.length,
-                    length - tmpByteArray.size());
-            int readlen = in.read(buffer, 0, trialReadlen);
-            if (readlen < 0) {
-                break;
-            }
-            tmpByteArray.write(buffer, 0, readlen);
-            if (length <= tmpByteArray.size()) {
-                break;
-            }
+    @Deprecated
+    public Payload nextPayload() throws IOException {
+        LiveviewFrame frame = nextFrame();
+        if (frame == null) {
+            return null;
+        }
+        try {
+            return new Payload(frame.copyJpegData(), new byte[0]);
+        } finally {
+            frame.release();
         }
-        byte[] ret = tmpByteArray.toByteArray();
-        tmpByteArray.close();
-        return ret;
     }
 }
@@ -20,8 +20,8 @@ import com.example.sony.cameraremote.ServerDevice;
 import com.example.sony.cameraremote.SimpleCameraEventObserver;
 import com.example.sony.cameraremote.SimpleRemoteApi;
 import com.example.sony.cameraremote.SimpleSsdpClient;
+import com.example.sony.cameraremote.utils.LiveviewFrame;
 import com.example.sony.cameraremote.utils.SimpleLiveviewSlicer;
-import com.example.sony.cameraremote.utils.SimpleLiveviewSlicer.Payload;
 
 import org.deviceconnect.android.deviceplugin.sonycamera.profile.SonyCameraSystemProfile;
 import org.deviceconnect.android.deviceplugin.sonycamera.profile.SonyCameraZoomProfile;
@@ -1176,11 +1176,16 @@ public class SonyCameraDeviceService extends DConnectMessageService {
                     sendResponse(request, response);
 
                     while (mWhileFetching) {
-                        final Payload payload = slicer.nextPayload();
-                        if (payload == null) { // never occurs
+                        final LiveviewFrame frame = slicer.nextFrame();
+                        if (frame == null) { // never occurs
                             continue;
                         }
-                        mServer.offerMedia(payload.getJpegData());
+                        try {
+                            // The server keeps the data until it is sent, so it needs its own copy.
+                            mServer.offerMedia(frame.copyJpegData());
+                        } finally {
+                            frame.release();
+                        }
                     }
                 } catch (IOException e) {
                     mLogger.warning("IOException while fetching: " + e.getMessage());
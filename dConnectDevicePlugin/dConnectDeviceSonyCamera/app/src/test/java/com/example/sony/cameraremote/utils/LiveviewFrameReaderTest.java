@@ -0,0 +1,340 @@
+/*
+LiveviewFrameReaderTest
+Copyright (c) 2016 NTT DOCOMO,INC.
+Released under the MIT license
+http://opensource.org/licenses/mit-license.php
+*/
+
+package com.example.sony.cameraremote.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link LiveviewFrameReader}.
+ * <p>
+ * The streams are built in the packet format of the Camera Remote API,
+ * in the same layout as liveview data captured from a camera.
+ * </p>
+ */
+public class LiveviewFrameReaderTest {
+
+    @Test
+    public void testReadFrames() throws IOException {
+        Capture capture = new Capture();
+        byte[] jpeg1 = capture.addImage(1, 1000, 300, 0);
+        byte[] jpeg2 = capture.addImage(2, 1033, 500, 12);
+
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open());
+        LiveviewFrame frame = reader.next();
+        assertFrame(frame, jpeg1, 1, 1000);
+        frame.release();
+        frame = reader.next();
+        assertFrame(frame, jpeg2, 2, 1033);
+        frame.release();
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testShortReads() throws IOException {
+        Capture capture = new Capture();
+        byte[][] jpegs = new byte[20][];
+        for (int i = 0; i < jpegs.length; i++) {
+            jpegs[i] = capture.addImage(i, i * 33, 2000 + i * 97, i % 5);
+        }
+        LiveviewFrameReader reader = new LiveviewFrameReader(new ChunkedInputStream(capture.toByteArray(), 7));
+        for (int i = 0; i < jpegs.length; i++) {
+            LiveviewFrame frame = reader.next();
+            assertFrame(frame, jpegs[i], i, i * 33);
+            frame.release();
+        }
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testSkipFrameInformation() throws IOException {
+        Capture capture = new Capture();
+        capture.addPacket(LiveviewFrameReader.PAYLOAD_TYPE_FRAME_INFO, 1, 0, new byte[64], 4);
+        byte[] jpeg = capture.addImage(2, 10, 400, 0);
+        capture.addPacket(LiveviewFrameReader.PAYLOAD_TYPE_FRAME_INFO, 3, 0, new byte[32], 0);
+
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open());
+        assertFrame(reader.next(), jpeg, 2, 10);
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testResynchronize() throws IOException {
+        Capture capture = new Capture();
+        byte[] jpeg1 = capture.addImage(1, 0, 300, 0);
+        // Garbage which contains a start byte but no start code.
+        capture.addRaw(new byte[] {0x12, (byte) 0xFF, 0x01, 0x00, 0x00, 0x00, (byte) 0xFF, 0x34});
+        byte[] jpeg2 = capture.addImage(2, 0, 300, 0);
+        // A header whose data size is too large.
+        capture.addRaw(createHeader(LiveviewFrameReader.PAYLOAD_TYPE_LIVEVIEW_IMAGE, 3, 0, 0xFFFFFF, 0));
+        byte[] jpeg3 = capture.addImage(4, 0, 300, 0);
+
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open(), 1024 * 1024);
+        assertFrame(reader.next(), jpeg1, 1, 0);
+        assertFrame(reader.next(), jpeg2, 2, 0);
+        assertFrame(reader.next(), jpeg3, 4, 0);
+        assertNull(reader.next());
+        assertEquals(8 + LiveviewFrameReader.HEADER_SIZE, reader.getSkippedBytes());
+    }
+
+    @Test
+    public void testStartInTheMiddleOfPacket() throws IOException {
+        Capture capture = new Capture();
+        capture.addImage(1, 0, 300, 0);
+        byte[] jpeg = capture.addImage(2, 0, 300, 0);
+        byte[] data = capture.toByteArray();
+        int offset = 50;
+
+        LiveviewFrameReader reader = new LiveviewFrameReader(
+            new ByteArrayInputStream(data, offset, data.length - offset));
+        assertFrame(reader.next(), jpeg, 2, 0);
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testTruncatedPayload() throws IOException {
+        Capture capture = new Capture();
+        byte[] jpeg = capture.addImage(1, 0, 300, 0);
+        capture.addImage(2, 0, 300, 0);
+        byte[] data = capture.toByteArray();
+
+        LiveviewFrameReader reader = new LiveviewFrameReader(
+            new ByteArrayInputStream(data, 0, data.length - 100));
+        assertFrame(reader.next(), jpeg, 1, 0);
+        try {
+            reader.next();
+            fail("EOFException must be thrown.");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTruncatedHeader() throws IOException {
+        Capture capture = new Capture();
+        byte[] jpeg = capture.addImage(1, 0, 300, 0);
+        capture.addRaw(createHeader(LiveviewFrameReader.PAYLOAD_TYPE_LIVEVIEW_IMAGE, 2, 0, 300, 0));
+        byte[] data = capture.toByteArray();
+
+        LiveviewFrameReader reader = new LiveviewFrameReader(
+            new ByteArrayInputStream(data, 0, data.length - 20));
+        assertFrame(reader.next(), jpeg, 1, 0);
+        try {
+            reader.next();
+            fail("EOFException must be thrown.");
+        } catch (EOFException e) {
+            // expected
+        }
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testTrailingGarbage() throws IOException {
+        Capture capture = new Capture();
+        byte[] jpeg = capture.addImage(1, 0, 300, 0);
+        capture.addRaw(new byte[] {0x00, 0x01, 0x02});
+
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open());
+        assertFrame(reader.next(), jpeg, 1, 0);
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testReuseBuffers() throws IOException {
+        Capture capture = new Capture();
+        for (int i = 0; i < 100; i++) {
+            capture.addImage(i, 0, 10000 + (i % 10) * 100, 0);
+        }
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open());
+        LiveviewFrame frame;
+        int count = 0;
+        while ((frame = reader.next()) != null) {
+            frame.release();
+            count++;
+        }
+        assertEquals(100, count);
+        assertTrue(reader.getAllocationCount() <= 2);
+    }
+
+    @Test
+    public void testGrowBuffer() throws IOException {
+        Capture capture = new Capture();
+        byte[] small = capture.addImage(1, 0, 100, 0);
+        byte[] large = capture.addImage(2, 0, 50000, 0);
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open());
+
+        LiveviewFrame frame = reader.next();
+        assertFrame(frame, small, 1, 0);
+        frame.release();
+        frame = reader.next();
+        assertFrame(frame, large, 2, 0);
+        frame.release();
+        assertEquals(2, reader.getAllocationCount());
+    }
+
+    @Test
+    public void testHeldFrameIsNotOverwritten() throws IOException {
+        Capture capture = new Capture();
+        byte[] jpeg1 = capture.addImage(1, 0, 300, 0);
+        byte[] jpeg2 = capture.addImage(2, 0, 300, 0);
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open());
+
+        LiveviewFrame frame1 = reader.next();
+        LiveviewFrame frame2 = reader.next();
+        assertFrame(frame1, jpeg1, 1, 0);
+        assertFrame(frame2, jpeg2, 2, 0);
+        frame1.release();
+        frame2.release();
+    }
+
+    @Test
+    public void testReleasedFrame() throws IOException {
+        Capture capture = new Capture();
+        capture.addImage(1, 0, 300, 0);
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open());
+        LiveviewFrame frame = reader.next();
+        frame.release();
+        frame.release();
+        try {
+            frame.getJpegData();
+            fail("IllegalStateException must be thrown.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReadOnlyView() throws IOException {
+        Capture capture = new Capture();
+        byte[] jpeg = capture.addImage(1, 0, 300, 0);
+        LiveviewFrameReader reader = new LiveviewFrameReader(capture.open());
+        LiveviewFrame frame = reader.next();
+        ByteBuffer data = frame.getJpegData();
+        assertTrue(data.isReadOnly());
+        assertEquals(jpeg.length, data.remaining());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        frame.writeJpegTo(out);
+        assertArrayEquals(jpeg, out.toByteArray());
+        frame.release();
+    }
+
+    private static void assertFrame(final LiveviewFrame frame, final byte[] jpeg,
+                                    final int sequenceNumber, final long timestamp) {
+        assertNotNull(frame);
+        assertEquals(sequenceNumber, frame.getSequenceNumber());
+        assertEquals(timestamp, frame.getTimestamp());
+        assertEquals(jpeg.length, frame.getJpegSize());
+        assertArrayEquals(jpeg, frame.copyJpegData());
+    }
+
+    private static byte[] createHeader(final int type, final int sequenceNumber, final long timestamp,
+                                       final int dataSize, final int paddingSize) {
+        byte[] header = new byte[LiveviewFrameReader.HEADER_SIZE];
+        header[0] = (byte) LiveviewFrameReader.START_BYTE;
+        header[1] = (byte) type;
+        header[2] = (byte) (sequenceNumber >> 8);
+        header[3] = (byte) sequenceNumber;
+        header[4] = (byte) (timestamp >> 24);
+        header[5] = (byte) (timestamp >> 16);
+        header[6] = (byte) (timestamp >> 8);
+        header[7] = (byte) timestamp;
+        System.arraycopy(LiveviewFrameReader.START_CODE, 0, header, 8, 4);
+        header[12] = (byte) (dataSize >> 16);
+        header[13] = (byte) (dataSize >> 8);
+        header[14] = (byte) dataSize;
+        header[15] = (byte) paddingSize;
+        return header;
+    }
+
+    /**
+     * Builder of a liveview stream.
+     */
+    private static class Capture {
+
+        private final ByteArrayOutputStream mData = new ByteArrayOutputStream();
+
+        byte[] addImage(final int sequenceNumber, final long timestamp, final int jpegSize,
+                        final int paddingSize) {
+            byte[] jpeg = new byte[jpegSize];
+            for (int i = 0; i < jpegSize; i++) {
+                // Contains 0xFF bytes as real JPEG data does.
+                jpeg[i] = (byte) (i * 7 + sequenceNumber);
+            }
+            jpeg[0] = (byte) 0xFF;
+            jpeg[1] = (byte) 0xD8;
+            addPacket(LiveviewFrameReader.PAYLOAD_TYPE_LIVEVIEW_IMAGE, sequenceNumber, timestamp, jpeg, paddingSize);
+            return jpeg;
+        }
+
+        void addPacket(final int type, final int sequenceNumber, final long timestamp,
+                       final byte[] data, final int paddingSize) {
+            addRaw(createHeader(type, sequenceNumber, timestamp, data.length, paddingSize));
+            addRaw(data);
+            addRaw(new byte[paddingSize]);
+        }
+
+        void addRaw(final byte[] data) {
+            mData.write(data, 0, data.length);
+        }
+
+        byte[] toByteArray() {
+            return mData.toByteArray();
+        }
+
+        InputStream open() {
+            return new ByteArrayInputStream(toByteArray());
+        }
+    }
+
+    /**
+     * Stream which returns at most the specified size for each read like a network stream.
+     */
+    private static class ChunkedInputStream extends InputStream {
+
+        private final byte[] mData;
+
+        private final int mChunkSize;
+
+        private int mPosition;
+
+        ChunkedInputStream(final byte[] data, final int chunkSize) {
+            mData = data;
+            mChunkSize = chunkSize;
+        }
+
+        @Override
+        public int read() {
+            return mPosition < mData.length ? mData[mPosition++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (mPosition >= mData.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, mChunkSize), mData.length - mPosition);
+            System.arraycopy(mData, mPosition, b, off, n);
+            mPosition += n;
+            return n;
+        }
+    }
+}
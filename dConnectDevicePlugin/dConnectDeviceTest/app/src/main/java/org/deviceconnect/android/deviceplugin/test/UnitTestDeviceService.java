@@ -15,6 +15,7 @@ import org.deviceconnect.android.event.EventManager;
 import org.deviceconnect.android.event.cache.db.DBCacheController;
 import org.deviceconnect.android.localoauth.LocalOAuth2Main;
 import org.deviceconnect.android.message.DConnectMessageService;
+import org.deviceconnect.android.message.DConnectRequestExecutor;
 import org.deviceconnect.android.profile.SystemProfile;
 
 import java.util.Iterator;
@@ -32,6 +33,9 @@ public class UnitTestDeviceService extends DConnectMessageService {
     private static final String SERVICE_ID_SPECIAL_CHARACTERS = "!#$'()-~¥@[;+:*],._/=?&%^|`\"{}<>";
     private static final String DEVICE_NAME_SPECIAL_CHARACTERS = "Test Service ID Special Characters";
 
+    /** リクエストを同時に実行するスレッド数. */
+    private static final int REQUEST_THREAD_SIZE = 4;
+
     /** ロガー. */
     private Logger mLogger = Logger.getLogger("dconnect.dplugin.test");
 
@@ -75,6 +79,12 @@ public class UnitTestDeviceService extends DConnectMessageService {
         return sb.toString();
     }
 
+    @Override
+    protected DConnectRequestExecutor createRequestExecutor() {
+        // テスト用のプロファイルはメインスレッドを必要としないので、ワーカースレッドで実行する
+        return new DConnectRequestExecutor(REQUEST_THREAD_SIZE, true);
+    }
+
     @Override
     protected SystemProfile getSystemProfile() {
         return new TestSystemProfile();
@@ -28,6 +28,8 @@ public class SphericalViewParam {
 
     private double mFrameRate;
 
+    private int mImageQuality = 100;
+
     public double getCameraX() {
         return mCameraX;
     }
@@ -131,4 +133,12 @@ public class SphericalViewParam {
     public void setFrameRate(double frameRate) {
         this.mFrameRate = frameRate;
     }
+
+    public int getImageQuality() {
+        return mImageQuality;
+    }
+
+    public void setImageQuality(int quality) {
+        this.mImageQuality = quality;
+    }
 }
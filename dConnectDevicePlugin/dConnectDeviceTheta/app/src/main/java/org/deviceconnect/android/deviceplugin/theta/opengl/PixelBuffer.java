@@ -6,7 +6,6 @@
  */
 package org.deviceconnect.android.deviceplugin.theta.opengl;
 
-import android.graphics.Bitmap;
 import android.opengl.GLSurfaceView;
 
 import org.deviceconnect.android.deviceplugin.theta.BuildConfig;
@@ -57,14 +56,10 @@ public class PixelBuffer {
     private final String mThreadOwner;
 
     private GLSurfaceView.Renderer mRenderer;
-    private IntBuffer mIb;
-    private final Bitmap mBitmap;
 
     public PixelBuffer(final int width, final int height, final boolean isStereo) {
         mWidth = isStereo ? width * 2 : width;
         mHeight = height;
-        mIb = IntBuffer.allocate(mWidth * mHeight);
-        mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
 
         mEGL = (EGL10) EGLContext.getEGL();
         mEGLDisplay = mEGL.eglGetDisplay(EGL_DEFAULT_DISPLAY);
@@ -152,10 +147,24 @@ public class PixelBuffer {
         return eGLConfigs;
     }
 
-    public Bitmap convertToBitmap() {
-        mGL.glReadPixels(0, 0, mWidth, mHeight, GL_RGBA, GL_UNSIGNED_BYTE, mIb);
-        mBitmap.copyPixelsFromBuffer(mIb);
-        mIb.clear();
-        return mBitmap;
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * Reads all pixels of this buffer.
+     * <p>
+     * The rows are stored from bottom to top as glReadPixels returns them.
+     * </p>
+     *
+     * @param buffer destination that has at least {@code getWidth() * getHeight()} elements
+     */
+    public void readPixels(final IntBuffer buffer) {
+        buffer.clear();
+        mGL.glReadPixels(0, 0, mWidth, mHeight, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
     }
 }
\ No newline at end of file
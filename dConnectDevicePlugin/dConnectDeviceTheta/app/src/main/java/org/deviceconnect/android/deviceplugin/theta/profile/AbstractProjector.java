@@ -13,6 +13,8 @@ abstract class AbstractProjector implements Projector, SphericalViewRenderer.Sur
 
     protected boolean mIsChangedImageSize = true;
 
+    protected volatile int mImageQuality = 100;
+
     @Override
     public SphericalViewRenderer getRenderer() {
         return mRenderer;
@@ -45,6 +47,7 @@ abstract class AbstractProjector implements Projector, SphericalViewRenderer.Sur
         renderer.setCamera(camera.create());
         renderer.setSphereRadius((float) param.getSphereSize());
         renderer.setScreenSettings(param.getWidth(), param.getHeight(), param.isStereo());
+        mImageQuality = param.getImageQuality();
     }
 
     @Override
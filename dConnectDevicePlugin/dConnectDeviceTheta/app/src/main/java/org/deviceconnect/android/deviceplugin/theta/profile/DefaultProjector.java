@@ -3,8 +3,10 @@ package org.deviceconnect.android.deviceplugin.theta.profile;
 
 import android.graphics.Bitmap;
 
+import org.deviceconnect.android.deviceplugin.theta.core.SphericalViewParam;
 import org.deviceconnect.android.deviceplugin.theta.core.SphericalViewRenderer;
 import org.deviceconnect.android.deviceplugin.theta.opengl.PixelBuffer;
+import org.deviceconnect.android.deviceplugin.theta.utils.PixelFrameUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.nio.IntBuffer;
@@ -12,13 +14,39 @@ import java.nio.IntBuffer;
 
 class DefaultProjector extends AbstractProjector {
 
+    private static final long FRAME_INTERVAL = 100;
+
     private PixelBuffer mPixelBuffer;
 
     private Thread mThread;
 
     private boolean mIsRequestedToStop;
 
-    private byte[] mImageCache;
+    /**
+     * The latest JPEG rendered with the current parameters.
+     * <p>
+     * Cleared while no client is connected and whenever the parameters change,
+     * so that a new client never receives an outdated frame.
+     * </p>
+     */
+    private volatile byte[] mImageCache;
+
+    /** Incremented whenever the parameters are changed. */
+    private volatile int mParamVersion;
+
+    /** Pixels read back from the pixel buffer (bottom-to-top rows). */
+    private int[] mReadPixels;
+
+    private IntBuffer mReadBuffer;
+
+    /** Pixels of the output image (top-to-bottom rows). */
+    private int[] mOutputPixels;
+
+    private IntBuffer mOutputBuffer;
+
+    private Bitmap mBitmap;
+
+    private final ByteArrayOutputStream mJpegStream = new ByteArrayOutputStream();
 
     @Override
     public void setRenderer(final SphericalViewRenderer renderer) {
@@ -44,17 +72,25 @@ class DefaultProjector extends AbstractProjector {
                     while(!mIsRequestedToStop) {
                         long start = System.currentTimeMillis();
 
-                        if (mIsChangedImageSize) {
-                            disposeBuffer();
-                            prepareBuffer();
-                            mRenderer.requestToUpdateTexture();
-                            mIsChangedImageSize = false;
+                        if (mScreen.hasViewer(DefaultProjector.this)) {
+                            if (mIsChangedImageSize) {
+                                mIsChangedImageSize = false;
+                                if (!isBufferLargeEnough()) {
+                                    disposeBuffer();
+                                    prepareBuffer();
+                                    mRenderer.requestToUpdateTexture();
+                                }
+                            }
+                            int paramVersion = mParamVersion;
+                            draw();
+                            readBuffer(paramVersion);
+                        } else {
+                            // The cached frame would get stale while rendering is skipped.
+                            mImageCache = null;
                         }
-                        draw();
-                        readBuffer();
 
                         long end = System.currentTimeMillis();
-                        long interval = 100 - (end - start);
+                        long interval = FRAME_INTERVAL - (end - start);
                         if (interval > 0) {
                             Thread.sleep(interval);
                         }
@@ -68,6 +104,7 @@ class DefaultProjector extends AbstractProjector {
                     mThread = null;
 
                     disposeBuffer();
+                    releaseBitmap();
 
                     mScreen.onStop(DefaultProjector.this);
                 }
@@ -86,18 +123,43 @@ class DefaultProjector extends AbstractProjector {
         return true;
     }
 
+    @Override
+    public void setParameter(final SphericalViewParam param) {
+        super.setParameter(param);
+        mParamVersion++;
+        mImageCache = null;
+    }
+
     @Override
     public byte[] getImageCache() {
         return mImageCache;
     }
 
+    /**
+     * Checks whether the current pixel buffer can hold the output image.
+     * <p>
+     * A smaller image is rendered into the bottom-left corner of the existing buffer,
+     * so the EGL surface and the texture are not recreated.
+     * </p>
+     */
+    private boolean isBufferLargeEnough() {
+        return mPixelBuffer != null
+            && mRenderer.getOutputWidth() <= mPixelBuffer.getWidth()
+            && mRenderer.getOutputHeight() <= mPixelBuffer.getHeight();
+    }
+
     private void prepareBuffer() {
         if (mPixelBuffer == null) {
-            int width = mRenderer.getScreenWidth();
-            int height = mRenderer.getScreenHeight();
-            boolean isStereo = mRenderer.isStereo();
-            mPixelBuffer = new PixelBuffer(width, height, isStereo);
+            int width = mRenderer.getOutputWidth();
+            int height = mRenderer.getOutputHeight();
+            mPixelBuffer = new PixelBuffer(width, height, false);
             mPixelBuffer.setRenderer(mRenderer);
+
+            int size = width * height;
+            if (mReadPixels == null || mReadPixels.length < size) {
+                mReadPixels = new int[size];
+                mReadBuffer = IntBuffer.wrap(mReadPixels);
+            }
         }
     }
 
@@ -108,30 +170,57 @@ class DefaultProjector extends AbstractProjector {
         }
     }
 
-    private void readBuffer() {
-        Bitmap b = mPixelBuffer.convertToBitmap();
-        reverse(b);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        b.compress(Bitmap.CompressFormat.JPEG, 100, baos);
-        byte[] jpeg = baos.toByteArray();
-        mImageCache = jpeg;
+    private void prepareBitmap(final int width, final int height) {
+        if (mBitmap != null && mBitmap.getWidth() == width && mBitmap.getHeight() == height) {
+            return;
+        }
+        releaseBitmap();
+        mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mOutputPixels = new int[width * height];
+        mOutputBuffer = IntBuffer.wrap(mOutputPixels);
+    }
 
-        mScreen.onProjected(this, jpeg);
+    private void releaseBitmap() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        mOutputPixels = null;
+        mOutputBuffer = null;
     }
 
-    private void reverse(final Bitmap b) {
-        int width = b.getWidth();
-        int height = b.getHeight();
-        IntBuffer buf = IntBuffer.allocate(width * height);
-        IntBuffer tmp = IntBuffer.allocate(width * height);
-        b.copyPixelsToBuffer(buf);
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                tmp.put((height - i - 1) * width + j, buf.get(i * width + j));
-            }
+    /**
+     * Reads back the rendered frame, encodes it to JPEG and projects it.
+     *
+     * @param paramVersion the value of {@link #mParamVersion} when the frame was drawn
+     */
+    private void readBuffer(final int paramVersion) {
+        int bufferWidth = mPixelBuffer.getWidth();
+        int bufferHeight = mPixelBuffer.getHeight();
+        int width = mRenderer.getOutputWidth();
+        int height = mRenderer.getOutputHeight();
+        if (width > bufferWidth || height > bufferHeight) {
+            // The size was changed while drawing; the buffer is recreated on the next frame.
+            mIsChangedImageSize = true;
+            return;
+        }
+
+        mPixelBuffer.readPixels(mReadBuffer);
+        prepareBitmap(width, height);
+        PixelFrameUtils.flipVerticalAndCrop(mReadPixels, bufferWidth, bufferHeight,
+            0, 0, width, height, mOutputPixels);
+        mOutputBuffer.clear();
+        mBitmap.copyPixelsFromBuffer(mOutputBuffer);
+
+        mJpegStream.reset();
+        mBitmap.compress(Bitmap.CompressFormat.JPEG, mImageQuality, mJpegStream);
+        byte[] jpeg = mJpegStream.toByteArray();
+        if (paramVersion == mParamVersion) {
+            // Not cached if the parameters were changed while drawing.
+            mImageCache = jpeg;
         }
-        b.copyPixelsFromBuffer(tmp);
-        buf.clear();
+
+        mScreen.onProjected(this, jpeg);
     }
 
     protected void draw() {
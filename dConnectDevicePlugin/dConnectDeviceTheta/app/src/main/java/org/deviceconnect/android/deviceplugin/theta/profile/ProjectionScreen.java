@@ -9,4 +9,15 @@ interface ProjectionScreen {
 
     void onProjected(Projector projector, byte[] frame);
 
+    /**
+     * Checks whether any client is waiting for the projected frames.
+     * <p>
+     * The projector skips rendering and encoding while this returns false.
+     * </p>
+     *
+     * @param projector the projector
+     * @return true if a client is connected
+     */
+    boolean hasViewer(Projector projector);
+
 }
@@ -49,6 +49,14 @@ import java.util.concurrent.TimeUnit;
 public class ThetaOmnidirectionalImageProfile extends OmnidirectionalImageProfile
     implements MixedReplaceMediaServer.ServerEventListener {
 
+    /**
+     * Parameter: {@value}.
+     * <p>
+     * JPEG quality of the projected images (1 to 100).
+     * </p>
+     */
+    private static final String PARAM_QUALITY = "quality";
+
     private final Object mLockObj = new Object();
 
     private MixedReplaceMediaServer mServer;
@@ -123,6 +131,11 @@ public class ThetaOmnidirectionalImageProfile extends OmnidirectionalImageProfil
                 MessageUtils.setInvalidRequestParameterError(response, "The specified media is not found.");
                 return true;
             }
+            Integer quality = parseInteger(request, PARAM_QUALITY);
+            if (quality != null && (quality < 1 || quality > 100)) {
+                MessageUtils.setInvalidRequestParameterError(response, "quality must be between 1 and 100.");
+                return true;
+            }
             viewer.setParameter(parseParam(request));
             setResult(response, DConnectMessage.RESULT_OK);
             return true;
@@ -199,6 +212,11 @@ public class ThetaOmnidirectionalImageProfile extends OmnidirectionalImageProfil
                             @Override
                             public void onStop(final Projector projector) {
                             }
+
+                            @Override
+                            public boolean hasViewer(final Projector projector) {
+                                return mServer.hasClient(id);
+                            }
                         });
                     }
 
@@ -341,6 +359,7 @@ public class ThetaOmnidirectionalImageProfile extends OmnidirectionalImageProfil
         Integer height = getHeight(request);
         Boolean stereo = getStereo(request);
         Boolean vr = getVR(request);
+        Integer quality = parseInteger(request, PARAM_QUALITY);
 
         SphericalViewParam param = new SphericalViewParam();
         if (x != null) {
@@ -379,6 +398,9 @@ public class ThetaOmnidirectionalImageProfile extends OmnidirectionalImageProfil
         if (vr != null) {
             param.setVRMode(vr);
         }
+        if (quality != null) {
+            param.setImageQuality(quality);
+        }
         return param;
     }
 
@@ -6,101 +6,97 @@
  */
 package org.deviceconnect.android.deviceplugin.theta.utils;
 
-import android.net.Uri;
-
-import org.deviceconnect.android.deviceplugin.theta.BuildConfig;
-
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.URLDecoder;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Locale;
+import org.deviceconnect.android.streaming.MixedReplaceStreamingServer;
+
 import java.util.Map;
-import java.util.StringTokenizer;
-import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Mixed Replace Media Server.
+ * <p>
+ * The streaming itself is delegated to {@link MixedReplaceStreamingServer}.
+ * Each segment of the url is delivered as a separate stream.
+ * A stream is created when a client requests its segment, and removed
+ * when the last client of the segment disconnects.
+ * </p>
  *
  * @author NTT DOCOMO, INC.
  */
 public class MixedReplaceMediaServer {
 
     /**
-     * Logger.
-     */
-    private Logger mLogger = Logger.getLogger("theta.dplugin");
-
-    /**
-     * Max value of cache of media.
-     */
-    private static final int MAX_MEDIA_CACHE = 2;
-
-    /**
-     * Max value of client.
-     */
-    private static final int MAX_CLIENT_SIZE = 8;
-
-    /**
-     * Port of the Socket.
-     */
-    private int mPort = -1;
-
-    /**
-     * The boundary of a multipart.
+     * Streaming server.
      */
-    private String mBoundary = UUID.randomUUID().toString();
+    private final MixedReplaceStreamingServer mServer = new MixedReplaceStreamingServer();
 
     /**
-     * Content type.
-     * Default is "image/jpg".
+     * Requests of connecting clients.
      */
-    private String mContentType = "image/jpeg";
+    private final Map<MixedReplaceStreamingServer.Request, Request> mRequests =
+        new ConcurrentHashMap<MixedReplaceStreamingServer.Request, Request>();
 
     /**
-     * Stop flag.
-     */
-    private boolean mIsServerStopped;
-
-    /**
-     * Name of web server.
+     * Server Event Listener.
      */
-    private String mServerName = "DevicePlugin Server";
+    private ServerEventListener mServerEventListener;
 
     /**
-     * Server Socket.
+     * Constructor.
      */
-    private ServerSocket mServerSocket;
+    public MixedReplaceMediaServer() {
+        mServer.setServerEventListener(new MixedReplaceStreamingServer.ServerEventListener() {
+            @Override
+            public void onStart() {
+            }
 
-    /**
-     * Manage a thread.
-     */
-    private final ExecutorService mExecutor = Executors.newFixedThreadPool(MAX_CLIENT_SIZE);
+            @Override
+            public void onStop() {
+                ServerEventListener listener = mServerEventListener;
+                if (listener != null) {
+                    listener.onCloseServer();
+                }
+            }
 
-    /**
-     * List a Server Runnable.
-     */
-    private final List<ServerRunnable> mRunnables = Collections.synchronizedList(new ArrayList<ServerRunnable>());
+            @Override
+            public void onError() {
+            }
+        });
+        mServer.setConnectionListener(new MixedReplaceStreamingServer.ConnectionListener() {
+            @Override
+            public void onConnect(final MixedReplaceStreamingServer.Request request) {
+                String segment = getLastPathSegment(request.getUri());
+                if (segment == null) {
+                    return;
+                }
+                mServer.createStream(segment);
+
+                Request req = new Request(request, segment);
+                mRequests.put(request, req);
+                ServerEventListener listener = mServerEventListener;
+                if (listener != null) {
+                    byte[] jpeg = listener.onConnect(req);
+                    if (jpeg != null) {
+                        mServer.offerMedia(segment, jpeg);
+                    }
+                }
+            }
 
-    /**
-     * Server Event Listener.
-     */
-    private ServerEventListener mServerEventListener;
+            @Override
+            public void onDisconnect(final MixedReplaceStreamingServer.Request request) {
+                Request req = mRequests.remove(request);
+                if (req == null) {
+                    return;
+                }
+                if (!hasClient(req.mSegment)) {
+                    mServer.removeStream(req.mSegment);
+                }
+                ServerEventListener listener = mServerEventListener;
+                if (listener != null) {
+                    listener.onDisconnect(req);
+                }
+            }
+        });
+    }
 
     /**
      * Set a boundary.
@@ -108,13 +104,7 @@ public class MixedReplaceMediaServer {
      * @param boundary boundary of a multipart
      */
     public void setBoundary(final String boundary) {
-        if (boundary == null) {
-            throw new IllegalArgumentException("boundary is null.");
-        }
-        if (boundary.isEmpty()) {
-            throw new IllegalArgumentException("boundary is empty.");
-        }
-        mBoundary = boundary;
+        mServer.setBoundary(boundary);
     }
 
     /**
@@ -123,19 +113,19 @@ public class MixedReplaceMediaServer {
      * @return boundary
      */
     public String getBoundary() {
-        return mBoundary;
+        return mServer.getBoundary();
     }
 
     /**
      * Set a content type.
      * <p>
-     * Default is "image/jpg".
+     * Default is "image/jpeg".
      * </p>
      *
      * @param contentType content type
      */
     public void setContentType(final String contentType) {
-        mContentType = contentType;
+        mServer.setContentType(contentType);
     }
 
     /**
@@ -144,7 +134,7 @@ public class MixedReplaceMediaServer {
      * @return content type
      */
     public String getContentType() {
-        return mContentType;
+        return mServer.getContentType();
     }
 
     /**
@@ -156,7 +146,7 @@ public class MixedReplaceMediaServer {
         if (port < 1000) {
             throw new IllegalArgumentException("Port is smaller than 1000.");
         }
-        mPort = port;
+        mServer.setPort(port);
     }
 
     /**
@@ -165,7 +155,7 @@ public class MixedReplaceMediaServer {
      * @return port
      */
     public int getPort() {
-        return mPort;
+        return mServer.getPort();
     }
 
     /**
@@ -174,10 +164,7 @@ public class MixedReplaceMediaServer {
      * @param name name of server
      */
     public void setServerName(final String name) {
-        if (name == null) {
-            throw new IllegalArgumentException("name is null.");
-        }
-        mServerName = name;
+        mServer.setServerName(name);
     }
 
     /**
@@ -186,7 +173,7 @@ public class MixedReplaceMediaServer {
      * @return name of server
      */
     public String getServerName() {
-        return mServerName;
+        return mServer.getServerName();
     }
 
     /**
@@ -195,10 +182,7 @@ public class MixedReplaceMediaServer {
      * @return url
      */
     public String getUrl() {
-        if (mServerSocket == null) {
-            return null;
-        }
-        return "http://localhost:" + mServerSocket.getLocalPort();
+        return mServer.getUrl();
     }
 
     /**
@@ -206,34 +190,45 @@ public class MixedReplaceMediaServer {
      *
      * @return server status
      */
-    public synchronized boolean isRunning() {
-        return !mIsServerStopped;
+    public boolean isRunning() {
+        return mServer.isRunning();
     }
 
     /**
      * Inserts the media data into queue.
+     * <p>
+     * The media is discarded if no client is connected to the segment.
+     * </p>
      *
+     * @param segment segment of the url
      * @param media media data
      */
     public void offerMedia(final String segment, final byte[] media) {
-        if (media == null) {
-            return;
-        }
-        if (!mIsServerStopped) {
-            synchronized (mRunnables) {
-                for (ServerRunnable run : mRunnables) {
-                    run.offerMedia(segment, media);
-                }
+        mServer.offerMedia(segment, media);
+    }
+
+    /**
+     * Check whether any client is connected to the specified segment.
+     *
+     * @param segment segment of the url
+     * @return {@code true} if a client is connected
+     */
+    public boolean hasClient(final String segment) {
+        for (Request request : mRequests.values()) {
+            if (request.mSegment.equals(segment)) {
+                return true;
             }
         }
+        return false;
     }
 
+    /**
+     * Stop delivering the media of the specified segment.
+     *
+     * @param segment segment of the url
+     */
     public void stopMedia(final String segment) {
-        synchronized (mRunnables) {
-            for (ServerRunnable run : mRunnables) {
-                run.stopMedia(segment);
-            }
-        }
+        mServer.removeStream(segment);
     }
 
     /**
@@ -244,482 +239,37 @@ public class MixedReplaceMediaServer {
      *
      * @return the local IP address of this server or {@code null} if this server cannot start.
      */
-    public synchronized String start() {
-        try {
-            mServerSocket = openServerSocket();
-            mLogger.fine("Open a server socket.");
-        } catch (IOException e) {
-            // Failed to open server socket
-            mIsServerStopped = true;
+    public String start() {
+        if (!mServer.start()) {
             return null;
         }
-
-        mIsServerStopped = false;
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    while (!mIsServerStopped) {
-                        ServerRunnable run = new ServerRunnable(mServerSocket.accept());
-                        synchronized (MixedReplaceMediaServer.this) {
-                            mExecutor.execute(run);
-                        }
-                    }
-                } catch (IOException e) {
-                    mLogger.warning("Error server socket[" + mServerName + "]");
-                } finally {
-                    stop();
-                }
-            }
-        }, "MotionJPEG Server Thread").start();
         return getUrl();
     }
 
-    /**
-     * Open a server socket that looking for a port that can be used.
-     *
-     * @return ServerSocket
-     * @throws java.io.IOException if an error occurs while open socket.
-     */
-    private ServerSocket openServerSocket() throws IOException {
-        if (mPort != -1) {
-            return new ServerSocket(mPort);
-        } else {
-            for (int i = 9000; i <= 10000; i++) {
-                try {
-                    return new ServerSocket(i);
-                } catch (IOException e) {
-                    continue;
-                }
-            }
-            throw new IOException("Cannot open server socket.");
-        }
-    }
-
     /**
      * Stop a mixed replace media server.
      */
-    public synchronized void stop() {
-        if (mIsServerStopped) {
-            return;
-        }
-        mIsServerStopped = true;
-        mExecutor.shutdown();
-        synchronized (mRunnables) {
-            for (ServerRunnable run : mRunnables) {
-                run.stopAllMedia();
-            }
-        }
-        if (mServerSocket != null) {
-            try {
-                mServerSocket.close();
-                mServerSocket = null;
-            } catch (IOException e) {
-                if (BuildConfig.DEBUG) {
-                    e.printStackTrace();
-                }
-            }
-        }
-        if (mServerEventListener != null) {
-            mServerEventListener.onCloseServer();
-        }
-        mLogger.fine("MixedReplaceMediaServer is stop.");
+    public void stop() {
+        mServer.stop();
     }
 
     /**
-     * Class of Server.
+     * Get a last segment of the path.
+     *
+     * @param uri path
+     * @return last segment or {@code null} if the path has no segment
      */
-    private class ServerRunnable implements Runnable {
-        /**
-         * Defined buffer size.
-         */
-        private static final int BUF_SIZE = 8192;
-
-        /**
-         * Socket.
-         */
-        private final Socket mSocket;
-
-        /**
-         * Stream for writing.
-         */
-        private OutputStream mStream;
-
-        /**
-         * Request.
-         */
-        private Request mRequest;
-
-        /**
-         * Queues that holds the media.
-         */
-        private final Map<String, BlockingQueue<byte[]>> mMediaQueues =
-            new HashMap<String, BlockingQueue<byte[]>>();
-
-        /**
-         * Whether media delivery is stopped or not.
-         */
-        private boolean mIsMediaStopped;
-
-        /**
-         * Constructor.
-         *
-         * @param socket socket
-         */
-        public ServerRunnable(final Socket socket) {
-            mSocket = socket;
-        }
-
-        @Override
-        public void run() {
-            mLogger.fine("accept client.");
-            mRunnables.add(this);
-            try {
-                mStream = mSocket.getOutputStream();
-
-                byte[] buf = new byte[BUF_SIZE];
-                InputStream in = mSocket.getInputStream();
-                int len = in.read(buf, 0, BUF_SIZE);
-                if (len == -1) {
-                    // error
-                    return;
-                }
-                HttpHeader header = decodeHeader(buf, len);
-                mRequest = new Request(header);
-
-                if (mRunnables.size() > MAX_CLIENT_SIZE) {
-                    mStream.write(generateServiceUnavailable().getBytes());
-                    mStream.flush();
-                    return;
-                }
-
-                String segment = Uri.parse(mRequest.getUri()).getLastPathSegment();
-                boolean isGet = header.hasParam("snapshot");
-
-                byte[] jpeg = null;
-                if (mServerEventListener != null) {
-                    jpeg = mServerEventListener.onConnect(mRequest);
-                }
-
-                if (isGet) {
-                    if (jpeg == null) {
-                        BlockingQueue<byte[]> mediaQueue = mMediaQueues.get(segment);
-                        if (mediaQueue != null) {
-                            jpeg = mediaQueue.take();
-                        } else {
-                            jpeg = new byte[0];
-                        }
-                    }
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("HTTP/1.0 200 OK\r\n");
-                    sb.append("Server: " + mServerName + "\r\n");
-                    sb.append("Connection: close\r\n");
-                    sb.append("Content-Type: image/jpeg\r\n");
-                    sb.append("Content-Length: " + jpeg.length + "\r\n");
-                    sb.append("\r\n");
-                    mStream.write(sb.toString().getBytes());
-                    mStream.flush();
-                    mStream.write(jpeg);
-                    mStream.flush();
-                    return;
-                }
-
-                mStream.write(generateHttpHeader().getBytes());
-                mStream.flush();
-
-                while (!mIsServerStopped && !mIsMediaStopped) {
-                    BlockingQueue<byte[]> mediaQueue = mMediaQueues.get(segment);
-                    if (mediaQueue != null) {
-                        byte[] media = mediaQueue.take();
-                        if (media.length > 0) {
-                            sendMedia(media);
-                        }
-                    }
-                }
-            } catch (InterruptedException e) {
-                if (mStream != null) {
-                    try {
-                        mStream.write(generateInternalServerError().getBytes());
-                        mStream.flush();
-                    } catch (IOException e1) {
-                        mLogger.warning("Error server socket[" + mServerName + "]");
-                    }
-                }
-                Thread.currentThread().interrupt();
-            } catch (IOException e) {
-                if (mStream != null) {
-                    try {
-                        mStream.write(generateBadRequest().getBytes());
-                        mStream.flush();
-                    } catch (IOException e1) {
-                        mLogger.warning("Error server socket[" + mServerName + "]");
-                    }
-                }
-            } catch (Throwable e) {
-                e.printStackTrace();
-            } finally {
-                mLogger.fine("socket close.");
-                if (mServerEventListener != null && mRequest != null) {
-                    mServerEventListener.onDisconnect(mRequest);
-                }
-                if (mStream != null) {
-                    try {
-                        mStream.close();
-                    } catch (IOException e) {
-                        if (BuildConfig.DEBUG) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
-                try {
-                    mSocket.close();
-                } catch (IOException e) {
-                    if (BuildConfig.DEBUG) {
-                        e.printStackTrace();
-                    }
-                }
-                mRunnables.remove(this);
-            }
-        }
-
-        /**
-         * Inserts the media data into queue.
-         *
-         * @param segment the segment of URI of media
-         * @param media   the media to add
-         * @return true if the media data was added to this queue, else false
-         */
-        private boolean offerMedia(final String segment, final byte[] media) {
-            BlockingQueue<byte[]> mediaQueue;
-            synchronized (mMediaQueues) {
-                mediaQueue = mMediaQueues.get(segment);
-                if (mediaQueue == null) {
-                    mediaQueue = new ArrayBlockingQueue<byte[]>(MAX_MEDIA_CACHE);
-                    mMediaQueues.put(segment, mediaQueue);
-                }
-            }
-            if (mediaQueue.size() == MAX_MEDIA_CACHE) {
-                mediaQueue.remove();
-            }
-            return mediaQueue.offer(media);
-        }
-
-        /**
-         * Send a media data.
-         *
-         * @param media media data
-         * @throws java.io.IOException if an error occurs while sending media data.
-         */
-        private void sendMedia(final byte[] media) throws IOException {
-            StringBuilder sb = new StringBuilder();
-            sb.append("--" + mBoundary + "\r\n");
-            sb.append("Content-type: " + mContentType + "\r\n");
-            sb.append("Content-Length: " + media.length + "\r\n");
-            sb.append("\r\n");
-            mStream.write(sb.toString().getBytes());
-            mStream.write(media);
-            mStream.write("\r\n\r\n".getBytes());
-            mStream.flush();
-        }
-
-        private void stopMedia(final String segment) {
-            mIsMediaStopped = true;
-            synchronized (mMediaQueues) {
-                BlockingQueue<byte[]> mediaQueue = mMediaQueues.remove(segment);
-                if (mediaQueue != null) {
-                    mediaQueue.offer(new byte[0]);
-                }
-            }
-        }
-
-        private void stopAllMedia() {
-            synchronized (mMediaQueues) {
-                for (Map.Entry<String, BlockingQueue<byte[]>> entry : mMediaQueues.entrySet()) {
-                    entry.getValue().clear();
-                }
-                mMediaQueues.clear();
-            }
-        }
-
-        /**
-         * Decode a Http header.
-         *
-         * @param buf buffer of http header
-         * @param len buffer size
-         * @return HTTP header
-         * @throws java.io.IOException if this http header is invalid.
-         */
-        private HttpHeader decodeHeader(final byte[] buf, final int len) throws IOException {
-            HashMap<String, String> pre = new HashMap<String, String>();
-            HashMap<String, String> headers = new HashMap<String, String>();
-            HashMap<String, String> params = new HashMap<String, String>();
-            BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(buf, 0, len)));
-
-            // Read the request line
-            String inLine = in.readLine();
-            if (inLine == null) {
-                throw new IOException("no headers.");
-            }
-
-            StringTokenizer st = new StringTokenizer(inLine);
-            if (!st.hasMoreTokens()) {
-                throw new IOException("Header is invalid format.");
-            }
-
-            String method = st.nextToken();
-            if (!method.toLowerCase(Locale.getDefault()).equals("get")) {
-                throw new IOException("Method is invalid.");
-            }
-            pre.put("method", method);
-
-            if (!st.hasMoreTokens()) {
-                throw new IOException("Header is invalid format.");
-            }
-
-            String uri = st.nextToken();
-
-            // Decode parameters from the URI
-            int qmi = uri.indexOf('?');
-            if (qmi >= 0) {
-                decodeParams(uri.substring(qmi + 1), params);
-                uri = decodePercent(uri.substring(0, qmi));
-            } else {
-                decodeParams(null, params);
-                uri = decodePercent(uri);
-            }
-            pre.put("uri", uri);
-
-            // If there's another token, it's protocol version,
-            // followed by HTTP headers. Ignore version but parse headers.
-            // NOTE: this now forces header names lowercase since they are
-            // case insensitive and vary by client.
-            if (st.hasMoreTokens()) {
-                String line = in.readLine();
-                while (line != null && line.trim().length() > 0) {
-                    int p = line.indexOf(':');
-                    if (p >= 0) {
-                        headers.put(line.substring(0, p).trim().toLowerCase(Locale.US),
-                            line.substring(p + 1).trim());
-                    }
-                    line = in.readLine();
-                }
-            }
-
-            String segment = Uri.parse(uri).getLastPathSegment();
-            if (segment == null) {
-                throw new IOException("Header is invalid format.");
-            }
-            return new HttpHeader(uri, params);
-        }
-
-        /**
-         * Decode of uri param.
-         *
-         * @param params uri
-         * @param p
-         */
-        private void decodeParams(final String params, final Map<String, String> p) {
-            if (params == null) {
-                return;
-            }
-
-            StringTokenizer st = new StringTokenizer(params, "&");
-            while (st.hasMoreTokens()) {
-                String e = st.nextToken();
-                int sep = e.indexOf('=');
-                if (sep >= 0) {
-                    p.put(decodePercent(e.substring(0, sep)).trim(), decodePercent(e.substring(sep + 1)));
-                } else {
-                    p.put(decodePercent(e).trim(), "");
-                }
-            }
+    private static String getLastPathSegment(final String uri) {
+        if (uri == null) {
+            return null;
         }
-
-        /**
-         * Decode of uri.
-         *
-         * @param str uri
-         * @return The decoded URI
-         */
-        private String decodePercent(final String str) {
-            try {
-                return URLDecoder.decode(str, "UTF8");
-            } catch (UnsupportedEncodingException ignored) {
-                return null;
-            }
+        String path = uri;
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
         }
-    }
-
-    /**
-     * Generate a http header.
-     *
-     * @return http header
-     */
-    private String generateHttpHeader() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("HTTP/1.0 200 OK\r\n");
-        sb.append("Server: " + mServerName + "\r\n");
-        sb.append("Connection: close\r\n");
-        sb.append("Max-Age: 0\r\n");
-        sb.append("Expires: 0\r\n");
-        sb.append("Cache-Control: no-store, no-cache, must-revalidate, pre-check=0, post-check=0, max-age=0\r\n");
-        sb.append("Pragma: no-cache\r\n");
-        sb.append("Content-Type: multipart/x-mixed-replace; ");
-        sb.append("boundary=" + mBoundary + "\r\n");
-        sb.append("\r\n");
-        sb.append("--" + mBoundary + "\r\n");
-        return sb.toString();
-    }
-
-    /**
-     * Generate a Bad Request.
-     *
-     * @return Bad Request
-     */
-    private String generateBadRequest() {
-        return generateErrorHeader("400");
-    }
-
-    /**
-     * Generate a Not Found.
-     *
-     * @return Bad Request
-     */
-    private String generateNotFound() {
-        return generateErrorHeader("404");
-    }
-
-    /**
-     * Generate a Internal Serve rError.
-     *
-     * @return Internal Server Error
-     */
-    private String generateInternalServerError() {
-        return generateErrorHeader("500");
-    }
-
-    /**
-     * Generate a Service Unavailable.
-     *
-     * @return Service Unavailable
-     */
-    private String generateServiceUnavailable() {
-        return generateErrorHeader("503");
-    }
-
-    /**
-     * Generate a error http header.
-     *
-     * @param status Status
-     * @return http header
-     */
-    private String generateErrorHeader(final String status) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("HTTP/1.0 " + status + " OK\r\n");
-        sb.append("Server: " + mServerName + "\r\n");
-        sb.append("Connection: close\r\n");
-        sb.append("\r\n");
-        return sb.toString();
+        int index = path.lastIndexOf('/');
+        String segment = index >= 0 ? path.substring(index + 1) : path;
+        return segment.isEmpty() ? null : segment;
     }
 
     public void setServerEventListener(final ServerEventListener listener) {
@@ -738,42 +288,25 @@ public class MixedReplaceMediaServer {
 
     public class Request {
 
-        private HttpHeader mHeader;
-
-        private Request(final HttpHeader header) {
-            mHeader = header;
-        }
-
-        public String getUri() {
-            return getUrl() + mHeader.getUri();
-        }
-
-        public boolean isGet() {
-            return mHeader.hasParam("snapshot");
-        }
-
-    }
+        private final String mUri;
 
-    private static class HttpHeader {
+        private final boolean mIsGet;
 
-        final String mUri;
-        final Map<String, String> mParams;
+        private final String mSegment;
 
-        HttpHeader(final String uri, final Map<String, String> params) {
-            mUri = uri;
-            mParams = params;
+        private Request(final MixedReplaceStreamingServer.Request request, final String segment) {
+            mUri = getUrl() + request.getUri();
+            mIsGet = request.isSnapshot();
+            mSegment = segment;
         }
 
-        String getUri() {
+        public String getUri() {
             return mUri;
         }
 
-        String getParam(final String key) {
-            return mParams.get(key);
+        public boolean isGet() {
+            return mIsGet;
         }
 
-        boolean hasParam(final String key) {
-            return getParam(key) != null;
-        }
     }
 }
@@ -0,0 +1,80 @@
+/*
+ PixelFrameUtils.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.theta.utils;
+
+
+/**
+ * Utilities for pixels read back from an OpenGL framebuffer.
+ * <p>
+ * glReadPixels stores rows from bottom to top, so the rows must be flipped
+ * before the pixels are passed to a Bitmap. The rows are moved with
+ * {@link System#arraycopy(Object, int, Object, int, int)} instead of per pixel.
+ * </p>
+ *
+ * @author NTT DOCOMO, INC.
+ */
+public final class PixelFrameUtils {
+
+    private PixelFrameUtils() {
+    }
+
+    /**
+     * Flips a whole frame vertically.
+     *
+     * @param src pixels in bottom-to-top row order
+     * @param width width of the frame
+     * @param height height of the frame
+     * @param dst destination of the pixels in top-to-bottom row order
+     */
+    public static void flipVertical(final int[] src, final int width, final int height, final int[] dst) {
+        flipVerticalAndCrop(src, width, height, 0, 0, width, height, dst);
+    }
+
+    /**
+     * Crops a rectangle from a frame and flips it vertically.
+     * <p>
+     * The rectangle is specified in the coordinates of the framebuffer,
+     * so {@code y} is counted from the bottom row.
+     * The destination receives {@code cropWidth * cropHeight} pixels without padding.
+     * </p>
+     *
+     * @param src pixels in bottom-to-top row order
+     * @param srcWidth width of the source frame
+     * @param srcHeight height of the source frame
+     * @param x left of the rectangle
+     * @param y bottom of the rectangle
+     * @param cropWidth width of the rectangle
+     * @param cropHeight height of the rectangle
+     * @param dst destination of the pixels in top-to-bottom row order
+     */
+    public static void flipVerticalAndCrop(final int[] src, final int srcWidth, final int srcHeight,
+                                           final int x, final int y,
+                                           final int cropWidth, final int cropHeight,
+                                           final int[] dst) {
+        if (x < 0 || y < 0 || cropWidth <= 0 || cropHeight <= 0
+            || x + cropWidth > srcWidth || y + cropHeight > srcHeight) {
+            throw new IllegalArgumentException("The rectangle is out of the frame.");
+        }
+        if (src.length < srcWidth * srcHeight) {
+            throw new IllegalArgumentException("src is too small.");
+        }
+        if (dst.length < cropWidth * cropHeight) {
+            throw new IllegalArgumentException("dst is too small.");
+        }
+        if (src == dst) {
+            throw new IllegalArgumentException("src and dst must be different arrays.");
+        }
+
+        int srcOffset = (y + cropHeight - 1) * srcWidth + x;
+        int dstOffset = 0;
+        for (int row = 0; row < cropHeight; row++) {
+            System.arraycopy(src, srcOffset, dst, dstOffset, cropWidth);
+            srcOffset -= srcWidth;
+            dstOffset += cropWidth;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ PixelFrameUtilsTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.theta.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Test of {@link PixelFrameUtils}.
+ *
+ * @author NTT DOCOMO, INC.
+ */
+public class PixelFrameUtilsTest {
+
+    /**
+     * 3x3 frame read back from a framebuffer (the first row is the bottom row).
+     */
+    private static final int[] FRAME_3X3 = {
+        7, 8, 9,
+        4, 5, 6,
+        1, 2, 3
+    };
+
+    @Test
+    public void flipVertical() {
+        int[] dst = new int[9];
+        PixelFrameUtils.flipVertical(FRAME_3X3, 3, 3, dst);
+        assertArrayEquals(new int[] {
+            1, 2, 3,
+            4, 5, 6,
+            7, 8, 9
+        }, dst);
+    }
+
+    @Test
+    public void flipVerticalAndCrop_bottomLeft() {
+        int[] dst = new int[4];
+        PixelFrameUtils.flipVerticalAndCrop(FRAME_3X3, 3, 3, 0, 0, 2, 2, dst);
+        assertArrayEquals(new int[] {
+            4, 5,
+            7, 8
+        }, dst);
+    }
+
+    @Test
+    public void flipVerticalAndCrop_topRight() {
+        int[] dst = new int[2];
+        PixelFrameUtils.flipVerticalAndCrop(FRAME_3X3, 3, 3, 1, 2, 2, 1, dst);
+        assertArrayEquals(new int[] {2, 3}, dst);
+    }
+
+    @Test
+    public void flipVerticalAndCrop_sameAsPixelLoop() {
+        int width = 37;
+        int height = 23;
+        int[] src = new int[width * height];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = i * 31 + 7;
+        }
+        int x = 5;
+        int y = 3;
+        int cropWidth = 20;
+        int cropHeight = 17;
+
+        int[] expected = new int[cropWidth * cropHeight];
+        for (int row = 0; row < cropHeight; row++) {
+            for (int col = 0; col < cropWidth; col++) {
+                expected[row * cropWidth + col] = src[(y + cropHeight - 1 - row) * width + x + col];
+            }
+        }
+        int[] dst = new int[cropWidth * cropHeight];
+        PixelFrameUtils.flipVerticalAndCrop(src, width, height, x, y, cropWidth, cropHeight, dst);
+        assertArrayEquals(expected, dst);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void flipVerticalAndCrop_outOfFrame() {
+        PixelFrameUtils.flipVerticalAndCrop(FRAME_3X3, 3, 3, 2, 0, 2, 2, new int[4]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void flipVerticalAndCrop_smallDestination() {
+        PixelFrameUtils.flipVerticalAndCrop(FRAME_3X3, 3, 3, 0, 0, 3, 3, new int[8]);
+    }
+}
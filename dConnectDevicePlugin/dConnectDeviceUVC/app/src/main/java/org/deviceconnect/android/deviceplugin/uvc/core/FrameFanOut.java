@@ -0,0 +1,259 @@
+/*
+ FrameFanOut.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.uvc.core;
+
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Delivers frames to several subscribers without queueing them.
+ * <p>
+ * {@link #publish(Object)} stores a frame once into the latest-frame slot of each subscriber.
+ * Each subscriber has its own delivery thread which takes the frame from the slot.
+ * If a subscriber is still processing the previous frame when a new one arrives,
+ * the undelivered frame in the slot is replaced and counted as dropped,
+ * so a slow subscriber never delays the others and never receives stale frames.
+ * </p>
+ * <p>
+ * Frames are shared by all subscribers as they are, so they must not be modified after publishing.
+ * </p>
+ *
+ * @param <F> type of frame
+ */
+public class FrameFanOut<F> {
+
+    private final Logger mLogger = Logger.getLogger("uvc.dplugin");
+
+    private final List<Slot> mSlots = new CopyOnWriteArrayList<Slot>();
+
+    private final String mName;
+
+    public FrameFanOut(final String name) {
+        mName = name;
+    }
+
+    /**
+     * Adds a subscriber.
+     * <p>
+     * If the subscriber has been added already, only its frame rate is updated.
+     * </p>
+     *
+     * @param subscriber subscriber
+     * @param maxFps target frame rate of the subscriber. Zero or less means no limit.
+     */
+    public void subscribe(final Subscriber<F> subscriber, final double maxFps) {
+        synchronized (mSlots) {
+            Slot slot = findSlot(subscriber);
+            if (slot != null) {
+                slot.mRateController.setMaxFrameRate(maxFps);
+                return;
+            }
+            slot = new Slot(subscriber, maxFps);
+            mSlots.add(slot);
+            slot.start();
+        }
+    }
+
+    /**
+     * Removes a subscriber and stops its delivery thread.
+     *
+     * @param subscriber subscriber
+     */
+    public void unsubscribe(final Subscriber<F> subscriber) {
+        synchronized (mSlots) {
+            Slot slot = findSlot(subscriber);
+            if (slot != null) {
+                mSlots.remove(slot);
+                slot.close();
+            }
+        }
+    }
+
+    /**
+     * Removes all subscribers.
+     */
+    public void clear() {
+        synchronized (mSlots) {
+            for (Iterator<Slot> it = mSlots.iterator(); it.hasNext(); ) {
+                it.next().close();
+            }
+            mSlots.clear();
+        }
+    }
+
+    /**
+     * Publishes a frame to all subscribers.
+     * <p>
+     * This method does not block; a subscriber whose frame rate is exceeded does not receive the frame.
+     * </p>
+     *
+     * @param frame frame
+     */
+    public void publish(final F frame) {
+        long now = System.nanoTime();
+        for (Slot slot : mSlots) {
+            if (slot.mRateController.accept(now)) {
+                slot.offer(frame);
+            }
+        }
+    }
+
+    /**
+     * Gets the statistics of a subscriber.
+     *
+     * @param subscriber subscriber
+     * @return statistics, or null if the subscriber is not found
+     */
+    public Stats getStats(final Subscriber<F> subscriber) {
+        Slot slot = findSlot(subscriber);
+        if (slot == null) {
+            return null;
+        }
+        synchronized (slot) {
+            return new Stats(slot.mDeliveredCount, slot.mDroppedCount,
+                slot.mRateController.getSkippedCount());
+        }
+    }
+
+    private Slot findSlot(final Subscriber<F> subscriber) {
+        for (Slot slot : mSlots) {
+            if (slot.mSubscriber == subscriber) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Receiver of frames.
+     *
+     * @param <F> type of frame
+     */
+    public interface Subscriber<F> {
+
+        /**
+         * Called on the delivery thread of this subscriber.
+         *
+         * @param frame frame
+         */
+        void onFrame(F frame);
+
+    }
+
+    /**
+     * Statistics of a subscriber.
+     */
+    public static class Stats {
+
+        private final long mDeliveredCount;
+
+        private final long mDroppedCount;
+
+        private final long mSkippedCount;
+
+        Stats(final long delivered, final long dropped, final long skipped) {
+            mDeliveredCount = delivered;
+            mDroppedCount = dropped;
+            mSkippedCount = skipped;
+        }
+
+        /**
+         * @return number of frames passed to the subscriber
+         */
+        public long getDeliveredCount() {
+            return mDeliveredCount;
+        }
+
+        /**
+         * @return number of frames replaced before the subscriber took them
+         */
+        public long getDroppedCount() {
+            return mDroppedCount;
+        }
+
+        /**
+         * @return number of frames skipped to keep the target frame rate
+         */
+        public long getSkippedCount() {
+            return mSkippedCount;
+        }
+    }
+
+    private class Slot implements Runnable {
+
+        final Subscriber<F> mSubscriber;
+
+        final FrameRateController mRateController;
+
+        private F mLatest;
+
+        private boolean mClosed;
+
+        private long mDeliveredCount;
+
+        private long mDroppedCount;
+
+        private Thread mThread;
+
+        Slot(final Subscriber<F> subscriber, final double maxFps) {
+            mSubscriber = subscriber;
+            mRateController = new FrameRateController(maxFps);
+        }
+
+        void start() {
+            mThread = new Thread(this, mName + " Preview Listener");
+            mThread.start();
+        }
+
+        synchronized void offer(final F frame) {
+            if (mClosed) {
+                return;
+            }
+            if (mLatest != null) {
+                mDroppedCount++;
+            }
+            mLatest = frame;
+            notify();
+        }
+
+        synchronized void close() {
+            mClosed = true;
+            mLatest = null;
+            notify();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                F frame;
+                synchronized (this) {
+                    while (mLatest == null && !mClosed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (mClosed) {
+                        return;
+                    }
+                    frame = mLatest;
+                    mLatest = null;
+                    mDeliveredCount++;
+                }
+                try {
+                    mSubscriber.onFrame(frame);
+                } catch (Throwable e) {
+                    mLogger.warning("Failed to deliver a frame: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ FrameRateController.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.uvc.core;
+
+
+/**
+ * Decides which frames are passed to keep a target frame rate.
+ * <p>
+ * The deadline of the next frame advances by a fixed interval instead of being
+ * measured from the last accepted frame, so jitter of the camera does not lower
+ * the average rate. A frame that arrives up to a quarter of the interval before
+ * the deadline is also passed. For example, a 30 fps camera limited to 15 fps passes
+ * every other frame even if some frames arrive a few milliseconds early.
+ * </p>
+ */
+public class FrameRateController {
+
+    private long mIntervalNanos;
+
+    private long mNextFrameTime = -1;
+
+    private long mAcceptedCount;
+
+    private long mSkippedCount;
+
+    public FrameRateController(final double maxFps) {
+        setMaxFrameRate(maxFps);
+    }
+
+    /**
+     * Sets the target frame rate.
+     *
+     * @param maxFps frames per second. Zero or less means no limit.
+     */
+    public synchronized void setMaxFrameRate(final double maxFps) {
+        mIntervalNanos = maxFps > 0 ? (long) (1000000000L / maxFps) : 0;
+        mNextFrameTime = -1;
+    }
+
+    /**
+     * Checks whether a frame that arrived at the specified time should be passed.
+     *
+     * @param nowNanos arrival time of the frame in nanoseconds (e.g. {@link System#nanoTime()})
+     * @return true if the frame should be passed
+     */
+    public synchronized boolean accept(final long nowNanos) {
+        long interval = mIntervalNanos;
+        if (interval <= 0) {
+            mAcceptedCount++;
+            return true;
+        }
+        if (mNextFrameTime != -1 && nowNanos < mNextFrameTime - interval / 4) {
+            mSkippedCount++;
+            return false;
+        }
+        if (mNextFrameTime == -1 || nowNanos - mNextFrameTime >= interval) {
+            // The first frame, or the source has paused: restart the schedule.
+            mNextFrameTime = nowNanos + interval;
+        } else {
+            mNextFrameTime += interval;
+        }
+        mAcceptedCount++;
+        return true;
+    }
+
+    public synchronized long getAcceptedCount() {
+        return mAcceptedCount;
+    }
+
+    public synchronized long getSkippedCount() {
+        return mSkippedCount;
+    }
+}
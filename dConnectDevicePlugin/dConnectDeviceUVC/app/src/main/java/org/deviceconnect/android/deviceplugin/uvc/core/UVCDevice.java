@@ -21,8 +21,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 public class UVCDevice {
@@ -47,9 +46,9 @@ public class UVCDevice {
 
     private final String mId;
 
-    private final List<PreviewListener> mPreviewListeners = new ArrayList<PreviewListener>();
+    private final List<PreviewListener> mPreviewListeners = new CopyOnWriteArrayList<PreviewListener>();
 
-    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final FrameRateController mFrameRateController = new FrameRateController(DEFAULT_MAX_FPS);
 
     final Object mLockPermission = new Object();
 
@@ -63,12 +62,8 @@ public class UVCDevice {
 
     private PreviewOption mCurrentOption;
 
-    private long mMinFrameInterval;
-
     private double mMaxFps;
 
-    private long mLastFrameTime = -1;
-
     private PendingPermissionRequest mPermissionRequest;
 
     UVCDevice(final UsbDevice device, final UVCDeviceManager deviceMgr) {
@@ -198,7 +193,7 @@ public class UVCDevice {
         mCamera.setPreviewFrameCallback(new IPreviewFrameCallback() {
             @Override
             public void onFrame(final byte[] frame) {
-                if (checkFrameInterval()) {
+                if (!mFrameRateController.accept(System.nanoTime())) {
                     return;
                 }
                 notifyPreviewFrame(frame, frameFormat, width, height);
@@ -250,30 +245,17 @@ public class UVCDevice {
         return list.get(0);
     }
 
-    private boolean checkFrameInterval() {
-        if (mMinFrameInterval <= 0) {
-            return false;
-        }
-        long currentFrameTime = System.currentTimeMillis();
-        if (mLastFrameTime < 0 || currentFrameTime - mLastFrameTime >= mMinFrameInterval) {
-            mLastFrameTime = currentFrameTime;
-            return false;
-        }
-        return true;
-    }
-
+    /**
+     * Notifies listeners of a frame on the callback thread of the camera.
+     * <p>
+     * Listeners must not block; {@link UVCDeviceManager} hands the frame over to
+     * the delivery threads of its own listeners.
+     * </p>
+     */
     private void notifyPreviewFrame(final byte[] frame, final int frameFormat,
                                     final int width, final int height) {
-        synchronized (mPreviewListeners) {
-            for (Iterator<PreviewListener> it = mPreviewListeners.iterator(); it.hasNext(); ) {
-                final PreviewListener l = it.next();
-                mExecutor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        l.onFrame(UVCDevice.this, frame, frameFormat, width, height);
-                    }
-                });
-            }
+        for (PreviewListener l : mPreviewListeners) {
+            l.onFrame(UVCDevice.this, frame, frameFormat, width, height);
         }
     }
 
@@ -329,7 +311,16 @@ public class UVCDevice {
 
     public void setPreviewFrameRate(final double maxFrameRate) {
         mMaxFps = maxFrameRate;
-        mMinFrameInterval = (long) (1000 / maxFrameRate);
+        mFrameRateController.setMaxFrameRate(maxFrameRate);
+    }
+
+    /**
+     * Gets the number of frames skipped to keep the preview frame rate.
+     *
+     * @return number of skipped frames
+     */
+    public long getSkippedFrameCount() {
+        return mFrameRateController.getSkippedCount();
     }
 
     public boolean setNearestPreviewSize(final int requestedWidth,
@@ -19,6 +19,8 @@ import org.deviceconnect.android.deviceplugin.uvc.R;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Logger;
@@ -39,7 +41,18 @@ public class UVCDeviceManager {
 
     private final List<DiscoveryListener> mDiscoveryListeners = new ArrayList<DiscoveryListener>();
 
-    private final List<PreviewListener> mPreviewListeners = new ArrayList<PreviewListener>();
+    private final Map<PreviewListener, PreviewSubscriber> mPreviewListeners
+        = new ConcurrentHashMap<PreviewListener, PreviewSubscriber>();
+
+    /**
+     * Fan-outs of preview frames for each attached device.
+     * <p>
+     * Each device has its own fan-out so that frames of a device do not replace
+     * pending frames of another device, and each device has its own frame rate budget.
+     * </p>
+     */
+    private final Map<UVCDevice, FrameFanOut<PreviewFrame>> mPreviewFanOuts
+        = new ConcurrentHashMap<UVCDevice, FrameFanOut<PreviewFrame>>();
 
     private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
 
@@ -173,6 +186,13 @@ public class UVCDeviceManager {
         synchronized (mAttachedDevices) {
             mAttachedDevices.add(device);
         }
+        synchronized (mPreviewListeners) {
+            FrameFanOut<PreviewFrame> fanOut = new FrameFanOut<PreviewFrame>("UVC " + device.getName());
+            for (PreviewSubscriber subscriber : mPreviewListeners.values()) {
+                fanOut.subscribe(subscriber, subscriber.mMaxFps);
+            }
+            mPreviewFanOuts.put(device, fanOut);
+        }
     }
 
     private UVCDevice pullDevice(final UsbDevice usbDevice) {
@@ -181,6 +201,7 @@ public class UVCDeviceManager {
                 UVCDevice device = it.next();
                 if (device.isSameDevice(usbDevice)) {
                     it.remove();
+                    removePreviewFanOut(device);
                     return device;
                 }
             }
@@ -188,6 +209,15 @@ public class UVCDeviceManager {
         return null;
     }
 
+    private void removePreviewFanOut(final UVCDevice device) {
+        synchronized (mPreviewListeners) {
+            FrameFanOut<PreviewFrame> fanOut = mPreviewFanOuts.remove(device);
+            if (fanOut != null) {
+                fanOut.clear();
+            }
+        }
+    }
+
     private UVCDevice getDevice(final UsbDevice usbDevice) {
         synchronized (mAttachedDevices) {
             for (Iterator<UVCDevice> it = mAttachedDevices.iterator(); it.hasNext(); ) {
@@ -325,34 +355,81 @@ public class UVCDeviceManager {
     }
 
     public void addPreviewListener(final PreviewListener listener) {
+        addPreviewListener(listener, 0);
+    }
+
+    /**
+     * Adds a preview listener with its own frame rate.
+     * <p>
+     * Each listener receives frames of each device on its own thread. If the listener is still
+     * processing a frame of a device when newer frames of the device arrive, it receives
+     * only the latest one. The frame rate is limited for each device.
+     * </p>
+     *
+     * @param listener listener
+     * @param maxFps maximum frame rate for the listener. Zero or less means the frame rate of the device.
+     */
+    public void addPreviewListener(final PreviewListener listener, final double maxFps) {
         synchronized (mPreviewListeners) {
-            for (Iterator<PreviewListener> it = mPreviewListeners.iterator(); it.hasNext(); ) {
-                if (it.next() == listener) {
-                    return;
+            PreviewSubscriber subscriber = mPreviewListeners.get(listener);
+            if (subscriber == null) {
+                subscriber = new PreviewSubscriber(listener);
+                mPreviewListeners.put(listener, subscriber);
+            }
+            subscriber.mMaxFps = maxFps;
+            for (FrameFanOut<PreviewFrame> fanOut : mPreviewFanOuts.values()) {
+                fanOut.subscribe(subscriber, maxFps);
+            }
+        }
+    }
+
+    public void removePreviewListener(final PreviewListener listener) {
+        synchronized (mPreviewListeners) {
+            PreviewSubscriber subscriber = mPreviewListeners.remove(listener);
+            if (subscriber != null) {
+                for (FrameFanOut<PreviewFrame> fanOut : mPreviewFanOuts.values()) {
+                    fanOut.unsubscribe(subscriber);
                 }
             }
-            mPreviewListeners.add(listener);
         }
     }
 
+    /**
+     * Gets the number of frames which a preview listener could not receive
+     * because it was still processing the previous frame.
+     *
+     * @param listener listener
+     * @return total number of dropped frames of the attached devices, or -1 if the listener is not added
+     */
+    public long getDroppedFrameCount(final PreviewListener listener) {
+        PreviewSubscriber subscriber = mPreviewListeners.get(listener);
+        if (subscriber == null) {
+            return -1;
+        }
+        long count = 0;
+        for (FrameFanOut<PreviewFrame> fanOut : mPreviewFanOuts.values()) {
+            FrameFanOut.Stats stats = fanOut.getStats(subscriber);
+            if (stats != null) {
+                count += stats.getDroppedCount();
+            }
+        }
+        return count;
+    }
+
     private void clearPreviewListeners() {
         synchronized (mPreviewListeners) {
             mPreviewListeners.clear();
+            for (FrameFanOut<PreviewFrame> fanOut : mPreviewFanOuts.values()) {
+                fanOut.clear();
+            }
         }
     }
 
     private void notifyPreviewFrame(final UVCDevice device, final byte[] frame, final int frameFormat,
                                     final int width, final int height) {
-        synchronized (mPreviewListeners) {
-            for (Iterator<PreviewListener> it = mPreviewListeners.iterator(); it.hasNext(); ) {
-                final PreviewListener l = it.next();
-                mExecutor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        l.onFrame(device, frame, frameFormat, width, height);
-                    }
-                });
-            }
+        FrameFanOut<PreviewFrame> fanOut = mPreviewFanOuts.get(device);
+        if (fanOut != null) {
+            fanOut.publish(new PreviewFrame(device, frame, frameFormat, width, height));
         }
     }
 
@@ -468,4 +545,43 @@ public class UVCDeviceManager {
     public interface PreviewListener {
         void onFrame(UVCDevice device, byte[] frame, int frameFormat, int width, int height);
     }
+
+    private static class PreviewSubscriber implements FrameFanOut.Subscriber<PreviewFrame> {
+
+        final PreviewListener mListener;
+
+        volatile double mMaxFps;
+
+        PreviewSubscriber(final PreviewListener listener) {
+            mListener = listener;
+        }
+
+        @Override
+        public void onFrame(final PreviewFrame frame) {
+            mListener.onFrame(frame.mDevice, frame.mData, frame.mFrameFormat,
+                frame.mWidth, frame.mHeight);
+        }
+    }
+
+    private static class PreviewFrame {
+
+        final UVCDevice mDevice;
+
+        final byte[] mData;
+
+        final int mFrameFormat;
+
+        final int mWidth;
+
+        final int mHeight;
+
+        PreviewFrame(final UVCDevice device, final byte[] data, final int frameFormat,
+                     final int width, final int height) {
+            mDevice = device;
+            mData = data;
+            mFrameFormat = frameFormat;
+            mWidth = width;
+            mHeight = height;
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ FrameFanOutTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.uvc.core;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameFanOutTest {
+
+    @Test
+    public void testDeliverToAllSubscribers() throws Exception {
+        FrameFanOut<Integer> fanOut = new FrameFanOut<Integer>("test");
+        final CountDownLatch latch = new CountDownLatch(2);
+        FrameFanOut.Subscriber<Integer> s1 = new CountingSubscriber(latch);
+        FrameFanOut.Subscriber<Integer> s2 = new CountingSubscriber(latch);
+        fanOut.subscribe(s1, 0);
+        fanOut.subscribe(s2, 0);
+        try {
+            fanOut.publish(1);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals(1, fanOut.getStats(s1).getDeliveredCount());
+            assertEquals(1, fanOut.getStats(s2).getDeliveredCount());
+        } finally {
+            fanOut.clear();
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberReceivesLatestFrame() throws Exception {
+        FrameFanOut<Integer> fanOut = new FrameFanOut<Integer>("test");
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        final List<Integer> received = new ArrayList<Integer>();
+        FrameFanOut.Subscriber<Integer> slow = new FrameFanOut.Subscriber<Integer>() {
+            @Override
+            public void onFrame(final Integer frame) {
+                synchronized (received) {
+                    received.add(frame);
+                }
+                entered.countDown();
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                done.countDown();
+            }
+        };
+        fanOut.subscribe(slow, 0);
+        try {
+            fanOut.publish(1);
+            assertTrue(entered.await(1, TimeUnit.SECONDS));
+            for (int i = 2; i <= 10; i++) {
+                fanOut.publish(i);
+            }
+            blocked.countDown();
+            assertTrue(done.await(1, TimeUnit.SECONDS));
+
+            synchronized (received) {
+                assertEquals(2, received.size());
+                assertEquals(Integer.valueOf(1), received.get(0));
+                assertEquals(Integer.valueOf(10), received.get(1));
+            }
+            FrameFanOut.Stats stats = fanOut.getStats(slow);
+            assertEquals(2, stats.getDeliveredCount());
+            assertEquals(8, stats.getDroppedCount());
+        } finally {
+            fanOut.clear();
+        }
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        FrameFanOut<Integer> fanOut = new FrameFanOut<Integer>("test");
+        FrameFanOut.Subscriber<Integer> s = new CountingSubscriber(new CountDownLatch(1));
+        fanOut.subscribe(s, 0);
+        assertNotNull(fanOut.getStats(s));
+        fanOut.unsubscribe(s);
+        assertNull(fanOut.getStats(s));
+        fanOut.publish(1);
+    }
+
+    private static class CountingSubscriber implements FrameFanOut.Subscriber<Integer> {
+
+        private final CountDownLatch mLatch;
+
+        CountingSubscriber(final CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public void onFrame(final Integer frame) {
+            mLatch.countDown();
+        }
+    }
+}
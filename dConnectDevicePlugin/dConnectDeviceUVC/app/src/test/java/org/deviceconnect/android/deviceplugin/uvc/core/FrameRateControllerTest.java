@@ -0,0 +1,74 @@
+/*
+ FrameRateControllerTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.deviceplugin.uvc.core;
+
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameRateControllerTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testUnlimited() {
+        FrameRateController controller = new FrameRateController(0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(controller.accept(i));
+        }
+        assertEquals(10, controller.getAcceptedCount());
+        assertEquals(0, controller.getSkippedCount());
+    }
+
+    @Test
+    public void testHalfRate() {
+        FrameRateController controller = new FrameRateController(15);
+        int accepted = 0;
+        for (int i = 0; i < 30; i++) {
+            if (controller.accept(i * 33333333L)) {
+                accepted++;
+            }
+        }
+        assertEquals(15, accepted);
+        assertEquals(15, controller.getSkippedCount());
+    }
+
+    @Test
+    public void testJitterDoesNotLowerRate() {
+        FrameRateController controller = new FrameRateController(15);
+        long[] offsets = {0, 3, -3, 2, -4, 4};
+        int accepted = 0;
+        for (int i = 0; i < 300; i++) {
+            long time = i * 33333333L + offsets[i % offsets.length] * MS;
+            if (controller.accept(time)) {
+                accepted++;
+            }
+        }
+        assertEquals(150, accepted);
+    }
+
+    @Test
+    public void testRestartAfterPause() {
+        FrameRateController controller = new FrameRateController(10);
+        assertTrue(controller.accept(0));
+        assertTrue(controller.accept(1000 * MS));
+        assertEquals(false, controller.accept(1050 * MS));
+        assertTrue(controller.accept(1100 * MS));
+    }
+
+    @Test
+    public void testSetMaxFrameRate() {
+        FrameRateController controller = new FrameRateController(1);
+        assertTrue(controller.accept(0));
+        assertEquals(false, controller.accept(100 * MS));
+        controller.setMaxFrameRate(0);
+        assertTrue(controller.accept(110 * MS));
+        assertTrue(controller.accept(120 * MS));
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ BundleJSONWriterTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager.test;
+
+import android.os.Bundle;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import junit.framework.Assert;
+
+import org.deviceconnect.android.manager.util.BundleJSONWriter;
+import org.deviceconnect.message.DConnectMessage;
+import org.deviceconnect.message.intent.message.IntentDConnectMessage;
+import org.deviceconnect.message.intent.util.JSONFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link BundleJSONWriter}のテストを実行する.
+ * <p>
+ * {@link JSONFactory}で変換した結果と同じJSON文字列になることを確認し、変換に掛かる時間を比較する.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BundleJSONWriterTest {
+
+    /** ログのタグ. */
+    private static final String TAG = "BundleJSONWriterTest";
+
+    /** 計測前に実行する回数. */
+    private static final int WARM_UP_COUNT = 200;
+
+    /** 計測する回数. */
+    private static final int BENCHMARK_COUNT = 2000;
+
+    /**
+     * 様々な型を含むBundleがJSONFactoryと同じ文字列に変換されることを確認する.
+     * @throws Exception 変換に失敗した場合
+     */
+    @Test
+    public void testConversion() throws Exception {
+        Bundle b = new Bundle();
+        b.putInt(IntentDConnectMessage.EXTRA_REQUEST_CODE, 1);
+        b.putByte("byte", (byte) -1);
+        b.putChar("char", '0');
+        b.putShort("short", (short) 2);
+        b.putInt("int", Integer.MIN_VALUE);
+        b.putLong("long", Long.MAX_VALUE);
+        b.putFloat("float", 0.1f);
+        b.putDouble("double", -0.0);
+        b.putDouble("integralDouble", 3.0);
+        b.putBoolean("boolean", true);
+        b.putString("string", "\"\\/\t\b\n\r\f\u0001あ😀");
+        b.putIntArray("intArray", new int[] {1, -2});
+        b.putLongArray("longArray", new long[] {3L});
+        b.putFloatArray("floatArray", new float[] {1.5f, 0.1f});
+        b.putDoubleArray("doubleArray", new double[] {1.25});
+        b.putBooleanArray("booleanArray", new boolean[] {true, false});
+        b.putCharArray("charArray", new char[] {'a'});
+        b.putByteArray("byteArray", new byte[] {1, 2});
+        b.putStringArray("stringArray", new String[] {"a", null});
+        b.putSerializable("integerObjects", new Integer[] {1, null});
+        b.putSerializable("floatObjects", new Float[] {1.0f, 0.5f});
+        b.putSerializable("characterObjects", new Character[] {'x'});
+        b.putSerializable("mixedObjects", new Object[] {1, "a"});
+        ArrayList<String> list = new ArrayList<String>();
+        list.add("x");
+        list.add(null);
+        b.putStringArrayList("list", list);
+
+        Bundle child = new Bundle();
+        child.putInt(IntentDConnectMessage.EXTRA_REQUEST_CODE, 2);
+        child.putString("name", "child");
+        b.putBundle("bundle", child);
+        b.putParcelableArray("bundles", new Bundle[] {child, null});
+
+        assertSameJSON(b);
+    }
+
+    /**
+     * ラッパークラス以外の数値がJSONFactoryと同じく扱われることを確認する.
+     * <p>
+     * Bundleの値の場合はキーごと書き出さず、リストの要素の場合はJSONArrayと同じ形式で書き出す.
+     * </p>
+     * @throws Exception 変換に失敗した場合
+     */
+    @Test
+    public void testUnsupportedNumber() throws Exception {
+        Bundle b = new Bundle();
+        b.putInt("int", 1);
+        b.putSerializable("bigDecimal", new BigDecimal("1.5"));
+        b.putSerializable("atomicInteger", new AtomicInteger(2));
+        b.putSerializable("bigDecimalObjects", new Object[] {new BigDecimal("0.5")});
+        ArrayList<Number> list = new ArrayList<Number>();
+        list.add(new BigDecimal("2.5"));
+        list.add(new BigInteger("3"));
+        list.add(new AtomicLong(4));
+        b.putSerializable("numberList", list);
+
+        assertSameJSON(b);
+
+        BundleJSONWriter writer = new BundleJSONWriter(null);
+        writer.write(b);
+        JSONObject json = new JSONObject(writer.toString());
+        Assert.assertEquals(1, json.getInt("int"));
+        Assert.assertFalse(json.has("bigDecimal"));
+        Assert.assertFalse(json.has("atomicInteger"));
+        Assert.assertFalse(json.has("bigDecimalObjects"));
+        Assert.assertEquals("[2.5,3,4]", json.getJSONArray("numberList").toString());
+    }
+
+    /**
+     * nullと空のBundleが空のJSONオブジェクトに変換されることを確認する.
+     * @throws Exception 変換に失敗した場合
+     */
+    @Test
+    public void testEmpty() throws Exception {
+        BundleJSONWriter writer = new BundleJSONWriter(null);
+        writer.write(null);
+        Assert.assertEquals("{}", writer.toString());
+        writer.write(new Bundle());
+        Assert.assertEquals("{}", writer.toString());
+    }
+
+    /**
+     * content://から始まるuriが変換されることを確認する.
+     * <p>
+     * DConnectUtilと同じく、配列の中のオブジェクトのuriは変換しない.
+     * </p>
+     * @throws Exception 変換に失敗した場合
+     */
+    @Test
+    public void testUriConversion() throws Exception {
+        BundleJSONWriter writer = new BundleJSONWriter(new BundleJSONWriter.UriConverter() {
+            @Override
+            public String convert(final String uri) {
+                return "http://localhost:4035/gotapi/files?uri=" + uri;
+            }
+        });
+        Bundle child = new Bundle();
+        child.putString("uri", "content://test/2");
+        Bundle b = new Bundle();
+        b.putString("uri", "content://test/1");
+        b.putBundle("child", child);
+        b.putParcelableArray("children", new Bundle[] {child});
+        writer.write(b);
+
+        JSONObject json = new JSONObject(writer.toString());
+        Assert.assertEquals("http://localhost:4035/gotapi/files?uri=content://test/1", json.getString("uri"));
+        Assert.assertEquals("http://localhost:4035/gotapi/files?uri=content://test/2",
+            json.getJSONObject("child").getString("uri"));
+        Assert.assertEquals("content://test/2",
+            json.getJSONArray("children").getJSONObject(0).getString("uri"));
+    }
+
+    /**
+     * NaNを含む場合にJSONExceptionが発生することを確認する.
+     */
+    @Test
+    public void testNaN() {
+        Bundle b = new Bundle();
+        b.putDouble("nan", Double.NaN);
+        try {
+            new BundleJSONWriter(null).write(b);
+            Assert.fail("JSONException is not thrown.");
+        } catch (JSONException e) {
+            // OK
+        }
+    }
+
+    /**
+     * センサーのイベント、サービス検索、ファイル一覧のレスポンスで変換時間を比較する.
+     * @throws Exception 変換に失敗した場合
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        benchmark("sensor", createSensorEvent());
+        benchmark("serviceDiscovery", createServiceDiscoveryResponse());
+        benchmark("fileList", createFileListResponse());
+    }
+
+    private void benchmark(final String name, final Bundle b) throws JSONException {
+        assertSameJSON(b);
+
+        BundleJSONWriter writer = new BundleJSONWriter(null);
+        for (int i = 0; i < WARM_UP_COUNT; i++) {
+            convertByJSONFactory(b).getBytes();
+            writer.write(b);
+            writer.toByteArray();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_COUNT; i++) {
+            convertByJSONFactory(b).getBytes();
+        }
+        long factoryTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_COUNT; i++) {
+            writer.write(b);
+            writer.toByteArray();
+        }
+        long writerTime = System.nanoTime() - start;
+
+        Log.i(TAG, name + ": JSONFactory=" + (factoryTime / BENCHMARK_COUNT) + "ns"
+            + ", BundleJSONWriter=" + (writerTime / BENCHMARK_COUNT) + "ns"
+            + ", size=" + writer.size() + "bytes");
+    }
+
+    private static void assertSameJSON(final Bundle b) throws JSONException {
+        BundleJSONWriter writer = new BundleJSONWriter(null);
+        writer.write(b);
+        Assert.assertEquals(convertByJSONFactory(b), writer.toString());
+    }
+
+    private static String convertByJSONFactory(final Bundle b) throws JSONException {
+        JSONObject root = new JSONObject();
+        JSONFactory.convertBundleToJSON(root, b);
+        return root.toString();
+    }
+
+    private static Bundle createSensorEvent() {
+        Bundle b = new Bundle();
+        b.putString(DConnectMessage.EXTRA_SERVICE_ID, "host.deviceconnect.org");
+        b.putString(DConnectMessage.EXTRA_PROFILE, "deviceorientation");
+        b.putString(DConnectMessage.EXTRA_ATTRIBUTE, "ondeviceorientation");
+        b.putString(DConnectMessage.EXTRA_SESSION_KEY, "sessionKey.example");
+        Bundle acceleration = new Bundle();
+        acceleration.putDouble("x", 0.012345);
+        acceleration.putDouble("y", -9.80665);
+        acceleration.putDouble("z", 0.5);
+        Bundle rotationRate = new Bundle();
+        rotationRate.putDouble("alpha", 1.2345);
+        rotationRate.putDouble("beta", -0.001);
+        rotationRate.putDouble("gamma", 12.0);
+        Bundle orientation = new Bundle();
+        orientation.putBundle("acceleration", acceleration);
+        orientation.putBundle("accelerationIncludingGravity", acceleration);
+        orientation.putBundle("rotationRate", rotationRate);
+        orientation.putLong("interval", 100);
+        b.putBundle("orientation", orientation);
+        return b;
+    }
+
+    private static Bundle createServiceDiscoveryResponse() {
+        Bundle b = new Bundle();
+        b.putInt(DConnectMessage.EXTRA_RESULT, DConnectMessage.RESULT_OK);
+        b.putString(DConnectMessage.EXTRA_PRODUCT, "Device Connect Manager");
+        b.putString(DConnectMessage.EXTRA_VERSION, "2.0.0");
+        Bundle[] services = new Bundle[20];
+        for (int i = 0; i < services.length; i++) {
+            Bundle service = new Bundle();
+            service.putString("id", "service" + i + ".plugin" + i + ".deviceconnect.org");
+            service.putString("name", "Service " + i);
+            service.putString("type", "Wi-Fi");
+            service.putBoolean("online", true);
+            service.putStringArray("scopes", new String[] {
+                "battery", "connection", "deviceorientation", "file", "mediastream_recording", "notification"
+            });
+            services[i] = service;
+        }
+        b.putParcelableArray("services", services);
+        return b;
+    }
+
+    private static Bundle createFileListResponse() {
+        Bundle b = new Bundle();
+        b.putInt(DConnectMessage.EXTRA_RESULT, DConnectMessage.RESULT_OK);
+        b.putInt("count", 100);
+        Bundle[] files = new Bundle[100];
+        for (int i = 0; i < files.length; i++) {
+            Bundle file = new Bundle();
+            file.putString("path", "/DCIM/Camera/IMG_" + i + ".jpg");
+            file.putString("fileName", "IMG_" + i + ".jpg");
+            file.putString("mimeType", "image/jpeg");
+            file.putString("fileType", "0");
+            file.putLong("fileSize", 1024L * 1024L + i);
+            file.putString("updateDate", "2016-01-01T00:00:00+0900");
+            files[i] = file;
+        }
+        b.putParcelableArray("files", files);
+        return b;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ MultipartSaveFileTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager.test;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import junit.framework.Assert;
+
+import org.deviceconnect.android.manager.DConnectServerEventListenerImpl;
+import org.deviceconnect.android.provider.FileManager;
+import org.deviceconnect.message.DConnectMessage;
+import org.deviceconnect.server.http.HttpRequest;
+import org.deviceconnect.server.http.HttpResponse;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * マルチパートで送られたファイルの保存に失敗した場合のテスト.
+ * @author NTT DOCOMO, INC.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MultipartSaveFileTest {
+
+    /** テストで使用するタイムアウト時間(ms). */
+    private static final int TIMEOUT = 1000;
+
+    /** マルチパートの境界文字列. */
+    private static final String BOUNDARY = "----MultipartSaveFileTestBoundary";
+
+    /**
+     * 書き込み権限が拒否された場合に、エラーが返ることを確認する.
+     * <pre>
+     * 【期待する動作】
+     * ・resultに1が返ってくること。
+     * ・errorCodeに1が返ってくること。
+     * </pre>
+     * @throws Exception テストに失敗した場合
+     */
+    @Test
+    public void testPermissionDenied() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        FileManager fileMgr = new FileManager(context) {
+            @Override
+            public void checkWritePermission(final CheckPermissionCallback callback) {
+                callback.onFail();
+            }
+        };
+        JSONObject response = sendFile(context, fileMgr);
+        Assert.assertEquals(DConnectMessage.RESULT_ERROR, response.getInt(DConnectMessage.EXTRA_RESULT));
+        Assert.assertEquals(DConnectMessage.ErrorCode.UNKNOWN.getCode(),
+                response.getInt(DConnectMessage.EXTRA_ERROR_CODE));
+    }
+
+    /**
+     * 書き込み権限の確認が終わらない場合に、タイムアウトのエラーが返ることを確認する.
+     * <pre>
+     * 【期待する動作】
+     * ・resultに1が返ってくること。
+     * ・errorCodeに7が返ってくること。
+     * </pre>
+     * @throws Exception テストに失敗した場合
+     */
+    @Test
+    public void testSaveFileTimeout() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        FileManager fileMgr = new FileManager(context) {
+            @Override
+            public void checkWritePermission(final CheckPermissionCallback callback) {
+                // 応答しない
+            }
+        };
+        long start = System.currentTimeMillis();
+        JSONObject response = sendFile(context, fileMgr);
+        Assert.assertTrue(System.currentTimeMillis() - start < TIMEOUT * 10);
+        Assert.assertEquals(DConnectMessage.RESULT_ERROR, response.getInt(DConnectMessage.EXTRA_RESULT));
+        Assert.assertEquals(DConnectMessage.ErrorCode.TIMEOUT.getCode(),
+                response.getInt(DConnectMessage.EXTRA_ERROR_CODE));
+    }
+
+    /**
+     * ファイルのパートを1つ含むリクエストを処理させて、レスポンスを取得する.
+     * @param context コンテキスト
+     * @param fileMgr ファイルの保存に使用するマネージャー
+     * @return レスポンスのJSON
+     * @throws JSONException レスポンスがJSONではない場合
+     * @throws UnsupportedEncodingException UTF-8がサポートされていない場合
+     */
+    private JSONObject sendFile(final Context context, final FileManager fileMgr)
+            throws JSONException, UnsupportedEncodingException {
+        DConnectServerEventListenerImpl listener = new DConnectServerEventListenerImpl(context);
+        listener.setFileManager(fileMgr);
+        listener.setTimeout(TIMEOUT);
+
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"data\"; filename=\"test.dat\"\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "\r\n"
+                + "test\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
+
+        HttpRequest request = new HttpRequest();
+        request.setMethod(HttpRequest.HTTP_METHOD_POST);
+        request.setUri("/gotapi/file/send?serviceId=test&path=/test/test.dat");
+        request.setHeaders(headers);
+        request.setBodyStream(new ByteArrayInputStream(body.getBytes("UTF-8")));
+
+        HttpResponse response = new HttpResponse();
+        Assert.assertTrue(listener.onReceivedHttpRequest(request, response));
+        Assert.assertNotNull(response.getBody());
+        return new JSONObject(new String(response.getBody(), "UTF-8"));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ ServiceDiscoveryTimeoutTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager.test;
+
+import android.content.Intent;
+import android.support.test.runner.AndroidJUnit4;
+
+import junit.framework.Assert;
+
+import org.deviceconnect.android.manager.DevicePlugin;
+import org.deviceconnect.android.manager.request.DConnectRequest;
+import org.deviceconnect.android.manager.request.DConnectRequestManager;
+import org.deviceconnect.android.manager.request.ServiceDiscoveryRequest;
+import org.deviceconnect.message.intent.message.IntentDConnectMessage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * サービス検索で応答しなかったデバイスプラグインの扱いのテストを実行する.
+ * @author NTT DOCOMO, INC.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ServiceDiscoveryTimeoutTest {
+
+    /** テストで使用するタイムアウト時間(ms). */
+    private static final long TIMEOUT = 30000;
+
+    /**
+     * 応答時間の記録が無いデバイスプラグインは、既定の期限まで待つことを確認する.
+     */
+    @Test
+    public void testNoHistory() {
+        DevicePlugin plugin = new DevicePlugin();
+        Assert.assertFalse(plugin.isServiceDiscoveryTimedOut());
+        Assert.assertEquals(-1, plugin.getServiceDiscoveryLatency());
+        Assert.assertEquals(ServiceDiscoveryRequest.DEFAULT_DEADLINE,
+                ServiceDiscoveryRequest.getDeadline(plugin, TIMEOUT));
+        // タイムアウト時間の方が短い場合はタイムアウト時間まで待つ
+        Assert.assertEquals(1000, ServiceDiscoveryRequest.getDeadline(plugin, 1000));
+    }
+
+    /**
+     * 平均応答時間から応答待ちの期限が決まることを確認する.
+     */
+    @Test
+    public void testDeadlineFromLatency() {
+        DevicePlugin plugin = new DevicePlugin();
+        plugin.recordServiceDiscoveryResponse(1000);
+        // 平均応答時間の3倍に1秒を加えた期限
+        Assert.assertEquals(4000, ServiceDiscoveryRequest.getDeadline(plugin, TIMEOUT));
+
+        DevicePlugin fast = new DevicePlugin();
+        fast.recordServiceDiscoveryResponse(10);
+        Assert.assertEquals(ServiceDiscoveryRequest.MIN_DEADLINE, ServiceDiscoveryRequest.getDeadline(fast, TIMEOUT));
+
+        DevicePlugin slow = new DevicePlugin();
+        slow.recordServiceDiscoveryResponse(20000);
+        Assert.assertEquals(TIMEOUT, ServiceDiscoveryRequest.getDeadline(slow, TIMEOUT));
+    }
+
+    /**
+     * 応答しなかったデバイスプラグインは、応答するまでサービス検索で待たないことを確認する.
+     */
+    @Test
+    public void testDeadlineAfterTimeout() {
+        DevicePlugin plugin = new DevicePlugin();
+        plugin.recordServiceDiscoveryResponse(5000);
+        plugin.recordServiceDiscoveryTimeout();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(0, ServiceDiscoveryRequest.getDeadline(plugin, TIMEOUT));
+            plugin.recordServiceDiscoveryTimeout();
+        }
+    }
+
+    /**
+     * タイムアウトした後に遅れて応答したデバイスプラグインは、次のサービス検索から応答待ちが短縮されないことを確認する.
+     */
+    @Test
+    public void testLateResponseAfterTimeout() {
+        final long lateLatency = 6000;
+        DevicePlugin plugin = new DevicePlugin();
+        plugin.recordServiceDiscoveryResponse(1000);
+        plugin.recordServiceDiscoveryTimeout();
+        Assert.assertTrue(plugin.isServiceDiscoveryTimedOut());
+
+        // 期限を過ぎてから応答が届いた
+        plugin.recordServiceDiscoveryResponse(lateLatency);
+        Assert.assertFalse(plugin.isServiceDiscoveryTimedOut());
+        long latency = (1000 * 3 + lateLatency) / 4;
+        Assert.assertEquals(latency, plugin.getServiceDiscoveryLatency());
+        Assert.assertEquals(latency * 3 + 1000, ServiceDiscoveryRequest.getDeadline(plugin, TIMEOUT));
+    }
+
+    /**
+     * 実行が終了した後のレスポンスは、受け付けると宣言したリクエストコードの分だけ配送されることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testLateResponseRouting() throws InterruptedException {
+        DConnectRequestManager mgr = new DConnectRequestManager(2, 1, 1);
+        try {
+            LateRequest request = new LateRequest();
+            mgr.addRequest(request);
+            long end = System.currentTimeMillis() + TIMEOUT;
+            while (!request.mFinished || mgr.getScheduler().getRunningCount() > 0) {
+                Assert.assertTrue(System.currentTimeMillis() < end);
+                Thread.sleep(10);
+            }
+
+            mgr.setResponse(createResponse(request.mOnTimeCode));
+            Assert.assertEquals(0, request.mResponseCount);
+
+            mgr.setResponse(createResponse(request.mLateCode));
+            Assert.assertEquals(1, request.mResponseCount);
+
+            // 遅れたレスポンスを受け付けるのは1回だけ
+            mgr.setResponse(createResponse(request.mLateCode));
+            Assert.assertEquals(1, request.mResponseCount);
+        } finally {
+            mgr.shutdown();
+        }
+    }
+
+    private static Intent createResponse(final int requestCode) {
+        Intent response = new Intent(IntentDConnectMessage.ACTION_RESPONSE);
+        response.putExtra(IntentDConnectMessage.EXTRA_REQUEST_CODE, requestCode);
+        return response;
+    }
+
+    /**
+     * リクエストコードを2つ発行して、片方だけ遅れたレスポンスを受け付けるリクエスト.
+     */
+    private static class LateRequest extends DConnectRequest {
+        /** 実行が終了した後はレスポンスを受け付けないリクエストコード. */
+        volatile int mOnTimeCode;
+        /** 実行が終了した後もレスポンスを受け付けるリクエストコード. */
+        volatile int mLateCode;
+        /** 実行が終了したことを示すフラグ. */
+        volatile boolean mFinished;
+        /** 受け取ったレスポンスの数. */
+        volatile int mResponseCount;
+
+        @Override
+        public boolean hasRequestCode(final int requestCode) {
+            return requestCode == mOnTimeCode || requestCode == mLateCode;
+        }
+
+        @Override
+        public boolean acceptsLateResponse(final int requestCode) {
+            return requestCode == mLateCode;
+        }
+
+        @Override
+        public void setResponse(final Intent response) {
+            mResponseCount++;
+        }
+
+        @Override
+        public void run() {
+            mOnTimeCode = createRequestCode();
+            mLateCode = createRequestCode();
+            mFinished = true;
+        }
+    }
+}
@@ -729,6 +729,45 @@ public class FailFileProfileTestCase extends RESTfulDConnectTestCase {
         }
     }
 
+    /**
+     * ファイルのパートを2個指定してファイル送信テストを行う.
+     * <pre>
+     * 【HTTP通信】
+     * Method: POST
+     * Path: /file/send?serviceId=xxxx&path=xxxx
+     * </pre>
+     * <pre>
+     * 【期待する動作】
+     * ・resultに1が返ってくること。
+     * ・errorCodeに10が返ってくること。
+     * </pre>
+     */
+    @Test
+    public void testPostSendMultipleFiles() {
+        URIBuilder builder = TestURIBuilder.createURIBuilder();
+        builder.setProfile(FileProfileConstants.PROFILE_NAME);
+        builder.setAttribute(FileProfileConstants.ATTRIBUTE_SEND);
+        builder.addParameter(DConnectProfileConstants.PARAM_SERVICE_ID, getServiceId());
+        builder.addParameter(FileProfileConstants.PARAM_PATH,
+                TestFileProfileConstants.PATH);
+        builder.addParameter(AuthorizationProfileConstants.PARAM_ACCESS_TOKEN, getAccessToken());
+
+        String name = "test.png";
+        byte[] data = getBytesFromAssets(name);
+        if (data == null) {
+            fail("Cannot find the file." + name);
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put(FileProfileConstants.PARAM_DATA, data);
+        body.put("data2", data);
+        try {
+            JSONObject response = sendRequest("POST", builder.toString(), null, body);
+            assertResultError(ErrorCode.INVALID_REQUEST_PARAMETER.getCode(), response);
+        } catch (JSONException e) {
+            fail("Exception in JSONObject." + e.getMessage());
+        }
+    }
+
     /**
      * media属性を指定せずにファイル送信テストを行う.
      * <pre>
@@ -159,6 +159,43 @@ public class NormalFileProfileTestCase extends RESTfulDConnectTestCase {
         }
     }
 
+    /**
+     * ファイルのパートと値のパートを混在させてファイルの送信を行う.
+     * <pre>
+     * Method: POST
+     * Path: /file/send?deviceid=xxxx
+     * </pre>
+     * <pre>
+     * 【期待する動作】
+     * ・ファイルのパートが1個であれば、resultに0が返ってくること。
+     * </pre>
+     */
+    @Test
+    public void testSendWithValueParts() {
+        final String name = "test.png";
+        URIBuilder builder = TestURIBuilder.createURIBuilder();
+        builder.setProfile(FileProfileConstants.PROFILE_NAME);
+        builder.setAttribute(FileProfileConstants.ATTRIBUTE_SEND);
+        builder.addParameter(DConnectProfileConstants.PARAM_SERVICE_ID, getServiceId());
+        builder.addParameter(DConnectMessage.EXTRA_ACCESS_TOKEN, getAccessToken());
+
+        byte[] data = getBytesFromAssets(name);
+        if (data == null) {
+            fail("Cannot find the file." + name);
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put(FileProfileConstants.PARAM_PATH, "/test/test.png");
+        body.put(FileProfileConstants.PARAM_FILE_TYPE,
+                String.valueOf(FileProfileConstants.FileType.FILE.getValue()));
+        body.put(FileProfileConstants.PARAM_DATA, data);
+        try {
+            JSONObject response = sendRequest("POST", builder.toString(), null, body);
+            assertResultOK(response);
+        } catch (JSONException e) {
+            fail("Exception in JSONObject." + e.getMessage());
+        }
+    }
+
     /**
      * ファイルの削除を行う.
      * <pre>
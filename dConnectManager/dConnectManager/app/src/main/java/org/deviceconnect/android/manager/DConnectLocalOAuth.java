@@ -20,7 +20,11 @@ import org.deviceconnect.profile.SystemProfileConstants;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -62,6 +66,22 @@ public class DConnectLocalOAuth {
     /** DBアクセスヘルパークラス. */
     private LocalOAuthSQLiteOpenHelper mDBHelper;
 
+    /**
+     * Local OAuthデータのキャッシュ.
+     * <p>
+     * キーはオリジンとサービスIDから作成する. DBを更新するメソッドの中で破棄する.
+     * </p>
+     */
+    private final Map<String, OAuthData> mOAuthDataCache = new ConcurrentHashMap<String, OAuthData>();
+
+    /**
+     * アクセストークンのキャッシュ.
+     * <p>
+     * キーはOAuthDataの識別子. DBへの書き込みと同時に更新する.
+     * </p>
+     */
+    private final Map<Integer, String> mAccessTokenCache = new ConcurrentHashMap<Integer, String>();
+
     /**
      * コンテキスト.
      */
@@ -122,17 +142,35 @@ public class DConnectLocalOAuth {
             db.insertOrThrow(OAUTH_DATA_TABLE_NAME, null, values);
         } finally {
             db.close();
+            mOAuthDataCache.remove(createCacheKey(origin, serviceId));
         }
     }
 
     /**
      * 指定されたサービスIDのLocal OAuthデータを取得する.
      * 指定されたサービスIDに対応するデータが存在しない場合はnullを返却する.
+     * <p>
+     * キャッシュにある場合はDBに問い合わせずに返却する.
+     * </p>
+     * @param origin リクエスト元のオリジン
+     * @param serviceId サービスID
+     * @return Local OAuthデータ
+     */
+    public OAuthData getOAuthData(final String origin, final String serviceId) {
+        OAuthData cache = mOAuthDataCache.get(createCacheKey(origin, serviceId));
+        if (cache != null) {
+            return cache.copy();
+        }
+        return loadOAuthData(origin, serviceId);
+    }
+
+    /**
+     * 指定されたサービスIDのLocal OAuthデータをDBから取得してキャッシュする.
      * @param origin リクエスト元のオリジン
      * @param serviceId サービスID
      * @return Local OAuthデータ
      */
-    public synchronized OAuthData getOAuthData(final String origin, final String serviceId) {
+    private synchronized OAuthData loadOAuthData(final String origin, final String serviceId) {
         String select = OAuthDataColumns.ORIGIN + "=? and " + OAuthDataColumns.SERVICE_ID + "=?";
         String[] selectArgs = {origin, serviceId};
         OAuthData client =  null;
@@ -146,6 +184,9 @@ public class DConnectLocalOAuth {
             cs.close();
             db.close();
         }
+        if (client != null) {
+            mOAuthDataCache.put(createCacheKey(origin, serviceId), client.copy());
+        }
         return client;
     }
 
@@ -183,6 +224,7 @@ public class DConnectLocalOAuth {
             result = db.delete(OAUTH_DATA_TABLE_NAME, select, null) > 0;
         } finally {
             db.close();
+            removeOAuthDataCache(oauth.getId());
         }
         return result;
     }
@@ -245,6 +287,7 @@ public class DConnectLocalOAuth {
             return db.delete(ACCESS_TOKEN_TABLE_NAME, select, null) > 0;
         } finally {
             db.close();
+            mAccessTokenCache.remove(oauthId);
         }
     }
 
@@ -262,23 +305,41 @@ public class DConnectLocalOAuth {
             return db.delete(ACCESS_TOKEN_TABLE_NAME, select, selectArgs) > 0;
         } finally {
             db.close();
+            mAccessTokenCache.values().removeAll(Collections.singleton(token));
         }
     }
     /**
      * サービスIDに対応したアクセストークンを取得する.
      * 
      * アクセストークンが見つからない場合にはnullを返却する.
+     * キャッシュにある場合はDBに問い合わせずに返却する.
      * 
      * @param oauthId サービスID
      * @return アクセストークン
      */
-    public synchronized String getAccessToken(final int oauthId) {
+    public String getAccessToken(final int oauthId) {
+        String cache = mAccessTokenCache.get(oauthId);
+        if (cache != null) {
+            return cache;
+        }
+        return loadAccessToken(oauthId);
+    }
+
+    /**
+     * サービスIDに対応したアクセストークンをDBから取得してキャッシュする.
+     * 
+     * @param oauthId サービスID
+     * @return アクセストークン
+     */
+    private synchronized String loadAccessToken(final int oauthId) {
         String select = AccessTokenColumns.OAUTH_ID + "=" + oauthId;
         SQLiteDatabase db = mDBHelper.getReadableDatabase();
         Cursor cs = db.query(ACCESS_TOKEN_TABLE_NAME, null, select, null, null, null, null);
         try {
             if (cs.moveToFirst()) {
-                return cs.getString(cs.getColumnIndex(AccessTokenColumns.ACCESS_TOKEN));
+                String accessToken = cs.getString(cs.getColumnIndex(AccessTokenColumns.ACCESS_TOKEN));
+                mAccessTokenCache.put(oauthId, accessToken);
+                return accessToken;
             }
         } finally {
             cs.close();
@@ -307,6 +368,7 @@ public class DConnectLocalOAuth {
             } else {
                 mDBHelper.getWritableDatabase().insertOrThrow(ACCESS_TOKEN_TABLE_NAME, null, values);
             }
+            mAccessTokenCache.put(oauthId, accessToken);
         } finally {
             cs.close();
             db.close();
@@ -334,6 +396,28 @@ public class DConnectLocalOAuth {
         return clients;
     }
 
+    /**
+     * キャッシュのキーを作成する.
+     * @param origin リクエスト元のオリジン
+     * @param serviceId サービスID
+     * @return キャッシュのキー
+     */
+    private static String createCacheKey(final String origin, final String serviceId) {
+        return origin + "\n" + serviceId;
+    }
+
+    /**
+     * 指定された識別子のLocal OAuthデータをキャッシュから削除する.
+     * @param oauthId OAuthDataを識別するID
+     */
+    private void removeOAuthDataCache(final int oauthId) {
+        for (Iterator<OAuthData> it = mOAuthDataCache.values().iterator(); it.hasNext(); ) {
+            if (it.next().getId() == oauthId) {
+                it.remove();
+            }
+        }
+    }
+
     /**
      * DBからOAuthDataを作成する.
      * @param cs DBのカーソル
@@ -416,6 +500,21 @@ public class DConnectLocalOAuth {
         public void setServiceId(final String serviceId) {
             this.mServiceId = serviceId;
         }
+        /**
+         * コピーを作成する.
+         * <p>
+         * キャッシュしているインスタンスが呼び出し元で変更されないように使用する.
+         * </p>
+         * @return コピー
+         */
+        OAuthData copy() {
+            OAuthData data = new OAuthData();
+            data.mId = mId;
+            data.mOrigin = mOrigin;
+            data.mClientId = mClientId;
+            data.mServiceId = mServiceId;
+            return data;
+        }
     }
 
     /**
@@ -58,6 +58,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -89,6 +92,9 @@ public abstract class DConnectMessageService extends Service
     /** 起動用URIスキーム名. */
     private static final String SCHEME_LAUNCH = "dconnect";
 
+    /** 不要になったキャッシュファイルを削除する間隔(ms). */
+    private static final long FILE_CACHE_SWEEP_INTERVAL = 60 * 1000;
+
     /** ロガー. */
     protected final Logger mLogger = Logger.getLogger("dconnect.manager");
 
@@ -128,6 +134,15 @@ public abstract class DConnectMessageService extends Service
     /** イベントブローカー. */
     protected EventBroker mEventBroker;
 
+    /** 不要になったキャッシュファイルを定期的に削除するスケジューラ. */
+    private ScheduledExecutorService mFileCacheSweeper;
+
+    /** レスポンスに付加する製品名. */
+    private String mProductName;
+
+    /** レスポンスに付加するバージョン名. */
+    private String mVersionName;
+
     @Override
     public IBinder onBind(final Intent intent) {
         return null;
@@ -160,6 +175,10 @@ public abstract class DConnectMessageService extends Service
         // ファイル管理クラス
         mFileMgr = new FileManager(this);
 
+        // リクエスト・レスポンスに付加する情報は変わらないので、ここで取得しておく
+        mProductName = getString(R.string.app_name);
+        mVersionName = DConnectUtil.getVersionName(this);
+
         // デバイスプラグインとのLocal OAuth情報
         mLocalOAuth = new DConnectLocalOAuth(this);
 
@@ -241,11 +260,6 @@ public abstract class DConnectMessageService extends Service
             return;
         }
 
-        // 不要になったキャッシュファイルの削除を行う
-        if (mFileMgr != null) {
-            mFileMgr.checkAndRemove();
-        }
-
         // レスポンス用のIntentの用意
         Intent response = new Intent(IntentDConnectMessage.ACTION_RESPONSE);
         response.putExtra(DConnectMessage.EXTRA_RESULT, DConnectMessage.RESULT_ERROR);
@@ -353,8 +367,8 @@ public abstract class DConnectMessageService extends Service
      */
     private void executeRequest(final Intent request, final Intent response) {
         // リクエストにDeviceConnectManagerの情報を付加する
-        request.putExtra(DConnectMessage.EXTRA_PRODUCT, getString(R.string.app_name));
-        request.putExtra(DConnectMessage.EXTRA_VERSION, DConnectUtil.getVersionName(this));
+        request.putExtra(DConnectMessage.EXTRA_PRODUCT, mProductName);
+        request.putExtra(DConnectMessage.EXTRA_VERSION, mVersionName);
 
         DConnectProfile profile = getProfile(request);
         if (profile != null && !isDeliveryRequest(request)) {
@@ -532,16 +546,26 @@ public abstract class DConnectMessageService extends Service
             mLogger.info("    RequireOrigin: " + mSettings.requireOrigin());
             mLogger.info("    LocalOAuth: " + mSettings.isUseALocalOAuth());
             mLogger.info("    OriginBlock: " + mSettings.isBlockingOrigin());
+            mLogger.info("    RequestThreadSize: " + mSettings.getRequestThreadSize());
+            mLogger.info("    RequestMaxPerPlugin: " + mSettings.getRequestMaxPerPlugin());
+            mLogger.info("    RequestQueueSize: " + mSettings.getRequestQueueSize());
+            mLogger.info("    ServiceDiscoveryCacheTtl: " + mSettings.getServiceDiscoveryCacheTtl());
+            mLogger.info("    EventQueueSize: " + mSettings.getEventQueueSize());
+            mLogger.info("    EventOverflowPolicy: " + mSettings.getEventOverflowPolicy().getValue());
         }
 
         mHmacManager = new HmacManager(this);
-        mRequestManager = new DConnectRequestManager();
+        mRequestManager = new DConnectRequestManager(mSettings.getRequestThreadSize(),
+                mSettings.getRequestMaxPerPlugin(), mSettings.getRequestQueueSize());
         mOriginValidator = new OriginValidator(this,
                 mSettings.requireOrigin(), mSettings.isBlockingOrigin());
 
+        mPluginMgr.getServiceDiscoveryCache().setTimeToLive(mSettings.getServiceDiscoveryCacheTtl());
         mPluginMgr.setEventListener(this);
         mPluginMgr.createDevicePluginList();
 
+        startFileCacheSweeper();
+
         showNotification();
 
         mRunningFlag = true;
@@ -558,9 +582,44 @@ public abstract class DConnectMessageService extends Service
         if (mRequestManager != null) {
             mRequestManager.shutdown();
         }
+        stopFileCacheSweeper();
         hideNotification();
     }
 
+    /**
+     * 不要になったキャッシュファイルの定期削除を開始する.
+     * <p>
+     * キャッシュフォルダの走査はファイル数に比例して時間が掛かるので、リクエストの処理とは別のスレッドで行う.
+     * </p>
+     */
+    private void startFileCacheSweeper() {
+        if (mFileCacheSweeper != null) {
+            return;
+        }
+        mFileCacheSweeper = Executors.newSingleThreadScheduledExecutor();
+        mFileCacheSweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mFileMgr.checkAndRemove();
+                } catch (RuntimeException e) {
+                    // 例外で定期実行が止まらないように、ログを出力して次回に持ち越す
+                    mLogger.warning("Failed to remove the cache files: " + e.toString());
+                }
+            }
+        }, 0, FILE_CACHE_SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 不要になったキャッシュファイルの定期削除を停止する.
+     */
+    private void stopFileCacheSweeper() {
+        if (mFileCacheSweeper != null) {
+            mFileCacheSweeper.shutdownNow();
+            mFileCacheSweeper = null;
+        }
+    }
+
     /**
      * 各デバイスプラグインにリクエストを受け渡す.
      *
@@ -614,8 +673,8 @@ public abstract class DConnectMessageService extends Service
 
         Intent intent = new Intent(response);
         intent.putExtra(IntentDConnectMessage.EXTRA_REQUEST_CODE, requestCode);
-        intent.putExtra(IntentDConnectMessage.EXTRA_PRODUCT, getString(R.string.app_name));
-        intent.putExtra(IntentDConnectMessage.EXTRA_VERSION, DConnectUtil.getVersionName(this));
+        intent.putExtra(IntentDConnectMessage.EXTRA_PRODUCT, mProductName);
+        intent.putExtra(IntentDConnectMessage.EXTRA_VERSION, mVersionName);
 
         // HMAC生成
         String origin = request.getStringExtra(IntentDConnectMessage.EXTRA_ORIGIN);
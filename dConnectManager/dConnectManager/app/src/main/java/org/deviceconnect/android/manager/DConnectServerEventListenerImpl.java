@@ -39,6 +39,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.SequenceInputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
@@ -49,6 +50,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -57,9 +60,12 @@ import java.util.logging.Logger;
  */
 public class DConnectServerEventListenerImpl implements DConnectServerEventListener {
     /**
-     * HTTPサーバからリクエストのマップ.
+     * レスポンス待ちのリクエストのマップ.
+     * <p>
+     * キーはリクエストコード.
+     * </p>
      */
-    private final Map<Integer, Intent> mRequestMap = new ConcurrentHashMap<Integer, Intent>();
+    private final Map<Integer, PendingResponse> mRequestMap = new ConcurrentHashMap<Integer, PendingResponse>();
 
     /** ロガー. */
     private final Logger mLogger = Logger.getLogger("dconnect.manager");
@@ -77,8 +83,6 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
     /** バッファサイズ. */
     private static final int BUF_SIZE = 4096;
 
-    /** ポーリング時間(ms). */
-    private static final int POLLING_WAIT_TIME = 10000;
     /** デフォルトのタイムアウト時間(ms). */
     private static final int DEFAULT_RESTFUL_TIMEOUT = 180000;
     /** タイムアウト時間. */
@@ -90,9 +94,6 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
     /** ファイルを管理するためのクラス. */
     private FileManager mFileMgr;
 
-    /** ロックオブジェクト. */
-    private final Object mLockObj = new Object();
-
     /**
      * コンストラクタ.
      * @param context このクラスが属するコンテキスト
@@ -109,6 +110,14 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
         mFileMgr = fileMgr;
     }
 
+    /**
+     * レスポンスやファイルの保存を待つタイムアウト時間を設定する.
+     * @param timeout タイムアウト時間(ms)
+     */
+    public void setTimeout(final int timeout) {
+        mTimeout = timeout;
+    }
+
     /**
      * Device Connect Managerからレスポンスを受け取る.
      *
@@ -117,11 +126,14 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
     public void onResponse(final Intent intent) {
         int requestCode = intent.getIntExtra(
                 IntentDConnectMessage.EXTRA_REQUEST_CODE, Integer.MIN_VALUE);
-        mRequestMap.put(requestCode, intent);
-        // レスポンスを受け取ったのでスレッドを再開
-        synchronized (mLockObj) {
-            mLockObj.notifyAll();
+        PendingResponse pending = mRequestMap.get(requestCode);
+        if (pending == null) {
+            // タイムアウト済み、もしくは不明なリクエストコードのレスポンス
+            mLogger.warning("onResponse: No pending request: requestCode = " + requestCode);
+            return;
         }
+        // レスポンスを待っているスレッドのみを再開
+        pending.complete(intent);
     }
 
     @Override
@@ -163,6 +175,8 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
             eventBroker.removeEventSession(disconnected.getReceiverId());
             app.getWebSocketInfoManager().removeWebSocketInfo(disconnected.getReceiverId());
         }
+        // WebSocketの情報を削除してからキューを破棄する
+        service.removeEventQueue(webSocketId);
     }
 
     @Override
@@ -353,7 +367,18 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
 
         // Bodyの解析
         if (hasMultipart(contentType)) {
-            parseMultipart(request, intent);
+            DConnectMessage.ErrorCode error = parseMultipart(request, intent);
+            if (error != null) {
+                // ファイルのパートが複数ある場合や、ファイルの保存に失敗した場合はエラー
+                try {
+                    setErrorCodeResponse(response, error);
+                } catch (JSONException e) {
+                    setErrorResponse(response);
+                } catch (UnsupportedEncodingException e) {
+                    setErrorResponse(response);
+                }
+                return true;
+            }
         } else {
             parseBody(request, intent, isUrlEncoded(contentType));
         }
@@ -361,11 +386,15 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
         intent.putExtra(IntentDConnectMessage.EXTRA_REQUEST_CODE, requestCode);
         intent.putExtra(DConnectService.EXTRA_INNER_TYPE,
                 DConnectService.INNER_TYPE_HTTP);
+
+        // NOTE: レスポンスを取りこぼさないように、リクエスト送信前に待ち受けを登録する
+        PendingResponse pending = new PendingResponse();
+        mRequestMap.put(requestCode, pending);
         mContext.startService(intent);
 
         // レスポンスが返ってくるまで待つ
         // ただし、タイムアウト時間を設定しておき、永遠には待たない。
-        Intent resp = waitForResponse(requestCode);
+        Intent resp = waitForResponse(requestCode, pending);
         try {
             if (resp == null) {
                 // ここのエラーはタイムアウトの場合のみ
@@ -390,21 +419,19 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
      * レスポンスが返ってくるまで待ちます.
      * ただし、タイムアウトなどを起こした場合にはnullが返却される。
      * @param requestCode リクエストコード
+     * @param pending レスポンスの待ち受け
      * @return レスポンス用のIntent
      */
-    private Intent waitForResponse(final int requestCode) {
-        final long now = System.currentTimeMillis();
-        while (mRequestMap.get(requestCode) == null
-                && (System.currentTimeMillis() - now) < mTimeout) {
-            synchronized (mLockObj) {
-                try {
-                    mLockObj.wait(POLLING_WAIT_TIME);
-                } catch (InterruptedException e) {
-                    mLogger.warning("Exception ouccered in wait.");
-                }
-            }
+    private Intent waitForResponse(final int requestCode, final PendingResponse pending) {
+        try {
+            return pending.await(mTimeout);
+        } catch (InterruptedException e) {
+            mLogger.warning("Exception ouccered in wait.");
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            mRequestMap.remove(requestCode);
         }
-        return mRequestMap.remove(requestCode);
     }
 
     /**
@@ -425,6 +452,23 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
         response.setBody(root.toString().getBytes("UTF-8"));
     }
 
+    /**
+     * 指定されたエラーコードのエラーレスポンスを作成する.
+     * @param response レスポンスを格納するインスタンス
+     * @param errorCode エラーコード
+     * @throws JSONException JSON変換に失敗した場合には発生
+     * @throws UnsupportedEncodingException 文字コード(UTF8)がサポートされていない場合に発生
+     */
+    private void setErrorCodeResponse(final HttpResponse response, final DConnectMessage.ErrorCode errorCode)
+            throws JSONException, UnsupportedEncodingException {
+        JSONObject root = new JSONObject();
+        root.put(DConnectMessage.EXTRA_RESULT, DConnectMessage.RESULT_ERROR);
+        root.put(DConnectMessage.EXTRA_ERROR_CODE, errorCode.getCode());
+        root.put(DConnectMessage.EXTRA_ERROR_MESSAGE, errorCode.toString());
+        response.setContentType(CONTENT_TYPE_JSON);
+        response.setBody(root.toString().getBytes("UTF-8"));
+    }
+
     /**
      * プロファイルが空の場合のエラーレスポンスを作成する.
      * @param response レスポンスを格納するインスタンス
@@ -595,7 +639,9 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
     /**
      * マルチパートを解析する.
      *
-     * 許容するマルチパートのデータは1個まで。
+     * 許容するマルチパートのデータは1個まで。ファイルのパートが2個以上ある場合や、
+     * ファイルの保存に失敗した場合はエラーコードを返却する。
+     * 解析に失敗した場合や、エラーコードを返却する場合は、保存途中のファイルを削除する。
      *
      * @see <a
      *      href="http://www.w3.org/TR/html401/interact/forms.html#h-17.13.4.2">
@@ -603,9 +649,13 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
      *
      * @param request Httpリクエスト
      * @param intent 変換したデータを格納するIntent
+     * @return リクエストを続行できる場合はnull、続行できない場合はエラーコード
      */
-    private void parseMultipart(final HttpRequest request, final Intent intent) {
+    private DConnectMessage.ErrorCode parseMultipart(final HttpRequest request, final Intent intent) {
         InputStream is = null;
+        final String[] filename = new String[1];
+        final String[] savedFilename = new String[1];
+        final DConnectMessage.ErrorCode[] error = new DConnectMessage.ErrorCode[1];
         try {
             Map<String, String> headers = request.getHeaders();
             MimeStreamParser parser = new MimeStreamParser();
@@ -615,10 +665,12 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
             }
             sb.append("\r\n");
 
-            is = new ByteArrayInputStream(request.getBody());
+            is = request.getBodyStream();
+            if (is == null) {
+                return null;
+            }
 
-            final String[] filename = new String[1];
-            final ByteArrayOutputStream data = new ByteArrayOutputStream();
+            final String[] fileUri = new String[1];
             parser.setContentHandler(new AbstractContentHandler() {
                 /** 変数を格納するためのパートを表す. */
                 private static final int STATE_VALUE = 0;
@@ -635,7 +687,21 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
                         if (mState == STATE_VALUE) {
                             intent.putExtra(mName, new String(loadBytes(in)));
                         } else if (mState == STATE_FILE) {
-                            data.write(loadBytes(in));
+                            if (savedFilename[0] != null) {
+                                error[0] = DConnectMessage.ErrorCode.INVALID_REQUEST_PARAMETER;
+                                throw new MimeException("Multiple file parts are not allowed.");
+                            }
+                            // ファイルはメモリ上に展開せずに、そのまま保存する
+                            savedFilename[0] = filename[0];
+                            try {
+                                fileUri[0] = saveFile(filename[0], in);
+                            } catch (InterruptedIOException e) {
+                                error[0] = DConnectMessage.ErrorCode.TIMEOUT;
+                                throw e;
+                            } catch (IOException e) {
+                                error[0] = DConnectMessage.ErrorCode.UNKNOWN;
+                                throw e;
+                            }
                         } else {
                             mLogger.warning("Unknown state. state=" + mState);
                         }
@@ -673,15 +739,19 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
             });
             parser.parse(new SequenceInputStream(new ByteArrayInputStream(sb
                     .toString().getBytes("US-ASCII")), is));
-            if (filename[0] != null) {
-                String tmpUri = mFileMgr.saveFile(filename[0], data.toByteArray());
-                intent.putExtra(FileProfileConstants.PARAM_FILE_NAME, filename[0]);
-                intent.putExtra(FileProfileConstants.PARAM_URI, tmpUri);
+            if (savedFilename[0] != null && fileUri[0] != null) {
+                intent.putExtra(FileProfileConstants.PARAM_FILE_NAME, savedFilename[0]);
+                intent.putExtra(FileProfileConstants.PARAM_URI, fileUri[0]);
             }
+            return null;
         } catch (final MimeException e) {
             mLogger.warning("Exception in parseMultipart." + e.getMessage());
+            removeFile(savedFilename[0]);
+            return error[0];
         } catch (IOException e) {
             mLogger.warning("Exception in parseMultipart." + e.getMessage());
+            removeFile(savedFilename[0]);
+            return error[0];
         } finally {
             if (is != null) {
                 try {
@@ -693,6 +763,70 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
         }
     }
 
+    /**
+     * ストリームの内容をファイルに保存する.
+     * <p>
+     * 書き込み権限の確認で呼び出し元とは別のスレッドで保存される場合があるので、
+     * ストリームを読み終わるまで待つ. ただし、タイムアウト時間を過ぎた場合は待つのをやめる.
+     * </p>
+     * @param filename ファイル名
+     * @param in ストリーム
+     * @return 保存したファイルへのURI
+     * @throws InterruptedIOException タイムアウト時間内にファイルの保存が終わらなかった場合に発生
+     * @throws IOException ファイルの保存に失敗した場合に発生
+     */
+    private String saveFile(final String filename, final InputStream in) throws IOException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final String[] uri = new String[1];
+        final Throwable[] error = new Throwable[1];
+        mFileMgr.saveFile(filename, in, new FileManager.SaveFileCallback() {
+            @Override
+            public void onSuccess(final String u) {
+                uri[0] = u;
+                latch.countDown();
+            }
+
+            @Override
+            public void onFail(final Throwable throwable) {
+                error[0] = throwable;
+                latch.countDown();
+            }
+        });
+        try {
+            if (!latch.await(mTimeout, TimeUnit.MILLISECONDS)) {
+                throw new InterruptedIOException("Timed out while saving a file. " + filename);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving a file. " + filename);
+        }
+        if (uri[0] == null) {
+            throw new IOException("Failed to save a file. " + filename
+                    + (error[0] != null ? ": " + error[0].getMessage() : ""));
+        }
+        return uri[0];
+    }
+
+    /**
+     * 保存途中のファイルを削除する.
+     * @param filename ファイル名. nullの場合は何もしない
+     */
+    private void removeFile(final String filename) {
+        if (filename == null) {
+            return;
+        }
+        mFileMgr.removeFile(filename, new FileManager.RemoveFileCallback() {
+            @Override
+            public void onSuccess() {
+            }
+
+            @Override
+            public void onFail(final Throwable throwable) {
+                mLogger.warning("Failed to remove a file. " + filename + ": " + throwable.getMessage());
+            }
+        });
+    }
+
     /**
      * 指定されたストリームを読み込みbyte配列にする.
      * @param in ストリーム
@@ -732,10 +866,41 @@ public class DConnectServerEventListenerImpl implements DConnectServerEventListe
                 response.setBody(data);
             }
         } else {
-            JSONObject root = new JSONObject();
-            DConnectUtil.convertBundleToJSON(root, resp.getExtras());
             response.setContentType(CONTENT_TYPE_JSON);
-            response.setBody(root.toString().getBytes("UTF-8"));
+            response.setBody(DConnectUtil.convertBundleToJSONBytes(resp.getExtras()));
+        }
+    }
+
+    /**
+     * 1つのリクエストに対するレスポンスの待ち受け.
+     */
+    private static class PendingResponse {
+        /** レスポンスの受信を通知するラッチ. */
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+
+        /** レスポンス. */
+        private volatile Intent mResponse;
+
+        /**
+         * レスポンスを受信したことを通知する.
+         * @param response レスポンス
+         */
+        void complete(final Intent response) {
+            mResponse = response;
+            mLatch.countDown();
+        }
+
+        /**
+         * レスポンスを受信するまで待つ.
+         * @param timeout タイムアウト時間(ms)
+         * @return レスポンス. タイムアウトした場合は<code>null</code>
+         * @throws InterruptedException 待機中に割り込まれた場合
+         */
+        Intent await(final long timeout) throws InterruptedException {
+            if (mLatch.await(timeout, TimeUnit.MILLISECONDS)) {
+                return mResponse;
+            }
+            return null;
         }
     }
 }
@@ -29,12 +29,16 @@ import org.deviceconnect.server.DConnectServer;
 import org.deviceconnect.server.DConnectServerConfig;
 import org.deviceconnect.server.nanohttpd.DConnectServerNanoHttpd;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * dConnect Manager本体.
@@ -58,7 +62,7 @@ public class DConnectService extends DConnectMessageService {
     public static final String INNER_APP_TYPE_WEB = "web";
 
     /** RESTfulサーバ. */
-    private DConnectServer mRESTfulServer;
+    private volatile DConnectServer mRESTfulServer;
 
     /** RESTfulサーバからのイベントを受領するリスナー. */
     private DConnectServerEventListenerImpl mWebServerListener;
@@ -66,6 +70,31 @@ public class DConnectService extends DConnectMessageService {
     /** イベント送信スレッド. */
     private ExecutorService mEventSender = Executors.newSingleThreadExecutor();
 
+    /** イベント送信待ちキューを処理するスレッドの数. */
+    private static final int EVENT_QUEUE_THREAD_COUNT = 4;
+
+    /**
+     * WebSocketごとのイベント送信待ちキューを処理するスレッドプール.
+     * <p>
+     * 送信が止まったWebSocketごとにスレッドが増えないように、スレッド数は{@link #EVENT_QUEUE_THREAD_COUNT}に制限する.
+     * 各キューは一定数のイベントを送信するとスレッドを手放し、送信が止まったWebSocketは
+     * {@link #EVENT_SEND_TIMEOUT}を超えると切断されるので、他のWebSocketの送信は長く待たされない.
+     * </p>
+     */
+    private final ExecutorService mEventQueueExecutor = Executors.newFixedThreadPool(EVENT_QUEUE_THREAD_COUNT);
+
+    /** WebSocketへの1件のイベント送信に許す時間(ミリ秒). */
+    private static final long EVENT_SEND_TIMEOUT = 10 * 1000;
+
+    /** イベント送信のタイムアウトを確認する間隔(ミリ秒). */
+    private static final long EVENT_SEND_TIMEOUT_CHECK_INTERVAL = 1000;
+
+    /** イベント送信のタイムアウトを定期的に確認するスケジューラ. */
+    private final ScheduledExecutorService mEventSendWatchdog = Executors.newSingleThreadScheduledExecutor();
+
+    /** WebSocketごとのイベント送信待ちキュー. キーはWebSocket ID. */
+    private final Map<String, WebSocketEventQueue> mEventQueues = new ConcurrentHashMap<>();
+
     /** イベントKeep Alive管理クラス. */
     private KeepAliveManager mKeepAliveManager;
 
@@ -103,11 +132,26 @@ public class DConnectService extends DConnectMessageService {
                 new ServiceDiscoveryConverter(),
                 new ServiceInformationConverter()
         };
+        mEventSendWatchdog.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (WebSocketEventQueue queue : mEventQueues.values()) {
+                        queue.checkSendTimeout();
+                    }
+                } catch (RuntimeException e) {
+                    // 例外で定期実行が止まらないように、ログを出力して次回に持ち越す
+                    mLogger.warning("Failed to check the event send timeout: " + e.toString());
+                }
+            }
+        }, EVENT_SEND_TIMEOUT_CHECK_INTERVAL, EVENT_SEND_TIMEOUT_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void onDestroy() {
         stopRESTfulServer();
+        mEventSendWatchdog.shutdownNow();
+        mEventQueueExecutor.shutdown();
         super.onDestroy();
     }
 
@@ -183,36 +227,19 @@ public class DConnectService extends DConnectMessageService {
     @Override
     public void sendEvent(final String receiver, final Intent event) {
         if (receiver == null || receiver.length() <= 0) {
-            final String key = event.getStringExtra(IntentDConnectMessage.EXTRA_SESSION_KEY);
-            mEventSender.execute(new Runnable() {
-                @Override
-                public void run() {
-                    if (key != null && mRESTfulServer != null && mRESTfulServer.isRunning()) {
-                        WebSocketInfo info = getWebSocketInfo(key);
-                        if (info == null) {
-                            mLogger.warning("sendEvent: webSocket is not found: key = " + key);
-                            return;
-                        }
-
-                        try {
-                            if (BuildConfig.DEBUG) {
-                                mLogger.info(String.format("sendEvent: %s extra: %s", key, event.getExtras()));
-                            }
-                            JSONObject root = new JSONObject();
-                            DConnectUtil.convertBundleToJSON(root, event.getExtras());
-
-                            mRESTfulServer.sendEvent(info.getRawId(), root.toString());
-                        } catch (JSONException e) {
-                            mLogger.warning("JSONException in sendEvent: " + e.toString());
-                        } catch (IOException e) {
-                            mLogger.warning("IOException in sendEvent: " + e.toString());
-                            if (mWebServerListener != null) {
-                                mWebServerListener.onWebSocketDisconnected(info.getRawId());
-                            }
-                        }
-                    }
+            String key = event.getStringExtra(IntentDConnectMessage.EXTRA_SESSION_KEY);
+            DConnectServer server = mRESTfulServer;
+            if (key != null && server != null && server.isRunning()) {
+                WebSocketEventQueue queue = getEventQueue(key);
+                if (queue == null) {
+                    mLogger.warning("sendEvent: webSocket is not found: key = " + key);
+                    return;
                 }
-            });
+                if (BuildConfig.DEBUG) {
+                    mLogger.info(String.format("sendEvent: %s extra: %s", key, event.getExtras()));
+                }
+                queue.offer(event);
+            }
         } else {
             super.sendEvent(receiver, event);
         }
@@ -242,6 +269,117 @@ public class DConnectService extends DConnectMessageService {
         return mEventBroker;
     }
 
+    /**
+     * 接続中のWebSocketのイベント送信待ちキューの一覧を取得する.
+     * <p>
+     * キューの長さ、破棄したイベント数、送信時間などの確認に使用する.
+     * </p>
+     * @return イベント送信待ちキューの一覧
+     */
+    public List<WebSocketEventQueue> getEventQueues() {
+        return new ArrayList<>(mEventQueues.values());
+    }
+
+    /**
+     * 指定されたWebSocketのイベント送信待ちキューを破棄する.
+     * <p>
+     * 切断されたWebSocketの場合は、WebSocketの情報を削除してから呼び出すこと.
+     * 先に呼び出すと、並行して送信されたイベントのためにキューが作り直される.
+     * </p>
+     * @param webSocketId WebSocket ID
+     */
+    public void removeEventQueue(final String webSocketId) {
+        WebSocketEventQueue queue;
+        synchronized (mEventQueues) {
+            queue = mEventQueues.remove(webSocketId);
+        }
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    /**
+     * 指定されたセッションキーのWebSocketのイベント送信待ちキューを取得する.
+     * <p>
+     * キューが存在しない場合は作成する.
+     * WebSocketの情報の確認とキューの作成は{@link #removeEventQueue(String)}と同じロックで行うので、
+     * 切断されたWebSocketのキューが作り直されることはない.
+     * </p>
+     * @param key セッションキー
+     * @return イベント送信待ちキュー. WebSocketが見つからない場合はnull
+     */
+    private WebSocketEventQueue getEventQueue(final String key) {
+        synchronized (mEventQueues) {
+            WebSocketInfo info = getWebSocketInfo(key);
+            if (info == null) {
+                return null;
+            }
+            String webSocketId = info.getRawId();
+            WebSocketEventQueue queue = mEventQueues.get(webSocketId);
+            if (queue == null || queue.isClosed()) {
+                queue = new WebSocketEventQueue(webSocketId, mSettings.getEventQueueSize(),
+                        mSettings.getEventOverflowPolicy(), EVENT_SEND_TIMEOUT, mEventQueueExecutor,
+                        mWebSocketEventSender);
+                mEventQueues.put(webSocketId, queue);
+            }
+            return queue;
+        }
+    }
+
+    /**
+     * イベント送信待ちキューからWebSocketにイベントを送信する.
+     */
+    private final WebSocketEventQueue.EventSender mWebSocketEventSender = new WebSocketEventQueue.EventSender() {
+        @Override
+        public boolean send(final String webSocketId, final Intent event) throws IOException {
+            DConnectServer server = mRESTfulServer;
+            if (server == null || !server.isRunning()) {
+                return false;
+            }
+            try {
+                server.sendEvent(webSocketId, DConnectUtil.convertBundleToJSONString(event.getExtras()));
+                return true;
+            } catch (JSONException e) {
+                mLogger.warning("JSONException in sendEvent: " + e.toString());
+                return false;
+            }
+        }
+
+        @Override
+        public void onSendFailed(final WebSocketEventQueue queue, final IOException e) {
+            mLogger.warning("IOException in sendEvent: " + e.toString());
+            if (mWebServerListener != null) {
+                mWebServerListener.onWebSocketDisconnected(queue.getWebSocketId());
+            }
+        }
+
+        @Override
+        public void onOverflow(final WebSocketEventQueue queue) {
+            mLogger.warning("sendEvent: event queue is full, disconnect webSocket: id = " + queue.getWebSocketId());
+            final String webSocketId = queue.getWebSocketId();
+            removeEventQueue(webSocketId);
+            mEventSender.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mRESTfulServer != null) {
+                        mRESTfulServer.disconnectWebSocket(webSocketId);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onSendTimeout(final WebSocketEventQueue queue) {
+            mLogger.warning("sendEvent: send timed out, abort webSocket: id = " + queue.getWebSocketId());
+            removeEventQueue(queue.getWebSocketId());
+            // 送信中のスレッドが切断処理をブロックするので、ソケットを直接閉じて送信を終わらせる
+            DConnectServer server = mRESTfulServer;
+            if (server != null) {
+                server.abortWebSocket(queue.getWebSocketId());
+            }
+        }
+    };
+
     private WebSocketInfo getWebSocketInfo(final String receiverId) {
         return ((DConnectApplication) getApplication()).getWebSocketInfoManager().getWebSocketInfo(receiverId);
     }
@@ -302,6 +440,9 @@ public class DConnectService extends DConnectMessageService {
                     mRESTfulServer.shutdown();
                     mRESTfulServer = null;
                 }
+                for (WebSocketEventQueue queue : getEventQueues()) {
+                    removeEventQueue(queue.getWebSocketId());
+                }
 
                 if (BuildConfig.DEBUG) {
                     mLogger.info("RESTful Server was Stopped.");
@@ -10,6 +10,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Environment;
 
+import org.deviceconnect.android.manager.request.DConnectRequestScheduler;
 import org.deviceconnect.android.manager.util.DConnectUtil;
 
 import java.io.File;
@@ -29,6 +30,19 @@ public final class DConnectSettings {
     public static final int DEFAULT_INTERVAL = 1000 * 60 * 5;
     /** デフォルトのキーワード. */
     public static final String DEFAULT_KEYWORD = DConnectUtil.createKeyword();
+    /** リクエストを実行するデフォルトのスレッド数を定義. */
+    public static final int DEFAULT_REQUEST_THREAD_SIZE = 8;
+    /** 1つのデバイスプラグインに対して同時に実行するデフォルトのリクエスト数を定義. */
+    public static final int DEFAULT_REQUEST_MAX_PER_PLUGIN = 2;
+    /** 1つのデバイスプラグインに対して実行待ちにできるデフォルトのリクエスト数を定義. */
+    public static final int DEFAULT_REQUEST_QUEUE_SIZE = 32;
+    /** サービス検索結果のキャッシュのデフォルトの有効期限(ms)を定義. */
+    public static final long DEFAULT_SERVICE_DISCOVERY_CACHE_TTL = ServiceDiscoveryCache.DEFAULT_TIME_TO_LIVE;
+    /** 1つのWebSocketに対して送信待ちにできるデフォルトのイベント数を定義. */
+    public static final int DEFAULT_EVENT_QUEUE_SIZE = 64;
+    /** 送信待ちのイベント数が上限に達した場合のデフォルトの処理を定義. */
+    public static final WebSocketEventQueue.OverflowPolicy DEFAULT_EVENT_OVERFLOW_POLICY =
+            WebSocketEventQueue.OverflowPolicy.DROP_OLDEST;
     /** ポート番号. */
     private int mPort = DEFAULT_PORT;
     /** ホスト名. */
@@ -64,6 +78,24 @@ public final class DConnectSettings {
     /** キーワード. */
     private String mKeyword;
 
+    /** リクエストを実行するスレッド数. */
+    private int mRequestThreadSize = DEFAULT_REQUEST_THREAD_SIZE;
+
+    /** 1つのデバイスプラグインに対して同時に実行するリクエスト数. */
+    private int mRequestMaxPerPlugin = DEFAULT_REQUEST_MAX_PER_PLUGIN;
+
+    /** 1つのデバイスプラグインに対して実行待ちにできるリクエスト数. */
+    private int mRequestQueueSize = DEFAULT_REQUEST_QUEUE_SIZE;
+
+    /** サービス検索結果のキャッシュの有効期限(ms). */
+    private long mServiceDiscoveryCacheTtl = DEFAULT_SERVICE_DISCOVERY_CACHE_TTL;
+
+    /** 1つのWebSocketに対して送信待ちにできるイベント数. */
+    private int mEventQueueSize = DEFAULT_EVENT_QUEUE_SIZE;
+
+    /** 送信待ちのイベント数が上限に達した場合の処理. */
+    private WebSocketEventQueue.OverflowPolicy mEventOverflowPolicy = DEFAULT_EVENT_OVERFLOW_POLICY;
+
     /** このクラスの唯一のインスタンス. */
     private static DConnectSettings sInstance;
 
@@ -129,6 +161,45 @@ public final class DConnectSettings {
         } catch (NumberFormatException e) {
             setPort(DEFALUT_WEB_PORT);
         }
+        try {
+            setRequestThreadSize(Integer.parseInt(sp.getString(
+                    context.getString(R.string.key_settings_request_thread_size),
+                    String.valueOf(DEFAULT_REQUEST_THREAD_SIZE))));
+        } catch (NumberFormatException e) {
+            setRequestThreadSize(DEFAULT_REQUEST_THREAD_SIZE);
+        }
+        try {
+            setRequestMaxPerPlugin(Integer.parseInt(sp.getString(
+                    context.getString(R.string.key_settings_request_max_per_plugin),
+                    String.valueOf(DEFAULT_REQUEST_MAX_PER_PLUGIN))));
+        } catch (NumberFormatException e) {
+            setRequestMaxPerPlugin(DEFAULT_REQUEST_MAX_PER_PLUGIN);
+        }
+        try {
+            setRequestQueueSize(Integer.parseInt(sp.getString(
+                    context.getString(R.string.key_settings_request_queue_size),
+                    String.valueOf(DEFAULT_REQUEST_QUEUE_SIZE))));
+        } catch (NumberFormatException e) {
+            setRequestQueueSize(DEFAULT_REQUEST_QUEUE_SIZE);
+        }
+        try {
+            setServiceDiscoveryCacheTtl(Long.parseLong(sp.getString(
+                    context.getString(R.string.key_settings_service_discovery_cache_ttl),
+                    String.valueOf(DEFAULT_SERVICE_DISCOVERY_CACHE_TTL))));
+        } catch (NumberFormatException e) {
+            setServiceDiscoveryCacheTtl(DEFAULT_SERVICE_DISCOVERY_CACHE_TTL);
+        }
+        try {
+            setEventQueueSize(Integer.parseInt(sp.getString(
+                    context.getString(R.string.key_settings_event_queue_size),
+                    String.valueOf(DEFAULT_EVENT_QUEUE_SIZE))));
+        } catch (NumberFormatException e) {
+            setEventQueueSize(DEFAULT_EVENT_QUEUE_SIZE);
+        }
+        WebSocketEventQueue.OverflowPolicy policy = WebSocketEventQueue.OverflowPolicy.fromValue(sp.getString(
+                context.getString(R.string.key_settings_event_overflow_policy),
+                DEFAULT_EVENT_OVERFLOW_POLICY.getValue()));
+        setEventOverflowPolicy(policy != null ? policy : DEFAULT_EVENT_OVERFLOW_POLICY);
     }
 
     /**
@@ -350,4 +421,119 @@ public final class DConnectSettings {
     public void setKeyword(final String keyword) {
         mKeyword = keyword;
     }
+
+    /**
+     * リクエストを実行するスレッド数を取得する.
+     * @return スレッド数
+     */
+    public int getRequestThreadSize() {
+        return mRequestThreadSize;
+    }
+
+    /**
+     * リクエストを実行するスレッド数を設定する.
+     * <p>
+     * {@link DConnectRequestScheduler#MIN_THREAD_SIZE}未満の値が指定された場合には
+     * {@link DConnectRequestScheduler#MIN_THREAD_SIZE}を設定する.
+     * </p>
+     * @param size スレッド数
+     */
+    public void setRequestThreadSize(final int size) {
+        mRequestThreadSize = Math.max(DConnectRequestScheduler.MIN_THREAD_SIZE, size);
+    }
+
+    /**
+     * 1つのデバイスプラグインに対して同時に実行するリクエスト数を取得する.
+     * @return リクエスト数
+     */
+    public int getRequestMaxPerPlugin() {
+        return mRequestMaxPerPlugin;
+    }
+
+    /**
+     * 1つのデバイスプラグインに対して同時に実行するリクエスト数を設定する.
+     * <p>
+     * 1未満の値が指定された場合には1を設定する.
+     * </p>
+     * @param max リクエスト数
+     */
+    public void setRequestMaxPerPlugin(final int max) {
+        mRequestMaxPerPlugin = Math.max(1, max);
+    }
+
+    /**
+     * 1つのデバイスプラグインに対して実行待ちにできるリクエスト数を取得する.
+     * @return リクエスト数
+     */
+    public int getRequestQueueSize() {
+        return mRequestQueueSize;
+    }
+
+    /**
+     * 1つのデバイスプラグインに対して実行待ちにできるリクエスト数を設定する.
+     * <p>
+     * 0未満の値が指定された場合には0を設定する.
+     * </p>
+     * @param size リクエスト数
+     */
+    public void setRequestQueueSize(final int size) {
+        mRequestQueueSize = Math.max(0, size);
+    }
+
+    /**
+     * サービス検索結果のキャッシュの有効期限を取得する.
+     * @return 有効期限(ms)
+     */
+    public long getServiceDiscoveryCacheTtl() {
+        return mServiceDiscoveryCacheTtl;
+    }
+
+    /**
+     * サービス検索結果のキャッシュの有効期限を設定する.
+     * <p>
+     * 0以下の値が指定された場合にはキャッシュを使用しない.
+     * </p>
+     * @param ttl 有効期限(ms)
+     */
+    public void setServiceDiscoveryCacheTtl(final long ttl) {
+        mServiceDiscoveryCacheTtl = Math.max(0, ttl);
+    }
+
+    /**
+     * 1つのWebSocketに対して送信待ちにできるイベント数を取得する.
+     * @return イベント数
+     */
+    public int getEventQueueSize() {
+        return mEventQueueSize;
+    }
+
+    /**
+     * 1つのWebSocketに対して送信待ちにできるイベント数を設定する.
+     * <p>
+     * 1未満の値が指定された場合には1を設定する.
+     * </p>
+     * @param size イベント数
+     */
+    public void setEventQueueSize(final int size) {
+        mEventQueueSize = Math.max(1, size);
+    }
+
+    /**
+     * 送信待ちのイベント数が上限に達した場合の処理を取得する.
+     * @return 処理
+     */
+    public WebSocketEventQueue.OverflowPolicy getEventOverflowPolicy() {
+        return mEventOverflowPolicy;
+    }
+
+    /**
+     * 送信待ちのイベント数が上限に達した場合の処理を設定する.
+     * @param policy 処理
+     */
+    public void setEventOverflowPolicy(final WebSocketEventQueue.OverflowPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy is null.");
+        }
+        mEventOverflowPolicy = policy;
+    }
 }
@@ -36,6 +36,10 @@ public class DevicePlugin {
      * サポートしているプロファイルを格納する.
      */
     private List<String> mSupports = new ArrayList<String>();
+    /** サービス検索の応答時間の平均値(ms). 未計測の場合は-1. */
+    private long mServiceDiscoveryLatency = -1;
+    /** 直近のサービス検索で応答が無かったことを示すフラグ. */
+    private boolean mServiceDiscoveryTimedOut;
 
     /**
      * デバイスプラグインのパッケージ名を取得する.
@@ -174,6 +178,45 @@ public class DevicePlugin {
         return mPluginSdkVersionName;
     }
     
+    /**
+     * サービス検索の応答時間を記録する.
+     * <p>
+     * 平均値は直近の応答時間に重みをおいた移動平均で計算する.
+     * </p>
+     * @param latency 応答時間(ms)
+     */
+    public synchronized void recordServiceDiscoveryResponse(final long latency) {
+        if (mServiceDiscoveryLatency < 0) {
+            mServiceDiscoveryLatency = latency;
+        } else {
+            mServiceDiscoveryLatency = (mServiceDiscoveryLatency * 3 + latency) / 4;
+        }
+        mServiceDiscoveryTimedOut = false;
+    }
+
+    /**
+     * サービス検索に応答が無かったことを記録する.
+     */
+    public synchronized void recordServiceDiscoveryTimeout() {
+        mServiceDiscoveryTimedOut = true;
+    }
+
+    /**
+     * サービス検索の応答時間の平均値を取得する.
+     * @return 応答時間の平均値(ms). 未計測の場合は-1
+     */
+    public synchronized long getServiceDiscoveryLatency() {
+        return mServiceDiscoveryLatency;
+    }
+
+    /**
+     * 直近のサービス検索で応答が無かったかどうかを取得する.
+     * @return 応答が無かった場合はtrue、それ以外はfalse
+     */
+    public synchronized boolean isServiceDiscoveryTimedOut() {
+        return mServiceDiscoveryTimedOut;
+    }
+
     @Override
     public String toString() {
         return "ServiceId: " + mPluginId + "DeviceName: " + mDeviceName
@@ -54,6 +54,8 @@ public class DevicePluginManager {
     private DevicePluginEventListener mEventListener;
     /** アプリケーションクラスインスタンス. */
     private final DConnectApplication mApp;
+    /** サービス検索結果のキャッシュ. */
+    private final ServiceDiscoveryCache mServiceDiscoveryCache = new ServiceDiscoveryCache();
 
     /**
      * コンストラクタ.
@@ -78,6 +80,13 @@ public class DevicePluginManager {
     public void setDConnectDomain(final String domain) {
         mDConnectDomain = domain;
     }
+    /**
+     * サービス検索結果のキャッシュを取得する.
+     * @return サービス検索結果のキャッシュ
+     */
+    public ServiceDiscoveryCache getServiceDiscoveryCache() {
+        return mServiceDiscoveryCache;
+    }
     /**
      * アプリ一覧からデバイスプラグイン一覧を作成する.
      */
@@ -178,6 +187,7 @@ public class DevicePluginManager {
                     plugin.setSupportProfiles(checkDevicePluginXML(receiverInfo));
                     plugin.setPluginSdkVersionName(sdkVersionName);
                     mPlugins.put(hash, plugin);
+                    mServiceDiscoveryCache.invalidate(hash);
                     if (mEventListener != null) {
                         mEventListener.onDeviceFound(plugin);
                     }
@@ -208,6 +218,7 @@ public class DevicePluginManager {
             DevicePlugin plugin = mPlugins.get(key);
             if (plugin.getPackageName().equals(packageName)) {
                 mPlugins.remove(key);
+                mServiceDiscoveryCache.invalidate(key);
                 if (mEventListener != null) {
                     mEventListener.onDeviceLost(plugin);
                 }
@@ -234,6 +245,7 @@ public class DevicePluginManager {
                     mLogger.info("    PackageName: " + packageName);
                     mLogger.info("    className: " + className);
                     DevicePlugin plugin = mPlugins.remove(hash);
+                    mServiceDiscoveryCache.invalidate(hash);
                     if (plugin != null && mEventListener != null) {
                         mEventListener.onDeviceLost(plugin);
                     }
@@ -0,0 +1,185 @@
+/*
+ ServiceDiscoveryCache.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager;
+
+
+import android.os.Bundle;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * デバイスプラグインごとのサービス検索結果のキャッシュ.
+ * <p>
+ * キャッシュは以下の場合に破棄される.
+ * <ul>
+ *     <li>有効期限を過ぎた場合</li>
+ *     <li>デバイスプラグインから onServiceChange イベントを受信した場合</li>
+ *     <li>デバイスプラグインが追加・削除された場合</li>
+ * </ul>
+ * </p>
+ * <p>
+ * 破棄より前に送信したリクエストの応答でキャッシュが古い結果に戻らないように、
+ * 破棄した回数を世代として管理し、応答を保存する時に世代が変わっていれば保存しない.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class ServiceDiscoveryCache {
+
+    /** デフォルトの有効期限(ms). */
+    public static final long DEFAULT_TIME_TO_LIVE = 30 * 1000;
+
+    /** キャッシュ. キーはデバイスプラグインID. */
+    private final Map<String, Entry> mEntries = new ConcurrentHashMap<String, Entry>();
+
+    /** キャッシュを破棄した世代. */
+    private final AtomicLong mGeneration = new AtomicLong();
+
+    /** キャッシュにヒットした回数. */
+    private final AtomicLong mHitCount = new AtomicLong();
+
+    /** キャッシュにヒットしなかった回数. */
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    /** 有効期限(ms). 0以下の場合はキャッシュを使用しない. */
+    private volatile long mTimeToLive = DEFAULT_TIME_TO_LIVE;
+
+    /**
+     * 有効期限を設定する.
+     * @param ttl 有効期限(ms). 0以下の場合はキャッシュを使用しない
+     */
+    public void setTimeToLive(final long ttl) {
+        mTimeToLive = ttl;
+        if (ttl <= 0) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * 有効期限を取得する.
+     * @return 有効期限(ms)
+     */
+    public long getTimeToLive() {
+        return mTimeToLive;
+    }
+
+    /**
+     * 現在の世代を取得する.
+     * <p>
+     * リクエストを送信する前に取得して、{@link #put(String, Bundle[], long)}に渡すこと.
+     * </p>
+     * @return 世代
+     */
+    public long getGeneration() {
+        return mGeneration.get();
+    }
+
+    /**
+     * 指定されたデバイスプラグインのサービス一覧を取得する.
+     * @param pluginId デバイスプラグインID
+     * @return サービス一覧のコピー. キャッシュがない場合、または有効期限を過ぎている場合はnull
+     */
+    public Bundle[] get(final String pluginId) {
+        Entry entry = mEntries.get(pluginId);
+        if (entry == null || isExpired(entry)) {
+            mMissCount.incrementAndGet();
+            return null;
+        }
+        mHitCount.incrementAndGet();
+        return copy(entry.mServices);
+    }
+
+    /**
+     * 指定されたデバイスプラグインのサービス一覧を保存する.
+     * @param pluginId デバイスプラグインID
+     * @param services サービス一覧
+     * @param generation リクエスト送信前に{@link #getGeneration()}で取得した世代
+     */
+    public void put(final String pluginId, final Bundle[] services, final long generation) {
+        if (mTimeToLive <= 0) {
+            return;
+        }
+        synchronized (mEntries) {
+            if (generation != mGeneration.get()) {
+                return;
+            }
+            mEntries.put(pluginId, new Entry(copy(services)));
+        }
+    }
+
+    /**
+     * 指定されたデバイスプラグインのキャッシュを破棄する.
+     * @param pluginId デバイスプラグインID
+     */
+    public void invalidate(final String pluginId) {
+        synchronized (mEntries) {
+            mGeneration.incrementAndGet();
+            mEntries.remove(pluginId);
+        }
+    }
+
+    /**
+     * すべてのキャッシュを破棄する.
+     */
+    public void invalidateAll() {
+        synchronized (mEntries) {
+            mGeneration.incrementAndGet();
+            mEntries.clear();
+        }
+    }
+
+    /**
+     * キャッシュにヒットした回数を取得する.
+     * @return 回数
+     */
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * キャッシュにヒットしなかった回数を取得する.
+     * @return 回数
+     */
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    private boolean isExpired(final Entry entry) {
+        return System.currentTimeMillis() - entry.mCreatedTime > mTimeToLive;
+    }
+
+    /**
+     * サービス一覧をコピーする.
+     * <p>
+     * レスポンス作成時に変更されてもキャッシュに影響しないように、Bundleもコピーする.
+     * </p>
+     * @param services サービス一覧
+     * @return コピー
+     */
+    private static Bundle[] copy(final Bundle[] services) {
+        Bundle[] result = new Bundle[services.length];
+        for (int i = 0; i < services.length; i++) {
+            result[i] = new Bundle(services[i]);
+        }
+        return result;
+    }
+
+    /**
+     * キャッシュのエントリ.
+     */
+    private static class Entry {
+        /** サービス一覧. */
+        final Bundle[] mServices;
+        /** 作成時刻(ms). */
+        final long mCreatedTime = System.currentTimeMillis();
+
+        Entry(final Bundle[] services) {
+            mServices = services;
+        }
+    }
+}
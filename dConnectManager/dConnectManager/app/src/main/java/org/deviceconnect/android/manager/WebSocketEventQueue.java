@@ -0,0 +1,458 @@
+/*
+ WebSocketEventQueue.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager;
+
+
+import android.content.Intent;
+
+import org.deviceconnect.android.manager.util.LatencyHistogram;
+import org.deviceconnect.message.DConnectMessage;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * 1つのWebSocketに送信するイベントの送信待ちキュー.
+ * <p>
+ * キューに追加されたイベントは、WebSocketごとに非同期で順番に送信される.
+ * 送信処理は複数のWebSocketで共有するExecutorで実行されるので、1回の送信処理では最大{@link #MAX_DRAIN_COUNT}件、
+ * または{@link #MAX_DRAIN_TIME}ミリ秒までしか送信せず、残りのイベントは改めてExecutorに投入する.
+ * </p>
+ * <p>
+ * 1件の送信が送信タイムアウトを超えて終わらない場合は、{@link #checkSendTimeout()}でキューを閉じて
+ * {@link EventSender#onSendTimeout(WebSocketEventQueue)}を通知する. 通知を受けた側でWebSocketを切断して、
+ * 止まっている送信処理を終わらせること.
+ * </p>
+ * <p>
+ * 送信待ちのイベント数が上限に達した場合は、{@link OverflowPolicy}に従って処理する.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class WebSocketEventQueue {
+
+    /**
+     * 送信待ちのイベント数が上限に達した場合の処理.
+     */
+    public enum OverflowPolicy {
+        /** 最も古いイベントを破棄する. */
+        DROP_OLDEST("drop_oldest"),
+        /** 同じサービス・APIのイベントが送信待ちならば最新のイベントで置き換える. 見つからない場合は最も古いイベントを破棄する. */
+        COALESCE_LATEST("coalesce_latest"),
+        /** WebSocketを切断する. */
+        DISCONNECT("disconnect");
+
+        /** 設定値. */
+        private final String mValue;
+
+        OverflowPolicy(final String value) {
+            mValue = value;
+        }
+
+        /**
+         * 設定値を取得する.
+         * @return 設定値
+         */
+        public String getValue() {
+            return mValue;
+        }
+
+        /**
+         * 設定値から処理を取得する.
+         * @param value 設定値
+         * @return 処理. 該当するものがない場合はnull
+         */
+        public static OverflowPolicy fromValue(final String value) {
+            for (OverflowPolicy policy : values()) {
+                if (policy.mValue.equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * イベントを送信するインターフェース.
+     */
+    public interface EventSender {
+        /**
+         * イベントを送信する.
+         * <p>
+         * 他のWebSocketと共有するExecutorのスレッドから呼び出される.
+         * 送信タイムアウトを超えてブロックした場合は{@link #onSendTimeout(WebSocketEventQueue)}が通知される.
+         * </p>
+         * <p>
+         * イベントを送信できずに破棄した場合はfalseを返す. 破棄したイベントは送信したイベント数に含めない.
+         * </p>
+         * @param webSocketId 送信先のWebSocket ID
+         * @param event イベント
+         * @return 送信した場合はtrue、破棄した場合はfalse
+         * @throws IOException 送信に失敗した場合. キューは閉じられる
+         */
+        boolean send(String webSocketId, Intent event) throws IOException;
+
+        /**
+         * イベントの送信に失敗したことを通知する.
+         * <p>
+         * キューは既に閉じられている.
+         * </p>
+         * @param queue 送信に失敗したキュー
+         * @param e 送信時に発生した例外
+         */
+        void onSendFailed(WebSocketEventQueue queue, IOException e);
+
+        /**
+         * 送信待ちのイベント数が上限に達したためWebSocketを切断することを通知する.
+         * <p>
+         * {@link OverflowPolicy#DISCONNECT}の場合に呼び出される. キューは既に閉じられている.
+         * </p>
+         * @param queue 上限に達したキュー
+         */
+        void onOverflow(WebSocketEventQueue queue);
+
+        /**
+         * イベントの送信が送信タイムアウトを超えても終わらないことを通知する.
+         * <p>
+         * キューは既に閉じられている. 止まっている{@link #send(String, Intent)}を終わらせるために、
+         * WebSocketを切断すること.
+         * </p>
+         * @param queue 送信が止まっているキュー
+         */
+        void onSendTimeout(WebSocketEventQueue queue);
+    }
+
+    /** 1回の送信処理で送信するイベントの最大数. */
+    static final int MAX_DRAIN_COUNT = 16;
+
+    /** 1回の送信処理で送信を続ける最大時間(ミリ秒). */
+    static final long MAX_DRAIN_TIME = 50;
+
+    /** ロガー. */
+    private final Logger mLogger = Logger.getLogger("dconnect.manager");
+
+    /** 送信先のWebSocket ID. */
+    private final String mWebSocketId;
+
+    /** 送信待ちにできるイベント数. */
+    private final int mCapacity;
+
+    /** 送信待ちのイベント数が上限に達した場合の処理. */
+    private final OverflowPolicy mPolicy;
+
+    /** 送信タイムアウト(ミリ秒). */
+    private final long mSendTimeout;
+
+    /** 送信処理を実行するExecutor. */
+    private final Executor mExecutor;
+
+    /** イベントを送信するインターフェース. */
+    private final EventSender mSender;
+
+    /** 送信待ちのイベント. mQueueで同期する. */
+    private final LinkedList<Intent> mQueue = new LinkedList<>();
+
+    /** 送信処理を実行中であることを示すフラグ. mQueueで同期する. */
+    private boolean mDraining;
+
+    /** キューが閉じられたことを示すフラグ. mQueueで同期する. */
+    private boolean mClosed;
+
+    /** 送信中のイベントの送信開始時刻. 送信中でない場合は0. */
+    private volatile long mSendStartTime;
+
+    /** 破棄したイベント数. */
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    /** 送信したイベント数. */
+    private final AtomicLong mSentCount = new AtomicLong();
+
+    /** イベントの送信に掛かった時間の分布. */
+    private final LatencyHistogram mSendLatency = new LatencyHistogram();
+
+    /** 送信待ちのイベントを送信するタスク. */
+    private final Runnable mDrainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * コンストラクタ.
+     * @param webSocketId 送信先のWebSocket ID
+     * @param capacity 送信待ちにできるイベント数
+     * @param policy 送信待ちのイベント数が上限に達した場合の処理
+     * @param sendTimeout 送信タイムアウト(ミリ秒)
+     * @param executor 送信処理を実行するExecutor
+     * @param sender イベントを送信するインターフェース
+     */
+    public WebSocketEventQueue(final String webSocketId, final int capacity, final OverflowPolicy policy,
+                               final long sendTimeout, final Executor executor, final EventSender sender) {
+        mWebSocketId = webSocketId;
+        mCapacity = Math.max(1, capacity);
+        mPolicy = policy;
+        mSendTimeout = sendTimeout;
+        mExecutor = executor;
+        mSender = sender;
+    }
+
+    /**
+     * 送信先のWebSocket IDを取得する.
+     * @return WebSocket ID
+     */
+    public String getWebSocketId() {
+        return mWebSocketId;
+    }
+
+    /**
+     * イベントを送信待ちにする.
+     * <p>
+     * 送信処理を実行するExecutorが停止している場合は、キューを閉じてイベントを破棄する.
+     * </p>
+     * @param event イベント
+     * @return 送信待ちにした場合はtrue、キューが閉じられている場合はfalse
+     */
+    public boolean offer(final Intent event) {
+        boolean overflow = false;
+        synchronized (mQueue) {
+            if (mClosed) {
+                return false;
+            }
+            if (mQueue.size() >= mCapacity) {
+                switch (mPolicy) {
+                    case COALESCE_LATEST:
+                        if (replace(event)) {
+                            mDroppedCount.incrementAndGet();
+                            return true;
+                        }
+                        mQueue.removeFirst();
+                        mDroppedCount.incrementAndGet();
+                        break;
+                    case DISCONNECT:
+                        mDroppedCount.addAndGet(mQueue.size() + 1);
+                        mQueue.clear();
+                        mClosed = true;
+                        overflow = true;
+                        break;
+                    case DROP_OLDEST:
+                    default:
+                        mQueue.removeFirst();
+                        mDroppedCount.incrementAndGet();
+                        break;
+                }
+            }
+            if (!overflow) {
+                mQueue.add(event);
+                if (!mDraining) {
+                    try {
+                        mExecutor.execute(mDrainTask);
+                        mDraining = true;
+                    } catch (RejectedExecutionException e) {
+                        mDroppedCount.addAndGet(mQueue.size());
+                        mQueue.clear();
+                        mClosed = true;
+                        return false;
+                    }
+                }
+            }
+        }
+        if (overflow) {
+            mSender.onOverflow(this);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * キューを閉じる.
+     * <p>
+     * 送信待ちのイベントは破棄される.
+     * </p>
+     */
+    public void close() {
+        synchronized (mQueue) {
+            mClosed = true;
+            mQueue.clear();
+        }
+    }
+
+    /**
+     * キューが閉じられているか確認する.
+     * @return 閉じられている場合はtrue、それ以外はfalse
+     */
+    public boolean isClosed() {
+        synchronized (mQueue) {
+            return mClosed;
+        }
+    }
+
+    /**
+     * 送信待ちのイベント数を取得する.
+     * @return イベント数
+     */
+    public int getDepth() {
+        synchronized (mQueue) {
+            return mQueue.size();
+        }
+    }
+
+    /**
+     * 破棄したイベント数を取得する.
+     * @return イベント数
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * 送信したイベント数を取得する.
+     * @return イベント数
+     */
+    public long getSentCount() {
+        return mSentCount.get();
+    }
+
+    /**
+     * イベントの送信に掛かった時間の分布を取得する.
+     * @return 送信に掛かった時間の分布
+     */
+    public LatencyHistogram getSendLatency() {
+        return mSendLatency;
+    }
+
+    /**
+     * 送信中のイベントが送信タイムアウトを超えていないか確認する.
+     * <p>
+     * 超えている場合はキューを閉じて、{@link EventSender#onSendTimeout(WebSocketEventQueue)}を通知する.
+     * </p>
+     * @return 送信タイムアウトを超えていた場合はtrue、それ以外はfalse
+     */
+    public boolean checkSendTimeout() {
+        long start = mSendStartTime;
+        if (start == 0 || System.currentTimeMillis() - start < mSendTimeout) {
+            return false;
+        }
+        synchronized (mQueue) {
+            if (mClosed) {
+                return false;
+            }
+            mDroppedCount.addAndGet(mQueue.size());
+            mQueue.clear();
+            mClosed = true;
+        }
+        mSender.onSendTimeout(this);
+        return true;
+    }
+
+    /**
+     * 送信待ちのイベントを順番に送信する.
+     * <p>
+     * 他のWebSocketのキューがExecutorのスレッドを待たされないように、{@link #MAX_DRAIN_COUNT}件
+     * または{@link #MAX_DRAIN_TIME}ミリ秒を超えたら、残りのイベントの送信を改めてExecutorに投入する.
+     * </p>
+     * <p>
+     * 送信時に実行時例外が発生したイベントは破棄して、次のイベントの送信を続ける.
+     * </p>
+     */
+    private void drain() {
+        long deadline = System.currentTimeMillis() + MAX_DRAIN_TIME;
+        for (int count = 0; ; count++) {
+            Intent event;
+            synchronized (mQueue) {
+                if (mClosed || mQueue.isEmpty()) {
+                    mDraining = false;
+                    return;
+                }
+                if (count >= MAX_DRAIN_COUNT || System.currentTimeMillis() >= deadline) {
+                    try {
+                        mExecutor.execute(mDrainTask);
+                    } catch (RejectedExecutionException e) {
+                        mDroppedCount.addAndGet(mQueue.size());
+                        mQueue.clear();
+                        mClosed = true;
+                        mDraining = false;
+                    }
+                    return;
+                }
+                event = mQueue.removeFirst();
+            }
+
+            long start = System.currentTimeMillis();
+            mSendStartTime = start;
+            boolean sent;
+            try {
+                sent = mSender.send(mWebSocketId, event);
+            } catch (RuntimeException e) {
+                mLogger.warning("RuntimeException in send: id = " + mWebSocketId + ", " + e.toString());
+                sent = false;
+            } catch (IOException e) {
+                boolean closed;
+                synchronized (mQueue) {
+                    closed = mClosed;
+                    mClosed = true;
+                    mQueue.clear();
+                    mDraining = false;
+                }
+                // 送信タイムアウトで閉じた場合は通知済み
+                if (!closed) {
+                    mSender.onSendFailed(this, e);
+                }
+                return;
+            } finally {
+                mSendStartTime = 0;
+            }
+            if (sent) {
+                mSentCount.incrementAndGet();
+                mSendLatency.record(System.currentTimeMillis() - start);
+            } else {
+                mDroppedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 同じサービス・APIの送信待ちのイベントを置き換える.
+     * <p>
+     * mQueueで同期した状態で呼び出すこと.
+     * </p>
+     * @param event 新しいイベント
+     * @return 置き換えた場合はtrue、それ以外はfalse
+     */
+    private boolean replace(final Intent event) {
+        for (ListIterator<Intent> it = mQueue.listIterator(mQueue.size()); it.hasPrevious(); ) {
+            if (isSameApi(it.previous(), event)) {
+                it.set(event);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSameApi(final Intent a, final Intent b) {
+        return isSame(a, b, DConnectMessage.EXTRA_SERVICE_ID)
+            && isSameIgnoreCase(a, b, DConnectMessage.EXTRA_PROFILE)
+            && isSameIgnoreCase(a, b, DConnectMessage.EXTRA_INTERFACE)
+            && isSameIgnoreCase(a, b, DConnectMessage.EXTRA_ATTRIBUTE);
+    }
+
+    private static boolean isSame(final Intent a, final Intent b, final String key) {
+        String s1 = a.getStringExtra(key);
+        String s2 = b.getStringExtra(key);
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    private static boolean isSameIgnoreCase(final Intent a, final Intent b, final String key) {
+        String s1 = a.getStringExtra(key);
+        String s2 = b.getStringExtra(key);
+        return s1 == null ? s2 == null : s1.equalsIgnoreCase(s2);
+    }
+}
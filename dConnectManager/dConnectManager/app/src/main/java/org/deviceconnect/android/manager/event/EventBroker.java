@@ -132,32 +132,15 @@ public class EventBroker {
 
         EventSession targetSession = null;
         if (pluginAccessToken != null) {
-            for (EventSession session : mTable.getAll()) {
-                if (isSameNameCaseSensitive(pluginAccessToken, session.getAccessToken()) &&
-                    isSameNameCaseSensitive(serviceId, session.getServiceId()) &&
-                    isSameName(profileName, session.getProfileName()) &&
-                    isSameName(interfaceName, session.getInterfaceName()) &&
-                    isSameName(attributeName, session.getAttributeName())) {
-                    targetSession = session;
-                    break;
-                }
-            }
+            targetSession = mTable.findEventSessionForAccessToken(pluginAccessToken,
+                serviceId, profileName, interfaceName, attributeName);
         } else {
             String sessionKey = DConnectProfile.getSessionKey(event);
             if (sessionKey != null) {
                 String pluginId = EventProtocol.convertSessionKey2PluginId(sessionKey);
                 String receiverId = EventProtocol.convertSessionKey2Key(sessionKey);
-                for (EventSession session : mTable.getAll()) {
-                    if (isSameNameCaseSensitive(pluginId, session.getPluginId()) &&
-                        isSameNameCaseSensitive(receiverId, session.getReceiverId()) &&
-                        isSameNameCaseSensitive(serviceId, session.getServiceId()) &&
-                        isSameName(profileName, session.getProfileName()) &&
-                        isSameName(interfaceName, session.getInterfaceName()) &&
-                        isSameName(attributeName, session.getAttributeName())) {
-                        targetSession = session;
-                        break;
-                    }
-                }
+                targetSession = mTable.findEventSessionForReceiver(pluginId, receiverId,
+                    serviceId, profileName, interfaceName, attributeName);
             }
         }
         if (targetSession != null) {
@@ -191,6 +174,9 @@ public class EventBroker {
             return;
         }
 
+        // サービスの状態が変わったので、サービス検索結果のキャッシュを破棄
+        mPluginManager.getServiceDiscoveryCache().invalidate(plugin.getPluginId());
+
         // network service discoveryの場合には、networkServiceのオブジェクトの中にデータが含まれる
         Bundle service = event.getParcelableExtra(ServiceDiscoveryProfile.PARAM_NETWORK_SERVICE);
         String id = service.getString(ServiceDiscoveryProfile.PARAM_ID);
@@ -264,28 +250,6 @@ public class EventBroker {
             mPluginManager.appendServiceId(plugin, serviceId));
     }
 
-    private boolean isSameName(final String a, final  String b) {
-        if (a == null && b == null) {
-            return true;
-        }
-        if (a != null) {
-            return a.equalsIgnoreCase(b);
-        } else {
-            return b.equalsIgnoreCase(a);
-        }
-    }
-
-    private boolean isSameNameCaseSensitive(final String a, final  String b) {
-        if (a == null && b == null) {
-            return true;
-        }
-        if (a != null) {
-            return a.equals(b);
-        } else {
-            return b.equals(a);
-        }
-    }
-
     private boolean isRegistrationRequest(final Intent request) {
         String action = request.getAction();
         return IntentDConnectMessage.ACTION_PUT.equals(action);
@@ -103,18 +103,19 @@ public abstract class EventProtocol {
         if (receiverId == null) {
             return false;
         }
-        EventSession query = createSession(request, serviceId, receiverId, plugin.getPluginId());
-        for (EventSession session : table.getAll()) {
-            if (isSameSession(query, session)) {
-                table.remove(session);
+        EventSession session = table.findEventSessionForReceiver(plugin.getPluginId(), receiverId, serviceId,
+            DConnectProfile.getProfile(request),
+            DConnectProfile.getInterface(request),
+            DConnectProfile.getAttribute(request));
+        if (session == null) {
+            return false;
+        }
+        table.remove(session);
 
-                if (plugin.getPluginSdkVersionName().compareTo(V100) == 0) {
-                    DConnectProfile.setSessionKey(request, createSessionKeyForPlugin(session));
-                }
-                return true;
-            }
+        if (plugin.getPluginSdkVersionName().compareTo(V100) == 0) {
+            DConnectProfile.setSessionKey(request, createSessionKeyForPlugin(session));
         }
-        return false;
+        return true;
     }
 
     boolean addSession(final EventSessionTable table, final Intent request, final DevicePlugin plugin) {
@@ -186,37 +187,6 @@ public abstract class EventProtocol {
         return null;
     }
 
-    public boolean isSameSession(final EventSession a, final EventSession b) {
-        return isSame(a.getReceiverId(), b.getReceiverId())
-            && isSame(a.getServiceId(), b.getServiceId())
-            && isSame(a.getPluginId(), b.getPluginId())
-            && isSameIgnoreCase(a.getProfileName(), b.getProfileName()) // MEMO パスの大文字小文字を無視
-            && isSameIgnoreCase(a.getInterfaceName(), b.getInterfaceName())
-            && isSameIgnoreCase(a.getAttributeName(), b.getAttributeName());
-    }
-
-    private boolean isSame(final String a, final  String b) {
-        if (a == null && b == null) {
-            return true;
-        }
-        if (a != null) {
-            return a.equals(b);
-        } else {
-            return b.equals(a);
-        }
-    }
-
-    private boolean isSameIgnoreCase(final String a, final  String b) {
-        if (a == null && b == null) {
-            return true;
-        }
-        if (a != null) {
-            return a.equalsIgnoreCase(b);
-        } else {
-            return b.equalsIgnoreCase(a);
-        }
-    }
-
     /**
      * セッションキーからプラグインIDに変換する.
      *
@@ -1,3 +1,9 @@
+/*
+ EventSessionTable.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
 package org.deviceconnect.android.manager.event;
 
 
@@ -6,17 +12,94 @@ import org.deviceconnect.android.manager.DevicePlugin;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * イベントセッション管理テーブル.
+ * <p>
+ * プラグインから受信したイベントの送信先を毎回線形探索しないように、
+ * 以下の2種類のキーでイベントセッションを索引する.
+ * <ul>
+ *     <li>アクセストークン、サービスID、API パス</li>
+ *     <li>プラグインID、レシーバーID、サービスID、API パス</li>
+ * </ul>
+ * API パス (プロファイル名、インターフェース名、アトリビュート名) は大文字小文字を区別しない.
+ * </p>
+ * <p>
+ * 検索処理はロックを取得せず、コピーも作成しない.
+ * 追加・削除処理のみ {@link #mEventSessions} で同期する.
+ * </p>
+ *
+ * @author NTT DOCOMO, INC.
+ */
 public class EventSessionTable {
 
+    /**
+     * 登録順を保持したイベントセッションの一覧.
+     */
     private final List<EventSession> mEventSessions = new ArrayList<>();
 
+    /**
+     * アクセストークンをキーにしたイベントセッションの索引.
+     */
+    private final Map<SessionKey, List<EventSession>> mSessionsByAccessToken = new ConcurrentHashMap<>();
+
+    /**
+     * プラグインIDとレシーバーIDをキーにしたイベントセッションの索引.
+     */
+    private final Map<SessionKey, List<EventSession>> mSessionsByReceiver = new ConcurrentHashMap<>();
+
     public List<EventSession> getAll() {
         synchronized (mEventSessions) {
             return new ArrayList<>(mEventSessions);
         }
     }
 
+    /**
+     * アクセストークンとAPIパスに一致するイベントセッションを取得する.
+     *
+     * @param accessToken プラグインのアクセストークン
+     * @param serviceId サービスID
+     * @param profileName プロファイル名
+     * @param interfaceName インターフェース名
+     * @param attributeName アトリビュート名
+     * @return イベントセッション. 見つからない場合は<code>null</code>
+     */
+    EventSession findEventSessionForAccessToken(final String accessToken,
+                                                final String serviceId,
+                                                final String profileName,
+                                                final String interfaceName,
+                                                final String attributeName) {
+        SessionKey key = new SessionKey(accessToken, null, serviceId,
+            profileName, interfaceName, attributeName);
+        return first(mSessionsByAccessToken.get(key));
+    }
+
+    /**
+     * プラグインID、レシーバーIDとAPIパスに一致するイベントセッションを取得する.
+     *
+     * @param pluginId プラグインID
+     * @param receiverId レシーバーID
+     * @param serviceId サービスID
+     * @param profileName プロファイル名
+     * @param interfaceName インターフェース名
+     * @param attributeName アトリビュート名
+     * @return イベントセッション. 見つからない場合は<code>null</code>
+     */
+    EventSession findEventSessionForReceiver(final String pluginId,
+                                             final String receiverId,
+                                             final String serviceId,
+                                             final String profileName,
+                                             final String interfaceName,
+                                             final String attributeName) {
+        SessionKey key = new SessionKey(pluginId, receiverId, serviceId,
+            profileName, interfaceName, attributeName);
+        return first(mSessionsByReceiver.get(key));
+    }
+
     List<EventSession> findEventSessionsForPlugin(final DevicePlugin plugin) {
         List<EventSession> result = new ArrayList<>();
         synchronized (mEventSessions) {
@@ -32,22 +115,148 @@ public class EventSessionTable {
     void add(final EventSession session) {
         synchronized(mEventSessions) {
             mEventSessions.add(session);
+            putIndex(mSessionsByAccessToken, createAccessTokenKey(session), session);
+            putIndex(mSessionsByReceiver, createReceiverKey(session), session);
         }
     }
 
     void remove(final EventSession session) {
         synchronized (mEventSessions) {
-            mEventSessions.remove(session);
+            if (mEventSessions.remove(session)) {
+                removeIndex(session);
+            }
         }
     }
 
     void removeForReceiverId(final String receiverId) {
         synchronized (mEventSessions) {
             for (Iterator<EventSession> it = mEventSessions.iterator(); it.hasNext(); ) {
-                if (it.next().getReceiverId().equals(receiverId)) {
+                EventSession session = it.next();
+                if (session.getReceiverId().equals(receiverId)) {
                     it.remove();
+                    removeIndex(session);
                 }
             }
         }
     }
+
+    private void removeIndex(final EventSession session) {
+        removeIndex(mSessionsByAccessToken, createAccessTokenKey(session), session);
+        removeIndex(mSessionsByReceiver, createReceiverKey(session), session);
+    }
+
+    private static void putIndex(final Map<SessionKey, List<EventSession>> index,
+                                 final SessionKey key, final EventSession session) {
+        List<EventSession> sessions = index.get(key);
+        if (sessions == null) {
+            sessions = new CopyOnWriteArrayList<>();
+            index.put(key, sessions);
+        }
+        sessions.add(session);
+    }
+
+    private static void removeIndex(final Map<SessionKey, List<EventSession>> index,
+                                    final SessionKey key, final EventSession session) {
+        List<EventSession> sessions = index.get(key);
+        if (sessions != null) {
+            sessions.remove(session);
+            if (sessions.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static EventSession first(final List<EventSession> sessions) {
+        if (sessions == null) {
+            return null;
+        }
+        // NOTE: CopyOnWriteArrayList のため、削除と競合しても例外にならないようにイテレータで取得する
+        for (EventSession session : sessions) {
+            return session;
+        }
+        return null;
+    }
+
+    private static SessionKey createAccessTokenKey(final EventSession session) {
+        return new SessionKey(session.getAccessToken(), null, session.getServiceId(),
+            session.getProfileName(), session.getInterfaceName(), session.getAttributeName());
+    }
+
+    private static SessionKey createReceiverKey(final EventSession session) {
+        return new SessionKey(session.getPluginId(), session.getReceiverId(), session.getServiceId(),
+            session.getProfileName(), session.getInterfaceName(), session.getAttributeName());
+    }
+
+    /**
+     * イベントセッションの索引キー.
+     * <p>
+     * API パスは小文字に正規化して保持する.
+     * </p>
+     */
+    private static final class SessionKey {
+        private final String mOwner;
+        private final String mReceiverId;
+        private final String mServiceId;
+        private final String mProfileName;
+        private final String mInterfaceName;
+        private final String mAttributeName;
+        private final int mHashCode;
+
+        SessionKey(final String owner,
+                   final String receiverId,
+                   final String serviceId,
+                   final String profileName,
+                   final String interfaceName,
+                   final String attributeName) {
+            mOwner = owner;
+            mReceiverId = receiverId;
+            mServiceId = serviceId;
+            mProfileName = normalize(profileName);
+            mInterfaceName = normalize(interfaceName);
+            mAttributeName = normalize(attributeName);
+
+            int hash = hash(mOwner);
+            hash = 31 * hash + hash(mReceiverId);
+            hash = 31 * hash + hash(mServiceId);
+            hash = 31 * hash + hash(mProfileName);
+            hash = 31 * hash + hash(mInterfaceName);
+            hash = 31 * hash + hash(mAttributeName);
+            mHashCode = hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SessionKey)) {
+                return false;
+            }
+            SessionKey that = (SessionKey) o;
+            return mHashCode == that.mHashCode
+                && isSame(mOwner, that.mOwner)
+                && isSame(mReceiverId, that.mReceiverId)
+                && isSame(mServiceId, that.mServiceId)
+                && isSame(mProfileName, that.mProfileName)
+                && isSame(mInterfaceName, that.mInterfaceName)
+                && isSame(mAttributeName, that.mAttributeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        private static String normalize(final String name) {
+            return name != null ? name.toLowerCase(Locale.ENGLISH) : null;
+        }
+
+        private static int hash(final String s) {
+            return s != null ? s.hashCode() : 0;
+        }
+
+        private static boolean isSame(final String a, final String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
 }
@@ -33,6 +33,22 @@ public class DConnectServiceDiscoveryProfile extends ServiceDiscoveryProfile {
      */
     private static final int TIMEOUT = 8000;
 
+    /**
+     * パラメータ: {@value}.
+     * <p>
+     * trueが指定された場合は、デバイスプラグインから応答があるたびに発見したサービスをイベントで通知する.
+     * </p>
+     */
+    public static final String PARAM_INCREMENTAL = "incremental";
+
+    /**
+     * アトリビュート: {@value}.
+     * <p>
+     * インクリメンタルモードで発見したサービスを通知するイベント.
+     * </p>
+     */
+    public static final String ATTRIBUTE_ON_SERVICE_DISCOVERED = "onServiceDiscovered";
+
     /** デバイスプラグイン管理クラス. */
     private DevicePluginManager mDevicePluginManager;
 
@@ -58,6 +74,7 @@ public class DConnectServiceDiscoveryProfile extends ServiceDiscoveryProfile {
             req.setRequest(request);
             req.setTimeout(TIMEOUT);
             req.setDevicePluginManager(mDevicePluginManager);
+            req.setIncremental("true".equals(request.getStringExtra(PARAM_INCREMENTAL)));
             ((DConnectMessageService) getContext()).addRequest(req);
             return false;
         }
@@ -33,7 +33,6 @@ import org.deviceconnect.profile.SystemProfileConstants;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * System プロファイル.
@@ -130,7 +129,7 @@ public class DConnectSystemProfile extends SystemProfile {
                 @Override
                 public void run() {
                     // リクエストコードを作成する
-                    mRequestCode = UUID.randomUUID().hashCode();
+                    mRequestCode = createRequestCode();
 
                     // キーワード表示用のダイアログを表示
                     Intent intent = new Intent(getContext(), KeywordDialogActivity.class);
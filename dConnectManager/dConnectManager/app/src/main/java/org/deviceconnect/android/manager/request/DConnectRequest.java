@@ -18,6 +18,10 @@ import org.deviceconnect.android.message.MessageUtils;
 import org.deviceconnect.message.DConnectMessage;
 import org.deviceconnect.message.intent.message.IntentDConnectMessage;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 /**
  * DConnectリクエスト.
  * @author NTT DOCOMO, INC.
@@ -42,6 +46,9 @@ public abstract class DConnectRequest {
     /** リクエスト管理クラス. */
     protected DConnectRequestManager mRequestMgr;
 
+    /** このリクエストが発行したリクエストコードの一覧. */
+    private final List<Integer> mRequestCodes = new ArrayList<Integer>();
+
     /**
      * コンストラクタ.
      */
@@ -97,6 +104,17 @@ public abstract class DConnectRequest {
         return mTimeout;
     }
 
+    /**
+     * 送信先のデバイスプラグインを取得する.
+     * <p>
+     * 特定のデバイスプラグインに送信しないリクエストの場合は<code>null</code>を返却する.
+     * </p>
+     * @return 送信先のデバイスプラグイン
+     */
+    public DevicePlugin getDestination() {
+        return null;
+    }
+
     /**
      * タイムアウト時間を設定する.
      * @param timeout タイムアウト時間(ミリ秒)
@@ -176,12 +194,57 @@ public abstract class DConnectRequest {
         sendResponse(response);
     }
 
+    /**
+     * リクエストコードを発行する.
+     * <p>
+     * 発行したリクエストコードはリクエスト管理クラスに登録され、
+     * そのリクエストコードを持つレスポンスはこのリクエストに配送される.
+     * 登録はリクエストの実行が終了した時に自動的に解除される.
+     * ただし、{@link #acceptsLateResponse(int)}がtrueを返すリクエストコードは、
+     * タイムアウト時間が経過するまで解除されない.
+     * </p>
+     * @return リクエストコード
+     */
+    protected int createRequestCode() {
+        int requestCode = UUID.randomUUID().hashCode();
+        synchronized (mRequestCodes) {
+            mRequestCodes.add(requestCode);
+        }
+        if (mRequestMgr != null) {
+            mRequestMgr.registerRequestCode(requestCode, this);
+        }
+        return requestCode;
+    }
+
+    /**
+     * このリクエストが発行したリクエストコードの一覧を取得する.
+     * @return リクエストコードの一覧
+     */
+    List<Integer> getRequestCodes() {
+        synchronized (mRequestCodes) {
+            return new ArrayList<Integer>(mRequestCodes);
+        }
+    }
+
     /**
      * 指定されたリクエストコードを持っているかチェックする.
      * @param requestCode リクエストコード
      * @return リクエストコードを持っている場合はtrue、それ以外はfalse
      */
     public abstract boolean hasRequestCode(final int requestCode);
+
+    /**
+     * 実行が終了した後も、指定されたリクエストコードのレスポンスを受け付けるかどうかを判定する.
+     * <p>
+     * trueを返したリクエストコードは、実行が終了してから{@link #getTimeout()}の間、
+     * 対応付けが解除されずにレスポンスが{@link #setResponse(Intent)}に渡される.
+     * </p>
+     * @param requestCode リクエストコード
+     * @return 受け付ける場合はtrue、それ以外はfalse
+     */
+    public boolean acceptsLateResponse(final int requestCode) {
+        return false;
+    }
     
     /**
      * 各デバイスプラグインへのリクエスト送信とレスポンスを待つ処理を行う.
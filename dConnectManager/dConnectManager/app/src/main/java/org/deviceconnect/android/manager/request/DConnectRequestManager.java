@@ -10,13 +10,16 @@ import android.content.Intent;
 import android.util.Log;
 
 import org.deviceconnect.android.manager.BuildConfig;
+import org.deviceconnect.android.manager.DevicePlugin;
+import org.deviceconnect.android.message.MessageUtils;
 import org.deviceconnect.message.intent.message.IntentDConnectMessage;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * dConnect Managerで処理されるリクエストを管理するクラス.
@@ -26,23 +29,63 @@ public class DConnectRequestManager {
     /** エラーコードを定義する. */
     private static final int ERROR_CODE = Integer.MIN_VALUE;
 
-    /** 最大スレッド数を定義する. */
-    private static final int MAX_THREAD_SIZE = 4;
+    /** 終了済みのためリクエストを実行できない場合のエラーメッセージ. */
+    private static final String MESSAGE_SHUTDOWN = "Device Connect Manager is shutting down.";
 
-    /** リクエストを実行するためのスレッドを管理するExecutor. */
-    private final ExecutorService mExecutor = Executors.newFixedThreadPool(MAX_THREAD_SIZE);
+    /** リクエストを送信先のデバイスプラグインごとに実行するスケジューラ. */
+    private final DConnectRequestScheduler mScheduler;
 
     /** シングルスレッドでリクエストを実行するためのスレッドを管理するExecutor. */
     private final ExecutorService mSingleExecutor = Executors.newSingleThreadExecutor();
 
-    /** リクエスト一覧. */
-    private final List<DConnectRequest> mRequestList = Collections.synchronizedList(new ArrayList<DConnectRequest>());
+    /**
+     * 実行中のリクエストの一覧.
+     * <p>
+     * キーはリクエストが発行したリクエストコード.
+     * 1つのリクエストが複数のリクエストコードを発行する場合もある.
+     * </p>
+     */
+    private final Map<Integer, DConnectRequest> mRequestMap = new ConcurrentHashMap<Integer, DConnectRequest>();
+
+    /**
+     * 実行が終了した後もレスポンスを受け付けるリクエストコードの一覧.
+     * <p>
+     * 値は対応付けを解除する時刻(ms).
+     * </p>
+     */
+    private final Map<Integer, Long> mLateRequestCodes = new ConcurrentHashMap<Integer, Long>();
+
+    /**
+     * コンストラクタ.
+     * @param threadSize リクエストを実行するスレッド数. {@link DConnectRequestScheduler#MIN_THREAD_SIZE}以上であること
+     * @param maxPerPlugin 1つのデバイスプラグインに対して同時に実行するリクエスト数
+     * @param queueSize 1つのデバイスプラグインに対して実行待ちにできるリクエスト数
+     */
+    public DConnectRequestManager(final int threadSize, final int maxPerPlugin, final int queueSize) {
+        mScheduler = new DConnectRequestScheduler(threadSize, maxPerPlugin, queueSize);
+    }
+
+    /**
+     * リクエストのスケジューラを取得する.
+     * <p>
+     * 実行待ちのリクエスト数や待ち時間を参照するために使用する.
+     * </p>
+     * @return スケジューラ
+     */
+    public DConnectRequestScheduler getScheduler() {
+        return mScheduler;
+    }
 
     /**
      * リクエスト管理を終了する.
+     * <p>
+     * 実行待ちだったリクエストは、タイムアウトまで待たせないようにエラーを返却する.
+     * </p>
      */
     public void shutdown() {
-        mExecutor.shutdown();
+        for (Runnable task : mScheduler.shutdown()) {
+            ((RequestTask) task).reject();
+        }
         mSingleExecutor.shutdown();
     }
 
@@ -52,22 +95,62 @@ public class DConnectRequestManager {
      */
     public void addRequest(final DConnectRequest request) {
         request.setRequestMgr(this);
-        mRequestList.add(request);
-        mExecutor.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    request.run();
-                } catch (Throwable e) {
-                    request.sendRuntimeException(e.getMessage());
-                    if (BuildConfig.DEBUG) {
-                        Log.e("dConnectManager", "runtime", e);
-                    }
-                } finally {
-                    mRequestList.remove(request);
+        DevicePlugin plugin = request.getDestination();
+        String pluginId = plugin != null ? plugin.getPluginId() : DConnectRequestScheduler.NO_DESTINATION;
+        boolean scheduled = mScheduler.schedule(pluginId, new RequestTask(request));
+        if (!scheduled) {
+            // 終了済み、または実行待ちのリクエストが上限に達しているのでエラーを返却する
+            sendIllegalServerStateError(request, mScheduler.isShutdown()
+                    ? MESSAGE_SHUTDOWN : "Too many requests are waiting for the device plug-in.");
+        }
+    }
+
+    /**
+     * スケジューラで実行するリクエストの処理.
+     */
+    private class RequestTask implements Runnable {
+        /** リクエスト. */
+        private final DConnectRequest mRequest;
+
+        /**
+         * コンストラクタ.
+         * @param request リクエスト
+         */
+        RequestTask(final DConnectRequest request) {
+            mRequest = request;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mRequest.run();
+            } catch (Throwable e) {
+                mRequest.sendRuntimeException(e.getMessage());
+                if (BuildConfig.DEBUG) {
+                    Log.e("dConnectManager", "runtime", e);
                 }
+            } finally {
+                unregisterRequestCodes(mRequest);
             }
-        });
+        }
+
+        /**
+         * 終了済みのため実行できなかったリクエストにエラーを返却する.
+         */
+        void reject() {
+            sendIllegalServerStateError(mRequest, MESSAGE_SHUTDOWN);
+        }
+    }
+
+    /**
+     * 実行できなかったリクエストにエラーを返却する.
+     * @param request リクエスト
+     * @param message エラーメッセージ
+     */
+    private void sendIllegalServerStateError(final DConnectRequest request, final String message) {
+        Intent response = new Intent(IntentDConnectMessage.ACTION_RESPONSE);
+        MessageUtils.setIllegalServerStateError(response, message);
+        request.sendResponse(response);
     }
 
     /**
@@ -76,23 +159,27 @@ public class DConnectRequestManager {
      */
     public void addRequestOnSingleThread(final DConnectRequest request) {
         request.setRequestMgr(this);
-        mRequestList.add(request);
-        mSingleExecutor.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    request.run();
-                } catch (Throwable e) {
-                    e.printStackTrace();
-                    request.sendRuntimeException(e.getMessage());
-                    if (BuildConfig.DEBUG) {
-                        Log.e("dConnectManager", "runtime", e);
+        try {
+            mSingleExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        request.run();
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                        request.sendRuntimeException(e.getMessage());
+                        if (BuildConfig.DEBUG) {
+                            Log.e("dConnectManager", "runtime", e);
+                        }
+                    } finally {
+                        unregisterRequestCodes(request);
                     }
-                } finally {
-                    mRequestList.remove(request);
                 }
-            }
-        });
+            });
+        } catch (RejectedExecutionException e) {
+            // shutdown()と同時に呼び出された場合も含めて、終了済みの場合はエラーを返却する
+            sendIllegalServerStateError(request, MESSAGE_SHUTDOWN);
+        }
     }
 
     /**
@@ -102,12 +189,54 @@ public class DConnectRequestManager {
     public void setResponse(final Intent response) {
         int code = response.getIntExtra(
                 IntentDConnectMessage.EXTRA_REQUEST_CODE, ERROR_CODE);
-        synchronized (mRequestList) {
-            for (DConnectRequest request : mRequestList) {
-                if (request.hasRequestCode(code)) {
-                    request.setResponse(response);
-                    return;
-                }
+        DConnectRequest request = mRequestMap.get(code);
+        if (request != null && request.hasRequestCode(code)) {
+            request.setResponse(response);
+        }
+        if (mLateRequestCodes.remove(code) != null) {
+            mRequestMap.remove(code);
+        }
+    }
+
+    /**
+     * リクエストコードとリクエストを対応付ける.
+     * @param requestCode リクエストコード
+     * @param request リクエスト
+     */
+    void registerRequestCode(final int requestCode, final DConnectRequest request) {
+        mRequestMap.put(requestCode, request);
+    }
+
+    /**
+     * 指定されたリクエストが発行したリクエストコードの対応付けを解除する.
+     * <p>
+     * 実行が終了した後もレスポンスを受け付けるリクエストコードは、
+     * リクエストのタイムアウト時間が経過するまで対応付けを残す.
+     * </p>
+     * @param request リクエスト
+     */
+    private void unregisterRequestCodes(final DConnectRequest request) {
+        long now = System.currentTimeMillis();
+        removeExpiredRequestCodes(now);
+        for (Integer requestCode : request.getRequestCodes()) {
+            if (request.acceptsLateResponse(requestCode)) {
+                mLateRequestCodes.put(requestCode, now + request.getTimeout());
+            } else {
+                mRequestMap.remove(requestCode);
+            }
+        }
+    }
+
+    /**
+     * レスポンスを受け付ける期限を過ぎたリクエストコードの対応付けを解除する.
+     * @param now 現在時刻(ms)
+     */
+    private void removeExpiredRequestCodes(final long now) {
+        for (Iterator<Map.Entry<Integer, Long>> it = mLateRequestCodes.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Integer, Long> entry = it.next();
+            if (entry.getValue() <= now) {
+                mRequestMap.remove(entry.getKey());
+                it.remove();
             }
         }
     }
@@ -0,0 +1,267 @@
+/*
+ DConnectRequestScheduler.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager.request;
+
+import org.deviceconnect.android.manager.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * リクエストを送信先のデバイスプラグインごとに実行待ちにするスケジューラ.
+ * <p>
+ * 1つのデバイスプラグインに対して同時に実行するリクエスト数を制限することで、
+ * 応答の遅いデバイスプラグインがスレッドを占有して、他のデバイスプラグインへの
+ * リクエストが止まってしまうことを防ぐ.
+ * </p>
+ * <p>
+ * 実行待ちのリクエスト数が上限に達している場合、そのデバイスプラグイン宛てのリクエストは受け付けない.
+ * </p>
+ * <p>
+ * 終了時に実行待ちだったタスクは{@link #shutdown()}で返却されるので、呼び出し元でエラーのレスポンスを返すこと.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class DConnectRequestScheduler {
+
+    /** 送信先のデバイスプラグインを持たないリクエストのキー. */
+    public static final String NO_DESTINATION = "";
+
+    /**
+     * リクエストを実行するスレッド数の最小値.
+     * <p>
+     * 送信先を持たないリクエストがすべてのスレッドを占有しないように、
+     * デバイスプラグイン宛てのリクエスト用に最低1つのスレッドを残す.
+     * </p>
+     */
+    public static final int MIN_THREAD_SIZE = 2;
+
+    /** リクエストを実行するスレッドを管理するExecutor. */
+    private final ExecutorService mExecutor;
+
+    /** 1つのデバイスプラグインに対して同時に実行するリクエスト数. */
+    private final int mMaxPerPlugin;
+
+    /** 送信先を持たないリクエストを同時に実行する数. */
+    private final int mMaxNoDestination;
+
+    /** 1つのデバイスプラグインに対して実行待ちにできるリクエスト数. */
+    private final int mQueueSize;
+
+    /**
+     * 送信先ごとの実行待ちキュー.
+     * <p>
+     * キーはデバイスプラグインID. このインスタンスで同期する.
+     * </p>
+     */
+    private final Map<String, TaskQueue> mQueues = new HashMap<String, TaskQueue>();
+
+    /** 実行待ちの時間の分布. */
+    private final LatencyHistogram mWaitTime = new LatencyHistogram();
+
+    /** 受け付けなかったリクエスト数. */
+    private final AtomicLong mRejectedCount = new AtomicLong();
+
+    /**
+     * コンストラクタ.
+     * @param threadSize リクエストを実行するスレッド数. {@link #MIN_THREAD_SIZE}以上であること
+     * @param maxPerPlugin 1つのデバイスプラグインに対して同時に実行するリクエスト数
+     * @param queueSize 1つのデバイスプラグインに対して実行待ちにできるリクエスト数
+     * @throws IllegalArgumentException threadSizeが{@link #MIN_THREAD_SIZE}未満の場合
+     */
+    public DConnectRequestScheduler(final int threadSize, final int maxPerPlugin, final int queueSize) {
+        if (threadSize < MIN_THREAD_SIZE) {
+            throw new IllegalArgumentException("threadSize must be at least " + MIN_THREAD_SIZE + ".");
+        }
+        mExecutor = Executors.newFixedThreadPool(threadSize);
+        mMaxPerPlugin = Math.max(1, Math.min(maxPerPlugin, threadSize));
+        // NOTE: デバイスプラグイン宛てのリクエスト用に、最低1つのスレッドを残しておく
+        mMaxNoDestination = threadSize - 1;
+        mQueueSize = queueSize;
+    }
+
+    /**
+     * 実行するタスクを追加する.
+     * @param pluginId 送信先のデバイスプラグインID. 送信先を持たない場合は{@link #NO_DESTINATION}
+     * @param task タスク
+     * @return 追加できた場合はtrue、実行待ちが上限に達している場合やスケジューラが終了している場合はfalse
+     */
+    public synchronized boolean schedule(final String pluginId, final Runnable task) {
+        if (mExecutor.isShutdown()) {
+            return false;
+        }
+        String key = pluginId != null ? pluginId : NO_DESTINATION;
+        TaskQueue queue = mQueues.get(key);
+        if (queue == null) {
+            queue = new TaskQueue(key, NO_DESTINATION.equals(key) ? mMaxNoDestination : mMaxPerPlugin);
+            mQueues.put(key, queue);
+        }
+        if (queue.mWaiting.size() >= mQueueSize && queue.mRunning >= queue.mMaxRunning) {
+            mRejectedCount.incrementAndGet();
+            return false;
+        }
+        queue.mWaiting.add(new Task(task));
+        dispatch(queue);
+        return true;
+    }
+
+    /**
+     * スケジューラを終了する.
+     * <p>
+     * 実行中のタスクは最後まで実行する. 実行待ちのタスクは実行せずに返却する.
+     * </p>
+     * @return 実行されなかったタスク. {@link #schedule(String, Runnable)}に渡したインスタンスを返却する
+     */
+    public synchronized List<Runnable> shutdown() {
+        List<Runnable> pending = new ArrayList<Runnable>();
+        for (TaskQueue queue : mQueues.values()) {
+            for (Task task : queue.mWaiting) {
+                pending.add(task.mRunnable);
+            }
+        }
+        mQueues.clear();
+        mExecutor.shutdown();
+        return pending;
+    }
+
+    /**
+     * スケジューラが終了しているかを確認する.
+     * @return 終了している場合はtrue、それ以外はfalse
+     */
+    public synchronized boolean isShutdown() {
+        return mExecutor.isShutdown();
+    }
+
+    /**
+     * 全体の実行待ちのリクエスト数を取得する.
+     * @return リクエスト数
+     */
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (TaskQueue queue : mQueues.values()) {
+            depth += queue.mWaiting.size();
+        }
+        return depth;
+    }
+
+    /**
+     * 指定されたデバイスプラグイン宛ての実行待ちのリクエスト数を取得する.
+     * @param pluginId デバイスプラグインID
+     * @return リクエスト数
+     */
+    public synchronized int getQueueDepth(final String pluginId) {
+        TaskQueue queue = mQueues.get(pluginId != null ? pluginId : NO_DESTINATION);
+        return queue != null ? queue.mWaiting.size() : 0;
+    }
+
+    /**
+     * 実行中のリクエスト数を取得する.
+     * @return リクエスト数
+     */
+    public synchronized int getRunningCount() {
+        int count = 0;
+        for (TaskQueue queue : mQueues.values()) {
+            count += queue.mRunning;
+        }
+        return count;
+    }
+
+    /**
+     * リクエストが実行されるまでの待ち時間の分布を取得する.
+     * @return 待ち時間の分布
+     */
+    public LatencyHistogram getWaitTime() {
+        return mWaitTime;
+    }
+
+    /**
+     * 実行待ちが上限に達していたため受け付けなかったリクエスト数を取得する.
+     * @return リクエスト数
+     */
+    public long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    /**
+     * 実行可能なタスクをExecutorに渡す.
+     * <p>
+     * このインスタンスで同期した状態で呼び出すこと.
+     * </p>
+     * @param queue 実行待ちキュー
+     */
+    private void dispatch(final TaskQueue queue) {
+        while (queue.mRunning < queue.mMaxRunning && !queue.mWaiting.isEmpty()) {
+            final Task task = queue.mWaiting.removeFirst();
+            queue.mRunning++;
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mWaitTime.record(System.currentTimeMillis() - task.mQueuedTime);
+                    try {
+                        task.mRunnable.run();
+                    } finally {
+                        onFinished(queue);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * タスクの実行が終了したことを通知する.
+     * @param queue 実行待ちキュー
+     */
+    private synchronized void onFinished(final TaskQueue queue) {
+        queue.mRunning--;
+        if (mExecutor.isShutdown()) {
+            return;
+        }
+        dispatch(queue);
+        if (queue.mRunning == 0 && queue.mWaiting.isEmpty()) {
+            mQueues.remove(queue.mKey);
+        }
+    }
+
+    /**
+     * 送信先ごとの実行待ちキュー.
+     */
+    private static class TaskQueue {
+        /** 送信先のキー. */
+        final String mKey;
+        /** 同時に実行するタスク数. */
+        final int mMaxRunning;
+        /** 実行待ちのタスク. */
+        final LinkedList<Task> mWaiting = new LinkedList<Task>();
+        /** 実行中のタスク数. */
+        int mRunning;
+
+        TaskQueue(final String key, final int maxRunning) {
+            mKey = key;
+            mMaxRunning = maxRunning;
+        }
+    }
+
+    /**
+     * 実行待ちのタスク.
+     */
+    private static class Task {
+        /** タスク本体. */
+        final Runnable mRunnable;
+        /** 実行待ちになった時刻(ms). */
+        final long mQueuedTime = System.currentTimeMillis();
+
+        Task(final Runnable runnable) {
+            mRunnable = runnable;
+        }
+    }
+}
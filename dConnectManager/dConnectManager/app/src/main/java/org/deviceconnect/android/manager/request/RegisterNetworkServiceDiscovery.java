@@ -13,7 +13,6 @@ import org.deviceconnect.android.manager.event.EventProtocol;
 import org.deviceconnect.message.DConnectMessage;
 import org.deviceconnect.message.intent.message.IntentDConnectMessage;
 
-import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
@@ -41,6 +40,11 @@ public class RegisterNetworkServiceDiscovery extends DConnectRequest {
         mDevicePlugin = plugin;
     }
 
+    @Override
+    public DevicePlugin getDestination() {
+        return mDevicePlugin;
+    }
+
     @Override
     public void setResponse(final Intent response) {
         super.setResponse(response);
@@ -57,7 +61,7 @@ public class RegisterNetworkServiceDiscovery extends DConnectRequest {
     @Override
     public void run() {
         // リクエストコードを作成する
-        mRequestCode = UUID.randomUUID().hashCode();
+        mRequestCode = createRequestCode();
 
         // リクエストを作成
         Intent request = EventProtocol.createRegistrationRequestForServiceChange(mContext, mDevicePlugin);
@@ -14,7 +14,6 @@ import org.deviceconnect.android.profile.DConnectProfile;
 import org.deviceconnect.message.intent.message.IntentDConnectMessage;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
@@ -78,7 +77,7 @@ public class RemoveEventsRequest extends DConnectRequest {
             }
 
             // リクエストコード作成
-            int requestCode = UUID.randomUUID().hashCode();
+            int requestCode = createRequestCode();
             mRequestCodeArray.put(requestCode, plugin);
 
             request.setComponent(plugin.getComponentName());
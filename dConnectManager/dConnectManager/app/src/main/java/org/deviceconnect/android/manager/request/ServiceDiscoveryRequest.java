@@ -6,12 +6,18 @@
  */
 package org.deviceconnect.android.manager.request;
 
+import android.content.ComponentName;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.util.SparseArray;
 
+import org.deviceconnect.android.manager.DConnectMessageService;
+import org.deviceconnect.android.manager.DConnectService;
 import org.deviceconnect.android.manager.DevicePlugin;
+import org.deviceconnect.android.manager.ServiceDiscoveryCache;
+import org.deviceconnect.android.manager.event.EventProtocol;
+import org.deviceconnect.android.manager.profile.DConnectServiceDiscoveryProfile;
 import org.deviceconnect.android.profile.ServiceDiscoveryProfile;
 import org.deviceconnect.message.DConnectMessage;
 import org.deviceconnect.message.intent.message.IntentDConnectMessage;
@@ -19,9 +25,6 @@ import org.deviceconnect.profile.ServiceDiscoveryProfileConstants;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -32,6 +35,25 @@ import java.util.logging.Logger;
  * になり、他方Network Service Discovery用リクエストでは登録されているデバイスプラグイン
  * の数だけレスポンスを受け取ったかどうかになっている.
  * </p>
+ * <p>
+ * 各デバイスプラグインの応答待ちの期限は、過去の応答時間からデバイスプラグインごとに決定する.
+ * 全てのデバイスプラグインが応答するか、それぞれの期限を過ぎた時点でレスポンスを返す.
+ * 前回のサービス検索で応答しなかったデバイスプラグインにはリクエストを送信するが、応答は待たないので、
+ * 1つのデバイスプラグインが応答しないことで、サービス検索全体がタイムアウトまで待たされることはない.
+ * </p>
+ * <p>
+ * 期限を過ぎたデバイスプラグインの応答は、サービス検索の結果には含めないが、
+ * タイムアウト時間が経過するまでは受け付けて応答時間を記録し、サービス検索結果のキャッシュに格納する.
+ * インクリメンタルモードの場合は、発見したサービスをイベントとして通知する.
+ * 遅れて応答したデバイスプラグインは、次のサービス検索から再び平均応答時間に基づいて待つ.
+ * </p>
+ * <p>
+ * サービス検索結果のキャッシュが有効なデバイスプラグインには、リクエストを送信せずにキャッシュを使用する.
+ * </p>
+ * <p>
+ * インクリメンタルモードの場合は、デバイスプラグインから応答があるたびに、
+ * 発見したサービスをイベントとしてリクエスト元に通知する.
+ * </p>
  * @author NTT DOCOMO, INC.
  */
 public class ServiceDiscoveryRequest extends DConnectRequest {
@@ -41,11 +63,23 @@ public class ServiceDiscoveryRequest extends DConnectRequest {
     /** プラグイン側のService Discoveryのプロファイル名: {@value}. */
     private static final String ATTRIBUTE_GET_NETWORK_SERVICES = "getNetworkServices";
 
-    /** レスポンスが返ってきた個数. */
-    private int mResponseCount;
+    /** 応答待ちの期限の最小値(ms). */
+    public static final long MIN_DEADLINE = 2000;
 
-    /** リクエストコードを格納する配列. */
-    private SparseArray<DevicePlugin> mRequestCodeArray = new SparseArray<>();
+    /** 応答時間の記録が無いデバイスプラグインの応答待ちの期限(ms). */
+    public static final long DEFAULT_DEADLINE = 10000;
+
+    /** 平均応答時間に対する応答待ちの期限の倍率. */
+    private static final int DEADLINE_FACTOR = 3;
+
+    /** 平均応答時間に加算する応答待ちの猶予(ms). */
+    private static final long DEADLINE_MARGIN = 1000;
+
+    /** リクエストコードを格納する配列. 応答があったデバイスプラグインは削除される. */
+    private final SparseArray<DevicePlugin> mRequestCodeArray = new SparseArray<>();
+
+    /** リクエストコードごとの応答待ちの期限(時刻, ms)を格納する配列. */
+    private final SparseArray<Long> mDeadlineArray = new SparseArray<>();
 
     /** 発見したサービスを一時的に格納しておくリスト. */
     private final List<Bundle> mServices = new ArrayList<>();
@@ -53,7 +87,31 @@ public class ServiceDiscoveryRequest extends DConnectRequest {
     /** ロガー. */
     private final Logger mLogger = Logger.getLogger("dconnect.manager");
 
-    private CountDownLatch mCountDownLatch;
+    /** 応答待ちのためのロックオブジェクト. */
+    private final Object mLockObj = new Object();
+
+    /** リクエストを送信した時刻(ms). */
+    private long mStartTime;
+
+    /** 応答の受付が終了したことを示すフラグ. */
+    private boolean mFinished;
+
+    /** インクリメンタルモードのフラグ. */
+    private boolean mIncremental;
+
+    /** リクエストを送信する前のキャッシュの世代. */
+    private long mCacheGeneration;
+
+    /**
+     * インクリメンタルモードを設定する.
+     * <p>
+     * trueの場合は、デバイスプラグインから応答があるたびに発見したサービスをイベントで通知する.
+     * </p>
+     * @param incremental インクリメンタルモードにする場合はtrue、それ以外はfalse
+     */
+    public void setIncremental(final boolean incremental) {
+        mIncremental = incremental;
+    }
 
     @Override
     public void setResponse(final Intent response) {
@@ -65,32 +123,61 @@ public class ServiceDiscoveryRequest extends DConnectRequest {
             return;
         }
 
-        // エラーが返ってきた場合には、サービスには登録しない。
-        int result = response.getIntExtra(IntentDConnectMessage.EXTRA_RESULT, -1);
-        if (result == IntentDConnectMessage.RESULT_OK) {
-            // 送られてきたサービスIDにデバイスプラグインのIDを付加して保存
-            Parcelable[] services = response.getParcelableArrayExtra(
-                    ServiceDiscoveryProfileConstants.PARAM_SERVICES);
-            if (services != null) {
-                DevicePlugin plugin = mRequestCodeArray.get(requestCode);
-                for (Parcelable p : services) {
-                    Bundle b = (Bundle) p;
+        Bundle[] found = null;
+        synchronized (mLockObj) {
+            DevicePlugin plugin = mRequestCodeArray.get(requestCode);
+            if (plugin == null) {
+                return;
+            }
+            mRequestCodeArray.remove(requestCode);
+            // 期限を過ぎた応答も応答時間として記録して、応答が無かったという記録を解除する
+            plugin.recordServiceDiscoveryResponse(System.currentTimeMillis() - mStartTime);
+
+            // エラーが返ってきた場合には、サービスには登録しない。
+            // レスポンスを返した後の応答は、キャッシュとインクリメンタルモードのイベントにのみ使用する。
+            int result = response.getIntExtra(IntentDConnectMessage.EXTRA_RESULT, -1);
+            if (result == IntentDConnectMessage.RESULT_OK) {
+                // 送られてきたサービスIDにデバイスプラグインのIDを付加して保存
+                Parcelable[] services = response.getParcelableArrayExtra(
+                        ServiceDiscoveryProfileConstants.PARAM_SERVICES);
+                found = new Bundle[services != null ? services.length : 0];
+                for (int i = 0; i < found.length; i++) {
+                    Bundle b = (Bundle) services[i];
                     String id = b.getString(ServiceDiscoveryProfile.PARAM_ID);
                     b.putString(ServiceDiscoveryProfile.PARAM_ID, mPluginMgr.appendServiceId(plugin, id));
-                    mServices.add(b);
+                    if (!mFinished) {
+                        mServices.add(b);
+                    }
+                    found[i] = b;
                 }
-                mRequestCodeArray.remove(requestCode);
+                mPluginMgr.getServiceDiscoveryCache().put(plugin.getPluginId(), found, mCacheGeneration);
             }
+            mLockObj.notifyAll();
         }
 
-        // レスポンス個数を追加
-        mResponseCount++;
-        mCountDownLatch.countDown();
+        if (mIncremental && found != null && found.length > 0) {
+            sendDiscoveredEvent(found);
+        }
     }
 
     @Override
     public boolean hasRequestCode(final int requestCode) {
-        return mRequestCodeArray.get(requestCode) != null;
+        synchronized (mLockObj) {
+            return mRequestCodeArray.get(requestCode) != null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 期限までに応答しなかったデバイスプラグインの応答は、応答時間を記録するために受け付ける.
+     * </p>
+     */
+    @Override
+    public boolean acceptsLateResponse(final int requestCode) {
+        synchronized (mLockObj) {
+            return mFinished && mRequestCodeArray.get(requestCode) != null;
+        }
     }
 
     @Override
@@ -103,7 +190,27 @@ public class ServiceDiscoveryRequest extends DConnectRequest {
             throw new RuntimeException("mDevicePluginManager is null.");
         }
 
-        List<DevicePlugin> plugins = mPluginMgr.getDevicePlugins();
+        // キャッシュが有効なデバイスプラグインにはリクエストを送信しない
+        ServiceDiscoveryCache cache = mPluginMgr.getServiceDiscoveryCache();
+        mCacheGeneration = cache.getGeneration();
+        List<DevicePlugin> plugins = new ArrayList<>();
+        List<Bundle> cachedServices = new ArrayList<>();
+        for (DevicePlugin plugin : mPluginMgr.getDevicePlugins()) {
+            Bundle[] cached = cache.get(plugin.getPluginId());
+            if (cached != null) {
+                for (Bundle b : cached) {
+                    cachedServices.add(b);
+                }
+            } else {
+                plugins.add(plugin);
+            }
+        }
+        synchronized (mLockObj) {
+            mServices.addAll(cachedServices);
+        }
+        if (mIncremental && cachedServices.size() > 0) {
+            sendDiscoveredEvent(cachedServices.toArray(new Bundle[cachedServices.size()]));
+        }
 
         // 送信用のIntentを作成
         Intent request = createRequestMessage(mRequest, null);
@@ -112,49 +219,144 @@ public class ServiceDiscoveryRequest extends DConnectRequest {
         request.putExtra(DConnectMessage.EXTRA_PROFILE, PROFILE_NETWORK_SERVICE_DISCOVERY);
         request.putExtra(DConnectMessage.EXTRA_ATTRIBUTE, ATTRIBUTE_GET_NETWORK_SERVICES);
 
-        mCountDownLatch = new CountDownLatch(plugins.size());
+        // 応答を待つ期限は、デバイスプラグインごとに決める
+        int[] requestCodes = new int[plugins.size()];
+        synchronized (mLockObj) {
+            mStartTime = System.currentTimeMillis();
+            for (int i = 0; i < plugins.size(); i++) {
+                DevicePlugin plugin = plugins.get(i);
+                requestCodes[i] = createRequestCode();
+                mRequestCodeArray.put(requestCodes[i], plugin);
+                mDeadlineArray.put(requestCodes[i], mStartTime + getDeadline(plugin, mTimeout));
+            }
+        }
 
         for (int i = 0; i < plugins.size(); i++) {
-            DevicePlugin plugin = plugins.get(i);
-
-            int requestCode = UUID.randomUUID().hashCode();
-            mRequestCodeArray.put(requestCode, plugin);
-
-            request.setComponent(plugin.getComponentName());
-            request.putExtra(IntentDConnectMessage.EXTRA_REQUEST_CODE, requestCode);
+            request.setComponent(plugins.get(i).getComponentName());
+            request.putExtra(IntentDConnectMessage.EXTRA_REQUEST_CODE, requestCodes[i]);
             mContext.sendBroadcast(request);
         }
 
-        try {
-            mCountDownLatch.await(mTimeout, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            mLogger.warning("Exception occurred in wait.");
+        List<DevicePlugin> stragglers = new ArrayList<>();
+        Bundle[] services;
+        synchronized (mLockObj) {
+            long now = System.currentTimeMillis();
+            long end = getNextDeadline(now);
+            while (end > now) {
+                try {
+                    mLockObj.wait(end - now);
+                } catch (InterruptedException e) {
+                    mLogger.warning("Exception occurred in wait.");
+                    break;
+                }
+                now = System.currentTimeMillis();
+                end = getNextDeadline(now);
+            }
+            mFinished = true;
+
+            for (int i = 0; i < mRequestCodeArray.size(); i++) {
+                DevicePlugin plugin = mRequestCodeArray.valueAt(i);
+                plugin.recordServiceDiscoveryTimeout();
+                stragglers.add(plugin);
+            }
+            services = mServices.toArray(new Bundle[mServices.size()]);
         }
 
-        if (mResponseCount < plugins.size()) {
-            restartDevicePlugins();
+        if (stragglers.size() > 0) {
+            restartDevicePlugins(stragglers);
         }
 
         // パラメータを設定する
         mResponse = new Intent(IntentDConnectMessage.ACTION_RESPONSE);
         mResponse.putExtra(IntentDConnectMessage.EXTRA_RESULT,
                 IntentDConnectMessage.RESULT_OK);
-        mResponse.putExtra(ServiceDiscoveryProfile.PARAM_SERVICES,
-                mServices.toArray(new Bundle[mServices.size()]));
+        mResponse.putExtra(ServiceDiscoveryProfile.PARAM_SERVICES, services);
 
         // レスポンスを返却する
         sendResponse(mResponse);
     }
-    
+
     /**
-     * Restart all device plugins that response did not come back.
+     * 応答していないデバイスプラグインのうち、最も早く来る応答待ちの期限を取得する.
+     * <p>
+     * mLockObjをロックした状態で呼び出すこと.
+     * </p>
+     * @param now 現在時刻(ms)
+     * @return 期限(時刻, ms). 期限を過ぎていないデバイスプラグインが無い場合は現在時刻
      */
-    private void restartDevicePlugins() {
+    private long getNextDeadline(final long now) {
+        long next = Long.MAX_VALUE;
         for (int i = 0; i < mRequestCodeArray.size(); i++) {
-            DevicePlugin plugin = mRequestCodeArray.valueAt(i);
+            long deadline = mDeadlineArray.get(mRequestCodeArray.keyAt(i));
+            if (deadline > now && deadline < next) {
+                next = deadline;
+            }
+        }
+        return next == Long.MAX_VALUE ? now : next;
+    }
+
+    /**
+     * 指定されたデバイスプラグインの応答を待つ期限を取得する.
+     * <ul>
+     * <li>前回応答しなかったデバイスプラグインの応答は待たない.
+     * 遅れて応答した場合は、応答が無かったという記録が解除される.</li>
+     * <li>応答時間の記録がないデバイスプラグインは{@link #DEFAULT_DEADLINE}まで待つ.</li>
+     * <li>それ以外は、平均応答時間から期限を決定する.</li>
+     * </ul>
+     * いずれの場合もタイムアウト時間を超えることはない.
+     * @param plugin デバイスプラグイン
+     * @param timeout タイムアウト時間(ms)
+     * @return 期限(ms)
+     */
+    public static long getDeadline(final DevicePlugin plugin, final long timeout) {
+        if (plugin.isServiceDiscoveryTimedOut()) {
+            return 0;
+        }
+        long latency = plugin.getServiceDiscoveryLatency();
+        if (latency < 0) {
+            return Math.min(DEFAULT_DEADLINE, timeout);
+        }
+        long deadline = latency * DEADLINE_FACTOR + DEADLINE_MARGIN;
+        return Math.min(Math.max(deadline, MIN_DEADLINE), timeout);
+    }
+
+    /**
+     * 発見したサービスをイベントでリクエスト元に通知する.
+     * @param services 発見したサービス
+     */
+    private void sendDiscoveredEvent(final Bundle[] services) {
+        Intent event = new Intent(IntentDConnectMessage.ACTION_EVENT);
+        event.putExtra(DConnectMessage.EXTRA_PROFILE, ServiceDiscoveryProfile.PROFILE_NAME);
+        event.putExtra(DConnectMessage.EXTRA_ATTRIBUTE,
+                DConnectServiceDiscoveryProfile.ATTRIBUTE_ON_SERVICE_DISCOVERED);
+        event.putExtra(ServiceDiscoveryProfile.PARAM_SERVICES, services);
+
+        DConnectMessageService service = (DConnectMessageService) mContext;
+        if (DConnectService.INNER_TYPE_HTTP.equals(mRequest.getStringExtra(DConnectService.EXTRA_INNER_TYPE))) {
+            String receiverId = EventProtocol.createReceiverId(service, mRequest);
+            if (receiverId == null) {
+                return;
+            }
+            event.putExtra(IntentDConnectMessage.EXTRA_SESSION_KEY, receiverId);
+            service.sendEvent(null, event);
+        } else {
+            ComponentName receiver = mRequest.getParcelableExtra(IntentDConnectMessage.EXTRA_RECEIVER);
+            if (receiver == null) {
+                return;
+            }
+            service.sendEvent(receiver.flattenToString(), event);
+        }
+    }
+
+    /**
+     * Restart device plugins that response did not come back.
+     * @param plugins device plugins to restart
+     */
+    private void restartDevicePlugins(final List<DevicePlugin> plugins) {
+        for (DevicePlugin plugin : plugins) {
             if (plugin.getStartServiceClassName() != null) {
                 Intent service = new Intent();
-                service.setClassName(plugin.getPackageName(), 
+                service.setClassName(plugin.getPackageName(),
                         plugin.getStartServiceClassName());
                 getContext().startService(service);
             }
@@ -0,0 +1,569 @@
+/*
+ BundleJSONWriter.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager.util;
+
+
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import org.deviceconnect.message.intent.message.IntentDConnectMessage;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+/**
+ * BundleをJSON文字列(UTF-8)に直接書き出すクラス.
+ * <p>
+ * {@link org.json.JSONObject}のツリーを作成せずに、1回の走査でバッファに書き出す.
+ * 出力内容は{@link org.deviceconnect.message.intent.util.JSONFactory#convertBundleToJSON(org.json.JSONObject, Bundle)}
+ * で作成したJSONObjectを文字列にしたものと同じになる.
+ * </p>
+ * <p>
+ * 書き出し先のバッファは再利用するので、1つのインスタンスを複数のスレッドから同時に使用してはならない.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class BundleJSONWriter {
+
+    /** URIを変換する対象のキー. */
+    private static final String KEY_URI = "uri";
+
+    /** バッファの初期サイズ. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** 再利用時に保持しておくバッファの最大サイズ. これより大きくなったバッファは破棄する. */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    /** 16進数の文字. */
+    private static final byte[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    /**
+     * content://から始まるURIを変換するインターフェース.
+     */
+    public interface UriConverter {
+        /**
+         * URIを変換する.
+         * @param uri content://から始まるURI
+         * @return 変換後のURI
+         */
+        String convert(String uri);
+    }
+
+    /** URIを変換するインターフェース. */
+    private final UriConverter mUriConverter;
+
+    /** 書き出し先のバッファ. */
+    private byte[] mBuffer = new byte[INITIAL_CAPACITY];
+
+    /** 書き出したバイト数. */
+    private int mLength;
+
+    /**
+     * コンストラクタ.
+     * @param uriConverter URIを変換するインターフェース. URIを変換しない場合はnull
+     */
+    public BundleJSONWriter(final UriConverter uriConverter) {
+        mUriConverter = uriConverter;
+    }
+
+    /**
+     * BundleをJSONとして書き出す.
+     * <p>
+     * 前回書き出した内容は破棄される.
+     * </p>
+     * @param b 書き出すBundle
+     * @throws JSONException 数値にNaNや無限大が含まれている場合
+     */
+    public void write(final Bundle b) throws JSONException {
+        if (mBuffer.length > MAX_RETAINED_CAPACITY) {
+            mBuffer = new byte[INITIAL_CAPACITY];
+        }
+        mLength = 0;
+        writeBundle(b, true);
+    }
+
+    /**
+     * 書き出したバイト数を取得する.
+     * @return バイト数
+     */
+    public int size() {
+        return mLength;
+    }
+
+    /**
+     * 書き出した内容をバイト配列で取得する.
+     * @return UTF-8のバイト配列
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[mLength];
+        System.arraycopy(mBuffer, 0, result, 0, mLength);
+        return result;
+    }
+
+    /**
+     * 書き出した内容を出力ストリームに書き込む.
+     * @param out 出力ストリーム
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(mBuffer, 0, mLength);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return new String(mBuffer, 0, mLength, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Bundleを書き出す.
+     * @param b Bundle
+     * @param convertUri uriを変換する場合はtrue.
+     *                   JSONFactoryと同様に、配列の中のオブジェクトでは変換しない
+     * @throws JSONException 数値にNaNや無限大が含まれている場合
+     */
+    private void writeBundle(final Bundle b, final boolean convertUri) throws JSONException {
+        writeByte('{');
+        if (b != null) {
+            boolean first = true;
+            for (String key : b.keySet()) {
+                if (IntentDConnectMessage.EXTRA_REQUEST_CODE.equals(key)) {
+                    // request_codeはRESTfulにはいらないので削除しておく
+                    continue;
+                }
+                Object value = b.get(key);
+                if (!isSupported(value)) {
+                    continue;
+                }
+                if (!first) {
+                    writeByte(',');
+                }
+                first = false;
+                writeString(key);
+                writeByte(':');
+                if (convertUri && value instanceof String && KEY_URI.equals(key)) {
+                    writeString(convertUri((String) value));
+                } else {
+                    writeValue(value, convertUri);
+                }
+            }
+        }
+        writeByte('}');
+    }
+
+    /**
+     * JSONに書き出す型か確認する.
+     * @param value 値
+     * @return 書き出す場合はtrue、それ以外はfalse
+     */
+    private static boolean isSupported(final Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Object[] && !(value instanceof Parcelable[]) && !(value instanceof String[])) {
+            return isPrimitiveWrapperArray((Object[]) value);
+        }
+        // NOTE: JSONFactoryと同じく、BigDecimalなどのラッパークラス以外の数値は書き出さない
+        return isPrimitiveWrapper(value)
+            || value instanceof String || value instanceof Bundle || value instanceof Parcelable[]
+            || value instanceof String[] || value instanceof List<?>
+            || value instanceof int[] || value instanceof long[] || value instanceof short[]
+            || value instanceof byte[] || value instanceof char[] || value instanceof float[]
+            || value instanceof double[] || value instanceof boolean[];
+    }
+
+    /**
+     * Bundleの値を書き出す.
+     * @param value 値
+     * @param convertUri 入れ子のBundleでuriを変換する場合はtrue
+     * @throws JSONException 数値にNaNや無限大が含まれている場合
+     */
+    private void writeValue(final Object value, final boolean convertUri) throws JSONException {
+        if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof Long) {
+            writeLong((Long) value);
+        } else if (value instanceof Float) {
+            // JSONObject#put(String, double)に渡されるため、doubleとして書き出す
+            writeDouble(((Float) value).doubleValue());
+        } else if (value instanceof Double) {
+            writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            writeLong((Character) value);
+        } else if (value instanceof Bundle) {
+            writeBundle((Bundle) value, convertUri);
+        } else if (value instanceof Parcelable[]) {
+            Parcelable[] array = (Parcelable[]) value;
+            writeByte('[');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writeByte(',');
+                }
+                writeBundle(array[i] instanceof Bundle ? (Bundle) array[i] : null, false);
+            }
+            writeByte(']');
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            writeByte('[');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writeByte(',');
+                }
+                writeElement(array[i]);
+            }
+            writeByte(']');
+        } else if (value instanceof List<?>) {
+            List<?> list = (List<?>) value;
+            writeByte('[');
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    writeByte(',');
+                }
+                Object v = list.get(i);
+                if (v instanceof Parcelable) {
+                    writeBundle(v instanceof Bundle ? (Bundle) v : null, false);
+                } else {
+                    writeElement(v);
+                }
+            }
+            writeByte(']');
+        } else {
+            writePrimitiveArray(value);
+        }
+    }
+
+    /**
+     * プリミティブ型の配列を書き出す.
+     * @param value 配列
+     * @throws JSONException 数値にNaNや無限大が含まれている場合
+     */
+    private void writePrimitiveArray(final Object value) throws JSONException {
+        writeByte('[');
+        if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            for (int i = 0; i < array.length; i++) {
+                writeSeparator(i);
+                writeLong(array[i]);
+            }
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            for (int i = 0; i < array.length; i++) {
+                writeSeparator(i);
+                writeLong(array[i]);
+            }
+        } else if (value instanceof short[]) {
+            short[] array = (short[]) value;
+            for (int i = 0; i < array.length; i++) {
+                writeSeparator(i);
+                writeLong(array[i]);
+            }
+        } else if (value instanceof byte[]) {
+            byte[] array = (byte[]) value;
+            for (int i = 0; i < array.length; i++) {
+                writeSeparator(i);
+                writeLong(array[i]);
+            }
+        } else if (value instanceof char[]) {
+            char[] array = (char[]) value;
+            for (int i = 0; i < array.length; i++) {
+                writeSeparator(i);
+                writeLong(array[i]);
+            }
+        } else if (value instanceof float[]) {
+            float[] array = (float[]) value;
+            for (int i = 0; i < array.length; i++) {
+                writeSeparator(i);
+                writeDouble(array[i]);
+            }
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            for (int i = 0; i < array.length; i++) {
+                writeSeparator(i);
+                writeDouble(array[i]);
+            }
+        } else if (value instanceof boolean[]) {
+            boolean[] array = (boolean[]) value;
+            for (int i = 0; i < array.length; i++) {
+                writeSeparator(i);
+                writeBoolean(array[i]);
+            }
+        }
+        writeByte(']');
+    }
+
+    /**
+     * JSONArrayに格納された要素と同じ形式で書き出す.
+     * @param value 要素
+     * @throws JSONException 数値にNaNや無限大が含まれている場合
+     */
+    private void writeElement(final Object value) throws JSONException {
+        if (value == null) {
+            writeAscii("null");
+        } else if (value instanceof Boolean) {
+            writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            writeFloat((Float) value);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            writeNumber((Number) value);
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    private void writeSeparator(final int index) {
+        if (index > 0) {
+            writeByte(',');
+        }
+    }
+
+    private void writeBoolean(final boolean value) {
+        writeAscii(value ? "true" : "false");
+    }
+
+    private void writeLong(final long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        long v = value;
+        if (v < 0) {
+            writeByte('-');
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = mLength + digits - 1; i >= mLength; i--) {
+            mBuffer[i] = (byte) ('0' + (v % 10));
+            v /= 10;
+        }
+        mLength += digits;
+    }
+
+    /**
+     * doubleの値を書き出す.
+     * <p>
+     * JSONObject#numberToString(Number)と同じく、整数で表せる値は小数点を付けずに書き出す.
+     * </p>
+     * @param value 値
+     * @throws JSONException NaNや無限大の場合
+     */
+    private void writeDouble(final double value) throws JSONException {
+        checkDouble(value);
+        if (value == 0 && Double.doubleToRawLongBits(value) != 0) {
+            writeAscii("-0");
+            return;
+        }
+        long l = (long) value;
+        if (value == (double) l) {
+            writeLong(l);
+        } else {
+            writeAscii(Double.toString(value));
+        }
+    }
+
+    /**
+     * ラッパークラス以外の数値を書き出す.
+     * <p>
+     * JSONObject#numberToString(Number)と同じく、整数で表せる値は整数として、それ以外はtoString()で書き出す.
+     * </p>
+     * @param value 値
+     * @throws JSONException NaNや無限大の場合
+     */
+    private void writeNumber(final Number value) throws JSONException {
+        double d = value.doubleValue();
+        checkDouble(d);
+        long l = value.longValue();
+        if (d == (double) l) {
+            writeLong(l);
+        } else {
+            writeAscii(value.toString());
+        }
+    }
+
+    /**
+     * Floatの値を書き出す.
+     * <p>
+     * JSONArrayに格納されたFloatはFloat#toString()で文字列になるため、それに合わせる.
+     * </p>
+     * @param value 値
+     * @throws JSONException NaNや無限大の場合
+     */
+    private void writeFloat(final float value) throws JSONException {
+        checkDouble(value);
+        long l = (long) value;
+        if ((double) value == (double) l) {
+            writeLong(l);
+        } else {
+            writeAscii(Float.toString(value));
+        }
+    }
+
+    private static void checkDouble(final double value) throws JSONException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new JSONException("Forbidden numeric value: " + value);
+        }
+    }
+
+    /**
+     * 文字列をJSONの文字列としてエスケープして書き出す.
+     * @param s 文字列
+     */
+    private void writeString(final String s) {
+        writeByte('"');
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    writeByte('\\');
+                    writeByte(c);
+                    break;
+                case '\t':
+                    writeByte('\\');
+                    writeByte('t');
+                    break;
+                case '\b':
+                    writeByte('\\');
+                    writeByte('b');
+                    break;
+                case '\n':
+                    writeByte('\\');
+                    writeByte('n');
+                    break;
+                case '\r':
+                    writeByte('\\');
+                    writeByte('r');
+                    break;
+                case '\f':
+                    writeByte('\\');
+                    writeByte('f');
+                    break;
+                default:
+                    if (c <= 0x1F) {
+                        writeAscii("\\u00");
+                        writeByte(HEX[(c >> 4) & 0xF]);
+                        writeByte(HEX[c & 0xF]);
+                    } else if (c < 0x80) {
+                        writeByte(c);
+                    } else if (c < 0x800) {
+                        ensureCapacity(2);
+                        mBuffer[mLength++] = (byte) (0xC0 | (c >> 6));
+                        mBuffer[mLength++] = (byte) (0x80 | (c & 0x3F));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < length
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        ensureCapacity(4);
+                        mBuffer[mLength++] = (byte) (0xF0 | (cp >> 18));
+                        mBuffer[mLength++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                        mBuffer[mLength++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                        mBuffer[mLength++] = (byte) (0x80 | (cp & 0x3F));
+                    } else if (Character.isSurrogate(c)) {
+                        // 対になっていないサロゲートは、String#getBytes("UTF-8")と同じく'?'に置き換える
+                        writeByte('?');
+                    } else {
+                        ensureCapacity(3);
+                        mBuffer[mLength++] = (byte) (0xE0 | (c >> 12));
+                        mBuffer[mLength++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        mBuffer[mLength++] = (byte) (0x80 | (c & 0x3F));
+                    }
+                    break;
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeAscii(final String s) {
+        int length = s.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            mBuffer[mLength++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeByte(final int b) {
+        ensureCapacity(1);
+        mBuffer[mLength++] = (byte) b;
+    }
+
+    private void ensureCapacity(final int size) {
+        if (mLength + size > mBuffer.length) {
+            int capacity = Math.max(mBuffer.length * 2, mLength + size);
+            byte[] buffer = new byte[capacity];
+            System.arraycopy(mBuffer, 0, buffer, 0, mLength);
+            mBuffer = buffer;
+        }
+    }
+
+    private String convertUri(final String uri) {
+        if (mUriConverter != null && uri.startsWith("content://")) {
+            return mUriConverter.convert(uri);
+        }
+        return uri;
+    }
+
+    /**
+     * 指定したObject[]がプリミティブ型のラッパークラスの配列であるかどうかをチェックする.
+     * <p>
+     * JSONFactoryと同じく、すべての要素の型が同一でない場合はfalseを返す.
+     * </p>
+     * @param array チェックするオブジェクト配列
+     * @return プリミティブ型のラッパークラスの配列である場合はtrue、そうでない場合はfalse
+     */
+    private static boolean isPrimitiveWrapperArray(final Object[] array) {
+        if (array instanceof Integer[] || array instanceof Long[] || array instanceof Short[]
+                || array instanceof Byte[] || array instanceof Character[] || array instanceof Float[]
+                || array instanceof Double[] || array instanceof Boolean[]) {
+            return true;
+        }
+        Class<?> type = null;
+        for (Object obj : array) {
+            if (obj != null) {
+                if (!isPrimitiveWrapper(obj)) {
+                    return false;
+                }
+                if (type != null && type != obj.getClass()) {
+                    return false;
+                }
+                type = obj.getClass();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 指定したObjectがプリミティブ型のラッパークラスであるかどうかをチェックする.
+     * @param obj チェックするオブジェクト
+     * @return プリミティブ型のラッパークラスである場合はtrue、そうでない場合はfalse
+     */
+    private static boolean isPrimitiveWrapper(final Object obj) {
+        return obj instanceof Byte || obj instanceof Short || obj instanceof Integer
+                || obj instanceof Long || obj instanceof Float || obj instanceof Double
+                || obj instanceof Character || obj instanceof Boolean;
+    }
+}
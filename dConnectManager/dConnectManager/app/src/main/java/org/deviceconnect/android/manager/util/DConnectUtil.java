@@ -191,6 +191,56 @@ public final class DConnectUtil {
         convertUri(root);
     }
 
+    /**
+     * スレッドごとに再利用するBundleJSONWriter.
+     */
+    private static final ThreadLocal<BundleJSONWriter> JSON_WRITER = new ThreadLocal<BundleJSONWriter>() {
+        @Override
+        protected BundleJSONWriter initialValue() {
+            return new BundleJSONWriter(new BundleJSONWriter.UriConverter() {
+                @Override
+                public String convert(final String uri) {
+                    return createUri(uri);
+                }
+            });
+        }
+    };
+
+    /**
+     * BundleをJSON文字列(UTF-8)のバイト配列に変換する.
+     * <p>
+     * {@link #convertBundleToJSON(JSONObject, Bundle)}で変換したJSONObjectの文字列と同じ内容を、
+     * JSONObjectを作成せずに書き出す.
+     * </p>
+     * @param b 変換するBundle
+     * @return UTF-8のバイト配列
+     * @throws JSONException JSONへの変換に失敗した場合に発生
+     */
+    public static byte[] convertBundleToJSONBytes(final Bundle b) throws JSONException {
+        BundleJSONWriter writer = JSON_WRITER.get();
+        writer.write(b);
+        return writer.toByteArray();
+    }
+
+    /**
+     * BundleをJSON文字列に変換する.
+     * <p>
+     * {@link #convertBundleToJSON(JSONObject, Bundle)}で変換したJSONObjectの文字列と同じ内容を、
+     * JSONObjectを作成せずに書き出す.
+     * </p>
+     * @param b 変換するBundle
+     * @return JSON文字列
+     * @throws JSONException JSONへの変換に失敗した場合に発生
+     */
+    public static String convertBundleToJSONString(final Bundle b) throws JSONException {
+        BundleJSONWriter writer = JSON_WRITER.get();
+        writer.write(b);
+        return writer.toString();
+    }
+
+    /** 取得済みのversionName. */
+    private static volatile String sVersionName;
+
     /**
      * AndroidManifest.xmlのversionNameを取得する.
      * 
@@ -198,11 +248,17 @@ public final class DConnectUtil {
      * @return versionName
      */
     public static String getVersionName(final Context context) {
+        // アプリが更新されるとプロセスが再起動されるので、1度取得した値を使い続ける
+        String versionName = sVersionName;
+        if (versionName != null) {
+            return versionName;
+        }
         PackageManager packageManager = context.getPackageManager();
         try {
-            PackageInfo packageInfo = packageManager.getPackageInfo(context.getPackageName(),
-                    PackageManager.GET_ACTIVITIES);
-            return packageInfo.versionName;
+            PackageInfo packageInfo = packageManager.getPackageInfo(context.getPackageName(), 0);
+            versionName = packageInfo.versionName;
+            sVersionName = versionName;
+            return versionName;
         } catch (NameNotFoundException e) {
             return "Unknown";
         }
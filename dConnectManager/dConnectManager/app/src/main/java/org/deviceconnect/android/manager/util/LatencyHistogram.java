@@ -0,0 +1,158 @@
+/*
+ LatencyHistogram.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager.util;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 処理時間の分布を記録するヒストグラム.
+ * <p>
+ * 記録はロックを取得せずに行う. 各バケットの上限値(ms)は {@link #BUCKET_BOUNDS} で定義する.
+ * </p>
+ * @author NTT DOCOMO, INC.
+ */
+public class LatencyHistogram {
+
+    /**
+     * 各バケットの上限値(ms).
+     * <p>
+     * 最後の上限値を超えるものは、最後のバケットに加算される.
+     * </p>
+     */
+    private static final long[] BUCKET_BOUNDS = {
+        1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000, Long.MAX_VALUE
+    };
+
+    /** 各バケットの件数. */
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_BOUNDS.length);
+
+    /** 記録した件数. */
+    private final AtomicLong mTotalCount = new AtomicLong();
+
+    /** 記録した時間の合計(ms). */
+    private final AtomicLong mTotalTime = new AtomicLong();
+
+    /** 記録した時間の最大値(ms). */
+    private final AtomicLong mMaxTime = new AtomicLong();
+
+    /**
+     * 処理時間を記録する.
+     * @param time 処理時間(ms)
+     */
+    public void record(final long time) {
+        long t = time < 0 ? 0 : time;
+        mCounts.incrementAndGet(indexOf(t));
+        mTotalCount.incrementAndGet();
+        mTotalTime.addAndGet(t);
+        long max;
+        do {
+            max = mMaxTime.get();
+        } while (t > max && !mMaxTime.compareAndSet(max, t));
+    }
+
+    /**
+     * 記録した件数を取得する.
+     * @return 件数
+     */
+    public long getCount() {
+        return mTotalCount.get();
+    }
+
+    /**
+     * 処理時間の平均値を取得する.
+     * @return 平均値(ms)
+     */
+    public long getAverage() {
+        long count = mTotalCount.get();
+        return count == 0 ? 0 : mTotalTime.get() / count;
+    }
+
+    /**
+     * 処理時間の最大値を取得する.
+     * @return 最大値(ms)
+     */
+    public long getMax() {
+        return mMaxTime.get();
+    }
+
+    /**
+     * 各バケットの上限値(ms)を取得する.
+     * @return 上限値の配列
+     */
+    public long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * 各バケットの件数を取得する.
+     * @return 件数の配列. 添字は {@link #getBucketBounds()} に対応する.
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[mCounts.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mCounts.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * 指定された割合の処理時間を概算する.
+     * @param percentile 割合(0.0 - 1.0)
+     * @return 処理時間が含まれるバケットの上限値(ms). 記録がない場合は0
+     */
+    public long getPercentile(final double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percentile);
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sum += counts[i];
+            if (sum >= threshold) {
+                return i == counts.length - 1 ? getMax() : BUCKET_BOUNDS[i];
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 記録をすべて破棄する.
+     */
+    public void reset() {
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        mTotalCount.set(0);
+        mTotalTime.set(0);
+        mMaxTime.set(0);
+    }
+
+    private static int indexOf(final long time) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (time <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+            + ", avg=" + getAverage() + "ms"
+            + ", p50=" + getPercentile(0.5) + "ms"
+            + ", p99=" + getPercentile(0.99) + "ms"
+            + ", max=" + getMax() + "ms";
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ WebSocketEventQueueTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager;
+
+import android.content.Intent;
+
+import org.deviceconnect.message.DConnectMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WebSocketEventQueue}のテストを実行する.
+ * @author NTT DOCOMO, INC.
+ */
+public class WebSocketEventQueueTest {
+
+    /** テストで使用するWebSocket ID. */
+    private static final String WEB_SOCKET_ID = "test";
+
+    /** テストで使用する送信タイムアウト(ms). */
+    private static final long SEND_TIMEOUT = 100;
+
+    /** 待機する時間(秒). */
+    private static final long WAIT_TIME = 10;
+
+    /**
+     * 上限に達した場合に、最も古いイベントが破棄されることを確認する.
+     */
+    @Test
+    public void testDropOldest() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSender sender = new RecordingSender();
+        WebSocketEventQueue queue = new WebSocketEventQueue(WEB_SOCKET_ID, 2,
+                WebSocketEventQueue.OverflowPolicy.DROP_OLDEST, SEND_TIMEOUT, executor, sender);
+
+        Assert.assertTrue(queue.offer(new TestEvent("1", "a")));
+        Assert.assertTrue(queue.offer(new TestEvent("2", "a")));
+        Assert.assertTrue(queue.offer(new TestEvent("3", "a")));
+        Assert.assertEquals(2, queue.getDepth());
+        Assert.assertEquals(1, queue.getDroppedCount());
+
+        executor.runAll();
+        Assert.assertEquals(2, sender.mSent.size());
+        Assert.assertEquals("2", sender.mSent.get(0).getStringExtra(DConnectMessage.EXTRA_SERVICE_ID));
+        Assert.assertEquals("3", sender.mSent.get(1).getStringExtra(DConnectMessage.EXTRA_SERVICE_ID));
+        Assert.assertEquals(2, queue.getSentCount());
+    }
+
+    /**
+     * 上限に達した場合に、同じAPIの送信待ちのイベントが最新のイベントで置き換えられることを確認する.
+     */
+    @Test
+    public void testCoalesceLatest() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSender sender = new RecordingSender();
+        WebSocketEventQueue queue = new WebSocketEventQueue(WEB_SOCKET_ID, 2,
+                WebSocketEventQueue.OverflowPolicy.COALESCE_LATEST, SEND_TIMEOUT, executor, sender);
+
+        TestEvent latest = new TestEvent("1", "a");
+        Assert.assertTrue(queue.offer(new TestEvent("1", "a")));
+        Assert.assertTrue(queue.offer(new TestEvent("2", "b")));
+        Assert.assertTrue(queue.offer(latest));
+        Assert.assertEquals(2, queue.getDepth());
+        Assert.assertEquals(1, queue.getDroppedCount());
+
+        // 同じAPIのイベントが無い場合は最も古いイベントを破棄する
+        Assert.assertTrue(queue.offer(new TestEvent("3", "c")));
+        Assert.assertEquals(2, queue.getDepth());
+        Assert.assertEquals(2, queue.getDroppedCount());
+
+        executor.runAll();
+        Assert.assertEquals(2, sender.mSent.size());
+        Assert.assertEquals("2", sender.mSent.get(0).getStringExtra(DConnectMessage.EXTRA_SERVICE_ID));
+        Assert.assertEquals("3", sender.mSent.get(1).getStringExtra(DConnectMessage.EXTRA_SERVICE_ID));
+
+        // 置き換えたイベントは送信待ちの位置を引き継ぐ
+        queue.offer(new TestEvent("4", "a"));
+        queue.offer(new TestEvent("5", "a"));
+        Assert.assertTrue(queue.offer(latest));
+        executor.runAll();
+        Assert.assertSame(latest, sender.mSent.get(3));
+    }
+
+    /**
+     * 上限に達した場合に、キューが閉じられて切断が通知されることを確認する.
+     */
+    @Test
+    public void testDisconnect() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSender sender = new RecordingSender();
+        WebSocketEventQueue queue = new WebSocketEventQueue(WEB_SOCKET_ID, 2,
+                WebSocketEventQueue.OverflowPolicy.DISCONNECT, SEND_TIMEOUT, executor, sender);
+
+        Assert.assertTrue(queue.offer(new TestEvent("1", "a")));
+        Assert.assertTrue(queue.offer(new TestEvent("2", "a")));
+        Assert.assertFalse(queue.offer(new TestEvent("3", "a")));
+        Assert.assertTrue(queue.isClosed());
+        Assert.assertEquals(0, queue.getDepth());
+        Assert.assertEquals(3, queue.getDroppedCount());
+        Assert.assertEquals(1, sender.mOverflowCount);
+
+        executor.runAll();
+        Assert.assertEquals(0, sender.mSent.size());
+        Assert.assertFalse(queue.offer(new TestEvent("4", "a")));
+    }
+
+    /**
+     * 1回の送信処理で送信するイベント数が上限を超えず、残りが改めてExecutorに投入されることを確認する.
+     */
+    @Test
+    public void testDrainSlicing() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSender sender = new RecordingSender();
+        final int count = WebSocketEventQueue.MAX_DRAIN_COUNT * 2 + 1;
+        WebSocketEventQueue queue = new WebSocketEventQueue(WEB_SOCKET_ID, count,
+                WebSocketEventQueue.OverflowPolicy.DROP_OLDEST, SEND_TIMEOUT, executor, sender);
+        for (int i = 0; i < count; i++) {
+            Assert.assertTrue(queue.offer(new TestEvent(String.valueOf(i), "a")));
+        }
+        Assert.assertEquals(1, executor.mTasks.size());
+
+        Assert.assertTrue(executor.runNext());
+        Assert.assertTrue(sender.mSent.size() <= WebSocketEventQueue.MAX_DRAIN_COUNT);
+        Assert.assertEquals(1, executor.mTasks.size());
+
+        executor.runAll();
+        Assert.assertEquals(count, sender.mSent.size());
+        Assert.assertEquals(count, queue.getSentCount());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(String.valueOf(i),
+                    sender.mSent.get(i).getStringExtra(DConnectMessage.EXTRA_SERVICE_ID));
+        }
+        Assert.assertEquals(0, queue.getDepth());
+    }
+
+    /**
+     * 送信処理を再投入できない場合に、キューが閉じられてイベントが破棄されることを確認する.
+     */
+    @Test
+    public void testDrainRejected() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSender sender = new RecordingSender();
+        final int count = WebSocketEventQueue.MAX_DRAIN_COUNT + 4;
+        WebSocketEventQueue queue = new WebSocketEventQueue(WEB_SOCKET_ID, count,
+                WebSocketEventQueue.OverflowPolicy.DROP_OLDEST, SEND_TIMEOUT, executor, sender);
+        for (int i = 0; i < count; i++) {
+            queue.offer(new TestEvent(String.valueOf(i), "a"));
+        }
+        executor.mRejecting = true;
+        executor.runAll();
+        Assert.assertTrue(queue.isClosed());
+        Assert.assertEquals(count, queue.getSentCount() + queue.getDroppedCount());
+    }
+
+    /**
+     * 送信時に実行時例外が発生したイベントや、送信せずに破棄されたイベントは、
+     * 破棄したイベント数に数えられて、次のイベントの送信が続けられることを確認する.
+     */
+    @Test
+    public void testSendDropped() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSender sender = new RecordingSender() {
+            @Override
+            public boolean send(final String webSocketId, final Intent event) throws IOException {
+                String serviceId = event.getStringExtra(DConnectMessage.EXTRA_SERVICE_ID);
+                if ("error".equals(serviceId)) {
+                    throw new IllegalStateException("test");
+                } else if ("drop".equals(serviceId)) {
+                    return false;
+                }
+                return super.send(webSocketId, event);
+            }
+        };
+        WebSocketEventQueue queue = new WebSocketEventQueue(WEB_SOCKET_ID, 10,
+                WebSocketEventQueue.OverflowPolicy.DROP_OLDEST, SEND_TIMEOUT, executor, sender);
+        queue.offer(new TestEvent("error", "a"));
+        queue.offer(new TestEvent("drop", "a"));
+        queue.offer(new TestEvent("1", "a"));
+        executor.runAll();
+
+        Assert.assertFalse(queue.isClosed());
+        Assert.assertEquals(1, sender.mSent.size());
+        Assert.assertEquals(1, queue.getSentCount());
+        Assert.assertEquals(2, queue.getDroppedCount());
+
+        // 送信処理が終了しているので、次のイベントで再び送信処理が投入される
+        Assert.assertTrue(queue.offer(new TestEvent("2", "a")));
+        Assert.assertEquals(1, executor.mTasks.size());
+        executor.runAll();
+        Assert.assertEquals(2, sender.mSent.size());
+    }
+
+    /**
+     * 送信に失敗した場合に、キューが閉じられて通知されることを確認する.
+     */
+    @Test
+    public void testSendFailed() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSender sender = new RecordingSender() {
+            @Override
+            public boolean send(final String webSocketId, final Intent event) throws IOException {
+                throw new IOException("test");
+            }
+        };
+        WebSocketEventQueue queue = new WebSocketEventQueue(WEB_SOCKET_ID, 10,
+                WebSocketEventQueue.OverflowPolicy.DROP_OLDEST, SEND_TIMEOUT, executor, sender);
+        queue.offer(new TestEvent("1", "a"));
+        queue.offer(new TestEvent("2", "a"));
+        executor.runAll();
+
+        Assert.assertTrue(queue.isClosed());
+        Assert.assertEquals(1, sender.mFailedCount);
+        Assert.assertEquals(0, queue.getSentCount());
+    }
+
+    /**
+     * 送信が送信タイムアウトを超えて終わらない場合に、キューが閉じられて通知されることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testSendTimeout() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingSender sender = new RecordingSender() {
+            @Override
+            public boolean send(final String webSocketId, final Intent event) throws IOException {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted");
+                }
+                // 切断されたので送信に失敗する
+                throw new IOException("aborted");
+            }
+        };
+        final CountDownLatch finished = new CountDownLatch(1);
+        Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        command.run();
+                        finished.countDown();
+                    }
+                }).start();
+            }
+        };
+        WebSocketEventQueue queue = new WebSocketEventQueue(WEB_SOCKET_ID, 10,
+                WebSocketEventQueue.OverflowPolicy.DROP_OLDEST, SEND_TIMEOUT, executor, sender);
+        try {
+            queue.offer(new TestEvent("1", "a"));
+            queue.offer(new TestEvent("2", "a"));
+            Assert.assertTrue(started.await(WAIT_TIME, TimeUnit.SECONDS));
+
+            // 送信タイムアウトを超えるまでは何もしない
+            Assert.assertFalse(queue.checkSendTimeout());
+            Thread.sleep(SEND_TIMEOUT * 2);
+            Assert.assertTrue(queue.checkSendTimeout());
+            Assert.assertTrue(queue.isClosed());
+            Assert.assertEquals(1, sender.mTimeoutCount);
+            Assert.assertEquals(1, queue.getDroppedCount());
+
+            // 通知は1回だけ
+            Assert.assertFalse(queue.checkSendTimeout());
+        } finally {
+            release.countDown();
+        }
+        // 送信タイムアウトで閉じた場合は送信の失敗は通知しない
+        Assert.assertTrue(finished.await(WAIT_TIME, TimeUnit.SECONDS));
+        Assert.assertEquals(0, sender.mFailedCount);
+        Assert.assertEquals(0, queue.getSentCount());
+    }
+
+    /**
+     * テストで使用するイベント.
+     */
+    private static class TestEvent extends Intent {
+        /** パラメータ. */
+        private final Map<String, String> mExtras = new HashMap<String, String>();
+
+        /**
+         * コンストラクタ.
+         * @param serviceId サービスID
+         * @param attribute アトリビュート名
+         */
+        TestEvent(final String serviceId, final String attribute) {
+            mExtras.put(DConnectMessage.EXTRA_SERVICE_ID, serviceId);
+            mExtras.put(DConnectMessage.EXTRA_PROFILE, "test");
+            mExtras.put(DConnectMessage.EXTRA_ATTRIBUTE, attribute);
+        }
+
+        @Override
+        public String getStringExtra(final String name) {
+            return mExtras.get(name);
+        }
+    }
+
+    /**
+     * 投入されたタスクをテストから実行するExecutor.
+     */
+    private static class ManualExecutor implements Executor {
+        /** 実行待ちのタスク. */
+        final LinkedList<Runnable> mTasks = new LinkedList<Runnable>();
+        /** タスクの投入を拒否する場合はtrue. */
+        boolean mRejecting;
+
+        @Override
+        public void execute(final Runnable command) {
+            if (mRejecting) {
+                throw new RejectedExecutionException();
+            }
+            mTasks.add(command);
+        }
+
+        /**
+         * 実行待ちのタスクを1つ実行する.
+         * @return 実行した場合はtrue、実行待ちのタスクが無い場合はfalse
+         */
+        boolean runNext() {
+            Runnable task = mTasks.poll();
+            if (task == null) {
+                return false;
+            }
+            task.run();
+            return true;
+        }
+
+        /**
+         * 実行待ちのタスクが無くなるまで実行する.
+         */
+        void runAll() {
+            while (runNext()) {
+                // 実行を続ける
+            }
+        }
+    }
+
+    /**
+     * 送信したイベントと通知を記録する{@link WebSocketEventQueue.EventSender}.
+     */
+    private static class RecordingSender implements WebSocketEventQueue.EventSender {
+        /** 送信したイベント. */
+        final List<Intent> mSent = new ArrayList<Intent>();
+        /** 送信の失敗が通知された回数. */
+        volatile int mFailedCount;
+        /** 上限に達したことが通知された回数. */
+        volatile int mOverflowCount;
+        /** 送信タイムアウトが通知された回数. */
+        volatile int mTimeoutCount;
+
+        @Override
+        public boolean send(final String webSocketId, final Intent event) throws IOException {
+            mSent.add(event);
+            return true;
+        }
+
+        @Override
+        public void onSendFailed(final WebSocketEventQueue queue, final IOException e) {
+            mFailedCount++;
+        }
+
+        @Override
+        public void onOverflow(final WebSocketEventQueue queue) {
+            mOverflowCount++;
+        }
+
+        @Override
+        public void onSendTimeout(final WebSocketEventQueue queue) {
+            mTimeoutCount++;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ DConnectRequestSchedulerTest.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.android.manager.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DConnectRequestScheduler}のテストを実行する.
+ * @author NTT DOCOMO, INC.
+ */
+public class DConnectRequestSchedulerTest {
+
+    /** 待機する時間(秒). */
+    private static final long WAIT_TIME = 10;
+
+    /**
+     * 同じデバイスプラグイン宛てのリクエストは、同時に実行する数が上限を超えないことを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testMaxPerPlugin() throws InterruptedException {
+        final int requestCount = 20;
+        DConnectRequestScheduler scheduler = new DConnectRequestScheduler(4, 2, requestCount);
+        try {
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicBoolean exceeded = new AtomicBoolean();
+            final CountDownLatch done = new CountDownLatch(requestCount);
+            for (int i = 0; i < requestCount; i++) {
+                Assert.assertTrue(scheduler.schedule("plugin", new Runnable() {
+                    @Override
+                    public void run() {
+                        if (running.incrementAndGet() > 2) {
+                            exceeded.set(true);
+                        }
+                        try {
+                            Thread.sleep(5);
+                        } catch (InterruptedException e) {
+                            // 終了する
+                        }
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                }));
+            }
+            Assert.assertTrue(done.await(WAIT_TIME, TimeUnit.SECONDS));
+            Assert.assertFalse(exceeded.get());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 応答の遅いデバイスプラグインがあっても、他のデバイスプラグイン宛てのリクエストが実行されることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testOtherPluginNotBlocked() throws InterruptedException {
+        DConnectRequestScheduler scheduler = new DConnectRequestScheduler(3, 2, 10);
+        BlockingTask[] blocking = {new BlockingTask(), new BlockingTask(), new BlockingTask()};
+        try {
+            for (BlockingTask task : blocking) {
+                Assert.assertTrue(scheduler.schedule("plugin1", task));
+            }
+            Assert.assertTrue(blocking[0].mStarted.await(WAIT_TIME, TimeUnit.SECONDS));
+            Assert.assertTrue(blocking[1].mStarted.await(WAIT_TIME, TimeUnit.SECONDS));
+            Assert.assertEquals(1, scheduler.getQueueDepth("plugin1"));
+
+            final CountDownLatch done = new CountDownLatch(1);
+            Assert.assertTrue(scheduler.schedule("plugin2", new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            }));
+            Assert.assertTrue(done.await(WAIT_TIME, TimeUnit.SECONDS));
+        } finally {
+            for (BlockingTask task : blocking) {
+                task.mRelease.countDown();
+            }
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 実行待ちが上限に達している場合は、リクエストを受け付けないことを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testRejectWhenQueueFull() throws InterruptedException {
+        DConnectRequestScheduler scheduler = new DConnectRequestScheduler(2, 1, 2);
+        BlockingTask blocking = new BlockingTask();
+        try {
+            Assert.assertTrue(scheduler.schedule("plugin1", blocking));
+            Assert.assertTrue(blocking.mStarted.await(WAIT_TIME, TimeUnit.SECONDS));
+
+            CountingTask task = new CountingTask();
+            Assert.assertTrue(scheduler.schedule("plugin1", task));
+            Assert.assertTrue(scheduler.schedule("plugin1", task));
+            Assert.assertFalse(scheduler.schedule("plugin1", task));
+            Assert.assertEquals(1, scheduler.getRejectedCount());
+            Assert.assertEquals(2, scheduler.getQueueDepth("plugin1"));
+
+            // 他のデバイスプラグイン宛ては受け付ける
+            Assert.assertTrue(scheduler.schedule("plugin2", new CountingTask()));
+        } finally {
+            blocking.mRelease.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 終了時に実行待ちだったタスクが実行されずに返却され、実行中のタスクは最後まで実行されることを確認する.
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testShutdownReturnsPendingTasks() throws InterruptedException {
+        DConnectRequestScheduler scheduler = new DConnectRequestScheduler(2, 1, 10);
+        BlockingTask blocking = new BlockingTask();
+        Assert.assertTrue(scheduler.schedule("plugin1", blocking));
+        Assert.assertTrue(blocking.mStarted.await(WAIT_TIME, TimeUnit.SECONDS));
+
+        Set<Runnable> waiting = new HashSet<Runnable>();
+        CountingTask[] tasks = {new CountingTask(), new CountingTask()};
+        Assert.assertTrue(scheduler.schedule("plugin1", tasks[0]));
+        Assert.assertTrue(scheduler.schedule("plugin1", tasks[1]));
+        Collections.addAll(waiting, tasks);
+
+        List<Runnable> pending = scheduler.shutdown();
+        Assert.assertTrue(scheduler.isShutdown());
+        Assert.assertEquals(waiting.size(), pending.size());
+        Assert.assertEquals(waiting, new HashSet<Runnable>(pending));
+
+        // 実行中のタスクには割り込まない
+        Assert.assertFalse(blocking.mInterrupted.get());
+        blocking.mRelease.countDown();
+        Assert.assertTrue(blocking.mFinished.await(WAIT_TIME, TimeUnit.SECONDS));
+        Assert.assertFalse(blocking.mInterrupted.get());
+        for (CountingTask task : tasks) {
+            Assert.assertEquals(0, task.mCount.get());
+        }
+    }
+
+    /**
+     * 終了後のリクエストは受け付けないことを確認する.
+     */
+    @Test
+    public void testScheduleAfterShutdown() {
+        DConnectRequestScheduler scheduler = new DConnectRequestScheduler(2, 1, 10);
+        Assert.assertTrue(scheduler.shutdown().isEmpty());
+
+        CountingTask task = new CountingTask();
+        Assert.assertFalse(scheduler.schedule("plugin", task));
+        Assert.assertTrue(scheduler.shutdown().isEmpty());
+        Assert.assertEquals(0, task.mCount.get());
+    }
+
+    /**
+     * 解放されるか割り込まれるまで実行を続けるタスク.
+     */
+    private static class BlockingTask implements Runnable {
+        /** 実行が開始されたことを通知するラッチ. */
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        /** 実行を終了させるラッチ. */
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        /** 実行が終了したことを通知するラッチ. */
+        final CountDownLatch mFinished = new CountDownLatch(1);
+        /** 割り込まれたことを示すフラグ. */
+        final AtomicBoolean mInterrupted = new AtomicBoolean();
+
+        @Override
+        public void run() {
+            mStarted.countDown();
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                mInterrupted.set(true);
+            } finally {
+                mFinished.countDown();
+            }
+        }
+    }
+
+    /**
+     * 実行された回数を数えるタスク.
+     */
+    private static class CountingTask implements Runnable {
+        /** 実行された回数. */
+        final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public void run() {
+            mCount.incrementAndGet();
+        }
+    }
+}
@@ -91,6 +91,15 @@ public abstract class DConnectServer {
      */
     public abstract void disconnectWebSocket(String webSocketId);
 
+    /**
+     * WebSocketを強制的に切断する.
+     * <p>
+     * Closeフレームを送らずにソケットを閉じるので、送信が止まっているWebSocketも切断できる.
+     * </p>
+     * @param webSocketId WebSocketを特定するためのID
+     */
+    public abstract void abortWebSocket(String webSocketId);
+
     /**
      * イベントリスナーを設定します.
      * 
@@ -24,6 +24,9 @@ public final class DConnectServerConfig {
     /** WebSocket最大コネクション数. */
     private int mMaxWebSocketConnectionSize;
 
+    /** 処理待ちにできるコネクション数. */
+    private int mConnectionBacklogSize;
+
     /** ドキュメントルートのパス. */
     private String mDocumentRootPath;
 
@@ -57,6 +60,18 @@ public final class DConnectServerConfig {
         return mMaxWebSocketConnectionSize;
     }
 
+    /**
+     * 処理待ちにできるコネクション数を取得する.
+     * <p>
+     * 最大コネクション数を超えた接続はこの数まで処理待ちになり、それを超えた接続は拒否される。
+     * </p>
+     * 
+     * @return 処理待ちにできるコネクション数
+     */
+    public int getConnectionBacklogSize() {
+        return mConnectionBacklogSize;
+    }
+
     /**
      * ドキュメントルートのパスを取得する.
      * 
@@ -112,6 +127,7 @@ public final class DConnectServerConfig {
         this.mDocumentRootPath = builder.mDocumentRootPath;
         this.mMaxConnectionSize = builder.mMaxConnectionSize;
         this.mMaxWebSocketConnectionSize = builder.mMaxWebSocketConnectionSize;
+        this.mConnectionBacklogSize = builder.mConnectionBacklogSize;
         this.mIsSsl = builder.mIsSsl;
         this.mPort = builder.mPort;
         this.mHost = builder.mHost;
@@ -132,6 +148,9 @@ public final class DConnectServerConfig {
         /** WebSocket最大コネクション数. */
         private int mMaxWebSocketConnectionSize = 32;
 
+        /** 処理待ちにできるコネクション数. */
+        private int mConnectionBacklogSize = 32;
+
         /** ドキュメントルートのパス. */
         private String mDocumentRootPath;
 
@@ -197,6 +216,23 @@ public final class DConnectServerConfig {
             return this;
         }
 
+        /**
+         * 処理待ちにできるコネクション数を設定する.
+         * 
+         * @param connectionBacklogSize 処理待ちにできるコネクション数。0以上を指定すること。
+         * 
+         * @return ビルダー。
+         */
+        public Builder connectionBacklogSize(final int connectionBacklogSize) {
+
+            if (connectionBacklogSize < 0) {
+                throw new IllegalArgumentException("ConnectionBacklogSize must be larger than or equal to 0.");
+            }
+
+            this.mConnectionBacklogSize = connectionBacklogSize;
+            return this;
+        }
+
         /**
          * SSLの利用設定を行う.
          * 
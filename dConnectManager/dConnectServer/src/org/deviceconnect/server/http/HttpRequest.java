@@ -6,6 +6,8 @@
  */
 package org.deviceconnect.server.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Map;
 
 /**
@@ -39,6 +41,9 @@ public final class HttpRequest {
     /** HTTPリクエストのBodyデータ. */
     private byte[] mBody;
 
+    /** HTTPリクエストのBodyデータを読み込むストリーム. */
+    private InputStream mBodyStream;
+
     /**
      * HTTPメソッドを取得する.
      * 
@@ -111,4 +116,33 @@ public final class HttpRequest {
         this.mBody = body;
     }
 
+    /**
+     * HTTPリクエストのBodyデータを読み込むストリームを取得する.
+     * <p>
+     * サーバがBodyデータをメモリ上に展開せずにストリームとして渡した場合には、そのストリームを返却する.
+     * この場合、{@link #getBody()}は<code>null</code>を返却し、ストリームは1度だけ読み込むことができる.
+     * それ以外の場合は、{@link #getBody()}のデータを読み込むストリームを返却する.
+     * </p>
+     * 
+     * @return HTTPリクエストのBodyデータを読み込むストリーム。Bodyデータが無い場合は<code>null</code>
+     */
+    public InputStream getBodyStream() {
+        if (mBodyStream != null) {
+            return mBodyStream;
+        }
+        if (mBody != null) {
+            return new ByteArrayInputStream(mBody);
+        }
+        return null;
+    }
+
+    /**
+     * HTTPリクエストのBodyデータを読み込むストリームを設定する.
+     * 
+     * @param bodyStream HTTPリクエストのBodyデータを読み込むストリーム
+     */
+    public void setBodyStream(final InputStream bodyStream) {
+        this.mBodyStream = bodyStream;
+    }
+
 }
@@ -37,11 +37,16 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManagerFactory;
 
 import org.deviceconnect.server.nanohttpd.security.Firewall;
@@ -104,6 +109,22 @@ public abstract class NanoHTTPD {
      * the socket reading thread forever (or as long the browser is open).
      */
     public static final int SOCKET_READ_TIMEOUT = 5000;
+    /**
+     * 処理できる接続数を超えた接続に503を返却する際に、1つの接続の読み書きに掛ける時間の上限(ms).
+     */
+    private static final int REJECT_TIMEOUT = 1000;
+    /**
+     * 処理できる接続数を超えた接続に503を返却するスレッド数.
+     */
+    private static final int REJECT_THREAD_SIZE = 2;
+    /**
+     * 503の返却待ちにできる接続の最大数. これを超えた接続は応答せずに切断する.
+     */
+    private static final int REJECT_QUEUE_SIZE = 16;
+    /**
+     * 503を返却する際に読み捨てるリクエストの最大サイズ.
+     */
+    private static final int REJECT_DRAIN_SIZE = 8192;
     /**
      * Common mime type for dynamic content: plain text
      */
@@ -124,6 +145,13 @@ public abstract class NanoHTTPD {
     private SSLServerSocketFactory sslServerSocketFactory;
     private Set<Socket> openConnections = new HashSet<Socket>();
     private Thread myThread;
+    /**
+     * 処理できる接続数を超えた接続に503を返却するExecutor.
+     * <p>
+     * 遅いクライアントで接続の受付が止まらないように、受付スレッドとは別のスレッドで返却する.
+     * </p>
+     */
+    private ThreadPoolExecutor rejectExecutor;
 
     /** ファイアウォール. */
     private Firewall firewall;
@@ -247,6 +275,9 @@ public abstract class NanoHTTPD {
         myServerSocket.bind((hostname != null) ? new InetSocketAddress(hostname, myPort)
                 : new InetSocketAddress(myPort));
 
+        rejectExecutor = new ThreadPoolExecutor(REJECT_THREAD_SIZE, REJECT_THREAD_SIZE, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(REJECT_QUEUE_SIZE));
+
         myThread = new Thread(new Runnable() {
             @Override
             public void run() {
@@ -264,7 +295,7 @@ public abstract class NanoHTTPD {
                         if (inputStream == null) {
                             safeClose(finalAccept);
                         } else {
-                            asyncRunner.exec(new Runnable() {
+                            Runnable connection = new Runnable() {
                                 @Override
                                 public void run() {
                                     OutputStream outputStream = null;
@@ -292,7 +323,13 @@ public abstract class NanoHTTPD {
                                         unRegisterConnection(finalAccept);
                                     }
                                 }
-                            });
+                            };
+                            try {
+                                asyncRunner.exec(connection);
+                            } catch (RejectedExecutionException e) {
+                                // 処理できる接続数を超えている場合は503を返却して切断する
+                                rejectConnection(finalAccept, inputStream);
+                            }
                         }
                     } catch (IOException e) {
                     }
@@ -305,6 +342,106 @@ public abstract class NanoHTTPD {
         myThread.start();
     }
 
+    /**
+     * 処理できる接続数を超えた接続に503を返却して切断する.
+     * <p>
+     * 返却は{@link #rejectExecutor}で実行する. 返却待ちの接続も上限に達している場合は、応答せずに切断する.
+     * </p>
+     * 
+     * @param socket 切断する接続
+     * @param inputStream 接続の入力ストリーム
+     */
+    private void rejectConnection(final Socket socket, final InputStream inputStream) {
+        try {
+            rejectExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    sendServiceUnavailable(socket, inputStream);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            safeClose(socket);
+            unRegisterConnection(socket);
+        }
+    }
+
+    /**
+     * 503を返却して切断する.
+     * <p>
+     * リクエストを読まずに切断すると、クライアントに503が届く前に接続がリセットされる場合があるため、
+     * リクエストヘッダーを読み捨ててから返却し、送信側を閉じてから残りを読み捨てる.
+     * 全体で{@link #REJECT_TIMEOUT}を超えて待たない.
+     * </p>
+     * 
+     * @param socket 切断する接続
+     * @param inputStream 接続の入力ストリーム
+     */
+    private void sendServiceUnavailable(Socket socket, InputStream inputStream) {
+        OutputStream outputStream = null;
+        try {
+            socket.setSoTimeout(REJECT_TIMEOUT / 2);
+            long deadline = System.currentTimeMillis() + REJECT_TIMEOUT;
+            drainInput(inputStream, deadline, true);
+
+            outputStream = socket.getOutputStream();
+            Response r = new Response(Response.Status.SERVICE_UNAVAILABLE, MIME_PLAINTEXT,
+                    "Server can't accept more connections.");
+            r.addHeader("Connection", "close");
+            r.addHeader("Retry-After", "1");
+            r.send(outputStream);
+
+            if (!(socket instanceof SSLSocket)) {
+                // SSLSocketはshutdownOutputに対応していない
+                socket.shutdownOutput();
+            }
+            drainInput(inputStream, deadline, false);
+        } catch (IOException e) {
+            // 切断するので何もしない
+        } finally {
+            safeClose(outputStream);
+            safeClose(socket);
+            unRegisterConnection(socket);
+        }
+    }
+
+    /**
+     * 入力ストリームのデータを読み捨てる.
+     * 
+     * @param inputStream 入力ストリーム
+     * @param deadline 読み捨てを終了する時刻(ms)
+     * @param headerOnly リクエストヘッダーの終端まで読み捨てる場合はtrue、ストリームの終端まで読み捨てる場合はfalse
+     */
+    private static void drainInput(InputStream inputStream, long deadline, boolean headerOnly) {
+        byte[] buf = new byte[512];
+        int total = 0;
+        // リクエストヘッダーの終端(CRLFCRLF)と一致したバイト数
+        int matched = 0;
+        try {
+            while (total < REJECT_DRAIN_SIZE && System.currentTimeMillis() < deadline) {
+                int len = inputStream.read(buf, 0, Math.min(buf.length, REJECT_DRAIN_SIZE - total));
+                if (len < 0) {
+                    return;
+                }
+                total += len;
+                if (headerOnly) {
+                    for (int i = 0; i < len; i++) {
+                        byte expected = (matched % 2 == 0) ? (byte) '\r' : (byte) '\n';
+                        if (buf[i] == expected) {
+                            matched++;
+                            if (matched == 4) {
+                                return;
+                            }
+                        } else {
+                            matched = (buf[i] == '\r') ? 1 : 0;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // タイムアウトした場合も、そのまま返却・切断する
+        }
+    }
+
     /**
      * Stop the server.
      */
@@ -313,6 +450,10 @@ public abstract class NanoHTTPD {
             safeClose(myServerSocket);
             closeAllConnections();
             myThread.join();
+            if (rejectExecutor != null) {
+                rejectExecutor.shutdownNow();
+                rejectExecutor = null;
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -517,6 +658,10 @@ public abstract class NanoHTTPD {
 
     /**
      * Pluggable strategy for asynchronously executing requests.
+     * <p>
+     * 接続を受け付けられない場合はRejectedExecutionExceptionを発生させること。
+     * その接続には503を返却して切断する。
+     * </p>
      */
     public interface AsyncRunner {
         void exec(Runnable code);
@@ -723,6 +868,21 @@ public abstract class NanoHTTPD {
             header.put(name, value);
         }
 
+        /**
+         * 指定した名前のヘッダーの値を取得する. 名前の大文字・小文字は区別しない.
+         * 
+         * @param name ヘッダー名
+         * @return ヘッダーの値。存在しない場合はnull
+         */
+        public String getHeader(String name) {
+            for (Map.Entry<String, String> entry : header.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
         /**
          * Sends given response to the socket.
          */
@@ -766,6 +926,8 @@ public abstract class NanoHTTPD {
 
                 if (!hasConnection) {
                     pw.print("Connection: keep-alive\r\n");
+                    // アイドル状態の接続はSOCKET_READ_TIMEOUTで切断するので、クライアントに通知しておく
+                    pw.print("Keep-Alive: timeout=" + (SOCKET_READ_TIMEOUT / 1000) + "\r\n");
                 }
 
                 if (requestMethod != Method.HEAD && chunkedTransfer) {
@@ -868,7 +1030,7 @@ public abstract class NanoHTTPD {
                     401, "Unauthorized"), FORBIDDEN(403, "Forbidden"), NOT_FOUND(404, "Not Found"), METHOD_NOT_ALLOWED(
                     405, "Method Not Allowed"), REQUEST_ENTITY_TOO_LARGE(413, "Request Entity Too Large"), RANGE_NOT_SATISFIABLE(
                     416, "Requested Range Not Satisfiable"), INTERNAL_ERROR(500, "Internal Server Error"), NOT_IMPLEMENTED(
-                    501, "Not Implemented");
+                    501, "Not Implemented"), SERVICE_UNAVAILABLE(503, "Service Unavailable");
             private final int requestStatus;
             private final String description;
 
@@ -1072,8 +1234,19 @@ public abstract class NanoHTTPD {
                 } else {
                     cookies.unloadQueue(r);
                     r.setRequestMethod(method);
+                    boolean keepAlive = isKeepAlive(pre.get("protocol"));
+                    if (!keepAlive && r.getHeader("Connection") == null) {
+                        r.addHeader("Connection", "close");
+                    }
                     r.send(outputStream);
 
+                    if (!keepAlive || "close".equalsIgnoreCase(r.getHeader("Connection"))) {
+                        // 接続を再利用しない場合は、次のリクエストを待たずに切断する
+                        safeClose(inputStream);
+                        safeClose(outputStream);
+                        throw new SocketException("NanoHttpd Shutdown");
+                    }
+
                 }
             } catch (SocketException e) {
                 // throw it out to close socket object (finalAccept)
@@ -1095,6 +1268,27 @@ public abstract class NanoHTTPD {
 
         }
 
+        /**
+         * クライアントが接続の再利用を要求しているか確認する.
+         * <p>
+         * HTTP/1.1ではConnection: closeが指定されていない限り再利用する。
+         * HTTP/1.0ではConnection: keep-aliveが指定されている場合のみ再利用する。
+         * </p>
+         * 
+         * @param protocol リクエストのプロトコルバージョン
+         * @return 再利用する場合はtrue、それ以外はfalse
+         */
+        private boolean isKeepAlive(String protocol) {
+            String connection = headers.get("connection");
+            if (connection != null && connection.toLowerCase(Locale.US).contains("close")) {
+                return false;
+            }
+            if ("HTTP/1.0".equalsIgnoreCase(protocol)) {
+                return connection != null && connection.toLowerCase(Locale.US).contains("keep-alive");
+            }
+            return true;
+        }
+
         @Override
         public void parseBody(Map<String, String> files) throws IOException, ResponseException {
             RandomAccessFile randomAccessFile = null;
@@ -1226,6 +1420,7 @@ public abstract class NanoHTTPD {
                 // NOTE: this now forces header names lowercase since they are
                 // case insensitive and vary by client.
                 if (st.hasMoreTokens()) {
+                    pre.put("protocol", st.nextToken());
                     String line = in.readLine();
                     while (line != null && line.trim().length() > 0) {
                         int p = line.indexOf(':');
@@ -27,15 +27,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.SimpleFormatter;
@@ -66,6 +71,12 @@ public class DConnectServerNanoHttpd extends DConnectServer {
     /** WebSocketのKeepAlive処理のインターバル. */
     private static final int WEBSOCKET_KEEP_ALIVE_INTERVAL = 3000;
 
+    /** WebSocketのKeepAlive処理でpongを受信しない場合に切断するまでの時間. */
+    private static final long WEBSOCKET_KEEP_ALIVE_TIMEOUT = WEBSOCKET_KEEP_ALIVE_INTERVAL * 2;
+
+    /** WebSocketのKeepAlive処理でpingを送信するスレッドの数. */
+    private static final int WEBSOCKET_KEEP_ALIVE_SENDER_SIZE = 4;
+
     /** 対応するMIME_TYPE群. */
     private static final Map<String, String> MIME_TYPES;
 
@@ -78,22 +89,48 @@ public class DConnectServerNanoHttpd extends DConnectServer {
     /** コンテキストオブジェクト. */
     private Context mContext;
 
-    private List<NanoWebSocket> mWebSockets = new ArrayList<>();
+    /**
+     * 接続中のWebSocket一覧.
+     * <p>
+     * 接続・切断は接続ごとのスレッドやKeep-Aliveのスレッドから行われるため、スレッドセーフなリストを使用する.
+     * </p>
+     */
+    private final List<NanoWebSocket> mWebSockets = new CopyOnWriteArrayList<>();
 
     /**
-     * Keep-Aliveの状態定数.
-     * 
-     * @author NTT DOCOMO, INC.
-     * 
+     * 全WebSocketのKeep-Alive処理を実行するスケジューラ.
+     * <p>
+     * WebSocketごとにスレッドを作成しないように、1つのスレッドで全WebSocketのKeep-Aliveを処理する.
+     * </p>
      */
-    private enum KeepAliveState {
-        /** クライアントの返事待ち状態. */
-        WAITING_PONG,
+    private ScheduledExecutorService mKeepAliveScheduler;
 
-        /** pong受信完了状態. */
-        GOT_PONG,
+    /**
+     * Keep-Aliveのpingを送信するスレッドプール.
+     * <p>
+     * 送信が詰まっているWebSocketがあっても、他のWebSocketのKeep-Aliveが止まらないように
+     * スケジューラのスレッドではI/Oを実行しない.
+     * スレッド数は{@link #WEBSOCKET_KEEP_ALIVE_SENDER_SIZE}に制限する.
+     * </p>
+     */
+    private volatile ExecutorService mKeepAliveSender;
 
-    }
+    /**
+     * pongを返さないWebSocketを切断するスレッド.
+     * <p>
+     * 全ての送信スレッドがpingの送信で止まっていても切断できるように、送信スレッドとは分ける.
+     * 切断するとソケットが閉じられるので、止まっていたpingの送信も失敗して終了する.
+     * </p>
+     */
+    private volatile ExecutorService mKeepAliveCloser;
+
+    /**
+     * 接続ごとの処理を実行するスレッドプール.
+     * <p>
+     * WebSocketは接続中スレッドを占有するので、最大コネクション数とWebSocket最大コネクション数の合計をスレッド数とする.
+     * </p>
+     */
+    private volatile PooledAsyncRunner mAsyncRunner;
 
     /**
      * 設定値を元にサーバーを構築します.
@@ -149,6 +186,13 @@ public class DConnectServerNanoHttpd extends DConnectServer {
         }
 
         mServer = new NanoServer(mConfig.getHost(), mConfig.getPort());
+        mAsyncRunner = new PooledAsyncRunner(
+                mConfig.getMaxConnectionSize() + mConfig.getMaxWebSocketConnectionSize(),
+                mConfig.getConnectionBacklogSize());
+        mServer.setAsyncRunner(mAsyncRunner);
+        mKeepAliveScheduler = Executors.newSingleThreadScheduledExecutor();
+        mKeepAliveSender = Executors.newFixedThreadPool(WEBSOCKET_KEEP_ALIVE_SENDER_SIZE);
+        mKeepAliveCloser = Executors.newSingleThreadExecutor();
 
         if (mConfig.isSsl()) {
             SSLServerSocketFactory factory = createServerSocketFactory();
@@ -207,6 +251,83 @@ public class DConnectServerNanoHttpd extends DConnectServer {
 
         mServer.stop();
         mServer = null;
+
+        if (mAsyncRunner != null) {
+            mAsyncRunner.shutdown();
+            mAsyncRunner = null;
+        }
+
+        if (mKeepAliveScheduler != null) {
+            mKeepAliveScheduler.shutdownNow();
+            mKeepAliveScheduler = null;
+        }
+
+        if (mKeepAliveSender != null) {
+            mKeepAliveSender.shutdownNow();
+            mKeepAliveSender = null;
+        }
+
+        if (mKeepAliveCloser != null) {
+            mKeepAliveCloser.shutdownNow();
+            mKeepAliveCloser = null;
+        }
+    }
+
+    /**
+     * 接続中のWebSocketの数を取得する.
+     * 
+     * @return WebSocketの数
+     */
+    public synchronized int getWebSocketCount() {
+        return mWebSockets.size();
+    }
+
+    /**
+     * 指定されたWebSocketのKeep-Aliveのping/pongの往復時間を取得する.
+     * 
+     * @param webSocketId WebSocketのID
+     * @return 直近の往復時間(ms)。WebSocketが存在しない場合、またはpongを受信していない場合は-1
+     */
+    public synchronized long getWebSocketPingRtt(final String webSocketId) {
+        for (NanoWebSocket socket : mWebSockets) {
+            if (socket.getId().equals(webSocketId)) {
+                return socket.getPingRtt();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 処理中のコネクション数を取得する.
+     * <p>
+     * 接続中のWebSocketも含む.
+     * </p>
+     * 
+     * @return 処理中のコネクション数
+     */
+    public int getActiveConnectionCount() {
+        PooledAsyncRunner runner = mAsyncRunner;
+        return runner == null ? 0 : runner.getActiveCount();
+    }
+
+    /**
+     * 処理待ちのコネクション数を取得する.
+     * 
+     * @return 処理待ちのコネクション数
+     */
+    public int getQueuedConnectionCount() {
+        PooledAsyncRunner runner = mAsyncRunner;
+        return runner == null ? 0 : runner.getQueuedCount();
+    }
+
+    /**
+     * 上限を超えたため拒否したコネクション数を取得する.
+     * 
+     * @return 拒否したコネクション数
+     */
+    public long getRejectedConnectionCount() {
+        PooledAsyncRunner runner = mAsyncRunner;
+        return runner == null ? 0 : runner.getRejectedCount();
     }
 
     @Override
@@ -314,7 +435,12 @@ public class DConnectServerNanoHttpd extends DConnectServer {
                 }
 
                 HttpResponse res = new HttpResponse();
-                if (mListener != null && mListener.onReceivedHttpRequest(req, res)) {
+                boolean handled = mListener != null && mListener.onReceivedHttpRequest(req, res);
+
+                // 読み込まれなかったBodyデータを読み捨てて、次のリクエストを読めるようにしておく
+                skipBodyStream(req);
+
+                if (handled) {
 
                     ByteArrayInputStream stream;
 
@@ -353,6 +479,12 @@ public class DConnectServerNanoHttpd extends DConnectServer {
             }
 
             nanoRes.addHeader("Access-Control-Allow-Headers", requestHeaders);
+
+            // 処理待ちの接続がある場合は、Keep-Aliveでスレッドを占有しないように切断する
+            PooledAsyncRunner runner = mAsyncRunner;
+            if (nanoRes.getStatus() != Status.SWITCH_PROTOCOL && runner != null && runner.getQueuedCount() > 0) {
+                nanoRes.addHeader("Connection", "close");
+            }
             return nanoRes;
         }
 
@@ -597,7 +729,12 @@ public class DConnectServerNanoHttpd extends DConnectServer {
             }
 
             HttpRequest req = new HttpRequest();
-            req.setBody(parseBody(session));
+            if (isMultipart(session)) {
+                // マルチパートは大きなファイルを含む場合があるため、メモリ上に展開せずにストリームで渡す
+                req.setBodyStream(createBodyStream(session));
+            } else {
+                req.setBody(parseBody(session));
+            }
             req.setMethod(method);
             req.setUri(uri);
             req.setHeaders(session.getHeaders());
@@ -665,6 +802,55 @@ public class DConnectServerNanoHttpd extends DConnectServer {
             return retval;
         }
 
+        /**
+         * リクエストのBodyがマルチパートであるかチェックする.
+         * 
+         * @param session リクエストデータ
+         * @return マルチパートの場合はtrue、それ以外はfalse
+         */
+        private boolean isMultipart(final IHTTPSession session) {
+            String contentType = session.getHeaders().get("content-type");
+            return contentType != null && contentType.contains("multipart/form-data");
+        }
+
+        /**
+         * リクエストのBodyを読み込むストリームを作成する.
+         * <p>
+         * ストリームはContent-Lengthで指定されたサイズまでしか読み込まない.
+         * </p>
+         * 
+         * @param session リクエストデータ
+         * @return HTTPリクエストのBodyを読み込むストリーム
+         */
+        private InputStream createBodyStream(final IHTTPSession session) {
+            Map<String, String> headers = session.getHeaders();
+            long size = 0;
+            if (headers.containsKey("content-length")) {
+                try {
+                    size = Long.parseLong(headers.get("content-length"));
+                } catch (NumberFormatException e) {
+                    mLogger.warning("Invalid content-length: " + headers.get("content-length"));
+                }
+            }
+            return new BodyInputStream(session.getInputStream(), size);
+        }
+
+        /**
+         * リクエストのBodyを読み込むストリームの残りを読み捨てる.
+         * 
+         * @param req Device Connect 用リクエストデータ
+         */
+        private void skipBodyStream(final HttpRequest req) {
+            InputStream in = req.getBodyStream();
+            if (in instanceof BodyInputStream) {
+                try {
+                    ((BodyInputStream) in).skipAll();
+                } catch (IOException e) {
+                    mLogger.warning("Exception in the NanoServer#skipBodyStream() method. " + e.toString());
+                }
+            }
+        }
+
         /**
          * ファイルが読み込み可能なファイルかチェックする.
          * 
@@ -696,11 +882,23 @@ public class DConnectServerNanoHttpd extends DConnectServer {
      */
     private class NanoWebSocket extends WebSocket implements DConnectWebSocket {
 
-        /** KeepAlive実行用のタイマー. */
-        private Timer mKeepAliveTimer;
+        /** Keep-Aliveのタスクの実行予約. */
+        private ScheduledFuture<?> mKeepAliveFuture;
+
+        /** pingを送信した時刻(ns). */
+        private volatile long mPingSentTime;
+
+        /** 最後にpongを受信した時刻(ns). 接続直後は接続した時刻. */
+        private volatile long mLastPongTime = System.nanoTime();
 
-        /** Keep-Aliveのタスク. */
-        private KeepAliveTask mKeepAliveTask;
+        /** pingの送信中フラグ. */
+        private final AtomicBoolean mPingSending = new AtomicBoolean();
+
+        /** 切断処理済みフラグ. */
+        private final AtomicBoolean mClosed = new AtomicBoolean();
+
+        /** 直近のping/pongの往復時間(ms). */
+        private volatile long mPingRtt = -1;
 
         /** ID. */
         private final UUID mId = UUID.randomUUID();
@@ -711,10 +909,12 @@ public class DConnectServerNanoHttpd extends DConnectServer {
          */
         public NanoWebSocket(final IHTTPSession handshakeRequest) {
             super(handshakeRequest);
-            mKeepAliveTask = new KeepAliveTask();
-            mKeepAliveTimer = new Timer();
-            mKeepAliveTimer.scheduleAtFixedRate(mKeepAliveTask, WEBSOCKET_KEEP_ALIVE_INTERVAL,
-                    WEBSOCKET_KEEP_ALIVE_INTERVAL);
+            ScheduledExecutorService scheduler = mKeepAliveScheduler;
+            if (scheduler != null) {
+                // NOTE: 実行が遅れた場合に遅れた分をまとめて実行しないように、固定間隔ではなく固定遅延にする
+                mKeepAliveFuture = scheduler.scheduleWithFixedDelay(new KeepAliveTask(), WEBSOCKET_KEEP_ALIVE_INTERVAL,
+                        WEBSOCKET_KEEP_ALIVE_INTERVAL, TimeUnit.MILLISECONDS);
+            }
 
             mSockets.put(getId(), this);
             if (mListener != null) {
@@ -733,6 +933,15 @@ public class DConnectServerNanoHttpd extends DConnectServer {
             return getHandshakeRequest().getUri();
         }
 
+        /**
+         * 直近のKeep-Aliveのping/pongの往復時間を取得する.
+         * 
+         * @return 往復時間(ms)。pongを受信していない場合は-1
+         */
+        public long getPingRtt() {
+            return mPingRtt;
+        }
+
         @Override
         public String getClientOrigin() {
             NanoHTTPD.IHTTPSession request = getHandshakeRequest();
@@ -761,12 +970,23 @@ public class DConnectServerNanoHttpd extends DConnectServer {
             closeWebSocket();
         }
 
+        /**
+         * Closeフレームを送らずにソケットを閉じる.
+         * <p>
+         * {@link #sendFrame(WebSocketFrame)}のロックを取らないので、送信が止まっているスレッドがあっても
+         * ブロックせずに、そのスレッドの送信をIOExceptionで終わらせる.
+         * </p>
+         */
+        private void abort() {
+            doClose(CloseCode.GoingAway, "Send timeout", false);
+        }
+
         @Override
         protected void onPong(final WebSocketFrame pongFrame) {
-            synchronized (mKeepAliveTask) {
-                if (mKeepAliveTask.getState() == KeepAliveState.WAITING_PONG) {
-                    mKeepAliveTask.setState(KeepAliveState.GOT_PONG);
-                }
+            long now = System.nanoTime();
+            mLastPongTime = now;
+            if (mPingSentTime != 0) {
+                mPingRtt = TimeUnit.NANOSECONDS.toMillis(now - mPingSentTime);
             }
         }
 
@@ -784,6 +1004,9 @@ public class DConnectServerNanoHttpd extends DConnectServer {
         }
 
         private void closeWebSocket() {
+            if (!mClosed.compareAndSet(false, true)) {
+                return;
+            }
             mSockets.remove(getId());
             mLogger.fine("WebSocket closed. id = " + getId());
             if (mListener != null) {
@@ -794,7 +1017,16 @@ public class DConnectServerNanoHttpd extends DConnectServer {
             }
             mWebSockets.remove(this);
 
-            mKeepAliveTimer.cancel();
+            cancelKeepAlive();
+        }
+
+        /**
+         * Keep-Aliveのタスクの実行予約を取り消す.
+         */
+        private void cancelKeepAlive() {
+            if (mKeepAliveFuture != null) {
+                mKeepAliveFuture.cancel(false);
+            }
         }
 
         @Override
@@ -808,57 +1040,81 @@ public class DConnectServerNanoHttpd extends DConnectServer {
         }
 
         /**
-         * Keep-Alive用タイマータスク.
-         * 
-         * @author NTT DOCOMO, INC.
-         * 
+         * Keep-Aliveのpingを送信するタスクを実行する.
+         * <p>
+         * 前回のpingの送信が終わっていない場合は何もしない.
+         * </p>
          */
-        private class KeepAliveTask extends TimerTask {
-
-            /** 処理状態. */
-            private KeepAliveState mState;
-
-            /**
-             * コンストラクタ.
-             */
-            public KeepAliveTask() {
-                setState(KeepAliveState.GOT_PONG);
+        private void sendPing() {
+            ExecutorService sender = mKeepAliveSender;
+            if (sender == null || !mPingSending.compareAndSet(false, true)) {
+                return;
             }
-
-            /**
-             * 状態を変更する.
-             * 
-             * @param state 状態
-             */
-            public void setState(final KeepAliveState state) {
-                mState = state;
+            try {
+                sender.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            mPingSentTime = System.nanoTime();
+                            ping("".getBytes());
+                        } catch (IOException e) {
+                            // 送信できないクライアントとは切断する
+                            cancelKeepAlive();
+                            doClose(CloseCode.AbnormalClosure, "Failed to send ping.", false);
+                        } finally {
+                            mPingSending.set(false);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                mPingSending.set(false);
             }
+        }
 
-            /**
-             * 状態を取得する.
-             * 
-             * @return 状態
-             */
-            public KeepAliveState getState() {
-                return mState;
+        /**
+         * pongを返さないクライアントとの接続を切断する.
+         * <p>
+         * 送信中のpingやイベントが書き込みで止まっている可能性があるので、
+         * closeフレームは送信せずにストリームを閉じる.
+         * </p>
+         */
+        private void closeDeadConnection() {
+            cancelKeepAlive();
+            ExecutorService closer = mKeepAliveCloser;
+            if (closer == null) {
+                return;
             }
+            try {
+                closer.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mLogger.fine("WebSocket keep-alive timed out. id = " + getId());
+                        doClose(CloseCode.GoingAway, "Client is dead.", false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // サーバ停止中のため何もしない
+            }
+        }
 
+        /**
+         * Keep-Alive用タスク.
+         * <p>
+         * 最後にpongを受信してからの経過時間でクライアントの生存を判断する.
+         * スケジューラのスレッドでは送信処理を実行しない.
+         * </p>
+         * 
+         * @author NTT DOCOMO, INC.
+         * 
+         */
+        private class KeepAliveTask implements Runnable {
             @Override
             public void run() {
-                try {
-
-                    synchronized (this) {
-                        if (mState == KeepAliveState.GOT_PONG) {
-                            setState(KeepAliveState.WAITING_PONG);
-                            ping("".getBytes());
-                        } else {
-                            close(CloseCode.GoingAway, "Client is dead.");
-                        }
-                    }
-
-                } catch (IOException e) {
-                    // 例外が発生したらタスクを終了し、タイムアウトに任せる
-                    cancel();
+                long elapsed = System.nanoTime() - mLastPongTime;
+                if (TimeUnit.NANOSECONDS.toMillis(elapsed) > WEBSOCKET_KEEP_ALIVE_TIMEOUT) {
+                    closeDeadConnection();
+                } else {
+                    sendPing();
                 }
             }
         }
@@ -878,8 +1134,94 @@ public class DConnectServerNanoHttpd extends DConnectServer {
         }
     }
 
+    @Override
+    public void abortWebSocket(final String webSocketId) {
+        for (NanoWebSocket socket : mWebSockets) {
+            if (webSocketId.equals(socket.getId())) {
+                socket.abort();
+                return;
+            }
+        }
+    }
+
     @Override
     public String getVersion() {
         return VERESION;
     }
+
+    /**
+     * HTTPリクエストのBodyをContent-Lengthで指定されたサイズまで読み込むストリーム.
+     * <p>
+     * Keep-Aliveで次のリクエストを読み込めるように、close()しても元のストリームは閉じない.
+     * </p>
+     * 
+     * @author NTT DOCOMO, INC.
+     */
+    private static class BodyInputStream extends InputStream {
+
+        /** 元のストリーム. */
+        private final InputStream mInputStream;
+
+        /** 残りのサイズ. */
+        private long mRemaining;
+
+        /**
+         * コンストラクタ.
+         * @param in 元のストリーム
+         * @param size Bodyのサイズ
+         */
+        BodyInputStream(final InputStream in, final long size) {
+            mInputStream = in;
+            mRemaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int b = mInputStream.read();
+            if (b >= 0) {
+                mRemaining--;
+            } else {
+                mRemaining = 0;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int len = mInputStream.read(buffer, offset, (int) Math.min(length, mRemaining));
+            if (len > 0) {
+                mRemaining -= len;
+            } else if (len < 0) {
+                mRemaining = 0;
+            }
+            return len;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(mInputStream.available(), mRemaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // 元のストリームは閉じない
+        }
+
+        /**
+         * 残りのBodyを読み捨てる.
+         * @throws IOException 読み込みに失敗した場合
+         */
+        void skipAll() throws IOException {
+            byte[] buf = new byte[4096];
+            while (read(buf, 0, buf.length) >= 0) {
+                // 読み捨てる
+            }
+        }
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ PooledAsyncRunner.java
+ Copyright (c) 2016 NTT DOCOMO,INC.
+ Released under the MIT license
+ http://opensource.org/licenses/mit-license.php
+ */
+package org.deviceconnect.server.nanohttpd;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fi.iki.elonen.NanoHTTPD;
+
+/**
+ * 接続ごとの処理をスレッドプールで実行するAsyncRunner.
+ * <p>
+ * NanoHTTPDのデフォルトでは接続ごとにスレッドを生成するため、接続が集中するとスレッドが際限なく増える。
+ * 本クラスでは同時に処理する接続数を制限し、それを超えた接続は処理待ちにする。
+ * 処理待ちの数も上限を超えた場合は{@link RejectedExecutionException}を発生させ、
+ * NanoHTTPDは503を返却して接続を切断する。
+ * </p>
+ *
+ * @author NTT DOCOMO, INC.
+ */
+class PooledAsyncRunner implements NanoHTTPD.AsyncRunner {
+
+    /** 処理待ちがない場合にスレッドを破棄するまでの時間(秒). */
+    private static final long KEEP_ALIVE_TIME = 60;
+
+    /** 接続を処理するスレッドプール. */
+    private final ThreadPoolExecutor mExecutor;
+
+    /** 処理中の接続数. */
+    private final AtomicInteger mActiveCount = new AtomicInteger();
+
+    /** 拒否した接続数. */
+    private final AtomicLong mRejectedCount = new AtomicLong();
+
+    /** 受け付けた接続数. */
+    private final AtomicLong mAcceptedCount = new AtomicLong();
+
+    /**
+     * コンストラクタ.
+     *
+     * @param maxThreads 同時に処理する接続数
+     * @param backlogSize 処理待ちにできる接続数
+     */
+    PooledAsyncRunner(final int maxThreads, final int backlogSize) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads must be larger than 0.");
+        }
+        BlockingQueue<Runnable> queue;
+        if (backlogSize > 0) {
+            queue = new ArrayBlockingQueue<Runnable>(backlogSize);
+        } else {
+            queue = new SynchronousQueue<Runnable>();
+        }
+        mExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+                queue, new ProcessorThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void exec(final Runnable code) {
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mActiveCount.incrementAndGet();
+                    try {
+                        code.run();
+                    } finally {
+                        mActiveCount.decrementAndGet();
+                    }
+                }
+            });
+            mAcceptedCount.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            mRejectedCount.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * スレッドプールを終了する.
+     * <p>
+     * 処理待ちの接続は破棄される。処理中の接続はサーバー側で切断すること。
+     * </p>
+     */
+    void shutdown() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * 処理中の接続数を取得する.
+     *
+     * @return 処理中の接続数
+     */
+    int getActiveCount() {
+        return mActiveCount.get();
+    }
+
+    /**
+     * 処理待ちの接続数を取得する.
+     *
+     * @return 処理待ちの接続数
+     */
+    int getQueuedCount() {
+        return mExecutor.getQueue().size();
+    }
+
+    /**
+     * 拒否した接続数を取得する.
+     *
+     * @return 拒否した接続数
+     */
+    long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    /**
+     * 受け付けた接続数を取得する.
+     *
+     * @return 受け付けた接続数
+     */
+    long getAcceptedCount() {
+        return mAcceptedCount.get();
+    }
+
+    /**
+     * 接続を処理するスレッドを生成するクラス.
+     */
+    private static class ProcessorThreadFactory implements ThreadFactory {
+        /** スレッド番号. */
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(r, "NanoHttpd Request Processor (#" + mCount.incrementAndGet() + ")");
+        }
+    }
+}